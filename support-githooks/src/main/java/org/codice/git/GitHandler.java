@@ -17,28 +17,34 @@ import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.apache.commons.io.IOUtils;
 import org.codice.git.hook.ChangeOnlyDiffFormatter;
 import org.eclipse.jgit.api.errors.NoHeadException;
 import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.dircache.DirCacheEntry;
 import org.eclipse.jgit.dircache.DirCacheIterator;
 import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.ObjectStream;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.StoredConfig;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.RawParseUtils;
 
-import com.google.common.base.Charsets;
 import com.google.common.io.Files;
 
 public class GitHandler extends RepositoryHandler {
@@ -67,8 +73,18 @@ public class GitHandler extends RepositoryHandler {
         return repo.getDirectory();
     }
 
+    @Override
+    public File getWorkTree() {
+        return repo.isBare() ? null : repo.getWorkTree();
+    }
+
     @Override
     public String getFileAsString(String filename) throws Exception {
+        return RawParseUtils.decode(getFileAsBytes(filename));
+    }
+
+    @Override
+    public byte[] getFileAsBytes(String filename) throws Exception {
         File fileToRead = new File(filename);
 
         if (!fileToRead.exists()) {
@@ -78,11 +94,130 @@ public class GitHandler extends RepositoryHandler {
             fileToRead = new File(fileToRead, filename);
         }
         LOGGER.log(Level.FINER, "Reading commit message from {0}", fileToRead.getPath());
-        return Files.toString(fileToRead, Charsets.UTF_8);
+        return Files.toByteArray(fileToRead);
+    }
+
+    @Override
+    public byte[] getStagedPrefix(StagedChange change, int limit) throws Exception {
+        if (change.getObjectId() == null) {
+            return super.getStagedPrefix(change, limit);
+        }
+        final ObjectReader reader = repo.newObjectReader();
+
+        try {
+            final ObjectLoader loader = reader.open(change.getObjectId(), Constants.OBJ_BLOB);
+            final byte[] buf = new byte[(int) Math.min(limit, loader.getSize())];
+            final ObjectStream in = loader.openStream();
+
+            try {
+                IOUtils.readFully(in, buf);
+            } finally {
+                in.close();
+            }
+            return buf;
+        } finally {
+            reader.release();
+        }
     }
 
     @Override
     public String getDiff() throws Exception {
+        return RawParseUtils.decode(getDiffBytes());
+    }
+
+    @Override
+    public byte[] getDiffBytes() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ChangeOnlyDiffFormatter diffFmt =
+                new ChangeOnlyDiffFormatter(new BufferedOutputStream(out));
+
+        try {
+            diffFmt.format(scanDiffEntries(diffFmt));
+            diffFmt.flush();
+        } finally {
+            diffFmt.release();
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public void scanStagedChanges(StagedChangeVisitor visitor) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ChangeOnlyDiffFormatter diffFmt =
+                new ChangeOnlyDiffFormatter(new BufferedOutputStream(out));
+
+        try {
+            for (final DiffEntry entry: scanDiffEntries(diffFmt)) {
+                if (entry.getChangeType() == DiffEntry.ChangeType.DELETE) {
+                    continue;
+                }
+                // format one entry at a time so each file can be processed while the next is diffed
+                diffFmt.format(entry);
+                diffFmt.flush();
+                final byte[] buf = out.toByteArray();
+
+                out.reset();
+                visitor.visit(new StagedChange(entry.getNewPath(), entry.getChangeType(),
+                        entry.getNewId().toObjectId(), buf, 0, buf.length));
+            }
+        } finally {
+            diffFmt.release();
+        }
+    }
+
+    @Override
+    public List<StagedEntry> getStagedEntries() throws Exception {
+        final List<StagedEntry> entries = new ArrayList<StagedEntry>();
+        final ObjectId head = repo.resolve(Constants.HEAD + "^{tree}");
+        final ObjectReader reader = repo.newObjectReader();
+        final TreeWalk walk = new TreeWalk(reader);
+
+        try {
+            walk.setRecursive(true);
+            if (head != null) {
+                walk.addTree(head);
+            } else {
+                walk.addTree(new EmptyTreeIterator());
+            }
+            walk.addTree(new DirCacheIterator(repo.readDirCache()));
+            // only compares the ids recorded in the trees; no blobs are read
+            walk.setFilter(TreeFilter.ANY_DIFF);
+            while (walk.next()) {
+                final DirCacheIterator it = walk.getTree(1, DirCacheIterator.class);
+
+                if (it == null) { // deleted
+                    continue;
+                }
+                final DirCacheEntry entry = it.getDirCacheEntry();
+                long length = entry.getLength() & 0xFFFFFFFFL;
+
+                if (entry.getFileMode().getObjectType() == Constants.OBJ_BLOB) {
+                    // the index only records the lower 32 bits of the length and racily clean
+                    // entries are recorded with a length of 0 so read it from the header of the
+                    // blob instead; only the header is inflated
+                    length = reader.getObjectSize(entry.getObjectId(), Constants.OBJ_BLOB);
+                }
+                entries.add(new StagedEntry(entry.getPathString(),
+                        (walk.getRawMode(0) == 0) ? DiffEntry.ChangeType.ADD : DiffEntry.ChangeType.MODIFY,
+                        length,
+                        entry.getObjectId()));
+            }
+        } finally {
+            walk.release();
+            reader.release();
+        }
+        LOGGER.log(Level.FINER, "Staged index entries: {0}", entries);
+        return entries;
+    }
+
+    /**
+     * Scans the differences between the HEAD tree and the index.
+     *
+     * @param diffFmt the formatter to scan with
+     * @return the staged diff entries
+     * @throws Exception if any exceptions occur during processing
+     */
+    private List<DiffEntry> scanDiffEntries(ChangeOnlyDiffFormatter diffFmt) throws Exception {
         final ObjectId head = repo.resolve(Constants.HEAD + "^{tree}");
 
         if (head == null) {
@@ -99,22 +234,13 @@ public class GitHandler extends RepositoryHandler {
         }
         final AbstractTreeIterator oldTree = p;
         final AbstractTreeIterator newTree = new DirCacheIterator(repo.readDirCache());
-        final OutputStream out = new ByteArrayOutputStream();
-        final ChangeOnlyDiffFormatter diffFmt =
-                new ChangeOnlyDiffFormatter(new BufferedOutputStream(out));
 
         diffFmt.setRepository(repo);
         diffFmt.setPathFilter(TreeFilter.ALL);
         diffFmt.setProgressMonitor(NullProgressMonitor.INSTANCE);
 
         LOGGER.finer("Scanning the git tree for diffs");
-        final List<DiffEntry> result = diffFmt.scan(oldTree, newTree);
-
-        diffFmt.format(result);
-        diffFmt.flush();
-        diffFmt.release();
-
-        return out.toString();
+        return diffFmt.scan(oldTree, newTree);
     }
 
     @Override
@@ -16,8 +16,12 @@ package org.codice.git;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
@@ -27,7 +31,13 @@ import java.util.regex.Pattern;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.codice.git.hook.DirtyWordMatcher;
+import org.codice.git.hook.DirtyWordTrie;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.util.RawParseUtils;
 
+import com.google.common.base.CharMatcher;
 import com.google.common.base.Charsets;
 
 public abstract class RepositoryHandler {
@@ -35,8 +45,14 @@ public abstract class RepositoryHandler {
 
     public static final String PREFIX_NONE = "NONE";
     public static final String REGEX_PREFIX = "REGEX:";
+    // literal dirty words stored as salted hashes; see org.codice.git.hook.HashedWords
+    public static final String HASH_PREFIX = "HASH:";
     // check for word boundaries with \b and also for underscores, ?: is to not capture
     public static final String REGEX_PATTERN = "(?:\\b|_)%s(?:\\b|_)";
+    // number of literal dirty words from which they are compiled into a trie instead of patterns
+    public static final int TRIE_THRESHOLD = 1000;
+
+    private static final byte[] FILE_HEADER = Constants.encodeASCII("+++ b/");
 
     private final File basedir;
 
@@ -60,6 +76,15 @@ public abstract class RepositoryHandler {
      */
     public abstract File getMetadir();
 
+    /**
+     * Gets the working tree of the repository.
+     *
+     * @return the working tree or <code>null</code> if the repository has none
+     */
+    public File getWorkTree() {
+        return null;
+    }
+
     /**
      * Gets the local backlist words file for the repository.
      *
@@ -88,6 +113,44 @@ public abstract class RepositoryHandler {
      * @throws java.io.IOException if any error occurs reading the files
      */
     public Map<String, Pattern> getDirtyWords() throws IOException {
+        return getPatternsFor(readDirtyWords());
+    }
+
+    /**
+     * Gets a matcher for all dirty words as returned by {@link #getDirtyWords()}. When there are
+     * at least {@link #TRIE_THRESHOLD} literal ASCII dirty words, those are compiled into a
+     * {@link DirtyWordTrie} cached in the local meta directory instead of one pattern each.
+     *
+     * @return a matcher for all dirty words
+     * @throws java.io.IOException if any error occurs reading the files
+     */
+    public DirtyWordMatcher getDirtyWordMatcher() throws IOException {
+        final Set<String> words = readDirtyWords();
+        final List<String> literals = new ArrayList<String>();
+
+        for (final String w: words) {
+            if (!w.startsWith(RepositoryHandler.REGEX_PREFIX) && !w.startsWith(RepositoryHandler.HASH_PREFIX)
+                    && CharMatcher.ASCII.matchesAllOf(w)) {
+                literals.add(w);
+            }
+        }
+        if (literals.size() < RepositoryHandler.TRIE_THRESHOLD) {
+            return new DirtyWordMatcher(getPatternsFor(words));
+        }
+        final File metadir = getMetadir();
+
+        words.removeAll(literals);
+        return new DirtyWordMatcher(getPatternsFor(words),
+                DirtyWordTrie.load((metadir != null) ? new File(metadir, "dirty-words.trie") : null, literals));
+    }
+
+    /**
+     * Combines the blacklist words as described in {@link #getDirtyWords()}.
+     *
+     * @return the set of all dirty words
+     * @throws java.io.IOException if any error occurs reading the files
+     */
+    protected Set<String> readDirtyWords() throws IOException {
         final Set<String> words = new HashSet<String>();
         final String uhome = System.getProperty("user.home");
 
@@ -143,6 +206,10 @@ public abstract class RepositoryHandler {
             }
         }
         LOGGER.log(Level.FINE, "Dirty Words are: {0}", words);
+        return words;
+    }
+
+    private Map<String, Pattern> getPatternsFor(Set<String> words) {
         // generate all regex patterns for all dirty words
         final Map<String, Pattern> wordmap = new HashMap<String, Pattern>(words.size() * 3 / 2);
 
@@ -177,6 +244,34 @@ public abstract class RepositoryHandler {
      */
     public abstract String getFileAsString(String filename) throws Exception;
 
+    /**
+     * Reads the file at the given path from the root of the working tree without decoding it.
+     *
+     * @param filename path to be added to the root of the working directory
+     * @return the raw contents of the file
+     * @throws Exception
+     */
+    public byte[] getFileAsBytes(String filename) throws Exception {
+        return getFileAsString(filename).getBytes(Charsets.UTF_8);
+    }
+
+    /**
+     * Reads the beginning of the content staged for a file, without reading the rest of it.
+     * <p/>
+     * The default implementation reads the file from the working tree as returned by
+     * {@link #getFileAsBytes(String)}.
+     *
+     * @param change the staged file to read
+     * @param limit  the maximum number of bytes to read
+     * @return at most <code>limit</code> bytes from the beginning of the staged content
+     * @throws Exception if any exceptions occur during processing
+     */
+    public byte[] getStagedPrefix(StagedChange change, int limit) throws Exception {
+        final byte[] bytes = getFileAsBytes(change.getPath());
+
+        return (bytes.length > limit) ? Arrays.copyOf(bytes, limit) : bytes;
+    }
+
     /**
      * Uses git to scan the repository and return a list of differences in the
      * files waiting to be committed. This will only look at files that have been
@@ -190,11 +285,81 @@ public abstract class RepositoryHandler {
      */
     public abstract String getDiff() throws Exception;
 
+    /**
+     * Same as {@link #getDiff()} but returns the UTF-8 encoded lines of the diff as copied from
+     * the blobs, without decoding them into a string.
+     *
+     * @return the bytes of the lines of the diff that involve new content
+     * @throws Exception if any exceptions occur during processing
+     */
+    public byte[] getDiffBytes() throws Exception {
+        return StringUtils.defaultString(getDiff()).getBytes(Charsets.UTF_8);
+    }
+
+    /**
+     * Scans the files staged for the next commit, one at a time, with the lines of their diff
+     * that involve new content as returned by {@link #getDiffBytes()}.
+     * <p/>
+     * The default implementation splits the diff returned by {@link #getDiffBytes()} at each
+     * <code>+++ b/</code> header line; change types and blob ids are then unknown.
+     *
+     * @param visitor the visitor to call for each staged file
+     * @throws Exception if any exceptions occur during processing
+     */
+    public void scanStagedChanges(StagedChangeVisitor visitor) throws Exception {
+        final byte[] diff = getDiffBytes();
+        String currentFile = "???";
+        int fileStart = 0;
+
+        for (int ptr = 0; ptr < diff.length; ptr = RawParseUtils.nextLF(diff, ptr)) {
+            final int nameStart = RawParseUtils.match(diff, ptr, FILE_HEADER);
+
+            if (nameStart < 0) {
+                continue;
+            }
+            if (ptr > fileStart) {
+                visitor.visit(new StagedChange(currentFile, DiffEntry.ChangeType.MODIFY, null, diff, fileStart, ptr));
+            }
+            // the header line is part of the next chunk which will allow us to validate the filename as well
+            fileStart = ptr;
+            currentFile = RawParseUtils.decode(diff, nameStart, lineEnd(diff, nameStart));
+        }
+        if (diff.length > fileStart) {
+            visitor.visit(new StagedChange(currentFile, DiffEntry.ChangeType.MODIFY, null, diff, fileStart, diff.length));
+        }
+    }
+
+    /**
+     * Gets the index entries added or modified for the next commit, as recorded in the index
+     * without reading their content.
+     * <p/>
+     * The default implementation has no index and returns no entries.
+     *
+     * @return the staged index entries
+     * @throws Exception if any exceptions occur during processing
+     */
+    public List<StagedEntry> getStagedEntries() throws Exception {
+        return Collections.emptyList();
+    }
+
     public abstract String getConfigString(String section, String subsection, String key);
 
     public abstract void setConfigString(String section, String subsection, String key, String value) throws IOException;
 
+    private static int lineEnd(byte[] buf, int ptr) {
+        int end = RawParseUtils.nextLF(buf, ptr);
+
+        while ((end > ptr) && ((buf[end - 1] == '\n') || (buf[end - 1] == '\r'))) {
+            end--;
+        }
+        return end;
+    }
+
     protected Pattern getPatternFor(String dirtyWord) {
+        if (dirtyWord.startsWith(RepositoryHandler.HASH_PREFIX)) {
+            // hashed words cannot be matched with a regex; they never match
+            return Pattern.compile("(?!)");
+        }
         // quote the word if it is a literal one (not starting with regex prefix)
         final String rw = dirtyWord.startsWith(RepositoryHandler.REGEX_PREFIX) ? dirtyWord.substring(RepositoryHandler.REGEX_PREFIX.length()) : Pattern.quote(dirtyWord);
 
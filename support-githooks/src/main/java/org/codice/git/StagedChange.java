@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * A file staged for the next commit along with the lines of its diff that involve new content,
+ * as produced by {@link org.codice.git.hook.ChangeOnlyDiffFormatter}.
+ */
+public class StagedChange {
+    private final String path;
+
+    private final DiffEntry.ChangeType changeType;
+
+    private final ObjectId objectId;
+
+    private final byte[] buf;
+
+    private final int start;
+
+    private final int end;
+
+    /**
+     * Instantiates a new staged change.
+     *
+     * @param path       the path of the file from the root of the working tree
+     * @param changeType the type of change
+     * @param objectId   the id of the staged blob or <code>null</code> if unknown
+     * @param buf        the buffer holding the UTF-8 encoded lines of the diff for the file,
+     *                   starting with its <code>+++ b/</code> header line
+     * @param start      the offset of the first byte of the lines
+     * @param end        the offset following the last byte of the lines
+     */
+    public StagedChange(String path, DiffEntry.ChangeType changeType, ObjectId objectId, byte[] buf,
+            int start, int end) {
+        this.path = path;
+        this.changeType = changeType;
+        this.objectId = objectId;
+        this.buf = buf;
+        this.start = start;
+        this.end = end;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public DiffEntry.ChangeType getChangeType() {
+        return changeType;
+    }
+
+    /**
+     * Gets the id of the staged blob for the file.
+     *
+     * @return the id of the staged blob or <code>null</code> if unknown
+     */
+    public ObjectId getObjectId() {
+        return objectId;
+    }
+
+    /**
+     * Gets the buffer holding the lines of the diff for the file. It must not be modified.
+     *
+     * @return the buffer holding the lines
+     */
+    public byte[] getBuffer() {
+        return buf;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+}
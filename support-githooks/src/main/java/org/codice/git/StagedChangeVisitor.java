@@ -0,0 +1,29 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git;
+
+/**
+ * Visitor called for each file staged for the next commit by
+ * {@link RepositoryHandler#scanStagedChanges(StagedChangeVisitor)}.
+ */
+public interface StagedChangeVisitor {
+    /**
+     * Visits a staged file. The buffer of the change is never reused so it can be processed
+     * after the call returns.
+     *
+     * @param change the staged change
+     * @throws Exception if an error occurs while visiting
+     */
+    void visit(StagedChange change) throws Exception;
+}
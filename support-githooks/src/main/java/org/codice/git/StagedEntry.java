@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * An entry of the index staged for the next commit. Only the header of its blob is read to
+ * determine its length.
+ */
+public class StagedEntry {
+    private final String path;
+
+    private final DiffEntry.ChangeType changeType;
+
+    private final long length;
+
+    private final ObjectId objectId;
+
+    /**
+     * Instantiates a new staged entry.
+     *
+     * @param path       the path of the file from the root of the working tree
+     * @param changeType the type of change, <code>ADD</code> if the path is not in HEAD or else
+     *                   <code>MODIFY</code>
+     * @param length     the length of the staged blob
+     * @param objectId   the id of the staged blob
+     */
+    public StagedEntry(String path, DiffEntry.ChangeType changeType, long length, ObjectId objectId) {
+        this.path = path;
+        this.changeType = changeType;
+        this.length = length;
+        this.objectId = objectId;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public DiffEntry.ChangeType getChangeType() {
+        return changeType;
+    }
+
+    /**
+     * Gets the length of the staged blob. Unlike the length recorded in the index, it is neither
+     * truncated for files of 4GB or more nor reset to 0 for racily clean entries.
+     *
+     * @return the length of the blob in bytes
+     */
+    public long getLength() {
+        return length;
+    }
+
+    public ObjectId getObjectId() {
+        return objectId;
+    }
+
+    @Override
+    public String toString() {
+        return path + " (" + length + " bytes)";
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Thread safe aggregation of the violations reported by {@link Checker}s.
+ */
+public class CheckResults {
+    private final Map<Checker, Set<String>> violations =
+            new LinkedHashMap<Checker, Set<String>>();
+
+    private final Map<Checker, Set<String>> files =
+            new LinkedHashMap<Checker, Set<String>>();
+
+    /**
+     * Reports a violation.
+     *
+     * @param checker   the checker reporting the violation
+     * @param file      the file where the violation was found
+     * @param violation a description of the violation (e.g. the dirty word found)
+     */
+    public synchronized void add(Checker checker, String file, String violation) {
+        get(violations, checker).add(violation);
+        get(files, checker).add(file);
+    }
+
+    /**
+     * Checks if any violations were reported.
+     *
+     * @return <code>true</code> if violations were reported; <code>false</code> otherwise
+     */
+    public synchronized boolean hasViolations() {
+        return !violations.isEmpty();
+    }
+
+    /**
+     * Gets the violations reported by a checker.
+     *
+     * @param checker the checker
+     * @return the violations reported by <code>checker</code>
+     */
+    public synchronized Set<String> getViolations(Checker checker) {
+        return Collections.unmodifiableSet(get(violations, checker));
+    }
+
+    /**
+     * Gets the files where a checker reported violations.
+     *
+     * @param checker the checker
+     * @return the files where <code>checker</code> reported violations
+     */
+    public synchronized Set<String> getFiles(Checker checker) {
+        return Collections.unmodifiableSet(get(files, checker));
+    }
+
+    /**
+     * Appends the violations reported by all checkers, in the order they first reported.
+     *
+     * @param sb the string builder where to append
+     * @return <code>sb</code> for chaining
+     */
+    public synchronized StringBuilder appendTo(StringBuilder sb) {
+        for (final Map.Entry<Checker, Set<String>> e: violations.entrySet()) {
+            e.getKey().appendViolations(sb, e.getValue(), files.get(e.getKey()));
+        }
+        return sb;
+    }
+
+    private static Set<String> get(Map<Checker, Set<String>> map, Checker checker) {
+        Set<String> set = map.get(checker);
+
+        if (set == null) {
+            set = new TreeSet<String>();
+            map.put(checker, set);
+        }
+        return set;
+    }
+}
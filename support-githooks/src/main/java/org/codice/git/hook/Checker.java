@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import java.util.Set;
+
+import org.codice.git.RepositoryHandler;
+
+/**
+ * Base interface for checks performed by the {@link PreCommit} hook.
+ * <p/>
+ * Implementations are discovered with {@link java.util.ServiceLoader} and must provide a public
+ * no-argument constructor.
+ */
+public interface Checker {
+    /**
+     * Initializes this checker for the next commit.
+     *
+     * @param handler the repository handler
+     * @return <code>true</code> if this checker has something to check; <code>false</code> to
+     * skip it
+     * @throws Exception if an error occurs while initializing
+     */
+    boolean init(RepositoryHandler handler) throws Exception;
+
+    /**
+     * Appends a description of the violations reported by this checker to be displayed to the
+     * user. The string builder supports <code>%n</code> for new lines.
+     *
+     * @param sb         the string builder where to append
+     * @param violations the violations reported by this checker
+     * @param files      the files where violations were reported
+     * @return <code>sb</code> for chaining
+     */
+    StringBuilder appendViolations(StringBuilder sb, Set<String> violations, Set<String> files);
+}
@@ -22,6 +22,9 @@ import java.util.logging.Logger;
 
 import org.apache.commons.lang3.StringUtils;
 import org.codice.git.RepositoryHandler;
+import org.eclipse.jgit.util.RawParseUtils;
+
+import com.google.common.base.Charsets;
 
 public class CommitMsg extends Hook {
     protected static final String ERR_MSG =
@@ -66,7 +69,8 @@ public class CommitMsg extends Hook {
                 return false;
             }
             LOGGER.log(Level.FINE, "Reading commit message from: {0}", args[0]);
-            String commitMsg = repoHandler.getFileAsString(args[0]);
+            final byte[] rawCommitMsg = repoHandler.getFileAsBytes(args[0]);
+            final String commitMsg = RawParseUtils.decode(rawCommitMsg);
 
             LOGGER.log(Level.FINE, "Commit message: {0}", commitMsg);
             //CommitMsg.OUT.println("Commit message: " + commitMsg);
@@ -74,7 +78,7 @@ public class CommitMsg extends Hook {
                 return true;
             }
             //CommitMsg.OUT.println("Ticket number has been validated.");
-            if (containsDirtyWords(commitMsg)) {
+            if (containsDirtyWordsInBytes(rawCommitMsg)) {
                 return true;
             }
             CommitMsg.OUT.println("Commit message is clean.");
@@ -92,9 +96,22 @@ public class CommitMsg extends Hook {
      * @throws IOException if errors are encoutered reading the dirty word file
      */
     protected boolean containsDirtyWords(String commitMsg) throws IOException {
+        return containsDirtyWordsInBytes((commitMsg == null) ? new byte[0] : commitMsg.getBytes(Charsets.UTF_8));
+    }
+
+    /**
+     * Scans the UTF-8 encoded commit message to see if it contains words from the "dirty list."
+     *
+     * @param commitMsg The commit message bytes to be scanned
+     * @return true if dirty words are found, false otherwise
+     */
+    protected boolean containsDirtyWordsInBytes(byte[] commitMsg) {
         final Set<String> foundWords = new HashSet<String>();
 
-        if (containsDirtyWords(commitMsg, foundWords)) {
+        final boolean dirty = containsDirtyWords(commitMsg, 0, commitMsg.length, foundWords);
+
+        reportOverBudgetWords(CommitMsg.OUT);
+        if (dirty) {
             final StringBuilder sb = new StringBuilder();
 
             Hook.appendDirtyWords(sb, foundWords)
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.codice.git.RepositoryHandler;
+import org.codice.git.StagedChange;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.util.RawParseUtils;
+
+/**
+ * Built-in checker looking for dirty words in the added lines of the staged files, including
+ * their names. Only the names are checked for staged blobs already found clean by the
+ * {@link PreScanDaemon}.
+ */
+class DirtyWordChecker implements StagedChangeChecker {
+    private static final byte[] NEW_FILE_HEADER = Constants.encodeASCII("+++ ");
+
+    private final Hook hook;
+
+    private PreScanResults preScanned;
+
+    DirtyWordChecker(Hook hook) {
+        this.hook = hook;
+    }
+
+    @Override
+    public boolean init(RepositoryHandler handler) throws IOException {
+        if (!hook.hasDirtyWords()) {
+            return false;
+        }
+        final File metadir = handler.getMetadir();
+
+        this.preScanned = PreScanResults.load((metadir != null) ? new File(metadir, PreScanResults.FILENAME) : null,
+                hook.getDirtyWordsKey());
+        return true;
+    }
+
+    @Override
+    public void check(StagedChange change, CheckResults results) {
+        final Set<String> found = new HashSet<String>();
+        int end = change.getEnd();
+
+        if (preScanned.isClean(change.getObjectId())) { // only the header lines with the names are left to check
+            end = headerEnd(change.getBuffer(), change.getStart(), end);
+        }
+        if (hook.containsDirtyWords(change.getBuffer(), change.getStart(), end, found)) {
+            for (final String word: found) {
+                results.add(this, change.getPath(), word);
+            }
+        }
+    }
+
+    /**
+     * Finds the end of the header of a staged change, which is the end of its <code>+++ b/</code>
+     * line. Changes without one, like binary files, have no added lines and are returned whole.
+     *
+     * @param buf   the buffer holding the staged change
+     * @param start the start of the staged change in the buffer
+     * @param end   the end of the staged change in the buffer
+     * @return the end of the header of the staged change
+     */
+    static int headerEnd(byte[] buf, int start, int end) {
+        for (int ptr = start; ptr < end; ptr = RawParseUtils.nextLF(buf, ptr)) {
+            if (RawParseUtils.match(buf, ptr, NEW_FILE_HEADER) >= 0) {
+                return Math.min(RawParseUtils.nextLF(buf, ptr), end);
+            }
+        }
+        return end;
+    }
+
+    @Override
+    public StringBuilder appendViolations(StringBuilder sb, Set<String> violations, Set<String> files) {
+        Hook.appendDirtyWords(sb, violations)
+                .append("In files:%n");
+        for (final String f: files) {
+            sb.append('\t').append(f).append("%n");
+        }
+        return sb;
+    }
+}
@@ -0,0 +1,430 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import org.codice.git.RepositoryHandler;
+import org.codice.git.regex.BudgetedRegex;
+import org.codice.git.regex.LinearRegex;
+import org.codice.git.regex.RegexBudgetExceededException;
+import org.codice.git.regex.RegexMatcher;
+import org.codice.git.regex.RegexMatchers;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Matches dirty words directly against UTF-8 encoded bytes such as the diff buffers produced
+ * by JGit, without first decoding them into strings.
+ * <p/>
+ * Chunks made of ASCII bytes only, which covers most source code, take a fast path: literal
+ * ASCII dirty words are compared byte by byte through a precomputed case folding table, in a
+ * single pass indexed by their first byte, and regex dirty words are matched against a
+ * {@link CharSequence} view of the bytes. Any other chunk is decoded once and matched with the
+ * regex patterns of all the dirty words. Both paths report exactly the same words as the
+ * patterns created by {@link RepositoryHandler#getDirtyWords()}.
+ * <p/>
+ * <code>REGEX:</code> dirty words are matched with the linear time {@link LinearRegex} engine
+ * whenever possible, or else with a {@link BudgetedRegex}. Those which go over their budget are
+ * skipped from then on and reported by {@link #getOverBudgetWords()} instead of stalling the
+ * hook.
+ * <p/>
+ * ASCII chunks are first checked against an {@link NgramPrefilter} built from the literal
+ * words and the literals required by regex words, so that clean chunks skip matching
+ * altogether. Regex words without a required literal are always matched.
+ * <p/>
+ * Dirty words stored as salted hashes in the blacklist are matched separately by
+ * {@link HashedWords}, against the same chunks. Large sets of literal ASCII words can be
+ * provided as a {@link DirtyWordTrie} instead of patterns; those are matched in a single pass
+ * over every chunk.
+ */
+public class DirtyWordMatcher {
+    private static final Logger LOGGER = Logger.getLogger(DirtyWordMatcher.class.getName());
+
+    private static final byte[] FOLD = new byte[128];
+
+    private static final boolean[] WORD = new boolean[128];
+
+    static {
+        for (int i = 0; i < 128; i++) {
+            FOLD[i] = (byte) Character.toLowerCase(i);
+            WORD[i] = (i == '_') || Character.isLetterOrDigit(i);
+        }
+    }
+
+    private final Map<String, Pattern> dirtyWords;
+
+    /**
+     * Literal ASCII dirty words indexed by their folded first byte.
+     */
+    private final Literal[][] literalsByFirstByte = new Literal[128][];
+
+    private final int literalCount;
+
+    /**
+     * Patterns of the literal ASCII dirty words, used for chunks with non-ASCII characters.
+     */
+    private final Map<String, Pattern> literalPatterns = new HashMap<String, Pattern>();
+
+    /**
+     * Regex dirty words and literal dirty words with non-ASCII characters, which are always
+     * matched with regex matchers, whose required literal is known.
+     */
+    private final Map<String, RegexMatcher> filteredMatchers = new HashMap<String, RegexMatcher>();
+
+    /**
+     * Regex dirty words for which no required literal is known.
+     */
+    private final Map<String, RegexMatcher> unfilteredMatchers = new HashMap<String, RegexMatcher>();
+
+    private final NgramPrefilter prefilter;
+
+    private final HashedWords hashedWords;
+
+    private final DirtyWordTrie trie;
+
+    private final long key;
+
+    private final Set<String> overBudgetWords =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * Creates a matcher for the specified dirty words.
+     *
+     * @param dirtyWords map of dirty words to their regex patterns as returned by
+     *                   {@link RepositoryHandler#getDirtyWords()}; <code>null</code> if none
+     */
+    public DirtyWordMatcher(Map<String, Pattern> dirtyWords) {
+        this(dirtyWords, null);
+    }
+
+    /**
+     * Creates a matcher for the specified dirty words along with literal words from a trie.
+     *
+     * @param dirtyWords map of dirty words to their regex patterns; <code>null</code> if none
+     * @param trie       trie of additional literal ASCII dirty words; <code>null</code> if none
+     */
+    public DirtyWordMatcher(Map<String, Pattern> dirtyWords, DirtyWordTrie trie) {
+        this.trie = ((trie == null) || (trie.size() == 0)) ? null : trie;
+        this.dirtyWords = (dirtyWords == null) ? Collections.<String, Pattern>emptyMap() : dirtyWords;
+        final List<List<Literal>> literals = new ArrayList<List<Literal>>(128);
+        final List<String> required = new ArrayList<String>();
+        final List<String> hashed = new ArrayList<String>();
+        int count = 0;
+
+        for (int i = 0; i < 128; i++) {
+            literals.add(new ArrayList<Literal>());
+        }
+        for (final Map.Entry<String, Pattern> e: this.dirtyWords.entrySet()) {
+            final String word = e.getKey();
+
+            if (word.startsWith(RepositoryHandler.HASH_PREFIX)) {
+                hashed.add(word);
+            } else if (word.startsWith(RepositoryHandler.REGEX_PREFIX) || word.isEmpty() || !isAscii(word)) {
+                final RegexMatcher matcher = RegexMatchers.compile(e.getValue());
+
+                if (matcher.requiredLiteral().isEmpty()) {
+                    unfilteredMatchers.put(word, matcher);
+                } else {
+                    filteredMatchers.put(word, matcher);
+                    required.add(matcher.requiredLiteral());
+                }
+            } else {
+                literalPatterns.put(word, e.getValue());
+                final Literal literal = new Literal(word, count++);
+
+                literals.get(literal.folded[0]).add(literal);
+                required.add(new String(literal.folded, Charsets.US_ASCII));
+            }
+        }
+        for (int i = 0; i < 128; i++) {
+            if (!literals.get(i).isEmpty()) {
+                literalsByFirstByte[i] = literals.get(i).toArray(new Literal[literals.get(i).size()]);
+            }
+        }
+        this.literalCount = count;
+        this.prefilter = new NgramPrefilter(required);
+        this.hashedWords = new HashedWords(hashed);
+        this.key = DirtyWordTrie.keyFor(this.dirtyWords.keySet()) + ((this.trie != null) ? this.trie.getKey() : 0L);
+    }
+
+    /**
+     * Gets a key identifying the dirty words matched regardless of their order, which changes
+     * whenever the blacklist does.
+     *
+     * @return the key of the dirty words
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * Checks if there are dirty words to match.
+     *
+     * @return <code>true</code> if there are no dirty words; <code>false</code> otherwise
+     */
+    public boolean isEmpty() {
+        return dirtyWords.isEmpty() && (trie == null);
+    }
+
+    /**
+     * Scans a chunk of UTF-8 encoded bytes for dirty words. The chunk is matched as a whole, the
+     * same way a string holding its decoded characters would be.
+     *
+     * @param buf   the buffer holding the chunk
+     * @param start the offset of the first byte of the chunk
+     * @param end   the offset following the last byte of the chunk
+     * @param found a set where to report the words found so far
+     * @return <code>true</code> if dirty words are found, <code>false</code> otherwise
+     */
+    public boolean find(byte[] buf, int start, int end, Set<String> found) {
+        if ((start >= end) || isEmpty()) {
+            return false;
+        }
+        if (isAscii(buf, start, end)) {
+            final CharSequence chars = new AsciiSequence(buf, start, end);
+            boolean dirty = hashedWords.find(buf, start, end, found);
+
+            if (trie != null) {
+                dirty = trie.find(buf, start, end, found) || dirty;
+            }
+            if (prefilter.mayMatch(buf, start, end)) {
+                dirty = findLiterals(buf, start, end, found) || dirty;
+                dirty = findMatchers(filteredMatchers, chars, found) || dirty;
+            }
+            return findMatchers(unfilteredMatchers, chars, found) || dirty;
+        }
+        final CharBuffer chars = decode(buf, start, end);
+        boolean dirty = findPatterns(chars, found);
+
+        if (trie != null) {
+            dirty = trie.find(chars, found) || dirty;
+        }
+        if (!hashedWords.isEmpty()) {
+            final byte[] folded = HashedWords.fold(chars);
+
+            dirty = hashedWords.find(folded, 0, folded.length, found) || dirty;
+        }
+        dirty = findMatchers(filteredMatchers, chars, found) || dirty;
+        return findMatchers(unfilteredMatchers, chars, found) || dirty;
+    }
+
+    /**
+     * Gets the regex dirty words that went over their matching budget and are no longer checked.
+     *
+     * @return the dirty words skipped so far
+     */
+    public Set<String> getOverBudgetWords() {
+        return Collections.unmodifiableSet(overBudgetWords);
+    }
+
+    private boolean findLiterals(byte[] buf, int start, int end, Set<String> found) {
+        if (literalCount == 0) {
+            return false;
+        }
+        final boolean[] matched = new boolean[literalCount];
+        int remaining = literalCount;
+
+        for (int i = start; (i < end) && (remaining > 0); i++) {
+            final Literal[] candidates = literalsByFirstByte[FOLD[buf[i]]];
+
+            if (candidates == null) {
+                continue;
+            }
+            for (final Literal literal: candidates) {
+                if (!matched[literal.index] && literal.matchesAt(buf, i, start, end)) {
+                    matched[literal.index] = true;
+                    remaining--;
+                    found.add(literal.word);
+                }
+            }
+        }
+        return remaining < literalCount;
+    }
+
+    private boolean findPatterns(CharSequence s, Set<String> found) {
+        boolean dirty = false;
+
+        for (final Map.Entry<String, Pattern> e: literalPatterns.entrySet()) {
+            if (e.getValue().matcher(s).find()) {
+                dirty = true;
+                found.add(e.getKey());
+            }
+        }
+        return dirty;
+    }
+
+    private boolean findMatchers(Map<String, RegexMatcher> matchers, CharSequence s, Set<String> found) {
+        boolean dirty = false;
+
+        for (final Map.Entry<String, RegexMatcher> e: matchers.entrySet()) {
+            if (overBudgetWords.contains(e.getKey())) {
+                continue;
+            }
+            try {
+                if (e.getValue().find(s)) {
+                    dirty = true;
+                    found.add(e.getKey());
+                }
+            } catch (RegexBudgetExceededException be) {
+                LOGGER.log(Level.WARNING,
+                        "Skipping dirty word {0}: {1}",
+                        new Object[] {e.getKey(), be.getMessage()});
+                overBudgetWords.add(e.getKey());
+            }
+        }
+        return dirty;
+    }
+
+    /**
+     * Folds an ASCII byte to lower case.
+     */
+    static byte fold(byte b) {
+        return FOLD[b];
+    }
+
+    /**
+     * Checks if an ASCII byte is a word character.
+     */
+    static boolean isWord(byte b) {
+        return WORD[b];
+    }
+
+    private static CharBuffer decode(byte[] buf, int start, int end) {
+        try {
+            return Charsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(ByteBuffer.wrap(buf, start, end - start));
+        } catch (CharacterCodingException e) { // cannot happen when replacing errors
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isAscii(byte[] buf, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buf[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 128) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Literal ASCII dirty word along with its case folded bytes.
+     */
+    private static class Literal {
+        private final String word;
+
+        private final int index;
+
+        private final byte[] folded;
+
+        private final boolean startsWithWordChar;
+
+        private final boolean endsWithWordChar;
+
+        Literal(String word, int index) {
+            this.word = word;
+            this.index = index;
+            this.folded = new byte[word.length()];
+            for (int i = 0; i < folded.length; i++) {
+                folded[i] = FOLD[word.charAt(i)];
+            }
+            this.startsWithWordChar = WORD[folded[0]];
+            this.endsWithWordChar = WORD[folded[folded.length - 1]];
+        }
+
+        /**
+         * Checks if the word occurs at the specified offset of an ASCII chunk, surrounded with
+         * word boundaries or underscores as required by {@link RepositoryHandler#REGEX_PATTERN}.
+         */
+        boolean matchesAt(byte[] buf, int offset, int start, int end) {
+            final int wend = offset + folded.length;
+
+            if (wend > end) {
+                return false;
+            }
+            for (int i = 1; i < folded.length; i++) {
+                if (FOLD[buf[offset + i]] != folded[i]) {
+                    return false;
+                }
+            }
+            final boolean before = (offset > start) && WORD[buf[offset - 1]];
+            final boolean after = (wend < end) && WORD[buf[wend]];
+
+            return ((before != startsWithWordChar) || ((offset > start) && (buf[offset - 1] == '_')))
+                    && ((after != endsWithWordChar) || ((wend < end) && (buf[wend] == '_')));
+        }
+    }
+
+    /**
+     * Read-only {@link CharSequence} view of ASCII bytes.
+     */
+    private static class AsciiSequence implements CharSequence {
+        private final byte[] buf;
+
+        private final int start;
+
+        private final int end;
+
+        AsciiSequence(byte[] buf, int start, int end) {
+            this.buf = buf;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) buf[start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new AsciiSequence(buf, start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return new String(buf, start, end - start, Charsets.US_ASCII);
+        }
+    }
+}
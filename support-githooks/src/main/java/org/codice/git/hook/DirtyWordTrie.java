@@ -0,0 +1,546 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.codice.git.RepositoryHandler;
+import org.codice.git.regex.LinearRegex;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.CharMatcher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Compact double-array trie of literal ASCII dirty words, meant for blacklists too large to
+ * compile one pattern per word.
+ * <p/>
+ * The trie is made of flat integer arrays which can be saved to a file and later memory mapped,
+ * so loading it costs next to nothing and it lives outside of the heap. The file records a key
+ * computed from the words it was built from so it can be rebuilt whenever they change.
+ * <p/>
+ * Words are matched case insensitively in a single pass over a chunk, surrounded with word
+ * boundaries or underscores as required by {@link RepositoryHandler#REGEX_PATTERN}, reporting
+ * exactly the same words as their patterns would.
+ */
+public class DirtyWordTrie {
+    private static final Logger LOGGER = Logger.getLogger(DirtyWordTrie.class.getName());
+
+    private static final int MAGIC = 0x44575431; // DWT1
+
+    private static final int HEADER_LENGTH = 4 + 8 + 4 * 4;
+
+    private static final int ROOT = 0;
+
+    private static final int FREE = -1;
+
+    private final long key;
+
+    /**
+     * Offset added to a label to find the corresponding transition out of a state.
+     */
+    private final IntBuffer base;
+
+    /**
+     * State from which each state is reached, or {@link #FREE}.
+     */
+    private final IntBuffer check;
+
+    /**
+     * Group of words, plus 1, accepted by each state, or 0 if not accepting.
+     */
+    private final IntBuffer value;
+
+    /**
+     * Indexes of the first and following the last words of each group of words which fold to
+     * the same bytes.
+     */
+    private final IntBuffer groups;
+
+    private final IntBuffer wordOffsets;
+
+    private final ByteBuffer wordBytes;
+
+    private DirtyWordTrie(long key, IntBuffer base, IntBuffer check, IntBuffer value, IntBuffer groups,
+            IntBuffer wordOffsets, ByteBuffer wordBytes) {
+        this.key = key;
+        this.base = base;
+        this.check = check;
+        this.value = value;
+        this.groups = groups;
+        this.wordOffsets = wordOffsets;
+        this.wordBytes = wordBytes;
+    }
+
+    /**
+     * Gets the trie for the specified words from a file, rebuilding and saving it if the file
+     * is missing or was built from different words.
+     *
+     * @param file  the file where the trie is cached; <code>null</code> to not cache it
+     * @param words the literal ASCII dirty words
+     * @return the corresponding trie
+     */
+    public static DirtyWordTrie load(File file, Collection<String> words) {
+        final long key = keyFor(words);
+
+        if ((file != null) && file.isFile()) {
+            try {
+                final DirtyWordTrie trie = map(file);
+
+                if (trie.key == key) {
+                    LOGGER.log(Level.FINE, "Loaded dirty words trie from: {0}", file);
+                    return trie;
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Rebuilding invalid dirty words trie " + file, e);
+            }
+        }
+        final DirtyWordTrie trie = build(words);
+
+        if (file != null) {
+            try {
+                trie.save(file);
+            } catch (IOException e) { // continue with the trie in memory
+                LOGGER.log(Level.WARNING, "Failed to save dirty words trie to " + file, e);
+            }
+        }
+        return trie;
+    }
+
+    /**
+     * Builds a trie for the specified words.
+     *
+     * @param words the literal ASCII dirty words
+     * @return the corresponding trie
+     * @throws IllegalArgumentException if a word is empty or not made of ASCII characters
+     */
+    public static DirtyWordTrie build(Collection<String> words) {
+        final List<String> sorted = new ArrayList<String>(words.size());
+
+        for (final String w: words) {
+            if (w.isEmpty() || !CharMatcher.ASCII.matchesAllOf(w)) {
+                throw new IllegalArgumentException("Not a literal ASCII dirty word: " + w);
+            }
+            sorted.add(w);
+        }
+        final Comparator<String> byFolded = new Comparator<String>() {
+            @Override
+            public int compare(String w1, String w2) {
+                final int c = fold(w1).compareTo(fold(w2));
+
+                return (c != 0) ? c : w1.compareTo(w2);
+            }
+        };
+
+        Collections.sort(sorted, byFolded);
+        final Builder builder = new Builder(sorted);
+
+        builder.build();
+        final int[] offsets = new int[sorted.size() + 1];
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < sorted.size(); i++) {
+            offsets[i] = sb.length();
+            sb.append(sorted.get(i));
+        }
+        offsets[sorted.size()] = sb.length();
+        return new DirtyWordTrie(keyFor(words),
+                IntBuffer.wrap(builder.base, 0, builder.size).slice(),
+                IntBuffer.wrap(builder.check, 0, builder.size).slice(),
+                IntBuffer.wrap(builder.value, 0, builder.size).slice(),
+                IntBuffer.wrap(builder.groups()),
+                IntBuffer.wrap(offsets),
+                ByteBuffer.wrap(sb.toString().getBytes(Charsets.US_ASCII)));
+    }
+
+    /**
+     * Memory maps a trie previously saved to a file.
+     *
+     * @param file the file where the trie was saved
+     * @return the corresponding trie
+     * @throws IOException if the file cannot be read or is not a valid trie
+     */
+    public static DirtyWordTrie map(File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+        try {
+            // typed as a ByteBuffer so slice() binds to ByteBuffer and not to the JDK 17
+            // MappedByteBuffer override, which does not exist when running on JDK 8
+            final ByteBuffer buf = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0L, raf.length());
+
+            if ((buf.capacity() < HEADER_LENGTH) || (buf.getInt(0) != MAGIC)) {
+                throw new IOException("Not a dirty words trie: " + file);
+            }
+            final long key = buf.getLong(4);
+            final int size = buf.getInt(12);
+            final int groupCount = buf.getInt(16);
+            final int wordCount = buf.getInt(20);
+            final int wordLength = buf.getInt(24);
+            final long length = HEADER_LENGTH + 4L * (3L * size + 2L * groupCount + wordCount + 1L) + wordLength;
+
+            if ((size <= 0) || (groupCount < 0) || (wordCount < 0) || (wordLength < 0) || (length != buf.capacity())) {
+                throw new IOException("Corrupted dirty words trie: " + file);
+            }
+            int pos = HEADER_LENGTH;
+            final IntBuffer base = ints(buf, pos, size);
+            final IntBuffer check = ints(buf, pos += 4 * size, size);
+            final IntBuffer value = ints(buf, pos += 4 * size, size);
+            final IntBuffer groups = ints(buf, pos += 4 * size, 2 * groupCount);
+            final IntBuffer offsets = ints(buf, pos += 4 * 2 * groupCount, wordCount + 1);
+
+            // cast so the call binds to Buffer and not to the JDK 9+ covariant override
+            ((Buffer) buf).position(pos + 4 * (wordCount + 1));
+            return new DirtyWordTrie(key, base, check, value, groups, offsets, buf.slice());
+        } finally { // the mapping remains valid after closing the file
+            IOUtils.closeQuietly(raf);
+        }
+    }
+
+    /**
+     * Saves this trie to a file from which it can be memory mapped.
+     *
+     * @param file the file where to save the trie
+     * @throws IOException if an error occurs while saving
+     */
+    public void save(File file) throws IOException {
+        final File tmp = new File(file.getPath() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+
+        try {
+            out.writeInt(MAGIC);
+            out.writeLong(key);
+            out.writeInt(base.limit());
+            out.writeInt(groups.limit() / 2);
+            out.writeInt(wordOffsets.limit() - 1);
+            out.writeInt(wordBytes.limit());
+            for (final IntBuffer ints: new IntBuffer[] {base, check, value, groups, wordOffsets}) {
+                for (int i = 0; i < ints.limit(); i++) {
+                    out.writeInt(ints.get(i));
+                }
+            }
+            for (int i = 0; i < wordBytes.limit(); i++) {
+                out.writeByte(wordBytes.get(i));
+            }
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+        FileUtils.deleteQuietly(file);
+        FileUtils.moveFile(tmp, file);
+    }
+
+    /**
+     * Gets the number of words in this trie.
+     *
+     * @return the number of words
+     */
+    public int size() {
+        return wordOffsets.limit() - 1;
+    }
+
+    /**
+     * Gets the key identifying the words in this trie regardless of their order.
+     *
+     * @return the key of the words
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * Scans a chunk of ASCII bytes for dirty words.
+     *
+     * @param buf   the buffer holding the chunk
+     * @param start the offset of the first byte of the chunk
+     * @param end   the offset following the last byte of the chunk
+     * @param found a set where to report the words found so far
+     * @return <code>true</code> if dirty words are found, <code>false</code> otherwise
+     */
+    boolean find(byte[] buf, int start, int end, Set<String> found) {
+        boolean dirty = false;
+
+        for (int i = start; i < end; i++) {
+            int s = next(ROOT, DirtyWordMatcher.fold(buf[i]));
+
+            if (s == FREE) {
+                continue;
+            }
+            final boolean before = (i > start) && DirtyWordMatcher.isWord(buf[i - 1]);
+
+            if ((before == DirtyWordMatcher.isWord(buf[i])) && !((i > start) && (buf[i - 1] == '_'))) {
+                continue;
+            }
+            for (int j = i + 1; s != FREE; j++) {
+                if ((value.get(s) != 0)
+                        && ((((j < end) && DirtyWordMatcher.isWord(buf[j])) != DirtyWordMatcher.isWord(buf[j - 1]))
+                        || ((j < end) && (buf[j] == '_')))) {
+                    dirty = true;
+                    report(value.get(s) - 1, found);
+                }
+                if (j == end) {
+                    break;
+                }
+                s = next(s, DirtyWordMatcher.fold(buf[j]));
+            }
+        }
+        return dirty;
+    }
+
+    /**
+     * Scans characters for dirty words.
+     *
+     * @param chars the characters to scan
+     * @param found a set where to report the words found so far
+     * @return <code>true</code> if dirty words are found, <code>false</code> otherwise
+     */
+    boolean find(CharSequence chars, Set<String> found) {
+        final int end = chars.length();
+        boolean dirty = false;
+
+        for (int i = 0; i < end; i++) {
+            int s = next(ROOT, fold(chars.charAt(i)));
+
+            if ((s == FREE)
+                    || !(LinearRegex.isWordBoundary(chars, i) || ((i > 0) && (chars.charAt(i - 1) == '_')))) {
+                continue;
+            }
+            for (int j = i + 1; s != FREE; j++) {
+                if ((value.get(s) != 0)
+                        && (LinearRegex.isWordBoundary(chars, j) || ((j < end) && (chars.charAt(j) == '_')))) {
+                    dirty = true;
+                    report(value.get(s) - 1, found);
+                }
+                if (j == end) {
+                    break;
+                }
+                s = next(s, fold(chars.charAt(j)));
+            }
+        }
+        return dirty;
+    }
+
+    private int next(int s, int c) {
+        if ((c <= 0) || (c >= 128)) {
+            return FREE;
+        }
+        final int t = base.get(s) + c;
+
+        return ((t < check.limit()) && (check.get(t) == s)) ? t : FREE;
+    }
+
+    private void report(int group, Set<String> found) {
+        for (int w = groups.get(2 * group); w < groups.get(2 * group + 1); w++) {
+            final int from = wordOffsets.get(w);
+            final byte[] bytes = new byte[wordOffsets.get(w + 1) - from];
+
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = wordBytes.get(from + i);
+            }
+            found.add(new String(bytes, Charsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Folds a character to lower case the same way {@link java.util.regex.Pattern} does when
+     * matching case insensitively with unicode case.
+     */
+    private static int fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static String fold(String s) {
+        final StringBuilder sb = new StringBuilder(s.length());
+
+        for (int i = 0; i < s.length(); i++) {
+            sb.append((char) DirtyWordMatcher.fold((byte) s.charAt(i)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Computes a key identifying a set of words regardless of their order. The key of the union
+     * of disjoint sets is the sum of their keys.
+     */
+    static long keyFor(Collection<String> words) {
+        long key = words.size();
+
+        for (final String w: words) {
+            key += Hashing.murmur3_128().hashString(w, Charsets.UTF_8).asLong();
+        }
+        return key;
+    }
+
+    private static IntBuffer ints(ByteBuffer buf, int pos, int count) {
+        final ByteBuffer dup = buf.duplicate();
+
+        // cast so the calls bind to Buffer and not to the JDK 9+ covariant overrides
+        ((Buffer) dup).position(pos);
+        ((Buffer) dup).limit(pos + 4 * count);
+        return dup.slice().asIntBuffer();
+    }
+
+    /**
+     * Builds the double-array of a trie out of words sorted by their folded bytes.
+     */
+    private static class Builder {
+        private final List<String> words;
+
+        /**
+         * Indexes of the first and following the last words of each group.
+         */
+        private final List<Integer> groups = new ArrayList<Integer>();
+
+        private int[] base = new int[1024];
+
+        private int[] check = new int[1024];
+
+        private int[] value = new int[1024];
+
+        private int size = 1;
+
+        /**
+         * Slot from which to start searching for bases, skipping over mostly used slots.
+         */
+        private int firstFree = 1;
+
+        Builder(List<String> words) {
+            this.words = words;
+            Arrays.fill(check, FREE);
+            check[ROOT] = ROOT;
+        }
+
+        void build() {
+            final Deque<int[]> pending = new ArrayDeque<int[]>(); // state, from, to, depth
+
+            pending.add(new int[] {ROOT, 0, words.size(), 0});
+            while (!pending.isEmpty()) {
+                final int[] p = pending.poll();
+                final int state = p[0];
+                final int depth = p[3];
+                int from = p[1];
+
+                if ((from < p[2]) && (words.get(from).length() == depth)) { // accepting state
+                    value[state] = groups.size() / 2 + 1;
+                    groups.add(from);
+                    while ((from < p[2]) && (words.get(from).length() == depth)) {
+                        from++;
+                    }
+                    groups.add(from);
+                }
+                if (from == p[2]) {
+                    continue;
+                }
+                final List<int[]> children = new ArrayList<int[]>(); // label, from, to
+
+                for (int i = from; i < p[2]; ) {
+                    final int label = DirtyWordMatcher.fold((byte) words.get(i).charAt(depth));
+                    int j = i + 1;
+
+                    while ((j < p[2]) && (DirtyWordMatcher.fold((byte) words.get(j).charAt(depth)) == label)) {
+                        j++;
+                    }
+                    children.add(new int[] {label, i, j});
+                    i = j;
+                }
+                final int b = findBase(children);
+
+                base[state] = b;
+                for (final int[] c: children) {
+                    check[b + c[0]] = state;
+                }
+                for (final int[] c: children) {
+                    pending.add(new int[] {b + c[0], c[1], c[2], depth + 1});
+                }
+            }
+        }
+
+        int[] groups() {
+            final int[] g = new int[groups.size()];
+
+            for (int i = 0; i < g.length; i++) {
+                g[i] = groups.get(i);
+            }
+            return g;
+        }
+
+        private int findBase(List<int[]> children) {
+            final int first = children.get(0)[0];
+            int pos = Math.max(first + 1, firstFree) - 1;
+            int used = 0;
+            boolean skipping = true;
+
+            while (true) {
+                ensureCapacity(++pos + 128);
+                if (check[pos] != FREE) {
+                    used++;
+                    continue;
+                }
+                if (skipping) {
+                    skipping = false;
+                    firstFree = pos;
+                }
+                final int b = pos - first;
+                boolean free = true;
+
+                for (final int[] c: children) {
+                    if (check[b + c[0]] != FREE) {
+                        free = false;
+                        break;
+                    }
+                }
+                if (free) {
+                    size = Math.max(size, b + children.get(children.size() - 1)[0] + 1);
+                    return b;
+                }
+                if (used >= (pos - firstFree + 1) * 95 / 100) { // mostly used so stop searching there next time
+                    firstFree = pos;
+                }
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= check.length) {
+                return;
+            }
+            final int length = Math.max(capacity, check.length * 2);
+            final int old = check.length;
+
+            base = Arrays.copyOf(base, length);
+            check = Arrays.copyOf(check, length);
+            value = Arrays.copyOf(value, length);
+            Arrays.fill(check, old, length, FREE);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.codice.git.RepositoryHandler;
+import org.codice.git.StagedEntry;
+import org.eclipse.jgit.diff.DiffEntry;
+
+/**
+ * Checker rejecting files that are too large or whose path matches a forbidden pattern, such as
+ * build outputs or binaries. Only the paths and lengths recorded in the index are used so the
+ * commit is rejected before any content is read or diffed. Forbidden patterns only apply to files
+ * added by the commit so files already tracked, such as a jar kept on purpose, can still be
+ * changed.
+ * <p/>
+ * Forbidden patterns use a subset of the <code>.gitignore</code> syntax:
+ * <ul>
+ * <li>a pattern ending with <code>/</code> matches everything under a directory of that name</li>
+ * <li>a pattern without any other <code>/</code> matches file names anywhere in the tree</li>
+ * <li>any other pattern matches paths from the root of the tree</li>
+ * <li><code>*</code> and <code>?</code> match any characters but <code>/</code> and
+ * <code>**</code> matches any characters</li>
+ * </ul>
+ * <p/>
+ * The checker can be configured with <code>git config</code>:
+ * <ul>
+ * <li><code>githooks.files.enabled</code> set to <code>false</code> to disable it</li>
+ * <li><code>githooks.files.maxsize</code> the maximum size of a file in bytes, optionally
+ * followed by <code>k</code>, <code>m</code> or <code>g</code> (defaults to
+ * {@value #DEFAULT_MAX_SIZE}, which is also used with a warning when the setting is invalid)</li>
+ * <li><code>githooks.files.forbidden</code> a comma separated list of forbidden patterns
+ * (defaults to {@value #DEFAULT_FORBIDDEN})</li>
+ * </ul>
+ */
+public class ForbiddenFileChecker implements IndexChecker {
+    public static final String DEFAULT_MAX_SIZE = "10m";
+
+    public static final String DEFAULT_FORBIDDEN = "target/,*.class,*.jar,*.war,*.ear";
+
+    private static final Logger LOGGER = Logger.getLogger(ForbiddenFileChecker.class.getName());
+
+    private long maxSize;
+
+    private String[] globs;
+
+    private Pattern forbidden;
+
+    @Override
+    public boolean init(RepositoryHandler handler) {
+        if ("false".equalsIgnoreCase(handler.getConfigString("githooks", "files", "enabled"))) {
+            return false;
+        }
+        final String size = StringUtils.defaultIfBlank(handler.getConfigString("githooks", "files", "maxsize"), DEFAULT_MAX_SIZE);
+
+        try {
+            this.maxSize = parseSize(size);
+        } catch (NumberFormatException e) {
+            final String msg = "Invalid githooks.files.maxsize '" + size + "'; using the default of " + DEFAULT_MAX_SIZE;
+
+            LOGGER.warning(msg);
+            System.err.println(msg);
+            this.maxSize = parseSize(DEFAULT_MAX_SIZE);
+        }
+        this.globs = StringUtils.stripAll(StringUtils.split(StringUtils.defaultString(
+                handler.getConfigString("githooks", "files", "forbidden"), DEFAULT_FORBIDDEN), ','));
+        this.forbidden = compile(globs);
+        LOGGER.log(Level.FINE, "Maximum file size: {0}, forbidden files: {1}", new Object[] {maxSize, forbidden});
+        return true;
+    }
+
+    @Override
+    public void check(StagedEntry entry, CheckResults results) {
+        final String path = entry.getPath();
+
+        if (entry.getLength() > maxSize) {
+            results.add(this, path, path + " is " + entry.getLength() + " bytes; the maximum is " + maxSize);
+        }
+        // files already in HEAD were accepted before so only new ones are matched
+        if ((forbidden != null) && (entry.getChangeType() == DiffEntry.ChangeType.ADD)) {
+            final Matcher m = forbidden.matcher(path);
+
+            if (m.matches()) {
+                for (int i = 0; i < globs.length; i++) {
+                    if (m.group(i + 1) != null) {
+                        results.add(this, path, path + " matches " + globs[i]);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public StringBuilder appendViolations(StringBuilder sb, Set<String> violations, Set<String> files) {
+        sb.append("Files too large or not allowed in the repository:%n");
+        for (final String v: violations) {
+            sb.append('\t').append(v).append("%n");
+        }
+        return sb;
+    }
+
+    /**
+     * Parses a size in bytes optionally followed by <code>k</code>, <code>m</code> or
+     * <code>g</code>.
+     *
+     * @param size the size to parse
+     * @return the corresponding number of bytes
+     * @throws NumberFormatException if <code>size</code> is not a valid size
+     */
+    static long parseSize(String size) {
+        final String s = size.trim().toLowerCase();
+        final int shift = s.endsWith("k") ? 10 : s.endsWith("m") ? 20 : s.endsWith("g") ? 30 : 0;
+
+        return Long.parseLong((shift == 0) ? s : s.substring(0, s.length() - 1).trim()) << shift;
+    }
+
+    /**
+     * Compiles the specified patterns into a single expression with one capturing group per
+     * pattern.
+     *
+     * @param globs the patterns to compile
+     * @return the corresponding expression or <code>null</code> if there are none
+     */
+    static Pattern compile(String[] globs) {
+        if (globs.length == 0) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder();
+
+        for (final String glob: globs) {
+            if (sb.length() > 0) {
+                sb.append('|');
+            }
+            sb.append('(');
+            final boolean directory = glob.endsWith("/");
+            final String g = StringUtils.removeStart(StringUtils.removeEnd(glob, "/"), "/");
+
+            if (!g.contains("/") && !glob.startsWith("/")) { // anywhere in the tree
+                sb.append("(?:.*/)?");
+            }
+            for (int i = 0; i < g.length(); i++) {
+                final char ch = g.charAt(i);
+
+                if (ch == '*') {
+                    if ((i + 1 < g.length()) && (g.charAt(i + 1) == '*')) {
+                        sb.append(".*");
+                        i++;
+                    } else {
+                        sb.append("[^/]*");
+                    }
+                } else if (ch == '?') {
+                    sb.append("[^/]");
+                } else {
+                    if (!Character.isLetterOrDigit(ch)) {
+                        sb.append('\\');
+                    }
+                    sb.append(ch);
+                }
+            }
+            sb.append(directory ? "/.*" : "(?:/.*)?").append(')');
+        }
+        return Pattern.compile(sb.toString());
+    }
+}
@@ -0,0 +1,299 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.codice.git.RepositoryHandler;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Matches literal dirty words that are stored in the blacklist as salted hashes instead of plain
+ * text, so the sensitive terms themselves never have to be distributed.
+ * <p/>
+ * A hashed entry has the following format:
+ * <pre>
+ *     HASH:&lt;salt&gt;:&lt;length&gt;:&lt;fingerprint&gt;:&lt;digest&gt;
+ * </pre>
+ * where <code>salt</code> is a hex encoded random salt, <code>length</code> is the number of
+ * UTF-8 bytes of the case folded word, <code>fingerprint</code> is the hex encoded 16 bits
+ * rolling hash of the folded word and <code>digest</code> is the hex encoded SHA-256 of the salt
+ * followed by the folded word. Entries are created with {@link #hash(String, byte[])} or by
+ * running this class with the words on its standard input.
+ * <p/>
+ * Matching is done with a Rabin-Karp rolling hash for each distinct salt and word length, over
+ * the case folded bytes of a chunk. Only windows delimited the same way as
+ * {@link RepositoryHandler#REGEX_PATTERN}, where non-ASCII characters count as word characters,
+ * and whose fingerprint is known are confirmed with the salted digest. Since the fingerprint only keeps 16 bits it reveals very little about the word.
+ */
+public class HashedWords {
+    private static final Logger LOGGER = Logger.getLogger(HashedWords.class.getName());
+
+    private static final int SALT_LENGTH = 16;
+
+    private static final long FINGERPRINT_MIX = 0x9E3779B97F4A7C15L;
+
+    private static final BaseEncoding HEX = BaseEncoding.base16().lowerCase();
+
+    private final List<Group> groups = new ArrayList<Group>();
+
+    /**
+     * Creates a matcher for the specified hashed dirty words. Malformed entries are ignored.
+     *
+     * @param entries the hashed dirty words, each starting with
+     *                {@link RepositoryHandler#HASH_PREFIX}
+     */
+    HashedWords(Collection<String> entries) {
+        final Map<String, Group> byKey = new LinkedHashMap<String, Group>();
+
+        for (final String entry: entries) {
+            final String[] fields = entry.substring(RepositoryHandler.HASH_PREFIX.length()).split(":");
+
+            try {
+                if (fields.length != 4) {
+                    throw new IllegalArgumentException("expecting 4 fields");
+                }
+                final byte[] salt = HEX.decode(fields[0]);
+                final int length = Integer.parseInt(fields[1]);
+                final int fingerprint = Integer.parseInt(fields[2], 16);
+                final HashCode digest = HashCode.fromString(fields[3]);
+
+                if ((length <= 0) || (fingerprint > 0xFFFF)) {
+                    throw new IllegalArgumentException("invalid length or fingerprint");
+                }
+                final String key = fields[0] + ':' + length;
+                Group group = byKey.get(key);
+
+                if (group == null) {
+                    group = new Group(salt, length);
+                    byKey.put(key, group);
+                }
+                group.fingerprints.set(fingerprint);
+                group.digests.put(digest, entry);
+            } catch (IllegalArgumentException e) {
+                LOGGER.log(Level.WARNING, "Ignoring malformed hashed dirty word {0}: {1}",
+                        new Object[] {entry, e.getMessage()});
+            }
+        }
+        groups.addAll(byKey.values());
+    }
+
+    /**
+     * Creates a hashed blacklist entry for the specified literal dirty word.
+     *
+     * @param word the dirty word
+     * @param salt the salt to hash the word with
+     * @return the corresponding hashed entry
+     */
+    public static String hash(String word, byte[] salt) {
+        final byte[] folded = fold(word);
+        final long base = base(salt);
+        long h = 0L;
+
+        for (final byte b: folded) {
+            h = h * base + (b & 0xFF);
+        }
+        return RepositoryHandler.HASH_PREFIX + HEX.encode(salt) + ':' + folded.length + ':'
+                + String.format("%04x", fingerprint(h)) + ':' + digest(salt, folded, 0, folded.length);
+    }
+
+    /**
+     * Reads literal dirty words from the standard input, one per line, and prints the
+     * corresponding hashed entries on the standard output, using a random salt shared by all.
+     *
+     * @param args ignored
+     * @throws IOException if an error occurs while reading the words
+     */
+    public static void main(String[] args) throws IOException {
+        final byte[] salt = new byte[SALT_LENGTH];
+        final BufferedReader in = new BufferedReader(new InputStreamReader(System.in, Charsets.UTF_8));
+
+        new SecureRandom().nextBytes(salt);
+        for (String l = in.readLine(); l != null; l = in.readLine()) {
+            if (l.isEmpty() || l.startsWith("#") || l.startsWith(RepositoryHandler.REGEX_PREFIX)) {
+                System.out.println(l);
+            } else {
+                System.out.println(hash(l, salt));
+            }
+        }
+    }
+
+    /**
+     * Checks if there are hashed dirty words to match.
+     *
+     * @return <code>true</code> if there are none; <code>false</code> otherwise
+     */
+    boolean isEmpty() {
+        return groups.isEmpty();
+    }
+
+    /**
+     * Scans a chunk of case folded UTF-8 encoded bytes for hashed dirty words. ASCII bytes are
+     * folded on the fly so only chunks with non-ASCII characters need to be folded beforehand
+     * with {@link #fold(CharSequence)}.
+     *
+     * @param buf   the buffer holding the chunk
+     * @param start the offset of the first byte of the chunk
+     * @param end   the offset following the last byte of the chunk
+     * @param found a set where to report the entries found so far
+     * @return <code>true</code> if hashed dirty words are found, <code>false</code> otherwise
+     */
+    boolean find(byte[] buf, int start, int end, Set<String> found) {
+        boolean dirty = false;
+
+        for (final Group group: groups) {
+            dirty = group.find(buf, start, end, found) || dirty;
+        }
+        return dirty;
+    }
+
+    /**
+     * Folds characters to lower case the same way {@link java.util.regex.Pattern} does when
+     * matching case insensitively with unicode case and encodes them in UTF-8.
+     *
+     * @param s the characters to fold
+     * @return the corresponding folded bytes
+     */
+    static byte[] fold(CharSequence s) {
+        final StringBuilder sb = new StringBuilder(s.length());
+
+        for (int i = 0; i < s.length(); ) {
+            final int cp = Character.codePointAt(s, i);
+
+            sb.appendCodePoint(Character.toLowerCase(Character.toUpperCase(cp)));
+            i += Character.charCount(cp);
+        }
+        return sb.toString().getBytes(Charsets.UTF_8);
+    }
+
+    private static int fold(byte b) {
+        return (b < 0) ? (b & 0xFF) : DirtyWordMatcher.fold(b);
+    }
+
+    private static boolean isWord(int b) {
+        return (b >= 0x80) || (b == '_') || Character.isLetterOrDigit(b);
+    }
+
+    private static long base(byte[] salt) {
+        return Hashing.sha256().hashBytes(salt).asLong() | 1L;
+    }
+
+    private static int fingerprint(long h) {
+        return (int) ((h * FINGERPRINT_MIX) >>> 48);
+    }
+
+    private static HashCode digest(byte[] salt, byte[] buf, int start, int end) {
+        return Hashing.sha256().newHasher()
+                .putBytes(salt)
+                .putBytes(buf, start, end - start)
+                .hash();
+    }
+
+    /**
+     * Hashed dirty words sharing the same salt and length, matched in a single rolling pass.
+     */
+    private static class Group {
+        private final byte[] salt;
+
+        private final int length;
+
+        private final long base;
+
+        /**
+         * <code>base</code> to the power of <code>length - 1</code>, to remove the leading byte.
+         */
+        private final long power;
+
+        private final BitSet fingerprints = new BitSet(1 << 16);
+
+        private final Map<HashCode, String> digests = new HashMap<HashCode, String>();
+
+        Group(byte[] salt, int length) {
+            this.salt = salt;
+            this.length = length;
+            this.base = base(salt);
+            long p = 1L;
+
+            for (int i = 1; i < length; i++) {
+                p *= base;
+            }
+            this.power = p;
+        }
+
+        boolean find(byte[] buf, int start, int end, Set<String> found) {
+            if (end - start < length) {
+                return false;
+            }
+            boolean dirty = false;
+            byte[] folded = null;
+            long h = 0L;
+
+            for (int i = start; i < start + length; i++) {
+                h = h * base + fold(buf[i]);
+            }
+            for (int i = start; ; i++) { // i is the start of the window
+                final int wend = i + length;
+
+                if (fingerprints.get(fingerprint(h)) && isDelimited(buf, i, wend, start, end)) {
+                    if (folded == null) {
+                        folded = new byte[length];
+                    }
+                    for (int j = 0; j < length; j++) {
+                        folded[j] = (byte) fold(buf[i + j]);
+                    }
+                    final String entry = digests.get(digest(salt, folded, 0, length));
+
+                    if (entry != null) {
+                        dirty = true;
+                        found.add(entry);
+                    }
+                }
+                if (wend >= end) {
+                    return dirty;
+                }
+                h = (h - fold(buf[i]) * power) * base + fold(buf[wend]);
+            }
+        }
+
+        /**
+         * Checks if a window is surrounded with word boundaries or underscores.
+         */
+        private static boolean isDelimited(byte[] buf, int offset, int wend, int start, int end) {
+            final int first = buf[offset] & 0xFF;
+            final int last = buf[wend - 1] & 0xFF;
+            final int before = (offset > start) ? (buf[offset - 1] & 0xFF) : -1;
+            final int after = (wend < end) ? (buf[wend] & 0xFF) : -1;
+
+            return (((before >= 0) && isWord(before)) != isWord(first) || (before == '_'))
+                    && (((after >= 0) && isWord(after)) != isWord(last) || (after == '_'));
+        }
+    }
+}
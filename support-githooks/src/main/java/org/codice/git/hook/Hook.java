@@ -15,11 +15,10 @@ package org.codice.git.hook;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Map;
+import java.io.PrintStream;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -27,6 +26,8 @@ import org.codice.git.ConfigureLogging;
 import org.codice.git.GitHandler;
 import org.codice.git.RepositoryHandler;
 
+import com.google.common.base.Charsets;
+
 public class Hook {
     /*
      * Use a positive number here for the error code - the git bash shell doesn't recognize
@@ -34,6 +35,12 @@ public class Hook {
      */
     public static int ERROR_CODE = 1;
 
+    protected static final String OVER_BUDGET_MSG =
+            "---------------------------------WARNING---------------------------------------%n"
+                    + "Dirty regex patterns too expensive to check were skipped:%n"
+                    + "%sPlease fix them in the blacklist.%n"
+                    + "-------------------------------------------------------------------------------%n";
+
     private static Logger LOGGER = Logger.getLogger(Hook.class.getName());
 
     // Configure the logging for this test
@@ -43,7 +50,7 @@ public class Hook {
 
     protected final RepositoryHandler repoHandler;
 
-    private final Map<String, Pattern> dirtyWords;
+    private final DirtyWordMatcher dirtyWords;
 
     /**
      * Instantiates a new hook with the specified repository handler.
@@ -55,7 +62,7 @@ public class Hook {
      */
     protected Hook(RepositoryHandler handler) throws IOException {
         this.repoHandler = handler;
-        this.dirtyWords = repoHandler.getDirtyWords();
+        this.dirtyWords = repoHandler.getDirtyWordMatcher();
     }
 
     /**
@@ -67,6 +74,15 @@ public class Hook {
         return !dirtyWords.isEmpty();
     }
 
+    /**
+     * Gets the key identifying the dirty words checked by this hook.
+     *
+     * @return the key of the dirty words
+     */
+    long getDirtyWordsKey() {
+        return dirtyWords.getKey();
+    }
+
     /**
      * Entry point for the git hook processing. Invoked by the individual git scripts
      * in the .git/hooks directory. Each script provides the class name of the (java) hook
@@ -155,15 +171,47 @@ public class Hook {
         if (StringUtils.isEmpty(s) || dirtyWords.isEmpty()) { // nothing to check or no dirty words; all accepted so bail!
             return false;
         }
-        boolean dirty = false;
+        final byte[] buf = s.getBytes(Charsets.UTF_8);
 
-        for (final Map.Entry<String, Pattern> e: dirtyWords.entrySet()) {
-            if (e.getValue().matcher(s).find()) {
-                dirty = true;
-                found.add(e.getKey());
-            }
+        return containsDirtyWords(buf, 0, buf.length, found);
+    }
+
+    /**
+     * Scans the specified UTF-8 encoded bytes to see if they contain dirty words from the
+     * "dirty list". The bytes are matched as a whole without being decoded into a string.
+     *
+     * @param buf   the buffer holding the bytes to be scanned
+     * @param start the offset of the first byte to scan
+     * @param end   the offset following the last byte to scan
+     * @param found a set where to report the words found so far
+     * @return <code>true</code> if dirty words are found, <code>false</code> otherwise
+     */
+    protected boolean containsDirtyWords(byte[] buf, int start, int end, Set<String> found) {
+        return dirtyWords.find(buf, start, end, found);
+    }
+
+    /**
+     * Reports the regex dirty words that were skipped because matching them went over their
+     * time or step budget.
+     *
+     * @param out the stream where to report
+     * @return <code>true</code> if any dirty words were skipped; <code>false</code> otherwise
+     */
+    protected boolean reportOverBudgetWords(PrintStream out) {
+        final Set<String> skipped = dirtyWords.getOverBudgetWords();
+
+        if (skipped.isEmpty()) {
+            return false;
         }
-        return dirty;
+        final StringBuilder sb = new StringBuilder();
+
+        for (final String dw: skipped) {
+            sb.append('\t').append(StringUtils.removeStart(dw, RepositoryHandler.REGEX_PREFIX)).append("%n");
+        }
+        LOGGER.log(Level.WARNING, "Dirty words skipped for going over budget: {0}", skipped);
+        // the double formatting is to properly support %n in the string builder too!
+        out.printf(String.format(OVER_BUDGET_MSG, sb));
+        return true;
     }
 
     /**
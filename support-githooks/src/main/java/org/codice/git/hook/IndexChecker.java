@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import org.codice.git.StagedEntry;
+
+/**
+ * Service provider interface for checks performed by the {@link PreCommit} hook on the index
+ * entries staged for the next commit, before any of them is diffed.
+ * <p/>
+ * Only the paths and lengths recorded in the index are available so these checks are cheap and
+ * can reject a commit before its content is ever read.
+ */
+public interface IndexChecker extends Checker {
+    /**
+     * Checks a staged index entry, reporting any violations to the specified results.
+     *
+     * @param entry   the staged entry to check
+     * @param results the results where to report violations
+     * @throws Exception if an error occurs while checking
+     */
+    void check(StagedEntry entry, CheckResults results) throws Exception;
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.codice.git.RepositoryHandler;
+import org.codice.git.StagedChange;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.util.RawParseUtils;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Checker verifying that newly added source files start with the LGPL license header, the same
+ * way the <code>RegexpHeader</code> check from <code>support-checkstyle</code> does. Only the
+ * first {@link #PREFIX_LENGTH} bytes of the staged content of each added file are read.
+ * <p/>
+ * The header templates are copied from <code>support-checkstyle</code> at build time:
+ * <code>lpgl-header-check.txt</code> for Java files and <code>lpgl-header-check-xml.txt</code>
+ * for XML files. As configured in checkstyle, the first 3 lines of a template may match any
+ * number of lines, including none.
+ * <p/>
+ * The checker can be disabled with <code>git config githooks.headers.enabled false</code>.
+ */
+public class LicenseHeaderChecker implements StagedChangeChecker {
+    public static final int PREFIX_LENGTH = 4096;
+
+    private static final Logger LOGGER = Logger.getLogger(LicenseHeaderChecker.class.getName());
+
+    private static final int MULTI_LINES = 3;
+
+    private static final Map<String, String> TEMPLATES = new HashMap<String, String>();
+
+    static {
+        TEMPLATES.put("java", "/headers/lpgl-header-check.txt");
+        TEMPLATES.put("xml", "/headers/lpgl-header-check-xml.txt");
+    }
+
+    private final Map<String, Pattern[]> headers = new HashMap<String, Pattern[]>();
+
+    private RepositoryHandler handler;
+
+    @Override
+    public boolean init(RepositoryHandler handler) throws IOException {
+        if ("false".equalsIgnoreCase(handler.getConfigString("githooks", "headers", "enabled"))) {
+            return false;
+        }
+        this.handler = handler;
+        for (final Map.Entry<String, String> e: TEMPLATES.entrySet()) {
+            final Pattern[] header = readTemplate(e.getValue());
+
+            if (header != null) {
+                headers.put(e.getKey(), header);
+            }
+        }
+        LOGGER.log(Level.FINE, "License headers checked for: {0}", headers.keySet());
+        return !headers.isEmpty();
+    }
+
+    @Override
+    public void check(StagedChange change, CheckResults results) throws Exception {
+        if (change.getChangeType() != DiffEntry.ChangeType.ADD) {
+            return;
+        }
+        final Pattern[] header = headers.get(FilenameUtils.getExtension(change.getPath()));
+
+        if (header == null) {
+            return;
+        }
+        final byte[] prefix = handler.getStagedPrefix(change, PREFIX_LENGTH);
+        final List<String> lines = new ArrayList<String>();
+        int end = 0;
+
+        for (int ptr = 0; ptr < prefix.length; ptr = end) {
+            end = RawParseUtils.nextLF(prefix, ptr);
+            if ((end == prefix.length) && (prefix[end - 1] != '\n') && (prefix.length == PREFIX_LENGTH)) {
+                break; // the last line was truncated
+            }
+            lines.add(RawParseUtils.decode(Charsets.UTF_8, prefix, ptr, end).replaceAll("\r?\n$", ""));
+        }
+        final String violation = match(header, lines, prefix.length < PREFIX_LENGTH);
+
+        if (violation != null) {
+            LOGGER.log(Level.FINE, "Invalid license header in {0}: {1}", new Object[] {change.getPath(), violation});
+            results.add(this, change.getPath(), change.getPath() + ": " + violation);
+        }
+    }
+
+    @Override
+    public StringBuilder appendViolations(StringBuilder sb, Set<String> violations, Set<String> files) {
+        sb.append("Missing or invalid license headers:%n");
+        for (final String v: violations) {
+            sb.append('\t').append(v).append("%n");
+        }
+        return sb;
+    }
+
+    /**
+     * Matches lines against a header template the way checkstyle's <code>RegexpHeader</code>
+     * check does with its first {@link #MULTI_LINES} lines configured as multi-lines.
+     *
+     * @param header   the compiled header template lines
+     * @param lines    the first lines of the file
+     * @param complete <code>true</code> if <code>lines</code> are all the lines of the file;
+     *                 <code>false</code> if the file has more
+     * @return a description of the violation or <code>null</code> if the header matches
+     */
+    static String match(Pattern[] header, List<String> lines, boolean complete) {
+        if (complete && (header.length - MULTI_LINES > lines.size())) {
+            return "missing license header";
+        }
+        int h = 0;
+        int i;
+
+        for (i = 0; (h < header.length) && (i < lines.size()); i++) {
+            final String line = lines.get(i);
+            boolean matches = header[h].matcher(line).find();
+
+            while (!matches && (h < MULTI_LINES)) {
+                h++;
+                matches = (h == header.length) || header[h].matcher(line).find();
+            }
+            if (!matches) {
+                return "line " + (i + 1) + " does not match the license header: " + header[h].pattern();
+            }
+            if (h >= MULTI_LINES) {
+                h++;
+            }
+        }
+        if (complete && (i == lines.size()) && (Math.max(h, MULTI_LINES) < header.length)) {
+            return "missing license header";
+        }
+        return null;
+    }
+
+    private static Pattern[] readTemplate(String resource) throws IOException {
+        final InputStream is = LicenseHeaderChecker.class.getResourceAsStream(resource);
+
+        if (is == null) {
+            LOGGER.log(Level.WARNING, "License header template not found: {0}", resource);
+            return null;
+        }
+        try {
+            final List<Pattern> header = new ArrayList<Pattern>();
+
+            for (final String l: IOUtils.readLines(is, Charsets.UTF_8)) {
+                header.add(Pattern.compile(l));
+            }
+            return header.toArray(new Pattern[header.size()]);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+}
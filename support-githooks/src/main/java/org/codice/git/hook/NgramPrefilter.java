@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Cheap filter ruling out ASCII chunks that cannot contain any of a set of required literals.
+ * <p/>
+ * Each literal is represented by its rarest case folded n-gram: a trigram when the literal is
+ * long enough, or else a bigram or a single byte. Since folded ASCII bytes only use 7 bits,
+ * every n-gram indexes its own bit in a bitset so the filter yields no false positives beyond
+ * those inherent to looking at a single n-gram per literal. A chunk may match only if one of
+ * its n-grams is set.
+ */
+class NgramPrefilter {
+    /**
+     * Bytes ordered from most to least frequent in source code and prose; any other byte is
+     * considered rarer than all of them.
+     */
+    private static final String COMMON_BYTES =
+            " eatoinsrlhdcupmfgbyw\n\t.,;()=_\"'kv{}xjqz0123456789-:/*<>[]+";
+
+    private static final int MASK2 = (1 << 14) - 1;
+
+    private static final int MASK3 = (1 << 21) - 1;
+
+    private final BitSet unigrams = new BitSet(1 << 7);
+
+    private final BitSet bigrams = new BitSet(1 << 14);
+
+    private final BitSet trigrams = new BitSet(1 << 21);
+
+    private final boolean empty;
+
+    /**
+     * Creates a filter for the specified literals.
+     *
+     * @param literals the required literals made of ASCII characters folded to lower case
+     */
+    NgramPrefilter(Collection<String> literals) {
+        boolean none = true;
+
+        for (final String literal: literals) {
+            if (literal.isEmpty()) {
+                continue;
+            }
+            none = false;
+            if (literal.length() == 1) {
+                unigrams.set(literal.charAt(0));
+            } else if (literal.length() == 2) {
+                bigrams.set((literal.charAt(0) << 7) | literal.charAt(1));
+            } else {
+                trigrams.set(rarestTrigram(literal));
+            }
+        }
+        this.empty = none;
+    }
+
+    /**
+     * Checks if a chunk of ASCII bytes may contain one of the literals.
+     *
+     * @param buf   the buffer holding the chunk
+     * @param start the offset of the first byte of the chunk
+     * @param end   the offset following the last byte of the chunk
+     * @return <code>false</code> if the chunk cannot contain any literal; <code>true</code> if it
+     * may
+     */
+    boolean mayMatch(byte[] buf, int start, int end) {
+        if (empty) {
+            return false;
+        }
+        final boolean checkUnigrams = !unigrams.isEmpty();
+        final boolean checkBigrams = !bigrams.isEmpty();
+        final boolean checkTrigrams = !trigrams.isEmpty();
+        int gram = 0;
+
+        for (int i = start; i < end; i++) {
+            gram = (gram << 7) | DirtyWordMatcher.fold(buf[i]);
+            final int n = i - start;
+
+            if ((checkUnigrams && unigrams.get(gram & 0x7F))
+                    || (checkBigrams && (n >= 1) && bigrams.get(gram & MASK2))
+                    || (checkTrigrams && (n >= 2) && trigrams.get(gram & MASK3))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the filter rejects every chunk.
+     *
+     * @return <code>true</code> if there are no literals; <code>false</code> otherwise
+     */
+    boolean isEmpty() {
+        return empty;
+    }
+
+    private static int rarestTrigram(String literal) {
+        int best = 0;
+        int bestScore = -1;
+
+        for (int i = 0; i + 3 <= literal.length(); i++) {
+            final int score = rarity(literal.charAt(i))
+                    + rarity(literal.charAt(i + 1))
+                    + rarity(literal.charAt(i + 2));
+
+            if (score > bestScore) {
+                bestScore = score;
+                best = (literal.charAt(i) << 14) | (literal.charAt(i + 1) << 7) | literal.charAt(i + 2);
+            }
+        }
+        return best;
+    }
+
+    private static int rarity(char c) {
+        final int rank = COMMON_BYTES.indexOf(c);
+
+        return (rank < 0) ? COMMON_BYTES.length() : rank;
+    }
+}
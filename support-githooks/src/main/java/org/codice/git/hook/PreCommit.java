@@ -14,14 +14,33 @@
 package org.codice.git.hook;
 
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import org.apache.commons.lang3.StringUtils;
 import org.codice.git.RepositoryHandler;
+import org.codice.git.StagedChange;
+import org.codice.git.StagedChangeVisitor;
+import org.codice.git.StagedEntry;
 
+/**
+ * Performs the functionality of the pre-commit hook by running all {@link IndexChecker}s over the
+ * index entries staged for the commit and then all {@link StagedChangeChecker}s over the content
+ * of the staged files. Dirty words are always checked; additional checkers are discovered with
+ * {@link ServiceLoader}.
+ * <p/>
+ * Index checkers run first so a commit they reject is never diffed. The staged changes are then
+ * scanned in a single pass and each file is handed to all checkers concurrently while the next
+ * one is being diffed.
+ */
 public class PreCommit extends Hook {
     protected static final String ERR_MSG =
             "------------------------PRE-COMMIT HOOK ABORTED OPERATION----------------------%n"
@@ -30,48 +49,34 @@ public class PreCommit extends Hook {
 
     private static final Logger LOGGER = Logger.getLogger(PreCommit.class.getName());
 
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    // maximum number of checks queued up before waiting for some to complete
+    private static final int MAX_PENDING_CHECKS = THREADS * 4;
+
     public PreCommit(RepositoryHandler handler) throws IOException {
         super(handler);
     }
 
     public boolean executeHook(String[] args) throws Exception {
-        if (!hasDirtyWords()) { // no dirty words; all accepted so bail!
+        final List<IndexChecker> indexCheckers = getIndexCheckers();
+        final List<StagedChangeChecker> checkers = getCheckers();
+
+        if (indexCheckers.isEmpty() && checkers.isEmpty()) { // nothing to check; all accepted so bail!
             return false;
         }
-        LOGGER.finer("Executing the git diff to determine files with changes.");
-        final String diff = repoHandler.getDiff();
-        final Set<String> foundWords = new HashSet<String>();
-        final Set<String> foundInFiles = new HashSet<String>();
-        final StringBuilder sb = new StringBuilder();
-        String currentFile = "???";
-        boolean dirty = false;
-
-        LOGGER.log(Level.FINEST, "Diff for this commit: {0}", diff);
-        for (final String line: StringUtils.split(diff, '\n')) {
-            if (line.startsWith("+++ b/")) {
-                if ((sb.length() > 0) && containsDirtyWords(sb.toString(), foundWords)) {
-                    dirty = true;
-                    foundInFiles.add(currentFile);
-                }
-                sb.setLength(0);
-                currentFile = StringUtils.substringAfter(line, "+++ b/");
-                // continue which will allow us to validate the filename as well
-            }
-            sb.append(line).append('\n'); // accumulate all lines to check in one shot
-        }
-        if ((sb.length() > 0) && containsDirtyWords(sb.toString(), foundWords)) {
-            dirty = true;
-            foundInFiles.add(currentFile);
+        LOGGER.finer("Reading the index to determine staged entries.");
+        CheckResults results = checkIndex(indexCheckers);
+
+        if (!results.hasViolations() && !checkers.isEmpty()) {
+            LOGGER.finer("Executing the git diff to determine files with changes.");
+            results = check(checkers);
+            reportOverBudgetWords(System.out);
         }
-        if (dirty) {
-            LOGGER.log(Level.FINE, "Dirty words found: {0}", foundWords);
-            LOGGER.log(Level.FINE, "Files with dirty words: {0}", foundInFiles);
-            sb.setLength(0);
-            Hook.appendDirtyWords(sb, foundWords)
-                    .append("In files:%n");
-            for (final String f: foundInFiles) {
-                sb.append('\t').append(f).append("%n");
-            }
+        if (results.hasViolations()) {
+            final StringBuilder sb = results.appendTo(new StringBuilder());
+
+            LOGGER.log(Level.FINE, "Pre-commit violations: {0}", sb);
             // the double formatting is to properly support %n in the string builder too!
             System.out.printf(String.format(ERR_MSG, sb));
             return true;
@@ -81,4 +86,111 @@ public class PreCommit extends Hook {
             return false;
         }
     }
+
+    /**
+     * Gets the checkers to run for the commit, starting with the dirty words checker.
+     *
+     * @return the initialized checkers which have something to check
+     * @throws Exception if an error occurs while initializing a checker
+     */
+    protected List<StagedChangeChecker> getCheckers() throws Exception {
+        final List<StagedChangeChecker> checkers = new ArrayList<StagedChangeChecker>();
+        final DirtyWordChecker dirtyWords = new DirtyWordChecker(this);
+
+        if (dirtyWords.init(repoHandler)) {
+            checkers.add(dirtyWords);
+        }
+        for (final StagedChangeChecker checker:
+                ServiceLoader.load(StagedChangeChecker.class, PreCommit.class.getClassLoader())) {
+            if (checker.init(repoHandler)) {
+                LOGGER.log(Level.FINE, "Using checker: {0}", checker.getClass().getName());
+                checkers.add(checker);
+            }
+        }
+        return checkers;
+    }
+
+    /**
+     * Gets the index checkers to run for the commit.
+     *
+     * @return the initialized index checkers which have something to check
+     * @throws Exception if an error occurs while initializing a checker
+     */
+    protected List<IndexChecker> getIndexCheckers() throws Exception {
+        final List<IndexChecker> checkers = new ArrayList<IndexChecker>();
+
+        for (final IndexChecker checker:
+                ServiceLoader.load(IndexChecker.class, PreCommit.class.getClassLoader())) {
+            if (checker.init(repoHandler)) {
+                LOGGER.log(Level.FINE, "Using index checker: {0}", checker.getClass().getName());
+                checkers.add(checker);
+            }
+        }
+        return checkers;
+    }
+
+    /**
+     * Runs the specified index checkers over the staged index entries.
+     *
+     * @param checkers the index checkers to run
+     * @return the aggregated results
+     * @throws Exception if an error occurs while reading the index or in a checker
+     */
+    private CheckResults checkIndex(List<IndexChecker> checkers) throws Exception {
+        final CheckResults results = new CheckResults();
+
+        if (!checkers.isEmpty()) {
+            for (final StagedEntry entry: repoHandler.getStagedEntries()) {
+                for (final IndexChecker checker: checkers) {
+                    checker.check(entry, results);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs the specified checkers over the staged changes.
+     *
+     * @param checkers the checkers to run
+     * @return the aggregated results
+     * @throws Exception if an error occurs while scanning the changes or in a checker
+     */
+    private CheckResults check(final List<StagedChangeChecker> checkers) throws Exception {
+        final CheckResults results = new CheckResults();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final Semaphore pending = new Semaphore(MAX_PENDING_CHECKS);
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+
+        try {
+            repoHandler.scanStagedChanges(new StagedChangeVisitor() {
+                @Override
+                public void visit(final StagedChange change) throws Exception {
+                    LOGGER.log(Level.FINEST, "Checking staged file: {0}", change.getPath());
+                    for (final StagedChangeChecker checker: checkers) {
+                        pending.acquire();
+                        futures.add(executor.submit(new Callable<Void>() {
+                            @Override
+                            public Void call() throws Exception {
+                                try {
+                                    checker.check(change, results);
+                                    return null;
+                                } finally {
+                                    pending.release();
+                                }
+                            }
+                        }));
+                    }
+                }
+            });
+            for (final Future<?> f: futures) {
+                f.get();
+            }
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof Exception) ? (Exception) e.getCause() : e;
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
 }
@@ -0,0 +1,251 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.codice.git.RepositoryHandler;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+
+/**
+ * Optional daemon watching the working tree of the repository and scanning files for dirty words
+ * as they are saved, so the pre-commit hook does not have to. Files found clean are recorded in
+ * {@link PreScanResults} by the id of the blob git would store for them; the pre-commit hook then
+ * only matches the names of the staged files whose blob ids were recorded.
+ * <p/>
+ * Files are scanned the way their content would appear as added lines of a diff. Dirty words
+ * spanning several lines could still match added lines which are not adjacent in the file, but
+ * the blacklist words are not expected to span lines. Files saved with different content than the
+ * one staged, for instance because of <code>core.autocrlf</code>, are simply never confirmed.
+ * <p/>
+ * The daemon runs until interrupted and is started like the hooks from within the working tree:
+ * <pre>
+ * java -cp &lt;hooks classpath&gt; org.codice.git.hook.Hook &lt;basedir&gt; "" org.codice.git.hook.PreScanDaemon
+ * </pre>
+ * It must be restarted after the blacklist changes since results recorded for other dirty words
+ * are ignored.
+ */
+public class PreScanDaemon extends Hook {
+    /**
+     * Maximum size of the files to scan.
+     */
+    public static final long MAX_FILE_SIZE = 10L << 20;
+
+    private static final Logger LOGGER = Logger.getLogger(PreScanDaemon.class.getName());
+
+    // time to wait for more events before scanning, as editors often save files in several steps
+    private static final long SETTLE_MILLIS = 200L;
+
+    private final Path workTree;
+
+    private final Path metadir;
+
+    private final PreScanResults results;
+
+    private final ObjectInserter.Formatter formatter = new ObjectInserter.Formatter();
+
+    private final Map<WatchKey, Path> directories = new HashMap<WatchKey, Path>();
+
+    public PreScanDaemon(RepositoryHandler handler) throws IOException {
+        super(handler);
+        final File dir = handler.getWorkTree();
+
+        if (dir == null) {
+            throw new IOException("No working tree to watch");
+        }
+        this.workTree = dir.toPath().toAbsolutePath().normalize();
+        this.metadir = handler.getMetadir().toPath().toAbsolutePath().normalize();
+        this.results = PreScanResults.load(new File(handler.getMetadir(), PreScanResults.FILENAME), getDirtyWordsKey());
+    }
+
+    @Override
+    public boolean executeHook(String[] args) throws Exception {
+        final WatchService watcher = FileSystems.getDefault().newWatchService();
+
+        try {
+            watch(watcher);
+        } finally {
+            watcher.close();
+        }
+        return false;
+    }
+
+    /**
+     * Watches the working tree until the specified watch service is closed.
+     *
+     * @param watcher the watch service to use
+     * @throws IOException          if an error occurs while watching
+     * @throws InterruptedException if interrupted while waiting for changes
+     */
+    void watch(WatchService watcher) throws IOException, InterruptedException {
+        register(watcher, workTree, false);
+        LOGGER.log(Level.INFO, "Watching {0} for changes", workTree);
+        System.out.println("[INFO] Watching " + workTree + " for changes.");
+        try {
+            while (true) {
+                final Set<Path> changed = new LinkedHashSet<Path>();
+
+                for (WatchKey key = watcher.take(); key != null;
+                        key = watcher.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) {
+                    final Path dir = directories.get(key);
+
+                    for (final WatchEvent<?> event: key.pollEvents()) {
+                        if ((dir != null) && (event.context() instanceof Path)) {
+                            changed.add(dir.resolve((Path) event.context()));
+                        }
+                    }
+                    if (!key.reset()) {
+                        directories.remove(key);
+                    }
+                }
+                for (final Path p: changed) {
+                    if (Files.isDirectory(p, LinkOption.NOFOLLOW_LINKS)) {
+                        register(watcher, p, true);
+                    } else {
+                        scan(p);
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            LOGGER.log(Level.FINE, "Stopped watching {0}", workTree);
+        }
+    }
+
+    /**
+     * Scans a file for dirty words, recording it when clean.
+     *
+     * @param file the file to scan
+     * @return <code>true</code> if the file is clean; <code>false</code> if dirty or not scanned
+     */
+    boolean scan(Path file) {
+        try {
+            if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS) || (Files.size(file) > MAX_FILE_SIZE)) {
+                return false;
+            }
+            final byte[] content = Files.readAllBytes(file);
+            final ObjectId id = formatter.idFor(Constants.OBJ_BLOB, content);
+
+            if (results.isClean(id)) {
+                return true;
+            }
+            final byte[] lines = asAddedLines(content);
+            final Set<String> found = new HashSet<String>();
+
+            if (containsDirtyWords(lines, 0, lines.length, found)) {
+                LOGGER.log(Level.WARNING, "Dirty words found in {0}: {1}", new Object[] {workTree.relativize(file), found});
+                return false;
+            }
+            LOGGER.log(Level.FINER, "Clean file {0}: {1}", new Object[] {file, id.name()});
+            results.addClean(id);
+            return true;
+        } catch (IOException e) { // the file may be gone already; the hook will scan it anyway
+            LOGGER.log(Level.FINE, "Unable to scan " + file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Gets the pre-scan results recorded by this daemon.
+     *
+     * @return the pre-scan results
+     */
+    PreScanResults getResults() {
+        return results;
+    }
+
+    /**
+     * Registers a directory and all its sub-directories, except for the meta directory.
+     *
+     * @param watcher the watch service to register with
+     * @param root    the directory to register
+     * @param scan    <code>true</code> to scan the files already in the directories;
+     *                <code>false</code> otherwise
+     * @throws IOException if an error occurs while registering
+     */
+    private void register(final WatchService watcher, Path root, final boolean scan) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (dir.toAbsolutePath().normalize().equals(metadir) || dir.endsWith(Constants.DOT_GIT)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                directories.put(dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (scan) {
+                    scan(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                LOGGER.log(Level.FINE, "Unable to visit " + file, e);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Formats content the way it appears as added lines of a diff, with each line prefixed by
+     * <code>+</code>.
+     */
+    static byte[] asAddedLines(byte[] content) {
+        int count = 0;
+
+        for (int i = 0; i < content.length; i++) {
+            if ((i == 0) || (content[i - 1] == '\n')) {
+                count++;
+            }
+        }
+        final byte[] lines = new byte[content.length + count];
+        int j = 0;
+
+        for (int i = 0; i < content.length; i++) {
+            if ((i == 0) || (content[i - 1] == '\n')) {
+                lines[j++] = '+';
+            }
+            lines[j++] = content[i];
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Ids of the blobs found clean of dirty words ahead of time by the {@link PreScanDaemon}, so the
+ * pre-commit hook only has to confirm the ids of the staged blobs against them.
+ * <p/>
+ * The results are stored in the local meta directory as a header with the key of the dirty words
+ * they were found clean of, followed by the raw ids, so they are ignored as soon as the blacklist
+ * changes. New ids are appended as they are found; readers ignore any incomplete id at the end.
+ */
+public class PreScanResults {
+    public static final String FILENAME = "dirty-words.prescan";
+
+    /**
+     * Maximum number of ids recorded before starting over.
+     */
+    public static final int MAX_ENTRIES = 100000;
+
+    private static final Logger LOGGER = Logger.getLogger(PreScanResults.class.getName());
+
+    private static final int MAGIC = 0x44575031; // DWP1
+
+    private static final int HEADER_LENGTH = 12;
+
+    private final File file;
+
+    private final long key;
+
+    private final Set<ObjectId> clean;
+
+    private boolean valid;
+
+    private PreScanResults(File file, long key, Set<ObjectId> clean, boolean valid) {
+        this.file = file;
+        this.key = key;
+        this.clean = clean;
+        this.valid = valid;
+    }
+
+    /**
+     * Loads the results recorded for the specified dirty words key. Results recorded for other
+     * dirty words are ignored.
+     *
+     * @param file the file where the results are recorded or <code>null</code> if none
+     * @param key  the key of the dirty words as returned by {@link DirtyWordMatcher#getKey()}
+     * @return the corresponding results
+     * @throws IOException if an error occurs while reading the file
+     */
+    public static PreScanResults load(File file, long key) throws IOException {
+        final Set<ObjectId> clean = new HashSet<ObjectId>();
+        boolean valid = false;
+
+        if ((file != null) && file.isFile()) {
+            final byte[] buf = Files.readAllBytes(file.toPath());
+
+            if ((buf.length >= HEADER_LENGTH) && (ByteBuffer.wrap(buf).getInt(0) == MAGIC)
+                    && (ByteBuffer.wrap(buf).getLong(4) == key)) {
+                valid = true;
+                for (int i = HEADER_LENGTH; i + Constants.OBJECT_ID_LENGTH <= buf.length; i += Constants.OBJECT_ID_LENGTH) {
+                    clean.add(ObjectId.fromRaw(buf, i));
+                }
+            }
+            LOGGER.log(Level.FINE, "Loaded {0} pre-scanned blobs from: {1}", new Object[] {clean.size(), file});
+        }
+        return new PreScanResults(file, key, clean, valid);
+    }
+
+    /**
+     * Gets the number of blobs found clean.
+     *
+     * @return the number of blobs found clean
+     */
+    public synchronized int size() {
+        return clean.size();
+    }
+
+    /**
+     * Checks if a blob was found clean.
+     *
+     * @param id the id of the blob or <code>null</code> if unknown
+     * @return <code>true</code> if the blob was found clean; <code>false</code> otherwise
+     */
+    public synchronized boolean isClean(AnyObjectId id) {
+        return (id != null) && clean.contains(id);
+    }
+
+    /**
+     * Records a blob found clean.
+     *
+     * @param id the id of the blob
+     * @throws IOException if an error occurs while recording it
+     */
+    public synchronized void addClean(AnyObjectId id) throws IOException {
+        if (!clean.add(id.copy())) {
+            return;
+        }
+        final byte[] raw = new byte[Constants.OBJECT_ID_LENGTH];
+
+        id.copyRawTo(raw, 0);
+        if (valid && (clean.size() <= MAX_ENTRIES)) {
+            append(file, raw);
+            return;
+        }
+        // start over with a new header, replacing the file at once for concurrent readers
+        final File tmp = new File(file.getPath() + ".tmp");
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).putLong(key);
+
+        clean.clear();
+        clean.add(id.copy());
+        Files.write(tmp.toPath(), header.array());
+        append(tmp, raw);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.valid = true;
+    }
+
+    private static void append(File file, byte[] raw) throws IOException {
+        final OutputStream out = new FileOutputStream(file, true);
+
+        try {
+            out.write(raw);
+        } finally {
+            out.close();
+        }
+    }
+}
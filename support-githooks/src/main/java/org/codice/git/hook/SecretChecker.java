@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.codice.git.RepositoryHandler;
+import org.codice.git.StagedChange;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.util.RawParseUtils;
+
+/**
+ * Checker looking for secrets such as private keys, access keys or passwords in the added lines
+ * of the staged files.
+ * <p/>
+ * Known formats are recognized directly: PEM private key headers and AWS access key ids. Any
+ * other token made of base64 characters is flagged when a window of {@link #WINDOW} characters
+ * has a Shannon entropy of at least the configured threshold and the token mixes letters with
+ * digits. The entropy is maintained incrementally as the window slides over the bytes, without
+ * allocating anything per token.
+ * <p/>
+ * The checker can be configured with <code>git config</code>:
+ * <ul>
+ * <li><code>githooks.secrets.enabled</code> set to <code>false</code> to disable it</li>
+ * <li><code>githooks.secrets.entropy</code> the entropy threshold in bits per character
+ * (defaults to {@value #DEFAULT_ENTROPY})</li>
+ * </ul>
+ */
+public class SecretChecker implements StagedChangeChecker {
+    public static final int WINDOW = 32;
+
+    public static final double DEFAULT_ENTROPY = 4.3;
+
+    private static final Logger LOGGER = Logger.getLogger(SecretChecker.class.getName());
+
+    private static final byte[] PEM_BEGIN = Constants.encodeASCII("-----BEGIN ");
+
+    private static final byte[] PEM_PRIVATE_KEY = Constants.encodeASCII("PRIVATE KEY");
+
+    private static final byte[] FILE_HEADER = Constants.encodeASCII("+++ b/");
+
+    private static final byte[][] AWS_PREFIXES = {
+            Constants.encodeASCII("AKIA"), Constants.encodeASCII("ASIA"), Constants.encodeASCII("AGPA"),
+            Constants.encodeASCII("AIDA"), Constants.encodeASCII("AROA"), Constants.encodeASCII("ANPA"),
+            Constants.encodeASCII("ANVA"), Constants.encodeASCII("AIPA")};
+
+    private static final int AWS_KEY_LENGTH = 20;
+
+    private static final boolean[] TOKEN = new boolean[128];
+
+    private static final boolean[] UPPER_OR_DIGIT = new boolean[128];
+
+    private static final boolean[] LETTER = new boolean[128];
+
+    private static final boolean[] DIGIT = new boolean[128];
+
+    /**
+     * <code>n * log2(n)</code> for all possible counts in a window.
+     */
+    private static final double[] N_LOG_N = new double[WINDOW + 1];
+
+    static {
+        for (int i = 0; i < 128; i++) {
+            TOKEN[i] = Character.isLetterOrDigit(i) || (i == '+') || (i == '/') || (i == '=') || (i == '_') || (i == '-');
+            LETTER[i] = Character.isLetter(i);
+            DIGIT[i] = Character.isDigit(i);
+            UPPER_OR_DIGIT[i] = ((i >= 'A') && (i <= 'Z')) || DIGIT[i];
+        }
+        for (int n = 1; n <= WINDOW; n++) {
+            N_LOG_N[n] = n * Math.log(n) / Math.log(2);
+        }
+    }
+
+    /**
+     * Maximum sum of <code>n * log2(n)</code> over the counts of a window whose entropy reaches
+     * the threshold, since <code>H = log2(W) - sum / W</code>.
+     */
+    private double maxSum;
+
+    @Override
+    public boolean init(RepositoryHandler handler) {
+        if ("false".equalsIgnoreCase(handler.getConfigString("githooks", "secrets", "enabled"))) {
+            return false;
+        }
+        final double entropy = NumberUtils.toDouble(handler.getConfigString("githooks", "secrets", "entropy"), DEFAULT_ENTROPY);
+
+        LOGGER.log(Level.FINE, "Secrets entropy threshold: {0}", entropy);
+        this.maxSum = (Math.log(WINDOW) / Math.log(2) - entropy) * WINDOW;
+        return true;
+    }
+
+    @Override
+    public void check(StagedChange change, CheckResults results) {
+        final byte[] buf = change.getBuffer();
+        final int end = change.getEnd();
+        final int[] counts = new int[128];
+
+        for (int ptr = change.getStart(); ptr < end; ) {
+            final int eol = Math.min(RawParseUtils.nextLF(buf, ptr), end);
+
+            if ((buf[ptr] == '+') && (RawParseUtils.match(buf, ptr, FILE_HEADER) < 0)) {
+                checkLine(buf, ptr + 1, eol, counts, change.getPath(), results);
+            }
+            ptr = eol;
+        }
+    }
+
+    @Override
+    public StringBuilder appendViolations(StringBuilder sb, Set<String> violations, Set<String> files) {
+        sb.append("Possible secrets found:%n");
+        for (final String v: violations) {
+            sb.append('\t').append(v).append("%n");
+        }
+        sb.append("In files:%n");
+        for (final String f: files) {
+            sb.append('\t').append(f).append("%n");
+        }
+        return sb;
+    }
+
+    private void checkLine(byte[] buf, int start, int end, int[] counts, String path, CheckResults results) {
+        for (int i = start; i < end; ) {
+            final int b = buf[i];
+
+            if ((b == '-') && (RawParseUtils.match(buf, i, PEM_BEGIN) > 0) && (indexOf(buf, i, end, PEM_PRIVATE_KEY) >= 0)) {
+                results.add(this, path, "Private key: " + RawParseUtils.decode(buf, i, lineEnd(buf, i, end)));
+                return;
+            }
+            if ((b < 0) || !TOKEN[b]) {
+                i++;
+                continue;
+            }
+            i = checkToken(buf, i, end, counts, path, results);
+        }
+    }
+
+    /**
+     * Checks a token of base64 characters starting at the specified offset.
+     *
+     * @return the offset following the token
+     */
+    private int checkToken(byte[] buf, int start, int end, int[] counts, String path, CheckResults results) {
+        int tend = start + 1;
+
+        while ((tend < end) && (buf[tend] >= 0) && TOKEN[buf[tend]]) {
+            tend++;
+        }
+        if ((tend - start >= WINDOW) && isHighEntropy(buf, start, tend, counts)) {
+            results.add(this, path, "High entropy string: " + mask(buf, start, tend));
+        } else if (isAwsKey(buf, start, tend)) {
+            results.add(this, path, "AWS access key id: " + mask(buf, start, tend));
+        }
+        return tend;
+    }
+
+    /**
+     * Checks if a token mixes letters with digits and has a window whose entropy reaches the
+     * threshold.
+     */
+    private boolean isHighEntropy(byte[] buf, int start, int end, int[] counts) {
+        boolean letter = false;
+        boolean digit = false;
+        boolean high = false;
+        double sum = 0.0;
+
+        for (int i = start; i < end; i++) {
+            final int in = buf[i];
+
+            letter |= LETTER[in];
+            digit |= DIGIT[in];
+            if (high) {
+                continue;
+            }
+            if (i - start >= WINDOW) {
+                final int out = buf[i - WINDOW];
+
+                sum += N_LOG_N[counts[out] - 1] - N_LOG_N[counts[out]];
+                counts[out]--;
+            }
+            sum += N_LOG_N[counts[in] + 1] - N_LOG_N[counts[in]];
+            counts[in]++;
+            high = (i - start >= WINDOW - 1) && (sum <= maxSum);
+        }
+        // clear the counts for the next token
+        for (int i = start; i < end; i++) {
+            counts[buf[i]] = 0;
+        }
+        return high && letter && digit;
+    }
+
+    private static boolean isAwsKey(byte[] buf, int start, int end) {
+        if (end - start != AWS_KEY_LENGTH) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (!UPPER_OR_DIGIT[buf[i]]) {
+                return false;
+            }
+        }
+        for (final byte[] prefix: AWS_PREFIXES) {
+            if (RawParseUtils.match(buf, start, prefix) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Masks a secret so it is not displayed in full.
+     */
+    private static String mask(byte[] buf, int start, int end) {
+        return RawParseUtils.decode(buf, start, start + 4) + "****";
+    }
+
+    private static int indexOf(byte[] buf, int start, int end, byte[] pattern) {
+        for (int i = start; i + pattern.length <= end; i++) {
+            if (RawParseUtils.match(buf, i, pattern) > 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lineEnd(byte[] buf, int start, int end) {
+        int e = end;
+
+        while ((e > start) && ((buf[e - 1] == '\n') || (buf[e - 1] == '\r'))) {
+            e--;
+        }
+        return e;
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import org.codice.git.StagedChange;
+
+/**
+ * Service provider interface for checks performed by the {@link PreCommit} hook on the content
+ * of the files staged for the next commit.
+ * <p/>
+ * All checkers are driven from a single pass over the staged changes and are called
+ * concurrently, so {@link #check(StagedChange, CheckResults)} must be thread safe.
+ */
+public interface StagedChangeChecker extends Checker {
+    /**
+     * Checks a staged file, reporting any violations to the specified results.
+     *
+     * @param change  the staged change to check
+     * @param results the results where to report violations
+     * @throws Exception if an error occurs while checking
+     */
+    void check(StagedChange change, CheckResults results) throws Exception;
+
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.regex;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Fallback for regular expressions the {@link LinearRegex} engine cannot compile. Matches with
+ * {@link java.util.regex.Pattern}, which may backtrack, under a budget of character reads per
+ * input character and a total time budget for the life of the matcher.
+ * <p/>
+ * Once the budget is exceeded, every further attempt fails immediately with a
+ * {@link RegexBudgetExceededException} so a pathological expression costs at most its budget.
+ */
+public class BudgetedRegex implements RegexMatcher {
+    public static final long DEFAULT_STEPS_PER_CHAR = 1000L;
+
+    public static final long DEFAULT_TIME_BUDGET_MILLIS = 2000L;
+
+    /**
+     * Number of steps always allowed, so short inputs are not limited by the per character budget.
+     */
+    private static final long MIN_STEPS = 100000L;
+
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    private final Pattern pattern;
+
+    private final long stepsPerChar;
+
+    private final long timeBudgetNanos;
+
+    private final AtomicLong elapsedNanos = new AtomicLong();
+
+    private volatile boolean exhausted = false;
+
+    public BudgetedRegex(Pattern pattern) {
+        this(pattern, DEFAULT_STEPS_PER_CHAR, DEFAULT_TIME_BUDGET_MILLIS);
+    }
+
+    /**
+     * Creates a budgeted matcher.
+     *
+     * @param pattern          the compiled pattern
+     * @param stepsPerChar     maximum number of character reads allowed per input character for
+     *                         a single find
+     * @param timeBudgetMillis total matching time allowed over all finds
+     */
+    public BudgetedRegex(Pattern pattern, long stepsPerChar, long timeBudgetMillis) {
+        this.pattern = pattern;
+        this.stepsPerChar = stepsPerChar;
+        this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+    }
+
+    @Override
+    public boolean find(CharSequence input) {
+        if (exhausted) {
+            throw new RegexBudgetExceededException(pattern.pattern(), "Budget already exhausted");
+        }
+        final long start = System.nanoTime();
+        final CountingSequence seq = new CountingSequence(input,
+                new long[] {Math.max(MIN_STEPS, input.length() * stepsPerChar)},
+                start + timeBudgetNanos - elapsedNanos.get());
+
+        try {
+            return pattern.matcher(seq).find();
+        } catch (RegexBudgetExceededException e) {
+            this.exhausted = true;
+            throw e;
+        } finally {
+            elapsedNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String pattern() {
+        return pattern.pattern();
+    }
+
+    @Override
+    public String requiredLiteral() {
+        return "";
+    }
+
+    /**
+     * Character sequence that counts the characters read by the regex engine and aborts the match
+     * when it runs out of steps or time.
+     */
+    private class CountingSequence implements CharSequence {
+        private final CharSequence seq;
+
+        private final long[] steps; // shared with sub-sequences
+
+        private final long deadline;
+
+        CountingSequence(CharSequence seq, long[] steps, long deadline) {
+            this.seq = seq;
+            this.steps = steps;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int length() {
+            return seq.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            final long left = --steps[0];
+
+            if (left < 0) {
+                throw new RegexBudgetExceededException(pattern.pattern(), "Step budget exceeded");
+            }
+            if (((left % TIME_CHECK_INTERVAL) == 0) && (System.nanoTime() - deadline > 0)) {
+                throw new RegexBudgetExceededException(pattern.pattern(), "Time budget exceeded");
+            }
+            return seq.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new CountingSequence(seq.subSequence(start, end), steps, deadline);
+        }
+
+        @Override
+        public String toString() {
+            return seq.toString();
+        }
+    }
+}
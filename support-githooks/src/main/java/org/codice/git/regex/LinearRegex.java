@@ -0,0 +1,298 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.regex;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Regular expression matcher that runs in time linear in the size of the input, whatever the
+ * expression. The expression is compiled into a non-deterministic automaton which is simulated
+ * over all its states at once, one input character at a time, so no backtracking ever occurs.
+ * <p/>
+ * The supported syntax is a subset of the {@link java.util.regex.Pattern} one; see
+ * {@link RegexCompiler} for details. Since only the existence of a match is reported, greedy and
+ * lazy quantifiers behave the same.
+ */
+public final class LinearRegex implements RegexMatcher {
+    private final String regex;
+
+    private final int[] ops;
+
+    private final int[] xs;
+
+    private final int[] ys;
+
+    private final IntPredicate[] preds;
+
+    private final int size;
+
+    private final String requiredLiteral;
+
+    private LinearRegex(String regex, RegexCompiler compiler) {
+        this.regex = regex;
+        this.ops = compiler.ops;
+        this.xs = compiler.xs;
+        this.ys = compiler.ys;
+        this.preds = compiler.preds;
+        this.size = compiler.size;
+        this.requiredLiteral = compiler.requiredLiteral;
+    }
+
+    /**
+     * Compiles the specified expression.
+     *
+     * @param regex the regular expression in the {@link java.util.regex.Pattern} syntax
+     * @param flags the {@link java.util.regex.Pattern} flags
+     * @return the compiled expression
+     * @throws UnsupportedRegexException if the expression uses constructs that require
+     *                                   backtracking or are not supported
+     */
+    public static LinearRegex compile(String regex, int flags) throws UnsupportedRegexException {
+        return new LinearRegex(regex, RegexCompiler.compile(regex, flags));
+    }
+
+    @Override
+    public boolean find(CharSequence input) {
+        final int len = input.length();
+        final int[] stack = new int[size * 2 + 2];
+        StateSet current = new StateSet(size);
+        StateSet next = new StateSet(size);
+
+        for (int i = 0; ; ) {
+            // start a new attempt at every position, in parallel with the ones in progress
+            if (addState(current, 0, input, i, stack)) {
+                return true;
+            }
+            if (i >= len) {
+                return false;
+            }
+            final int cp = Character.codePointAt(input, i);
+            final int ni = i + Character.charCount(cp);
+
+            next.clear();
+            for (int k = 0; k < current.size; k++) {
+                final int pc = current.dense[k];
+
+                if ((ops[pc] == RegexCompiler.CONSUME) && preds[pc].test(cp) && addState(next,
+                        pc + 1,
+                        input,
+                        ni,
+                        stack)) {
+                    return true;
+                }
+            }
+            final StateSet tmp = current;
+
+            current = next;
+            next = tmp;
+            i = ni;
+        }
+    }
+
+    @Override
+    public String pattern() {
+        return regex;
+    }
+
+    @Override
+    public String requiredLiteral() {
+        return requiredLiteral;
+    }
+
+    @Override
+    public String toString() {
+        return regex;
+    }
+
+    /**
+     * Adds a state and all the states reachable from it without consuming input.
+     *
+     * @return <code>true</code> if the accepting state was reached; <code>false</code> otherwise
+     */
+    private boolean addState(StateSet set, int pc, CharSequence input, int i, int[] stack) {
+        int sp = 0;
+
+        stack[sp++] = pc;
+        while (sp > 0) {
+            final int s = stack[--sp];
+
+            if (!set.add(s)) {
+                continue;
+            }
+            switch (ops[s]) {
+            case RegexCompiler.MATCH:
+                return true;
+            case RegexCompiler.JMP:
+                stack[sp++] = xs[s];
+                break;
+            case RegexCompiler.SPLIT:
+                stack[sp++] = ys[s];
+                stack[sp++] = xs[s];
+                break;
+            case RegexCompiler.ASSERT:
+                if (check(xs[s], input, i)) {
+                    stack[sp++] = s + 1;
+                }
+                break;
+            default: // consuming states wait for the next character
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks a zero-width assertion at the specified position, as {@link java.util.regex.Pattern}
+     * does with the default anchoring and non-transparent bounds.
+     */
+    private static boolean check(int kind, CharSequence input, int i) {
+        final int len = input.length();
+
+        switch (kind) {
+        case RegexCompiler.BEGIN_INPUT:
+            return i == 0;
+        case RegexCompiler.END_INPUT:
+            return i == len;
+        case RegexCompiler.DOLLAR:
+        case RegexCompiler.DOLLAR_MULTILINE:
+            final boolean multiline = (kind == RegexCompiler.DOLLAR_MULTILINE);
+
+            if (!multiline) {
+                if (i < len - 2) {
+                    return false;
+                }
+                if ((i == len - 2) && ((input.charAt(i) != '\r') || (input.charAt(i + 1) != '\n'))) {
+                    return false;
+                }
+            }
+            if (i < len) {
+                final char ch = input.charAt(i);
+
+                if (ch == '\n') {
+                    return (i == 0) || (input.charAt(i - 1) != '\r');
+                }
+                return RegexCompiler.isLineTerminator(ch);
+            }
+            return true;
+        case RegexCompiler.UNIX_DOLLAR:
+            return (i == len) || ((i == len - 1) && (input.charAt(i) == '\n'));
+        case RegexCompiler.UNIX_DOLLAR_MULTILINE:
+            return (i == len) || (input.charAt(i) == '\n');
+        case RegexCompiler.CARET_MULTILINE:
+            if (i == len) {
+                return false;
+            }
+            if (i > 0) {
+                final char ch = input.charAt(i - 1);
+
+                if (!RegexCompiler.isLineTerminator(ch)) {
+                    return false;
+                }
+                return (ch != '\r') || (input.charAt(i) != '\n');
+            }
+            return true;
+        case RegexCompiler.UNIX_CARET_MULTILINE:
+            return (i < len) && ((i == 0) || (input.charAt(i - 1) == '\n'));
+        case RegexCompiler.WORD_BOUNDARY:
+            return isWordBoundary(input, i);
+        case RegexCompiler.NOT_WORD_BOUNDARY:
+            return !isWordBoundary(input, i);
+        default:
+            throw new IllegalStateException("Unknown assertion " + kind);
+        }
+    }
+
+    /**
+     * Checks if there is a word boundary at the specified index the same way <code>\b</code>
+     * does in {@link java.util.regex.Pattern}.
+     *
+     * @param input the input characters
+     * @param i     the index to check
+     * @return <code>true</code> if there is a word boundary at <code>i</code>; <code>false</code>
+     * otherwise
+     */
+    public static boolean isWordBoundary(CharSequence input, int i) {
+        return isWordBefore(input, i) != isWordAt(input, i);
+    }
+
+    private static boolean isWordBefore(CharSequence input, int i) {
+        if (i <= 0) {
+            return false;
+        }
+        final int ch = Character.codePointBefore(input, i);
+
+        return isWord(ch) || ((Character.getType(ch) == Character.NON_SPACING_MARK) && hasBaseCharacter(input, i - 1));
+    }
+
+    private static boolean isWordAt(CharSequence input, int i) {
+        if (i >= input.length()) {
+            return false;
+        }
+        final int ch = Character.codePointAt(input, i);
+
+        return isWord(ch) || ((Character.getType(ch) == Character.NON_SPACING_MARK) && hasBaseCharacter(input, i));
+    }
+
+    private static boolean isWord(int ch) {
+        return (ch == '_') || Character.isLetterOrDigit(ch);
+    }
+
+    private static boolean hasBaseCharacter(CharSequence input, int i) {
+        for (int x = i; x >= 0; x--) {
+            final int ch = Character.codePointAt(input, x);
+
+            if (Character.isLetterOrDigit(ch)) {
+                return true;
+            }
+            if (Character.getType(ch) != Character.NON_SPACING_MARK) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Set of automaton states with constant time insertion, membership and clearing.
+     */
+    private static class StateSet {
+        private final int[] dense;
+
+        private final int[] sparse;
+
+        private int size = 0;
+
+        StateSet(int capacity) {
+            this.dense = new int[capacity];
+            this.sparse = new int[capacity];
+        }
+
+        boolean add(int s) {
+            final int k = sparse[s];
+
+            if ((k < size) && (dense[k] == s)) {
+                return false;
+            }
+            sparse[s] = size;
+            dense[size++] = s;
+            return true;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.regex;
+
+/**
+ * Thrown when matching a backtracking regular expression goes over its time or step budget.
+ */
+public class RegexBudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String pattern;
+
+    public RegexBudgetExceededException(String pattern, String message) {
+        super(message);
+        this.pattern = pattern;
+    }
+
+    /**
+     * Gets the regular expression that went over budget.
+     *
+     * @return the regular expression
+     */
+    public String getPattern() {
+        return pattern;
+    }
+}
@@ -0,0 +1,776 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.regex.Pattern;
+
+/**
+ * Parses a regular expression written in the {@link Pattern} syntax and compiles it into the
+ * instructions of a non-deterministic automaton run by {@link LinearRegex}.
+ * <p/>
+ * Only the constructs that can be matched without backtracking are supported: literals, quoted
+ * sequences, character classes without nesting or intersection, the predefined classes \d \w \s
+ * and their negations, groups, alternation, greedy and lazy quantifiers, and the ^ $ \A \z \Z
+ * \b \B boundaries. Their semantics follow the {@link Pattern} ones, including case folding.
+ * Anything else is rejected with an {@link UnsupportedRegexException}.
+ */
+final class RegexCompiler {
+    static final int CONSUME = 0;
+
+    static final int SPLIT = 1;
+
+    static final int JMP = 2;
+
+    static final int ASSERT = 3;
+
+    static final int MATCH = 4;
+
+    static final int BEGIN_INPUT = 0;
+
+    static final int END_INPUT = 1;
+
+    static final int DOLLAR = 2;
+
+    static final int DOLLAR_MULTILINE = 3;
+
+    static final int UNIX_DOLLAR = 4;
+
+    static final int UNIX_DOLLAR_MULTILINE = 5;
+
+    static final int CARET_MULTILINE = 6;
+
+    static final int UNIX_CARET_MULTILINE = 7;
+
+    static final int WORD_BOUNDARY = 8;
+
+    static final int NOT_WORD_BOUNDARY = 9;
+
+    /**
+     * Limits the size of the automaton, mostly to guard against large counted repetitions.
+     */
+    static final int MAX_INSTRUCTIONS = 20000;
+
+    private static final int MAX_REPETITION = 1000;
+
+    private static final int UNSUPPORTED_FLAGS =
+            Pattern.COMMENTS | Pattern.CANON_EQ | Pattern.UNICODE_CHARACTER_CLASS;
+
+    private static final IntPredicate DIGIT = ch -> (ch >= '0') && (ch <= '9');
+
+    private static final IntPredicate WORD =
+            ch -> ((ch >= 'a') && (ch <= 'z')) || ((ch >= 'A') && (ch <= 'Z')) || ((ch >= '0')
+                    && (ch <= '9')) || (ch == '_');
+
+    private static final IntPredicate SPACE =
+            ch -> (ch == ' ') || ((ch >= '\t') && (ch <= '\r'));
+
+    private final String regex;
+
+    private final int flags;
+
+    private int pos = 0;
+
+    int[] ops = new int[16];
+
+    int[] xs = new int[16];
+
+    int[] ys = new int[16];
+
+    IntPredicate[] preds = new IntPredicate[16];
+
+    int size = 0;
+
+    /**
+     * Longest sequence of ASCII characters, folded to lower case, that every match contains.
+     */
+    String requiredLiteral = "";
+
+    private RegexCompiler(String regex, int flags) {
+        this.regex = regex;
+        this.flags = flags;
+    }
+
+    /**
+     * Compiles the specified expression.
+     *
+     * @param regex the regular expression
+     * @param flags the {@link Pattern} flags
+     * @return the compiler holding the resulting instructions, starting at index 0
+     * @throws UnsupportedRegexException if the expression uses unsupported constructs
+     */
+    static RegexCompiler compile(String regex, int flags) throws UnsupportedRegexException {
+        final RegexCompiler c = new RegexCompiler(regex, flags);
+
+        if ((flags & UNSUPPORTED_FLAGS) != 0) {
+            throw new UnsupportedRegexException("Unsupported flags: " + flags);
+        }
+        final Node root;
+
+        if (c.has(Pattern.LITERAL)) {
+            root = c.literal(regex);
+        } else {
+            root = c.parseAlternation();
+            if (c.pos < regex.length()) {
+                throw new UnsupportedRegexException("Unexpected character at index " + c.pos);
+            }
+        }
+        root.emit(c);
+        c.emit(MATCH, 0, 0, null);
+        c.requiredLiteral = root.requiredLiteral();
+        return c;
+    }
+
+    private boolean has(int flag) {
+        return (flags & flag) != 0;
+    }
+
+    private int emit(int op, int x, int y, IntPredicate pred) throws UnsupportedRegexException {
+        if (size >= MAX_INSTRUCTIONS) {
+            throw new UnsupportedRegexException("Expression is too large");
+        }
+        if (size == ops.length) {
+            ops = Arrays.copyOf(ops, size * 2);
+            xs = Arrays.copyOf(xs, size * 2);
+            ys = Arrays.copyOf(ys, size * 2);
+            preds = Arrays.copyOf(preds, size * 2);
+        }
+        ops[size] = op;
+        xs[size] = x;
+        ys[size] = y;
+        preds[size] = pred;
+        return size++;
+    }
+
+    private Node parseAlternation() throws UnsupportedRegexException {
+        final List<Node> alternatives = new ArrayList<Node>();
+
+        alternatives.add(parseSequence());
+        while ((pos < regex.length()) && (regex.charAt(pos) == '|')) {
+            pos++;
+            alternatives.add(parseSequence());
+        }
+        return (alternatives.size() == 1) ? alternatives.get(0) : new Alternation(alternatives);
+    }
+
+    private Node parseSequence() throws UnsupportedRegexException {
+        final List<Node> nodes = new ArrayList<Node>();
+
+        while ((pos < regex.length()) && (regex.charAt(pos) != '|') && (regex.charAt(pos) != ')')) {
+            nodes.add(parseRepetition());
+        }
+        return new Sequence(nodes);
+    }
+
+    private Node parseRepetition() throws UnsupportedRegexException {
+        Node node = parseAtom();
+
+        while (pos < regex.length()) {
+            final char c = regex.charAt(pos);
+            int min;
+            int max;
+
+            if (c == '*') {
+                min = 0;
+                max = -1;
+                pos++;
+            } else if (c == '+') {
+                min = 1;
+                max = -1;
+                pos++;
+            } else if (c == '?') {
+                min = 0;
+                max = 1;
+                pos++;
+            } else if (c == '{') {
+                final int close = regex.indexOf('}', pos);
+
+                if (close < 0) {
+                    throw new UnsupportedRegexException("Unterminated repetition at index " + pos);
+                }
+                final String[] bounds = regex.substring(pos + 1, close).split(",", -1);
+
+                try {
+                    min = Integer.parseInt(bounds[0]);
+                    max = (bounds.length == 1) ? min : (bounds[1].isEmpty() ? -1 : Integer.parseInt(bounds[1]));
+                } catch (NumberFormatException e) {
+                    throw new UnsupportedRegexException("Invalid repetition at index " + pos);
+                }
+                if ((bounds.length > 2) || (min > MAX_REPETITION) || (max > MAX_REPETITION) || ((max >= 0) && (max < min))) {
+                    throw new UnsupportedRegexException("Unsupported repetition at index " + pos);
+                }
+                pos = close + 1;
+            } else {
+                break;
+            }
+            if (pos < regex.length()) {
+                if (regex.charAt(pos) == '?') { // lazy quantifiers find the same matches
+                    pos++;
+                } else if (regex.charAt(pos) == '+') {
+                    throw new UnsupportedRegexException("Possessive quantifier at index " + pos);
+                }
+            }
+            node = new Repetition(node, min, max);
+        }
+        return node;
+    }
+
+    private Node parseAtom() throws UnsupportedRegexException {
+        final int c = regex.codePointAt(pos);
+
+        switch (c) {
+        case '(':
+            pos++;
+            if (regex.startsWith("?:", pos)) {
+                pos += 2;
+            } else if (regex.startsWith("?", pos)) {
+                throw new UnsupportedRegexException("Special group at index " + pos);
+            }
+            final Node group = parseAlternation();
+
+            if ((pos >= regex.length()) || (regex.charAt(pos) != ')')) {
+                throw new UnsupportedRegexException("Unclosed group");
+            }
+            pos++;
+            return group;
+        case '[':
+            return new Consume(parseClass());
+        case '.':
+            pos++;
+            return new Consume(dot());
+        case '^':
+            pos++;
+            if (has(Pattern.MULTILINE)) {
+                return new Assertion(has(Pattern.UNIX_LINES) ? UNIX_CARET_MULTILINE : CARET_MULTILINE);
+            }
+            return new Assertion(BEGIN_INPUT);
+        case '$':
+            pos++;
+            return new Assertion(dollar(has(Pattern.MULTILINE)));
+        case '\\':
+            return parseEscape();
+        case '*':
+        case '+':
+        case '?':
+        case '{':
+            throw new UnsupportedRegexException("Dangling quantifier at index " + pos);
+        default:
+            pos += Character.charCount(c);
+            return new Consume(single(c), c);
+        }
+    }
+
+    private Node parseEscape() throws UnsupportedRegexException {
+        pos++; // skip the backslash
+        if (pos >= regex.length()) {
+            throw new UnsupportedRegexException("Trailing backslash");
+        }
+        final char c = regex.charAt(pos);
+
+        switch (c) {
+        case 'Q':
+            final int end = regex.indexOf("\\E", ++pos);
+            final String quoted = regex.substring(pos, (end < 0) ? regex.length() : end);
+
+            pos = (end < 0) ? regex.length() : (end + 2);
+            return literal(quoted);
+        case 'b':
+            if (regex.startsWith("{", pos + 1)) {
+                throw new UnsupportedRegexException("Grapheme boundary at index " + pos);
+            }
+            pos++;
+            return new Assertion(WORD_BOUNDARY);
+        case 'B':
+            pos++;
+            return new Assertion(NOT_WORD_BOUNDARY);
+        case 'A':
+            pos++;
+            return new Assertion(BEGIN_INPUT);
+        case 'z':
+            pos++;
+            return new Assertion(END_INPUT);
+        case 'Z':
+            pos++;
+            return new Assertion(dollar(false));
+        default:
+            final IntPredicate predefined = predefined(c);
+
+            if (predefined != null) {
+                pos++;
+                return new Consume(predefined);
+            }
+            final int cp = parseCharEscape();
+
+            return new Consume(single(cp), cp);
+        }
+    }
+
+    /**
+     * Parses the escaped character following a backslash.
+     */
+    private int parseCharEscape() throws UnsupportedRegexException {
+        final char c = regex.charAt(pos);
+
+        switch (c) {
+        case 't':
+            pos++;
+            return '\t';
+        case 'n':
+            pos++;
+            return '\n';
+        case 'r':
+            pos++;
+            return '\r';
+        case 'f':
+            pos++;
+            return '\f';
+        case 'a':
+            pos++;
+            return '\u0007';
+        case 'e':
+            pos++;
+            return '\u001B';
+        case '0':
+            pos++;
+            int octal = 0;
+
+            for (int i = 0; (i < 3) && (pos < regex.length()); i++) {
+                final int d = regex.charAt(pos) - '0';
+
+                if ((d < 0) || (d > 7) || ((octal * 8 + d) > 0377)) {
+                    break;
+                }
+                octal = octal * 8 + d;
+                pos++;
+            }
+            return octal;
+        case 'x':
+            pos++;
+            if (regex.startsWith("{", pos)) {
+                final int close = regex.indexOf('}', pos);
+
+                if (close < 0) {
+                    throw new UnsupportedRegexException("Unterminated hexadecimal escape");
+                }
+                final int cp = hex(pos + 1, close);
+
+                pos = close + 1;
+                return cp;
+            }
+            pos += 2;
+            return hex(pos - 2, pos);
+        case 'u':
+            pos += 5;
+            return hex(pos - 4, pos);
+        case 'c':
+            if (pos + 1 >= regex.length()) {
+                throw new UnsupportedRegexException("Incomplete control character escape");
+            }
+            pos += 2;
+            return regex.charAt(pos - 1) ^ 64;
+        default:
+            if (Character.isLetterOrDigit(c)) {
+                throw new UnsupportedRegexException("Unsupported escape \\" + c);
+            }
+            final int cp = regex.codePointAt(pos);
+
+            pos += Character.charCount(cp);
+            return cp;
+        }
+    }
+
+    private int hex(int start, int end) throws UnsupportedRegexException {
+        try {
+            return Integer.parseInt(regex.substring(start, end), 16);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new UnsupportedRegexException("Invalid hexadecimal escape at index " + start);
+        }
+    }
+
+    private IntPredicate parseClass() throws UnsupportedRegexException {
+        pos++; // skip the opening bracket
+        final boolean negate = (pos < regex.length()) && (regex.charAt(pos) == '^');
+        final List<IntPredicate> parts = new ArrayList<IntPredicate>();
+
+        if (negate) {
+            pos++;
+        }
+        if ((pos < regex.length()) && (regex.charAt(pos) == ']')) {
+            throw new UnsupportedRegexException("Closing bracket first in class at index " + pos);
+        }
+        while (true) {
+            if (pos >= regex.length()) {
+                throw new UnsupportedRegexException("Unclosed character class");
+            }
+            final char c = regex.charAt(pos);
+
+            if (c == ']') {
+                pos++;
+                break;
+            }
+            if ((c == '[') || regex.startsWith("&&", pos)) {
+                throw new UnsupportedRegexException("Nested class or intersection at index " + pos);
+            }
+            final int lo = parseClassChar(parts);
+
+            if (lo < 0) { // predefined class
+                continue;
+            }
+            if ((pos + 1 < regex.length()) && (regex.charAt(pos) == '-') && (regex.charAt(pos + 1) != ']')) {
+                pos++;
+                final int hi = parseClassChar(null);
+
+                if (hi < lo) {
+                    throw new UnsupportedRegexException("Illegal character range at index " + pos);
+                }
+                parts.add(range(lo, hi));
+            } else {
+                parts.add(single(lo));
+            }
+        }
+        final IntPredicate[] predicates = parts.toArray(new IntPredicate[parts.size()]);
+
+        return ch -> {
+            for (final IntPredicate p: predicates) {
+                if (p.test(ch)) {
+                    return !negate;
+                }
+            }
+            return negate;
+        };
+    }
+
+    /**
+     * Parses a character of a class, adding predefined classes directly to the specified parts.
+     *
+     * @return the code point of the character, or -1 if a predefined class was added
+     */
+    private int parseClassChar(List<IntPredicate> parts) throws UnsupportedRegexException {
+        final int c = regex.codePointAt(pos);
+
+        if (c == '[') {
+            throw new UnsupportedRegexException("Nested class at index " + pos);
+        }
+        if (c != '\\') {
+            pos += Character.charCount(c);
+            return c;
+        }
+        if (++pos >= regex.length()) {
+            throw new UnsupportedRegexException("Trailing backslash");
+        }
+        final IntPredicate predefined = predefined(regex.charAt(pos));
+
+        if (predefined != null) {
+            if (parts == null) {
+                throw new UnsupportedRegexException("Predefined class in range at index " + pos);
+            }
+            pos++;
+            parts.add(predefined);
+            return -1;
+        }
+        return parseCharEscape();
+    }
+
+    private Node literal(String s) throws UnsupportedRegexException {
+        final List<Node> nodes = new ArrayList<Node>();
+
+        for (int i = 0; i < s.length(); ) {
+            final int cp = s.codePointAt(i);
+
+            nodes.add(new Consume(single(cp), cp));
+            i += Character.charCount(cp);
+        }
+        return new Sequence(nodes);
+    }
+
+    private static IntPredicate predefined(char c) {
+        switch (c) {
+        case 'd':
+            return DIGIT;
+        case 'D':
+            return DIGIT.negate();
+        case 'w':
+            return WORD;
+        case 'W':
+            return WORD.negate();
+        case 's':
+            return SPACE;
+        case 'S':
+            return SPACE.negate();
+        default:
+            return null;
+        }
+    }
+
+    private IntPredicate dot() {
+        if (has(Pattern.DOTALL)) {
+            return ch -> true;
+        }
+        if (has(Pattern.UNIX_LINES)) {
+            return ch -> ch != '\n';
+        }
+        return ch -> !isLineTerminator(ch);
+    }
+
+    private int dollar(boolean multiline) {
+        if (has(Pattern.UNIX_LINES)) {
+            return multiline ? UNIX_DOLLAR_MULTILINE : UNIX_DOLLAR;
+        }
+        return multiline ? DOLLAR_MULTILINE : DOLLAR;
+    }
+
+    /**
+     * Creates the predicate matching a single character, folding its case the same way
+     * {@link Pattern} does.
+     */
+    private IntPredicate single(int c) {
+        if (has(Pattern.CASE_INSENSITIVE)) {
+            if (has(Pattern.UNICODE_CASE)) {
+                final int lower = Character.toLowerCase(Character.toUpperCase(c));
+
+                return ch -> (ch == c) || (lower == ch) || (lower == Character.toLowerCase(Character.toUpperCase(ch)));
+            }
+            if (isAsciiLetter(c)) {
+                final int lower = asciiToLower(c);
+
+                return ch -> (lower == ch) || (lower == asciiToLower(ch));
+            }
+        }
+        return ch -> ch == c;
+    }
+
+    /**
+     * Creates the predicate matching a range of characters, folding their case the same way
+     * {@link Pattern} does.
+     */
+    private IntPredicate range(int lo, int hi) {
+        if (has(Pattern.CASE_INSENSITIVE)) {
+            if (has(Pattern.UNICODE_CASE)) {
+                return ch -> {
+                    if ((ch >= lo) && (ch <= hi)) {
+                        return true;
+                    }
+                    final int up = Character.toUpperCase(ch);
+                    final int down = Character.toLowerCase(up);
+
+                    return ((up >= lo) && (up <= hi)) || ((down >= lo) && (down <= hi));
+                };
+            }
+            return ch -> {
+                if ((ch >= lo) && (ch <= hi)) {
+                    return true;
+                }
+                if (ch >= 128) {
+                    return false;
+                }
+                final int up = asciiToUpper(ch);
+                final int down = asciiToLower(ch);
+
+                return ((up >= lo) && (up <= hi)) || ((down >= lo) && (down <= hi));
+            };
+        }
+        return ch -> (ch >= lo) && (ch <= hi);
+    }
+
+    static boolean isLineTerminator(int ch) {
+        return (ch == '\n') || (ch == '\r') || (ch == '\u0085') || ((ch | 1) == '\u2029');
+    }
+
+    private static boolean isAsciiLetter(int ch) {
+        return ((ch >= 'a') && (ch <= 'z')) || ((ch >= 'A') && (ch <= 'Z'));
+    }
+
+    private static int asciiToLower(int ch) {
+        return ((ch >= 'A') && (ch <= 'Z')) ? (ch + 0x20) : ch;
+    }
+
+    private static int asciiToUpper(int ch) {
+        return ((ch >= 'a') && (ch <= 'z')) ? (ch - 0x20) : ch;
+    }
+
+    private interface Node {
+        void emit(RegexCompiler c) throws UnsupportedRegexException;
+
+        /**
+         * Gets the longest sequence of ASCII characters, folded to lower case, that any match of
+         * this node must contain.
+         *
+         * @return the required literal or an empty string if none
+         */
+        String requiredLiteral();
+    }
+
+    private static class Consume implements Node {
+        private final IntPredicate predicate;
+
+        /**
+         * The character matched, ignoring case, or -1 if this matches a class.
+         */
+        private final int literal;
+
+        Consume(IntPredicate predicate) {
+            this(predicate, -1);
+        }
+
+        Consume(IntPredicate predicate, int literal) {
+            this.predicate = predicate;
+            this.literal = literal;
+        }
+
+        @Override
+        public void emit(RegexCompiler c) throws UnsupportedRegexException {
+            c.emit(CONSUME, 0, 0, predicate);
+        }
+
+        @Override
+        public String requiredLiteral() {
+            return (literal >= 0) && (literal < 128) ? String.valueOf((char) asciiToLower(literal)) : "";
+        }
+    }
+
+    private static class Assertion implements Node {
+        private final int kind;
+
+        Assertion(int kind) {
+            this.kind = kind;
+        }
+
+        @Override
+        public void emit(RegexCompiler c) throws UnsupportedRegexException {
+            c.emit(ASSERT, kind, 0, null);
+        }
+
+        @Override
+        public String requiredLiteral() {
+            return "";
+        }
+    }
+
+    private static class Sequence implements Node {
+        private final List<Node> nodes;
+
+        Sequence(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public void emit(RegexCompiler c) throws UnsupportedRegexException {
+            for (final Node n: nodes) {
+                n.emit(c);
+            }
+        }
+
+        @Override
+        public String requiredLiteral() {
+            final StringBuilder run = new StringBuilder();
+            String longest = "";
+
+            for (final Node n: nodes) {
+                if (n instanceof Assertion) { // zero-width so characters around it are adjacent
+                    continue;
+                }
+                final String required = n.requiredLiteral();
+
+                if ((n instanceof Consume) && !required.isEmpty()) {
+                    run.append(required);
+                    continue;
+                }
+                if (run.length() > longest.length()) {
+                    longest = run.toString();
+                }
+                run.setLength(0);
+                if (required.length() > longest.length()) {
+                    longest = required;
+                }
+            }
+            return (run.length() > longest.length()) ? run.toString() : longest;
+        }
+    }
+
+    private static class Alternation implements Node {
+        private final List<Node> alternatives;
+
+        Alternation(List<Node> alternatives) {
+            this.alternatives = alternatives;
+        }
+
+        @Override
+        public void emit(RegexCompiler c) throws UnsupportedRegexException {
+            final int[] jumps = new int[alternatives.size() - 1];
+
+            for (int i = 0; i < jumps.length; i++) {
+                final int split = c.emit(SPLIT, c.size + 1, 0, null);
+
+                alternatives.get(i).emit(c);
+                jumps[i] = c.emit(JMP, 0, 0, null);
+                c.ys[split] = c.size;
+            }
+            alternatives.get(jumps.length).emit(c);
+            for (final int jump: jumps) {
+                c.xs[jump] = c.size;
+            }
+        }
+
+        @Override
+        public String requiredLiteral() {
+            return "";
+        }
+    }
+
+    private static class Repetition implements Node {
+        private final Node node;
+
+        private final int min;
+
+        private final int max;
+
+        Repetition(Node node, int min, int max) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public void emit(RegexCompiler c) throws UnsupportedRegexException {
+            for (int i = 0; i < min; i++) {
+                node.emit(c);
+            }
+            if (max < 0) {
+                final int loop = c.emit(SPLIT, c.size + 1, 0, null);
+
+                node.emit(c);
+                c.emit(JMP, loop, 0, null);
+                c.ys[loop] = c.size;
+                return;
+            }
+            final int[] splits = new int[max - min];
+
+            for (int i = 0; i < splits.length; i++) {
+                splits[i] = c.emit(SPLIT, c.size + 1, 0, null);
+                node.emit(c);
+            }
+            for (final int split: splits) {
+                c.ys[split] = c.size;
+            }
+        }
+
+        @Override
+        public String requiredLiteral() {
+            return (min > 0) ? node.requiredLiteral() : "";
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.regex;
+
+/**
+ * Matches a compiled regular expression against character sequences.
+ */
+public interface RegexMatcher {
+    /**
+     * Attempts to find a subsequence of the input that matches the expression.
+     *
+     * @param input the character sequence to be scanned
+     * @return <code>true</code> if a match is found; <code>false</code> otherwise
+     * @throws RegexBudgetExceededException if the matcher ran out of its time or step budget
+     *                                      before completing
+     */
+    boolean find(CharSequence input);
+
+    /**
+     * Gets the regular expression this matcher was compiled from.
+     *
+     * @return the source regular expression
+     */
+    String pattern();
+
+    /**
+     * Gets a sequence of ASCII characters that every match contains, ignoring case. It can be
+     * used to quickly rule out inputs that cannot match.
+     *
+     * @return the required literal folded to lower case, or an empty string if unknown
+     */
+    String requiredLiteral();
+}
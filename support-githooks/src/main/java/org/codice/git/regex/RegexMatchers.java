@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.regex;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Creates safe matchers for regular expressions coming from untrusted sources such as downloaded
+ * blacklists.
+ */
+public final class RegexMatchers {
+    private static final Logger LOGGER = Logger.getLogger(RegexMatchers.class.getName());
+
+    private RegexMatchers() {
+    }
+
+    /**
+     * Compiles the expression of the specified pattern with the linear time {@link LinearRegex}
+     * engine, falling back to a {@link BudgetedRegex} if it uses unsupported constructs.
+     *
+     * @param pattern the pattern to compile
+     * @return a matcher for the pattern
+     */
+    public static RegexMatcher compile(Pattern pattern) {
+        try {
+            return LinearRegex.compile(pattern.pattern(), pattern.flags());
+        } catch (UnsupportedRegexException e) {
+            LOGGER.log(Level.FINE,
+                    "Using a budgeted backtracking matcher for {0}: {1}",
+                    new Object[] {pattern.pattern(), e.getMessage()});
+            return new BudgetedRegex(pattern);
+        }
+    }
+}
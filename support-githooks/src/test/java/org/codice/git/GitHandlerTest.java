@@ -18,12 +18,18 @@ import static org.junit.Assert.assertEquals;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.io.IOUtils;
 import org.codice.git.hook.GitHooks;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEditor;
+import org.eclipse.jgit.dircache.DirCacheEntry;
 import org.eclipse.jgit.junit.RepositoryTestCase;
 import org.junit.Before;
 import org.junit.Test;
@@ -215,4 +221,85 @@ public class GitHandlerTest extends RepositoryTestCase {
                 gh.getPatternFor("REGEX:abc")
                         .pattern());
     }
+
+    @Test
+    public void testGetStagedEntries() throws Exception {
+        GitIntegrationTest.writeToFile(sourceFile, "Hello World!\n");
+        GitIntegrationTest.writeToFile(new File(db.getWorkTree(), "NewFile.txt"), "New\n");
+        GitIntegrationTest.writeToFile(new File(db.getWorkTree(), "Unstaged.txt"), "Unstaged\n");
+        source.add()
+                .addFilepattern("SomeFile.txt")
+                .addFilepattern("NewFile.txt")
+                .call();
+        final List<StagedEntry> entries = gh.getStagedEntries();
+
+        assertEquals(2, entries.size());
+        assertEquals("NewFile.txt", entries.get(0).getPath());
+        assertEquals(DiffEntry.ChangeType.ADD, entries.get(0).getChangeType());
+        assertEquals(4L, entries.get(0).getLength());
+        assertEquals("SomeFile.txt", entries.get(1).getPath());
+        assertEquals(DiffEntry.ChangeType.MODIFY, entries.get(1).getChangeType());
+        assertEquals(13L, entries.get(1).getLength());
+    }
+
+    @Test
+    public void testGetStagedEntriesIgnoresLengthRecordedInIndex() throws Exception {
+        GitIntegrationTest.writeToFile(new File(db.getWorkTree(), "Racy.txt"), "Racily clean\n");
+        GitIntegrationTest.writeToFile(new File(db.getWorkTree(), "Huge.txt"), "Huge\n");
+        source.add()
+                .addFilepattern("Racy.txt")
+                .addFilepattern("Huge.txt")
+                .call();
+        // the length of racily clean entries is only left at 0 once the file no longer matches
+        GitIntegrationTest.writeToFile(new File(db.getWorkTree(), "Racy.txt"), "Changed after it was staged\n");
+        final DirCache cache = db.lockDirCache();
+        final DirCacheEditor editor = cache.editor();
+
+        // the index truncates the length of a file of 4GB + 1 bytes to 1
+        editor.add(new LengthEdit("Racy.txt", 0));
+        editor.add(new LengthEdit("Huge.txt", 1));
+        editor.commit();
+        assertEquals(0, db.readDirCache().getEntry("Racy.txt").getLength());
+        final List<StagedEntry> entries = gh.getStagedEntries();
+
+        assertEquals(2, entries.size());
+        assertEquals("Huge.txt", entries.get(0).getPath());
+        assertEquals(5L, entries.get(0).getLength());
+        assertEquals("Racy.txt", entries.get(1).getPath());
+        assertEquals(13L, entries.get(1).getLength());
+    }
+
+    @Test
+    public void testGetStagedPrefix() throws Exception {
+        GitIntegrationTest.writeToFile(new File(db.getWorkTree(), "NewFile.txt"), "Staged\n");
+        source.add()
+                .addFilepattern("NewFile.txt")
+                .call();
+        GitIntegrationTest.writeToFile(new File(db.getWorkTree(), "NewFile.txt"), "Unstaged\n");
+        final List<StagedChange> changes = new ArrayList<StagedChange>();
+
+        gh.scanStagedChanges(new StagedChangeVisitor() {
+            @Override
+            public void visit(StagedChange change) {
+                changes.add(change);
+            }
+        });
+        assertEquals(1, changes.size());
+        assertEquals("Sta", new String(gh.getStagedPrefix(changes.get(0), 3), Charsets.UTF_8));
+        assertEquals("Staged\n", new String(gh.getStagedPrefix(changes.get(0), 4096), Charsets.UTF_8));
+    }
+
+    private static class LengthEdit extends DirCacheEditor.PathEdit {
+        private final int length;
+
+        LengthEdit(String path, int length) {
+            super(path);
+            this.length = length;
+        }
+
+        @Override
+        public void apply(DirCacheEntry ent) {
+            ent.setLength(length);
+        }
+    }
 }
@@ -15,15 +15,21 @@ package org.codice.git;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
+import org.codice.git.hook.DirtyWordMatcher;
 
 public class MockRepoHandler extends RepositoryHandler {
     private File metadir;
 
+    private File workTree;
+
     private Map<String, Pattern> dirtyWords;
 
     private String commitFilename;
@@ -36,6 +42,8 @@ public class MockRepoHandler extends RepositoryHandler {
 
     private Map<String, String> cfg = new HashMap<String, String>();
 
+    private List<StagedEntry> stagedEntries = Collections.emptyList();
+
     public MockRepoHandler() {
         this(null);
     }
@@ -48,6 +56,10 @@ public class MockRepoHandler extends RepositoryHandler {
         this.metadir = dir;
     }
 
+    public void setWorkTree(File dir) {
+        this.workTree = dir;
+    }
+
     public void setMockFile(String filename, String contents) {
         mockFiles.put(filename, contents);
     }
@@ -57,11 +69,21 @@ public class MockRepoHandler extends RepositoryHandler {
         return metadir;
     }
 
+    @Override
+    public File getWorkTree() {
+        return workTree;
+    }
+
     @Override
     public Map<String, Pattern> getDirtyWords() throws IOException {
         return dirtyWords;
     }
 
+    @Override
+    public DirtyWordMatcher getDirtyWordMatcher() throws IOException {
+        return new DirtyWordMatcher(getDirtyWords());
+    }
+
     public void setDirtyWords(String words) {
         this.dirtyWords = new HashMap<String, Pattern>();
         if (StringUtils.isNotEmpty(words)) {
@@ -98,6 +120,15 @@ public class MockRepoHandler extends RepositoryHandler {
         return diffString;
     }
 
+    public void setStagedEntries(StagedEntry... entries) {
+        this.stagedEntries = Arrays.asList(entries);
+    }
+
+    @Override
+    public List<StagedEntry> getStagedEntries() {
+        return stagedEntries;
+    }
+
     @Override
     public String getConfigString(String section, String subsection, String key) {
         return cfg.get(section + ':' + subsection + ':' + key);
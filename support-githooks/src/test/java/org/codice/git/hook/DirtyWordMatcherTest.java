@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.codice.git.MockRepoHandler;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+
+public class DirtyWordMatcherTest {
+    protected static final String DIRTY_WORD_LIST = "Bill,WHAT,march madness,DOB-11-1-4,REGEX:System\\.ouch\\.print(f|ln)?,.printMyTrace,_secret,caf\u00e9,kelvin,REGEX:\\d{3}-\\d{4},REGEX:x?\\d{9}";
+
+    protected static final String[] SAMPLES = {
+            "", "bill", "BILL.", "abill", "billions", "_bill_", "2-bill", "bill4", "e.printMyTrace()",
+            "x.printMyTrace", ".printMyTrace", "my_secret", "a_secret_b", "xsecret", "_secretx",
+            "mArch Madness", "march  madness", "DOB-11-1-4", "DOB-11-1-45", "System.ouch.println(x)",
+            "System_ouch_print", "B\u00edll bill", "\u00e9 bill", "CAF\u00c9 au lait", "caf\u00e9s", "\u212aelvin",
+            "Kelvin", "na\u00efve WHAT?", "+++ b/bill.txt\n+what\n", "line1\r\n+bill\r\n",
+            "call 555-1234", "call 555 1234", "ssn 123456789", "ssn 12345678", "\u00e9 555-1234"};
+
+    @Test
+    public void testFindMatchesPatterns() throws Exception {
+        final MockRepoHandler repHandler = new MockRepoHandler();
+
+        repHandler.setDirtyWords(DIRTY_WORD_LIST);
+        final Map<String, Pattern> patterns = repHandler.getDirtyWords();
+        final DirtyWordMatcher matcher = new DirtyWordMatcher(patterns);
+
+        for (final String sample: SAMPLES) {
+            final Set<String> expected = new HashSet<String>();
+            final Set<String> found = new HashSet<String>();
+
+            for (final Map.Entry<String, Pattern> e: patterns.entrySet()) {
+                if (e.getValue().matcher(sample).find()) {
+                    expected.add(e.getKey());
+                }
+            }
+            final byte[] buf = ("<<" + sample + ">>").getBytes(Charsets.UTF_8);
+
+            assertEquals(sample, !expected.isEmpty(), matcher.find(buf, 2, buf.length - 2, found));
+            assertEquals(sample, expected, found);
+        }
+    }
+
+    @Test
+    public void testFindWithoutDirtyWords() {
+        final DirtyWordMatcher matcher = new DirtyWordMatcher(null);
+        final byte[] buf = "bill".getBytes(Charsets.UTF_8);
+
+        assertTrue(matcher.isEmpty());
+        assertFalse(matcher.find(buf, 0, buf.length, new HashSet<String>()));
+    }
+
+    @Test
+    public void testFindSkipsRegexOverBudget() throws Exception {
+        final MockRepoHandler repHandler = new MockRepoHandler();
+
+        repHandler.setDirtyWords("bill,REGEX:(a+)+\\1b");
+        final DirtyWordMatcher matcher = new DirtyWordMatcher(repHandler.getDirtyWords());
+        final byte[] buf = "bill aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa".getBytes(Charsets.UTF_8);
+        final Set<String> found = new HashSet<String>();
+
+        assertTrue(matcher.find(buf, 0, buf.length, found));
+        assertEquals(1, found.size());
+        assertTrue(found.contains("bill"));
+        assertEquals(1, matcher.getOverBudgetWords().size());
+        assertTrue(matcher.getOverBudgetWords().contains("REGEX:(a+)+\\1b"));
+    }
+}
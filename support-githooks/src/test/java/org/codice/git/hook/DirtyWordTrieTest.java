@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.codice.git.MockRepoHandler;
+import org.codice.git.RepositoryHandler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.CharMatcher;
+
+public class DirtyWordTrieTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testTrieMatchesPatterns() throws Exception {
+        final MockRepoHandler repHandler = new MockRepoHandler();
+
+        repHandler.setDirtyWords(DirtyWordMatcherTest.DIRTY_WORD_LIST + ",bill,bill.,what?,e");
+        final Map<String, Pattern> patterns = repHandler.getDirtyWords();
+        final Map<String, Pattern> others = new HashMap<String, Pattern>();
+        final List<String> literals = new ArrayList<String>();
+
+        for (final Map.Entry<String, Pattern> e: patterns.entrySet()) {
+            if (!e.getKey().startsWith(RepositoryHandler.REGEX_PREFIX) && CharMatcher.ASCII.matchesAllOf(e.getKey())) {
+                literals.add(e.getKey());
+            } else {
+                others.put(e.getKey(), e.getValue());
+            }
+        }
+        final File file = folder.newFile("dirty-words.trie");
+
+        DirtyWordTrie.build(literals).save(file);
+        for (final DirtyWordTrie trie: new DirtyWordTrie[] {DirtyWordTrie.build(literals), DirtyWordTrie.map(file)}) {
+            final DirtyWordMatcher matcher = new DirtyWordMatcher(others, trie);
+
+            assertEquals(literals.size(), trie.size());
+            for (final String sample: DirtyWordMatcherTest.SAMPLES) {
+                final Set<String> expected = new HashSet<String>();
+                final Set<String> found = new HashSet<String>();
+
+                for (final Map.Entry<String, Pattern> e: patterns.entrySet()) {
+                    if (e.getValue().matcher(sample).find()) {
+                        expected.add(e.getKey());
+                    }
+                }
+                final byte[] buf = ("<<" + sample + ">>").getBytes(Charsets.UTF_8);
+
+                assertEquals(sample, !expected.isEmpty(), matcher.find(buf, 2, buf.length - 2, found));
+                assertEquals(sample, expected, found);
+            }
+        }
+    }
+
+    @Test
+    public void testLoadRebuildsWhenWordsChange() throws Exception {
+        final File file = new File(folder.getRoot(), "dirty-words.trie");
+        final Set<String> found = new HashSet<String>();
+        final byte[] buf = "bill and ted".getBytes(Charsets.UTF_8);
+
+        assertFalse(DirtyWordTrie.load(file, Arrays.asList("ted")).find(buf, 0, 4, found));
+        assertTrue(file.isFile());
+        assertTrue(DirtyWordTrie.load(file, Arrays.asList("ted", "bill")).find(buf, 0, 4, found));
+        assertEquals(2, DirtyWordTrie.map(file).size());
+        assertEquals(new HashSet<String>(Arrays.asList("bill")), found);
+    }
+
+    @Test
+    public void testLargeBlacklist() throws Exception {
+        final Random random = new Random(42L);
+        final List<String> words = new ArrayList<String>();
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 60000; i++) {
+            sb.setLength(0);
+            for (int j = 4 + random.nextInt(12); j > 0; j--) {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+            words.add(sb.toString());
+        }
+        final File file = folder.newFile("large.trie");
+
+        DirtyWordTrie.build(words).save(file);
+        final DirtyWordTrie trie = DirtyWordTrie.map(file);
+        final String word = words.get(12345);
+        final byte[] buf = ("int x = " + word.toUpperCase() + "_y;").getBytes(Charsets.UTF_8);
+        final Set<String> found = new HashSet<String>();
+
+        assertEquals(words.size(), trie.size());
+        assertTrue(trie.find(buf, 0, buf.length, found));
+        assertTrue(found.contains(word));
+        assertTrue(file.length() < 16L * 1024L * 1024L);
+    }
+}
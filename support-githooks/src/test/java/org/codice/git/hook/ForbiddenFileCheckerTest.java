@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.codice.git.MockRepoHandler;
+import org.codice.git.StagedEntry;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+
+public class ForbiddenFileCheckerTest {
+    private static CheckResults check(MockRepoHandler repHandler, String path, long length) {
+        return check(repHandler, path, DiffEntry.ChangeType.ADD, length);
+    }
+
+    private static CheckResults check(MockRepoHandler repHandler, String path, DiffEntry.ChangeType changeType, long length) {
+        final ForbiddenFileChecker checker = new ForbiddenFileChecker();
+        final CheckResults results = new CheckResults();
+
+        assertTrue(checker.init(repHandler));
+        checker.check(new StagedEntry(path, changeType, length, ObjectId.zeroId()), results);
+        return results;
+    }
+
+    private static boolean isForbidden(String path) {
+        return check(new MockRepoHandler(), path, 0L).hasViolations();
+    }
+
+    @Test
+    public void testDefaultForbiddenPatterns() {
+        assertTrue(isForbidden("target/classes/App.class"));
+        assertTrue(isForbidden("module/target/app.zip"));
+        assertTrue(isForbidden("lib/app.jar"));
+        assertTrue(isForbidden("App.class"));
+        assertFalse(isForbidden("src/main/java/org/codice/target.java"));
+        assertFalse(isForbidden("targets/app.txt"));
+        assertFalse(isForbidden("app.jar.txt"));
+        assertFalse(isForbidden("src/main/java/App.java"));
+    }
+
+    @Test
+    public void testForbiddenPatternsOnlyApplyToAddedFiles() {
+        final MockRepoHandler repHandler = new MockRepoHandler();
+
+        assertTrue(check(repHandler, "lib/app.jar", DiffEntry.ChangeType.ADD, 0L).hasViolations());
+        assertFalse(check(repHandler, "lib/app.jar", DiffEntry.ChangeType.MODIFY, 0L).hasViolations());
+        assertTrue(check(repHandler, "lib/app.jar", DiffEntry.ChangeType.MODIFY, (10L << 20) + 1).hasViolations());
+    }
+
+    @Test
+    public void testConfiguredPatterns() {
+        final MockRepoHandler repHandler = new MockRepoHandler();
+
+        repHandler.setConfigString("githooks", "files", "forbidden", "/build/, docs/**/*.pdf, data?.bin");
+        assertTrue(check(repHandler, "build/out.txt", 0L).hasViolations());
+        assertFalse(check(repHandler, "src/build/out.txt", 0L).hasViolations());
+        assertTrue(check(repHandler, "docs/a/b/guide.pdf", 0L).hasViolations());
+        assertFalse(check(repHandler, "src/docs/guide.pdf", 0L).hasViolations());
+        assertTrue(check(repHandler, "src/data1.bin", 0L).hasViolations());
+        assertFalse(check(repHandler, "src/data12.bin", 0L).hasViolations());
+        assertFalse(check(repHandler, "lib/app.jar", 0L).hasViolations());
+    }
+
+    @Test
+    public void testMaximumSize() {
+        final MockRepoHandler repHandler = new MockRepoHandler();
+
+        assertFalse(check(repHandler, "data.txt", 10L << 20).hasViolations());
+        assertEquals("Files too large or not allowed in the repository:%n\tdata.txt is 10485761 bytes; the maximum is 10485760%n",
+                check(repHandler, "data.txt", (10L << 20) + 1).appendTo(new StringBuilder()).toString());
+        repHandler.setConfigString("githooks", "files", "maxsize", "1k");
+        assertTrue(check(repHandler, "data.txt", 1025L).hasViolations());
+        assertEquals(3L << 30, ForbiddenFileChecker.parseSize(" 3 G"));
+    }
+
+    @Test
+    public void testInvalidMaximumSizeUsesDefault() {
+        final MockRepoHandler repHandler = new MockRepoHandler();
+
+        repHandler.setConfigString("githooks", "files", "maxsize", "10 MB");
+        assertFalse(check(repHandler, "data.txt", 10L << 20).hasViolations());
+        assertTrue(check(repHandler, "data.txt", (10L << 20) + 1).hasViolations());
+    }
+
+    @Test
+    public void testDisabled() {
+        final MockRepoHandler repHandler = new MockRepoHandler();
+
+        repHandler.setConfigString("githooks", "files", "enabled", "false");
+        assertFalse(new ForbiddenFileChecker().init(repHandler));
+    }
+}
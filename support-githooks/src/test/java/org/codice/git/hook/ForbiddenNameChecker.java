@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.codice.git.RepositoryHandler;
+import org.codice.git.StagedChange;
+
+/**
+ * Test checker registered as a service which rejects files with FORBIDDEN in their names.
+ */
+public class ForbiddenNameChecker implements StagedChangeChecker {
+    static final Set<String> CHECKED = new ConcurrentSkipListSet<String>();
+
+    @Override
+    public boolean init(RepositoryHandler handler) {
+        return true;
+    }
+
+    @Override
+    public void check(StagedChange change, CheckResults results) {
+        CHECKED.add(change.getPath());
+        if (change.getPath().contains("FORBIDDEN")) {
+            results.add(this, change.getPath(), "forbidden name");
+        }
+    }
+
+    @Override
+    public StringBuilder appendViolations(StringBuilder sb, Set<String> violations, Set<String> files) {
+        sb.append("Forbidden files:%n");
+        for (final String f: files) {
+            sb.append('\t').append(f).append("%n");
+        }
+        return sb;
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.codice.git.MockRepoHandler;
+import org.codice.git.RepositoryHandler;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+
+public class HashedWordsTest {
+    private static final byte[] SALT = "0123456789abcdef".getBytes(Charsets.US_ASCII);
+
+    @Test
+    public void testHashedWordsMatchLikePlaintext() throws Exception {
+        final MockRepoHandler repHandler = new MockRepoHandler();
+
+        repHandler.setDirtyWords(DirtyWordMatcherTest.DIRTY_WORD_LIST);
+        final Map<String, Pattern> patterns = repHandler.getDirtyWords();
+        final Map<String, String> hashes = new HashMap<String, String>();
+        final StringBuilder sb = new StringBuilder();
+
+        for (final String word: patterns.keySet()) {
+            if (!word.startsWith(RepositoryHandler.REGEX_PREFIX)) {
+                final String entry = HashedWords.hash(word, SALT);
+
+                hashes.put(word, entry);
+                sb.append(entry).append(',');
+            }
+        }
+        repHandler.setDirtyWords(sb.toString());
+        final DirtyWordMatcher matcher = new DirtyWordMatcher(repHandler.getDirtyWords());
+
+        for (final String sample: DirtyWordMatcherTest.SAMPLES) {
+            final Set<String> expected = new HashSet<String>();
+            final Set<String> found = new HashSet<String>();
+
+            for (final Map.Entry<String, String> e: hashes.entrySet()) {
+                if (patterns.get(e.getKey()).matcher(sample).find()) {
+                    expected.add(e.getValue());
+                }
+            }
+            final byte[] buf = ("<<" + sample + ">>").getBytes(Charsets.UTF_8);
+
+            assertEquals(sample, !expected.isEmpty(), matcher.find(buf, 2, buf.length - 2, found));
+            assertEquals(sample, expected, found);
+        }
+    }
+
+    @Test
+    public void testHashedAndLiteralWordsInSameChunk() throws Exception {
+        final MockRepoHandler repHandler = new MockRepoHandler();
+
+        repHandler.setDirtyWords("bill," + HashedWords.hash("secret", SALT));
+        final DirtyWordMatcher matcher = new DirtyWordMatcher(repHandler.getDirtyWords());
+        final Set<String> found = new HashSet<String>();
+        final byte[] both = "+bill knows the secret\n".getBytes(Charsets.UTF_8);
+
+        assertTrue(matcher.find(both, 0, both.length, found));
+        assertEquals(2, found.size());
+        // the prefilter lets this chunk through for "bill" which is then not found
+        final byte[] hashedOnly = "+billy knows the secret\n".getBytes(Charsets.UTF_8);
+
+        found.clear();
+        assertTrue(matcher.find(hashedOnly, 0, hashedOnly.length, found));
+        assertEquals(1, found.size());
+    }
+
+    @Test
+    public void testHashDoesNotContainWord() {
+        final String entry = HashedWords.hash("March Madness", SALT);
+
+        assertTrue(entry.startsWith(RepositoryHandler.HASH_PREFIX));
+        assertFalse(entry.toLowerCase().contains("march"));
+        assertEquals(entry, HashedWords.hash("MARCH madness", SALT));
+        assertFalse(entry.equals(HashedWords.hash("March Madness", "another salt".getBytes(Charsets.US_ASCII))));
+    }
+
+    @Test
+    public void testMalformedEntriesAreIgnored() {
+        final Set<String> entries = new HashSet<String>();
+
+        entries.add("HASH:zz:4:0000:00");
+        entries.add("HASH:00:4");
+        assertTrue(new HashedWords(entries).isEmpty());
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collection;
+
+import org.apache.commons.io.FileUtils;
+import org.codice.git.MockRepoHandler;
+import org.codice.git.StagedChange;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+
+public class LicenseHeaderCheckerTest {
+    private static final String JAVA_HEADER = "/**\n"
+            + " * Copyright (c) Codice Foundation\n"
+            + " * <p>\n"
+            + " * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser\n"
+            + " * General Public License as published by the Free Software Foundation, either version 3 of the\n"
+            + " * License, or any later version.\n"
+            + " * <p>\n"
+            + " * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without\n"
+            + " * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU\n"
+            + " * Lesser General Public License for more details. A copy of the GNU Lesser General Public License\n"
+            + " * is distributed along with this program and can be found at\n"
+            + " * <http://www.gnu.org/licenses/lgpl.html>.\n"
+            + " */\n";
+
+    private static final String JAVA_BODY = "package org.codice.sample;\n\npublic class App {\n}\n";
+
+    private static CheckResults check(String path, DiffEntry.ChangeType type, String contents) throws Exception {
+        final MockRepoHandler repHandler = new MockRepoHandler();
+        final LicenseHeaderChecker checker = new LicenseHeaderChecker();
+        final CheckResults results = new CheckResults();
+
+        repHandler.setMockFile(path, contents);
+        assertTrue(checker.init(repHandler));
+        checker.check(new StagedChange(path, type, null, new byte[0], 0, 0), results);
+        return results;
+    }
+
+    private static String violations(String path, String contents) throws Exception {
+        return check(path, DiffEntry.ChangeType.ADD, contents).appendTo(new StringBuilder()).toString();
+    }
+
+    @Test
+    public void testValidHeaders() throws Exception {
+        assertEquals("", violations("App.java", JAVA_HEADER + JAVA_BODY));
+        assertEquals("", violations("App.java", "\r\n\r\n" + JAVA_HEADER.replace("\n", "\r\n") + JAVA_BODY));
+        final Collection<File> files = FileUtils.listFiles(new File("src/main/java"), new String[] {"java"}, true);
+
+        files.add(new File("pom.xml"));
+        files.add(new File("../pom.xml"));
+        for (final File f: files) {
+            assertEquals(f.getPath(), "", violations(f.getName(), FileUtils.readFileToString(f, Charsets.UTF_8)));
+        }
+    }
+
+    @Test
+    public void testInvalidHeaders() throws Exception {
+        assertEquals("Missing or invalid license headers:%n\tApp.java: missing license header%n",
+                violations("App.java", JAVA_BODY));
+        assertEquals("Missing or invalid license headers:%n\tApp.java: line 2 does not match the license header: ^ \\* Copyright \\(c\\) Codice Foundation\\s*$%n",
+                violations("App.java", JAVA_HEADER.replace("Codice Foundation", "Someone Else") + JAVA_BODY));
+        assertEquals("Missing or invalid license headers:%n\tApp.java: missing license header%n",
+                violations("App.java", JAVA_HEADER.substring(0, JAVA_HEADER.indexOf(" * <http"))));
+        assertTrue(check("pom.xml", DiffEntry.ChangeType.ADD, "<?xml version=\"1.0\"?>\n" + JAVA_HEADER).hasViolations());
+    }
+
+    @Test
+    public void testOnlyAddedSourceFilesAreChecked() throws Exception {
+        assertFalse(check("App.java", DiffEntry.ChangeType.MODIFY, JAVA_BODY).hasViolations());
+        assertFalse(check("README.md", DiffEntry.ChangeType.ADD, JAVA_BODY).hasViolations());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        final MockRepoHandler repHandler = new MockRepoHandler();
+
+        repHandler.setConfigString("githooks", "headers", "enabled", "false");
+        assertFalse(new LicenseHeaderChecker().init(repHandler));
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+
+public class NgramPrefilterTest {
+    @Test
+    public void testMayMatchChunksContainingLiterals() {
+        final NgramPrefilter prefilter = new NgramPrefilter(Arrays.asList("bill", "system.ouch.print", "-", "ab"));
+
+        for (final String chunk: new String[] {"BILL", "x = system.OUCH.print;", "555-1234", "cab"}) {
+            final byte[] buf = chunk.getBytes(Charsets.US_ASCII);
+
+            assertTrue(chunk, prefilter.mayMatch(buf, 0, buf.length));
+        }
+    }
+
+    @Test
+    public void testRejectsCleanChunks() {
+        final NgramPrefilter prefilter = new NgramPrefilter(Arrays.asList("bill", "system.ouch.print", "-", "ab"));
+        final byte[] buf = "<<int a = b; ill; System.out.println(a)>>".getBytes(Charsets.US_ASCII);
+
+        assertFalse(prefilter.mayMatch(buf, 2, buf.length - 2));
+        assertFalse(prefilter.mayMatch(buf, 0, 0));
+    }
+
+    @Test
+    public void testEmptyFilterRejectsEverything() {
+        final NgramPrefilter prefilter = new NgramPrefilter(Collections.singletonList(""));
+        final byte[] buf = "anything".getBytes(Charsets.US_ASCII);
+
+        assertTrue(prefilter.isEmpty());
+        assertFalse(prefilter.mayMatch(buf, 0, buf.length));
+    }
+}
@@ -13,11 +13,18 @@
  */
 package org.codice.git.hook;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 import org.codice.git.ConfigureLogging;
 import org.codice.git.MockRepoHandler;
+import org.codice.git.StagedEntry;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.ObjectId;
 import org.junit.Test;
 
 public class PreCommitTest {
@@ -79,4 +86,53 @@ public class PreCommitTest {
         assertFalse(preCommit.executeHook(null));
 
     }
+
+    @Test
+    public void testExecuteHookRunsDiscoveredCheckers() throws Exception {
+        final MockRepoHandler repHandler = new MockRepoHandler();
+
+        repHandler.setDirtyWords(DIRTY_WORD_LIST);
+        final PreCommit preCommit = new PreCommit(repHandler);
+
+        ForbiddenNameChecker.CHECKED.clear();
+        repHandler.setDiffString(DIFF_OUTPUT_CLEAN);
+        assertFalse(preCommit.executeHook(null));
+        assertEquals(new HashSet<String>(Arrays.asList("dirty-file", "src/main/java/org/codice/sample/App.java")),
+                ForbiddenNameChecker.CHECKED);
+
+        repHandler.setDiffString(DIFF_OUTPUT_CLEAN + "+++ b/FORBIDDEN.bin\n+clean\n");
+        assertTrue(preCommit.executeHook(null));
+    }
+
+    @Test
+    public void testExecuteHookRejectsForbiddenFilesBeforeDiffing() throws Exception {
+        final MockRepoHandler repHandler = new MockRepoHandler();
+
+        repHandler.setDirtyWords(DIRTY_WORD_LIST);
+        final PreCommit preCommit = new PreCommit(repHandler);
+
+        ForbiddenNameChecker.CHECKED.clear();
+        repHandler.setDiffString(DIFF_OUTPUT_CLEAN);
+        repHandler.setStagedEntries(new StagedEntry("dirty-file", DiffEntry.ChangeType.MODIFY, 100L, ObjectId.zeroId()),
+                new StagedEntry("lib/app.jar", DiffEntry.ChangeType.ADD, 100L, ObjectId.zeroId()));
+        assertTrue(preCommit.executeHook(null));
+        assertTrue(ForbiddenNameChecker.CHECKED.isEmpty());
+
+        repHandler.setConfigString("githooks", "files", "forbidden", "");
+        assertFalse(preCommit.executeHook(null));
+        assertFalse(ForbiddenNameChecker.CHECKED.isEmpty());
+    }
+
+    @Test
+    public void testCheckResultsAggregateViolations() {
+        final CheckResults results = new CheckResults();
+        final ForbiddenNameChecker checker = new ForbiddenNameChecker();
+
+        assertFalse(results.hasViolations());
+        results.add(checker, "b", "forbidden name");
+        results.add(checker, "a", "forbidden name");
+        assertTrue(results.hasViolations());
+        assertEquals(1, results.getViolations(checker).size());
+        assertEquals("Forbidden files:%n\ta%n\tb%n", results.appendTo(new StringBuilder()).toString());
+    }
 }
@@ -0,0 +1,172 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.hook;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.codice.git.GitHandler;
+import org.codice.git.MockRepoHandler;
+import org.codice.git.StagedChange;
+import org.codice.git.StagedChangeVisitor;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class PreScanDaemonTest {
+    private static final String CLEAN = "public class App {\n    // nothing to see here\n}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockRepoHandler repHandler;
+
+    private static ObjectId idFor(String content) {
+        return new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, content.getBytes(Charsets.UTF_8));
+    }
+
+    private File write(String path, String content) throws Exception {
+        final File file = new File(folder.getRoot(), path);
+
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+        return file;
+    }
+
+    private CheckResults checkStaged(String diff, ObjectId id) throws Exception {
+        final DirtyWordChecker checker = new DirtyWordChecker(new PreCommit(repHandler));
+        final CheckResults results = new CheckResults();
+        final byte[] buf = diff.getBytes(Charsets.UTF_8);
+
+        assertTrue(checker.init(repHandler));
+        checker.check(new StagedChange("App.java", DiffEntry.ChangeType.ADD, id, buf, 0, buf.length), results);
+        return results;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        this.repHandler = new MockRepoHandler();
+        repHandler.setWorkTree(folder.getRoot());
+        repHandler.setMetadir(folder.newFolder(Constants.DOT_GIT));
+        repHandler.setDirtyWords("bill,REGEX:x\\s\\+dirty");
+    }
+
+    @Test
+    public void testScanRecordsCleanFiles() throws Exception {
+        final PreScanDaemon daemon = new PreScanDaemon(repHandler);
+
+        assertTrue(daemon.scan(write("App.java", CLEAN).toPath()));
+        assertFalse(daemon.scan(write("Bill.java", CLEAN + "// bill was here\n").toPath()));
+        assertFalse(daemon.scan(write("Plus.java", "x\ndirty\n").toPath()));
+        assertFalse(daemon.scan(new File(folder.getRoot(), "Missing.java").toPath()));
+        final PreScanResults results = PreScanResults.load(new File(repHandler.getMetadir(), PreScanResults.FILENAME),
+                new PreCommit(repHandler).getDirtyWordsKey());
+
+        assertEquals(1, results.size());
+        assertTrue(results.isClean(idFor(CLEAN)));
+        assertArrayEquals("+a\n+\n+b".getBytes(Charsets.UTF_8), PreScanDaemon.asAddedLines("a\n\nb".getBytes(Charsets.UTF_8)));
+    }
+
+    @Test
+    public void testDirtyWordCheckerOnlyChecksNamesOfPreScannedBlobs() throws Exception {
+        new PreScanDaemon(repHandler).scan(write("App.java", CLEAN).toPath());
+
+        assertFalse(checkStaged("--- a/App.java\n+++ b/App.java\n+bill\n", idFor(CLEAN)).hasViolations());
+        assertTrue(checkStaged("new file mode 100644\n--- /dev/null\n+++ b/Bill.java\n+clean\n", idFor(CLEAN)).hasViolations());
+        assertTrue(checkStaged("--- a/App.java\n+++ b/App.java\n+bill\n", idFor(CLEAN + " ")).hasViolations());
+        assertTrue(checkStaged("--- a/App.java\n+++ b/App.java\n+bill\n", null).hasViolations());
+
+        // results recorded for other dirty words are ignored
+        repHandler.setDirtyWords("bill,march");
+        assertTrue(checkStaged("--- a/App.java\n+++ b/App.java\n+bill\n", idFor(CLEAN)).hasViolations());
+    }
+
+    @Test
+    public void testDirtyWordCheckerOnGitHandlerChanges() throws Exception {
+        final Git git = Git.init().setDirectory(folder.getRoot()).call();
+
+        write("App.java", "public class App {\n}\n");
+        git.add().addFilepattern("App.java").call();
+        git.commit().setMessage("Initial commit").call();
+        new PreScanDaemon(repHandler).scan(write("App.java", CLEAN).toPath());
+        write("Bill.java", CLEAN);
+        git.add().addFilepattern("App.java").addFilepattern("Bill.java").call();
+        final DirtyWordChecker checker = new DirtyWordChecker(new PreCommit(repHandler));
+        final CheckResults results = new CheckResults();
+        final List<String> paths = new ArrayList<String>();
+
+        assertTrue(checker.init(repHandler));
+        new GitHandler(folder.getRoot(), folder.newFolder("gitsetup")).scanStagedChanges(new StagedChangeVisitor() {
+            @Override
+            public void visit(StagedChange change) {
+                paths.add(change.getPath());
+                checker.check(change, results);
+            }
+        });
+        assertEquals(Arrays.asList("App.java", "Bill.java"), paths);
+        assertEquals(Collections.singleton("Bill.java"), results.getFiles(checker));
+    }
+
+    @Test(timeout = 30000L)
+    public void testWatchScansSavedFiles() throws Exception {
+        final PreScanDaemon daemon = new PreScanDaemon(repHandler);
+        final WatchService watcher = FileSystems.getDefault().newWatchService();
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    daemon.watch(watcher);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+
+        thread.start();
+        try {
+            while (!daemon.getResults().isClean(idFor(CLEAN))) {
+                write("src/main/App.java", CLEAN);
+                Thread.sleep(500L);
+            }
+            write("src/main/App.java", CLEAN + "// bill was here\n");
+            write("src/main/Other.java", CLEAN + "\n");
+            while (!daemon.getResults().isClean(idFor(CLEAN + "\n"))) {
+                Thread.sleep(100L);
+            }
+            assertEquals(2, daemon.getResults().size());
+        } finally {
+            watcher.close();
+            thread.join();
+        }
+    }
+}
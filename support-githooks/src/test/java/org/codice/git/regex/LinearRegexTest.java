@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.git.regex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.regex.Pattern;
+
+import org.codice.git.RepositoryHandler;
+import org.junit.Test;
+
+public class LinearRegexTest {
+    protected static final String[] PATTERNS = {
+            "System\\.ouch\\.print(f|ln)?", "System\\.out\\.print(?:ln|f)?", "\\Qa.b\\E", "a.c",
+            "colou?r", "ab{2,3}c", "ab{2}", "x{0,}y", "[a-c]+\\d", "[^a-z ]", "[\\w.-]+@[\\w-]+",
+            "\\s+$", "^bill", "bill$", "(a|b)*abb", "(a+)+$", "\\bfoo\\b", "\\Bar", "caf\u00e9",
+            "[\u00e0-\u00ff]x", "\\x41\\u0042\\0103\\t", "\\Aab", "ab\\z", "ab\\Z", "(?:)", "a??b",
+            "[-a]z", "[a-]z", "k", "[k-l]z", "\\W\\S\\D"};
+
+    // java.util.regex is the oracle so inputs must stay short enough for it to backtrack through
+    // nested quantifiers; long inputs are only used in testNestedQuantifiersRunInLinearTime
+    protected static final String[] INPUTS = {
+            "", "System.ouch.println(x)", "System.out.print", "a.b axb", "abc aXc", "color colour",
+            "abbc abbbbc", "abb", "y", "xxy", "cc3", "ABC", "me.name@host-1", "trailing  ",
+            "trailing\n", "trailing\r\n", "bill\nfoo", "foo\nbill", "foo\r\nbill\r\n", "aababb",
+            "aaaaaaaaaa!", "a foo_bar foo", "bar Bar", "CAF\u00c9", "\u00c9x",
+            "AB\u0043\t", "ab\n", "\u212a", "\u212az", "-z", "!x ", "na\u00efve", "\u0301foo"};
+
+    protected static final int[] FLAGS = {
+            0, Pattern.CASE_INSENSITIVE, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE,
+            Pattern.MULTILINE, Pattern.DOTALL | Pattern.UNIX_LINES, Pattern.MULTILINE | Pattern.UNIX_LINES};
+
+    @Test
+    public void testFindMatchesJavaRegex() throws Exception {
+        for (final String p: PATTERNS) {
+            for (final int flags: FLAGS) {
+                for (final String regex: new String[] {p, String.format(RepositoryHandler.REGEX_PATTERN, p)}) {
+                    final LinearRegex linear = LinearRegex.compile(regex, flags);
+                    final Pattern pattern = Pattern.compile(regex, flags);
+
+                    for (final String input: INPUTS) {
+                        assertEquals(regex + " (" + flags + ") on: " + input,
+                                pattern.matcher(input).find(),
+                                linear.find(input));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testNestedQuantifiersRunInLinearTime() throws Exception {
+        final StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 100000; i++) {
+            sb.append('a');
+        }
+        sb.append('!');
+        final long start = System.nanoTime();
+
+        assertFalse(LinearRegex.compile("(a+)+$", 0).find(sb));
+        assertFalse(LinearRegex.compile("^(\\w+\\s?)*$", 0).find(sb.append('\n').append('!')));
+        assertTrue((System.nanoTime() - start) < 10000000000L);
+    }
+
+    @Test
+    public void testRequiredLiteral() throws Exception {
+        assertEquals("system.ouch.print", LinearRegex.compile("System\\.ouch\\.print(f|ln)?", 0).requiredLiteral());
+        assertEquals("bill", LinearRegex.compile(String.format(RepositoryHandler.REGEX_PATTERN, "\\QBill\\E"), 0).requiredLiteral());
+        assertEquals("abc", LinearRegex.compile("x?ab\\bcd+(ef|gh)", 0).requiredLiteral());
+        assertEquals("caf", LinearRegex.compile("caf\u00e9", Pattern.CASE_INSENSITIVE).requiredLiteral());
+        assertEquals("", LinearRegex.compile("x?\\d{9}", 0).requiredLiteral());
+        assertEquals("", new BudgetedRegex(Pattern.compile("(a)\\1")).requiredLiteral());
+    }
+
+    @Test
+    public void testUnsupportedConstructs() {
+        for (final String regex: new String[] {"(a)\\1", "a(?=b)", "(?<!a)b", "(?i)a", "a++", "[a[b]]", "[a&&b]", "\\p{Alpha}", "\\R"}) {
+            try {
+                LinearRegex.compile(regex, 0);
+                fail("Expected " + regex + " to be unsupported");
+            } catch (UnsupportedRegexException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testCompileFallsBackToBudgetedRegex() {
+        assertTrue(RegexMatchers.compile(Pattern.compile("a+b")) instanceof LinearRegex);
+        assertTrue(RegexMatchers.compile(Pattern.compile("(a)\\1")) instanceof BudgetedRegex);
+    }
+
+    @Test
+    public void testBudgetedRegexStopsCatastrophicBacktracking() {
+        final BudgetedRegex regex = new BudgetedRegex(Pattern.compile("(a+)+\\1b"), 100, 1000);
+        final String input = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+
+        assertTrue(regex.find("aab"));
+        try {
+            regex.find(input);
+            fail("Expected the budget to be exceeded");
+        } catch (RegexBudgetExceededException e) {
+            assertEquals("(a+)+\\1b", e.getPattern());
+        }
+        try {
+            regex.find("aab");
+            fail("Expected the budget to remain exhausted");
+        } catch (RegexBudgetExceededException e) {
+            // expected
+        }
+    }
+}
@@ -14,30 +14,23 @@
  **/
 package org.codice.ddf.support
 
-import org.apache.maven.shared.invoker.DefaultInvocationRequest
-import org.apache.maven.shared.invoker.DefaultInvoker
-import org.apache.maven.shared.invoker.InvocationOutputHandler
-import org.w3c.dom.Document
-import org.w3c.dom.Node
-import org.xml.sax.InputSource
+import org.codice.jacoco.CoverageRatioCollector
+import org.codice.jacoco.CoverageRatios
+import org.codice.jacoco.JacocoPomEditor
 
-import javax.xml.parsers.DocumentBuilder
-import javax.xml.parsers.DocumentBuilderFactory
-import javax.xml.transform.OutputKeys
-import javax.xml.transform.TransformerFactory
-import javax.xml.transform.dom.DOMSource
-import javax.xml.transform.stream.StreamResult
-import javax.xml.xpath.XPath
-import javax.xml.xpath.XPathConstants
-import javax.xml.xpath.XPathExpression
-import javax.xml.xpath.XPathFactory
 import java.text.DecimalFormat
 
 /*
  * This Groovy script is used to add JaCoCo () code coverage tool configuration to one or more pom.xml files.
  *
  * To use the tool, execute the following Maven command from the support-jacoco directory:
- *   > mvn groovy:execute -DprojectsRoot=<Maven project root directory>
+ *   > mvn compile groovy:execute -DprojectsRoot=<Maven project root directory>
+ *
+ * The whole reactor is built once with coverage enabled and the coverage data of each module is then read
+ * directly. An optional -DskipBuild argument can be provided to reuse the data of a previous build.
+ *
+ * Existing JaCoCo configurations are left untouched unless an optional -DupdateExisting argument is provided. The
+ * pom files are edited in place without reformatting them.
  *
  * An optional -Ddebug argument can be provided to turn on debug information.
  */
@@ -47,90 +40,10 @@ import java.text.DecimalFormat
  */
 class Globals {
     static boolean debug = false;
+    static boolean updateExisting = false;
 
     static final String targetCoverage = "0.80"
     static final COVERAGE_ITEM_KEYS = ["instructions", "branches", "complexity", "lines"]
-    static final JACOCO_CONFIG_TEMPLATE = """
-    <plugin>
-        <groupId>org.jacoco</groupId>
-        <artifactId>jacoco-maven-plugin</artifactId>
-        <executions>
-            <execution>
-                <id>default-check</id>
-                <goals>
-                    <goal>check</goal>
-                </goals>
-                <configuration>
-                    <haltOnFailure>true</haltOnFailure>
-                    <rules>
-                        <rule>
-                            <element>BUNDLE</element>
-                            <limits>
-                                <limit>
-                                    <counter>INSTRUCTION</counter>
-                                    <value>COVEREDRATIO</value>
-                                    <minimum>{instructions-ratio}</minimum>
-                                </limit>
-                                <limit>
-                                    <counter>BRANCH</counter>
-                                    <value>COVEREDRATIO</value>
-                                    <minimum>{branches-ratio}</minimum>
-                                </limit>
-                                <limit>
-                                    <counter>COMPLEXITY</counter>
-                                    <value>COVEREDRATIO</value>
-                                    <minimum>{complexity-ratio}</minimum>
-                                </limit>
-                                <limit>
-                                    <counter>LINE</counter>
-                                    <value>COVEREDRATIO</value>
-                                    <minimum>{lines-ratio}</minimum>
-                                </limit>
-                            </limits>
-                        </rule>
-                    </rules>
-                </configuration>
-            </execution>
-        </executions>
-    </plugin>
-    """
-}
-
-/**
- * Class used to capture the output of the maven command and extract the different code coverage values that will be
- * used to generated the JaCoCo configuration.
- */
-class OutputHandler implements InvocationOutputHandler {
-    private final Map<String, String> ratios = new HashMap<String, String>()
-
-    public OutputHandler() {
-        // Set the default coverage values in case some of them are already above the target
-        Globals.COVERAGE_ITEM_KEYS.each() {
-            ratios.put(it, Globals.targetCoverage)
-        }
-    }
-
-    public void consumeLine(String line) {
-        if (Globals.debug) {
-            println line
-        }
-
-        if (line.contains("[WARNING] Rule violated for bundle ")) {
-            def matcher = (line =~ /^.* ([a-z]+) covered ratio is ([0-9.]+).*/)
-            def ratioName = matcher[0][1]
-            def ratioValue = matcher[0][2]
-
-            if (Globals.debug) {
-                println "***** Covered ${ratioName} ratio: ${ratioValue}"
-            }
-
-            ratios.put(ratioName, ratioValue)
-        }
-    }
-
-    public Map<String, String> getRatios() {
-        return ratios;
-    }
 }
 
 /**
@@ -138,119 +51,87 @@ class OutputHandler implements InvocationOutputHandler {
  */
 class JaCoCoPomUpdater {
 
-    private XPathFactory xPathFactory = XPathFactory.newInstance();
-    private XPath xpath = xPathFactory.newXPath();
-    private XPathExpression jaCoCoPlugInXPath = xpath.compile('/project/build/plugins/plugin/artifactId[text()="jacoco-maven-plugin"]');
-    private XPathExpression plugInsXPath = xpath.compile('/project/build/plugins');
-    private DocumentBuilderFactory factory;
+    private Map<File, CoverageRatios> coverageRatios = new HashMap<File, CoverageRatios>();
 
-    public JaCoCoPomUpdater() {
-        factory = DocumentBuilderFactory.newInstance();
-        factory.setIgnoringComments(false);
-        factory.setValidating(false);
-    }
     /**
      * Recursively processes all the pom.xml files found under the root directory provided. This method will
-     * automatically skip the pom.xml files that already contain a JaCoCo configuration element. The files that don't
-     * will be updated with the proper JaCoCo code coverage values.
+     * automatically skip the pom.xml files that already contain a JaCoCo configuration element, unless
+     * -DupdateExisting is provided. The others will be updated with the proper JaCoCo code coverage values, in
+     * parallel, leaving the rest of their content untouched.
      *
      * @param projectsRoot root direction to process
      */
     public void process(String projectsRoot) {
         println "Processing Maven projects in ${projectsRoot}"
 
-        new File(projectsRoot).eachFileRecurse() {
-            if (it.name.equals("pom.xml")) {
-                processPomFile(it)
-            }
-        }
-    }
-
-    private void processPomFile(File pomFile) {
-        def builder = factory.newDocumentBuilder();
-        def document = builder.parse(pomFile);
+        def collector = new CoverageRatioCollector(new File(projectsRoot).canonicalFile, 0)
+        collector.setDebug(Globals.debug)
 
-        Node plugInsNode = (Node) plugInsXPath.evaluate(document, XPathConstants.NODE)
-
-        if (plugInsNode == null) {
-            println "${pomFile.path}: No <build> or <plugins> elements found. Skipping."
-            return
+        if (System.getProperty("skipBuild") == null && !collector.build()) {
+            println "Build failed. Modules that were not built get the target coverage."
         }
+        coverageRatios = collector.collect()
 
-        if (isJaCoCoAlreadyConfigured(document)) {
-            println "${pomFile.path}: jacoco-maven-plugin already configured. Skipping."
-            return
-        }
+        def minimumsByPom = new LinkedHashMap<File, Map<String, String>>()
 
-        println "${pomFile.path}: jacoco-maven-pluginnot found. Configuring."
-
-        try {
-            Map<String, Float> extractedRatios = extractCoverageRatiosFromPomFile(pomFile)
-            def jaCoCoPlugInNode = generateJaCoCoConfiguration(extractedRatios)
-            plugInsNode.appendChild(document.importNode(jaCoCoPlugInNode, true))
-
-            updatePomFile(pomFile, document)
-        }
-        catch (RuntimeException e) {
-            println "${pomFile.path} failed. Skipping."
-            e.printStackTrace()
+        new File(projectsRoot).eachFileRecurse() {
+            if (it.name.equals("pom.xml")) {
+                minimumsByPom.put(it, generateMinimums(extractCoverageRatiosFromPomFile(it)))
+            }
         }
-    }
-
-    private boolean isJaCoCoAlreadyConfigured(Document pom) {
-        return (jaCoCoPlugInXPath.evaluate(pom, XPathConstants.NODE) != null)
-    }
 
-    private boolean buildPluginElementExist(Document pom) {
-        return plugInsXPath.evaluate(pom, XPathConstants.NODE) != null
+        def results = new JacocoPomEditor(Globals.updateExisting).updateAll(minimumsByPom, 0)
+
+        results.each() { pomFile, result ->
+            switch (result) {
+                case JacocoPomEditor.Result.NO_PLUGINS:
+                    println "${pomFile.path}: No <build> or <plugins> elements found. Skipping."
+                    break
+                case JacocoPomEditor.Result.ALREADY_CONFIGURED:
+                    println "${pomFile.path}: jacoco-maven-plugin already configured. Skipping."
+                    break
+                case JacocoPomEditor.Result.INSERTED:
+                    println "${pomFile.path}: jacoco-maven-plugin not found. Configured."
+                    break
+                case JacocoPomEditor.Result.UPDATED:
+                    println "${pomFile.path}: jacoco-maven-plugin configuration updated."
+                    break
+                default:
+                    println "${pomFile.path} failed. Skipping."
+            }
+        }
     }
 
-    private Map<String, Float> extractCoverageRatiosFromPomFile(File pomFile) {
-        def request = new DefaultInvocationRequest()
-        request.setPomFile(pomFile)
-        request.setGoals(Collections.singletonList("install"))
-        request.setRecursive(false)
-
-        def outputHandler = new OutputHandler()
-        request.setOutputHandler(outputHandler)
+    /**
+     * Returns the coverage ratios to configure for the module, which are the measured ones when below the target
+     * coverage, and the target coverage otherwise.
+     */
+    private Map<String, String> extractCoverageRatiosFromPomFile(File pomFile) {
+        def ratios = new HashMap<String, String>()
+        def measured = coverageRatios.get(pomFile.canonicalFile.parentFile)
+        def target = new BigDecimal(Globals.targetCoverage)
 
-        def invoker = new DefaultInvoker()
-        def result = invoker.execute(request)
+        Globals.COVERAGE_ITEM_KEYS.each() {
+            def ratio = measured == null ? null : measured.get(it)
+            ratios.put(it, ratio != null && ratio < target ? ratio.toPlainString() : Globals.targetCoverage)
 
-        if (result.getExitCode() != 0 || result.executionException != null) {
-            throw new IllegalStateException("Build failed.");
+            if (Globals.debug) {
+                println "***** Covered ${it} ratio: ${ratios.get(it)}"
+            }
         }
-
-        return outputHandler.getRatios()
+        return ratios
     }
 
-    private generateJaCoCoConfiguration(Map<String, String> extractedRatios) {
+    private Map<String, String> generateMinimums(Map<String, String> extractedRatios) {
         def formatter = new DecimalFormat("#.##")
-
-        def output = Globals.JACOCO_CONFIG_TEMPLATE
+        def minimums = new HashMap<String, String>()
 
         extractedRatios.each() {
             def ratio = new Double(it.value)
             ratio = Math.max(ratio - 0.05, 0.0)
-            output = output.replace("{" + it.key + "-ratio}", formatter.format(ratio))
+            minimums.put(it.key, formatter.format(ratio))
         }
-
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        InputSource is = new InputSource(new StringReader(output.replaceAll(/\s+/, '')));
-        return builder.parse(is).getDocumentElement()
-    }
-
-    private void updatePomFile(File pomFile, Document pom) {
-        def fileWriter = new FileWriter(pomFile)
-        def xmlOutput = new StreamResult(fileWriter)
-        def transformerFactory = TransformerFactory.newInstance()
-        def transformer = transformerFactory.newTransformer()
-        transformer.setOutputProperty(OutputKeys.METHOD, "xml")
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4")
-        transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "no")
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes")
-        transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8")
-        transformer.transform(new DOMSource(pom), xmlOutput)
+        return minimums
     }
 }
 
@@ -258,7 +139,7 @@ class JaCoCoPomUpdater {
  * Script main function
  */
 
-def usage = "Usage: mvn groovy:execute -DprojectsRoot=<maven project root directory> [-Ddebug]"
+def usage = "Usage: mvn compile groovy:execute -DprojectsRoot=<maven project root directory> [-DskipBuild] [-DupdateExisting] [-Ddebug]"
 def projectsRoot = System.getProperty("projectsRoot")
 
 if (projectsRoot == null) {
@@ -268,6 +149,7 @@ if (projectsRoot == null) {
 }
 
 Globals.debug = System.getProperty("debug") == null ? false : true
+Globals.updateExisting = System.getProperty("updateExisting") == null ? false : true
 
 def updater = new JaCoCoPomUpdater()
 updater.process(projectsRoot)
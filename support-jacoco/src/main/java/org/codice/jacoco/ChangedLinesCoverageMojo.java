@@ -0,0 +1,350 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.jacoco;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ISourceFileCoverage;
+import org.jacoco.core.tools.ExecFileLoader;
+
+/**
+ * Enforces a minimum line coverage on the lines added or changed since a base ref only, to be used
+ * on pull request builds in addition to the whole bundle ratios checked by the jacoco-maven-plugin.
+ *
+ * <p>The changes are the ones committed since the merge base of the base ref and HEAD, restricted
+ * to the module's Java sources. The merge base must be in the local history: shallow clones, as
+ * made by default by most CI servers, must be fetched deep enough to hold it (e.g. with "git fetch
+ * --deepen" or "--unshallow"), otherwise the changes are computed against the base ref itself and
+ * also include the lines it changed since HEAD was branched off. Only the classes of the packages with changed source files are
+ * analyzed, so the time taken depends on the size of the change and not on the size of the module.
+ * Lines without any code (comments, blank lines, declarations) are not counted and partly covered
+ * lines count as covered, as in Jacoco's LINE counter.
+ */
+@Mojo(name = "check-changed-lines", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
+public class ChangedLinesCoverageMojo extends AbstractMojo {
+
+  /** Ref the changes are computed against, e.g. the target branch of the pull request. */
+  @Parameter(property = "jacoco.changedLines.baseRef", defaultValue = "origin/master")
+  private String baseRef;
+
+  /** Minimum covered ratio of the changed lines. */
+  @Parameter(property = "jacoco.changedLines.minimum", defaultValue = "0.80")
+  private String minimum;
+
+  @Parameter(property = "jacoco.dataFile", defaultValue = "${project.build.directory}/jacoco.exec")
+  private File dataFile;
+
+  @Parameter(defaultValue = "${project.build.outputDirectory}", readonly = true)
+  private File classesDirectory;
+
+  @Parameter(defaultValue = "${project.compileSourceRoots}", readonly = true)
+  private List<String> compileSourceRoots;
+
+  @Parameter(defaultValue = "${project.basedir}", readonly = true)
+  private File basedir;
+
+  @Parameter(property = "jacoco.skip", defaultValue = "false")
+  private boolean skip;
+
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException {
+    if (skip || !dataFile.isFile() || !classesDirectory.isDirectory()) {
+      getLog().info("Skipping changed lines coverage check; no execution data or classes found.");
+      return;
+    }
+
+    Map<String, SortedSet<Integer>> changedLines;
+
+    try {
+      changedLines = getChangedLines(basedir, baseRef, compileSourceRoots, getLog());
+    } catch (IOException e) {
+      throw new MojoExecutionException("Could not compute changes since " + baseRef, e);
+    }
+    if (changedLines.isEmpty()) {
+      getLog().info("No Java source changed since " + baseRef);
+      return;
+    }
+
+    List<String> uncovered = new ArrayList<>();
+    int total;
+
+    try {
+      total =
+          countChangedLines(
+              changedLines,
+              analyze(classesDirectory, dataFile, changedLines.keySet()),
+              uncovered);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Could not analyze coverage data " + dataFile, e);
+    }
+    if (total == 0) {
+      getLog().info("No executable line changed since " + baseRef);
+      return;
+    }
+
+    BigDecimal ratio =
+        BigDecimal.valueOf(total - uncovered.size())
+            .divide(BigDecimal.valueOf(total), 2, RoundingMode.FLOOR);
+    String message =
+        String.format(
+            "Changed lines covered ratio is %s (%d of %d lines), expected minimum is %s",
+            ratio.toPlainString(), total - uncovered.size(), total, minimum);
+
+    if (ratio.compareTo(new BigDecimal(minimum)) >= 0) {
+      getLog().info(message);
+      return;
+    }
+    for (String line : uncovered) {
+      getLog().warn("Changed line not covered: " + line);
+    }
+    throw new MojoFailureException(message);
+  }
+
+  /**
+   * Counts the changed lines with code and collects the ones not covered.
+   *
+   * @param changedLines the changed line numbers of each source file, keyed by path relative to its
+   *     source root
+   * @param sources the coverage of the changed source files
+   * @param uncovered where to add the changed lines not covered, as "path:line"
+   * @return the number of changed lines with code
+   */
+  static int countChangedLines(
+      Map<String, SortedSet<Integer>> changedLines,
+      Iterable<ISourceFileCoverage> sources,
+      List<String> uncovered) {
+    int total = 0;
+
+    for (ISourceFileCoverage source : sources) {
+      String path =
+          source.getPackageName().isEmpty()
+              ? source.getName()
+              : source.getPackageName() + "/" + source.getName();
+      SortedSet<Integer> lines = changedLines.get(path);
+
+      if (lines == null) {
+        continue;
+      }
+      for (int line : lines) {
+        int status = source.getLine(line).getStatus();
+
+        if (status == ICounter.EMPTY) {
+          continue;
+        }
+        total++;
+        if (status == ICounter.NOT_COVERED) {
+          uncovered.add(path + ":" + line);
+        }
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Computes the lines added or changed in the module's Java sources since the merge base of the
+   * base ref and HEAD.
+   *
+   * @param basedir the base directory of the module
+   * @param baseRef the ref the changes are computed against
+   * @param compileSourceRoots the source roots of the module
+   * @param log where to warn when the merge base is not in the local history
+   * @return the 1-based line numbers changed in each source file, keyed by path relative to its
+   *     source root (e.g. "org/codice/Foo.java")
+   */
+  static Map<String, SortedSet<Integer>> getChangedLines(
+      File basedir, String baseRef, List<String> compileSourceRoots, Log log)
+      throws IOException, MojoExecutionException {
+    Map<String, SortedSet<Integer>> changedLines = new TreeMap<>();
+    Repository repository =
+        new FileRepositoryBuilder().readEnvironment().findGitDir(basedir).build();
+    RevWalk walk = new RevWalk(repository);
+    DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
+
+    try {
+      ObjectId base = repository.resolve(baseRef);
+      ObjectId head = repository.resolve("HEAD");
+
+      if (base == null || head == null) {
+        throw new MojoExecutionException("Could not resolve " + (base == null ? baseRef : "HEAD"));
+      }
+      RevTree baseTree = getMergeBaseTree(walk, base, head);
+
+      if (baseTree == null) {
+        log.warn(
+            "Could not find the merge base of "
+                + baseRef
+                + " and HEAD, the clone may be too shallow; comparing against "
+                + baseRef
+                + " itself, which also counts the lines it changed since HEAD was branched off");
+        baseTree = walk.parseCommit(base).getTree();
+      }
+
+      String module = getRepositoryPath(repository, basedir);
+      TreeFilter filter = PathSuffixFilter.create(".java");
+
+      if (!module.isEmpty()) {
+        filter = AndTreeFilter.create(PathFilter.create(module), filter);
+      }
+      formatter.setRepository(repository);
+      formatter.setDiffComparator(RawTextComparator.DEFAULT);
+      formatter.setDetectRenames(true);
+      formatter.setPathFilter(filter);
+
+      for (DiffEntry entry :
+          formatter.scan(baseTree, walk.parseCommit(head).getTree())) {
+        String sourcePath = getSourcePath(repository, compileSourceRoots, entry.getNewPath());
+
+        if (entry.getChangeType() == DiffEntry.ChangeType.DELETE || sourcePath == null) {
+          continue;
+        }
+
+        SortedSet<Integer> lines = new TreeSet<>();
+
+        for (Edit edit : formatter.toFileHeader(entry).toEditList()) {
+          for (int line = edit.getBeginB(); line < edit.getEndB(); line++) {
+            lines.add(line + 1);
+          }
+        }
+        if (!lines.isEmpty()) {
+          changedLines.put(sourcePath, lines);
+        }
+      }
+    } finally {
+      formatter.release();
+      walk.release();
+      repository.close();
+    }
+    return changedLines;
+  }
+
+  /**
+   * @return the tree of the merge base of the commits, or null if they have no common ancestor in
+   *     the local history, e.g. in a shallow clone
+   */
+  private static RevTree getMergeBaseTree(RevWalk walk, ObjectId base, ObjectId head)
+      throws IOException {
+    walk.setRevFilter(RevFilter.MERGE_BASE);
+    walk.markStart(walk.parseCommit(base));
+    walk.markStart(walk.parseCommit(head));
+
+    try {
+      RevCommit mergeBase = walk.next();
+
+      return mergeBase == null ? null : mergeBase.getTree();
+    } catch (MissingObjectException e) {
+      // the parents of the oldest commits of a shallow clone are missing
+      return null;
+    }
+  }
+
+  /** @return the path of the file relative to the source root containing it, or null if none */
+  private static String getSourcePath(
+      Repository repository, List<String> compileSourceRoots, String repositoryPath)
+      throws IOException {
+    String path = repositoryPath;
+
+    for (String root : compileSourceRoots) {
+      String prefix = getRepositoryPath(repository, new File(root));
+
+      if (!prefix.isEmpty() && path.startsWith(prefix + "/")) {
+        return path.substring(prefix.length() + 1);
+      }
+    }
+    return null;
+  }
+
+  private static String getRepositoryPath(Repository repository, File file) throws IOException {
+    String workTree = repository.getWorkTree().getCanonicalPath();
+    String path = file.getCanonicalPath();
+
+    if (!path.startsWith(workTree)) {
+      return "";
+    }
+    return path.substring(workTree.length()).replace(File.separatorChar, '/').replaceAll("^/", "");
+  }
+
+  /**
+   * Analyzes the classes compiled from the given source files only. A source file may hold more
+   * than one top level class, each compiled to a class file named after itself, so all the classes
+   * of the packages of the source files are analyzed.
+   *
+   * @param classesDirectory the directory of the compiled classes
+   * @param dataFile the execution data
+   * @param sourcePaths the paths of the source files relative to their source root
+   * @return the coverage of the source files of the analyzed packages
+   */
+  static Collection<ISourceFileCoverage> analyze(
+      File classesDirectory, File dataFile, Iterable<String> sourcePaths) throws IOException {
+    ExecFileLoader loader = new ExecFileLoader();
+    loader.load(dataFile);
+
+    CoverageBuilder builder = new CoverageBuilder();
+    Analyzer analyzer = new Analyzer(loader.getExecutionDataStore(), builder);
+    Set<File> directories = new TreeSet<>();
+
+    for (String sourcePath : sourcePaths) {
+      int separator = sourcePath.lastIndexOf('/');
+
+      directories.add(new File(classesDirectory, sourcePath.substring(0, Math.max(separator, 0))));
+    }
+    for (File directory : directories) {
+      File[] classFiles = directory.listFiles((dir, file) -> file.endsWith(".class"));
+
+      if (classFiles == null) {
+        continue;
+      }
+      for (File classFile : classFiles) {
+        analyzer.analyzeAll(classFile);
+      }
+    }
+    return builder.getSourceFiles();
+  }
+}
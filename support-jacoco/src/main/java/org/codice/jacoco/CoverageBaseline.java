@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.jacoco;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * Baseline file holding the covered ratios of each module of a project tree, one line per module
+ * sorted by module key so the file stays small and diffs well:
+ *
+ * <pre>
+ * ddf.support:support-jacoco instructions=0.75 branches=0.50 complexity=0.61 lines=0.66
+ * </pre>
+ *
+ * <p>The file is locked while being updated so modules built concurrently, in the same Maven
+ * process or not, can share it.
+ */
+final class CoverageBaseline {
+  private static final String HEADER = "# Coverage baseline, raised by the support-jacoco ratchet goal";
+
+  private CoverageBaseline() {}
+
+  /**
+   * Atomically updates the baseline of a module.
+   *
+   * @param file the baseline file, created if missing
+   * @param module the module key
+   * @param update function given the current baseline of the module (null if none) and returning
+   *     the new one, or null to leave the file untouched
+   * @return the baseline of the module before the update, or null if there was none
+   * @throws IOException if the file cannot be read or written, or a line of it cannot be parsed
+   */
+  static CoverageRatios update(File file, String module, UnaryOperator<CoverageRatios> update)
+      throws IOException {
+    // file locks are held by the whole JVM; serialize the modules built by this process first
+    synchronized (CoverageBaseline.class) {
+      File parent = file.getAbsoluteFile().getParentFile();
+
+      if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+        throw new IOException("Could not create directory " + parent);
+      }
+      try (FileChannel channel =
+              FileChannel.open(
+                  file.toPath(),
+                  StandardOpenOption.CREATE,
+                  StandardOpenOption.READ,
+                  StandardOpenOption.WRITE);
+          FileLock lock = channel.lock()) {
+        Map<String, CoverageRatios> baselines = read(channel);
+        CoverageRatios previous = baselines.get(module);
+        CoverageRatios updated = update.apply(previous);
+
+        if (updated != null) {
+          baselines.put(module, updated);
+          write(channel, baselines);
+        }
+        return previous;
+      }
+    }
+  }
+
+  private static Map<String, CoverageRatios> read(FileChannel channel) throws IOException {
+    Map<String, CoverageRatios> baselines = new TreeMap<>();
+    // not closed as it would close the channel
+    BufferedReader reader =
+        new BufferedReader(
+            new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+    String line;
+    int lineNumber = 0;
+
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+
+      int separator = line.indexOf(' ');
+
+      try {
+        if (separator < 0) {
+          baselines.put(line, CoverageRatios.parse(""));
+        } else {
+          baselines.put(
+              line.substring(0, separator), CoverageRatios.parse(line.substring(separator + 1)));
+        }
+      } catch (IllegalArgumentException e) {
+        throw new IOException(
+            String.format("Invalid coverage baseline at line %d: %s", lineNumber, line), e);
+      }
+    }
+    return baselines;
+  }
+
+  private static void write(FileChannel channel, Map<String, CoverageRatios> baselines)
+      throws IOException {
+    channel.truncate(0);
+    channel.position(0);
+
+    Writer writer = new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8);
+
+    writer.write(HEADER);
+    writer.write('\n');
+    for (Map.Entry<String, CoverageRatios> baseline : baselines.entrySet()) {
+      writer.write(baseline.getKey());
+      writer.write(' ');
+      writer.write(baseline.getValue().toString());
+      writer.write('\n');
+    }
+    writer.flush();
+  }
+}
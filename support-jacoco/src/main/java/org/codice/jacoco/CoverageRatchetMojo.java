@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.jacoco;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Coverage ratchet: compares the covered ratios of the module's Jacoco XML report against the ones
+ * recorded in a shared {@link CoverageBaseline} file instead of against limits hand-written in
+ * the pom files.
+ *
+ * <p>Like {@link LenientLimit}, the build only fails when a ratio drops below its baseline by more
+ * than offsetJacoco, and computeJacoco records the measured ratios as the new baseline without
+ * failing. Whenever a ratio rises, the baseline is raised to it so it can never go back down.
+ *
+ * <p>The report is read with a streaming parser, so the check adds no measurable time to the
+ * build; the report goal of the jacoco-maven-plugin must run before this one.
+ *
+ * <p>The baseline file must already exist unless computeJacoco is set, so a build started from
+ * another directory than the one holding it fails instead of silently starting a new baseline.
+ */
+@Mojo(name = "ratchet", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
+public class CoverageRatchetMojo extends AbstractMojo {
+
+  /** Jacoco XML report of the module. */
+  @Parameter(
+    property = "jacoco.ratchet.report",
+    defaultValue = "${project.reporting.outputDirectory}/jacoco/jacoco.xml"
+  )
+  private File report;
+
+  /** Baseline file shared by the modules of the project tree. */
+  @Parameter(
+    property = "jacoco.ratchet.baseline",
+    defaultValue = "${session.executionRootDirectory}/coverage-baseline.txt"
+  )
+  private File baseline;
+
+  /** Key of the module in the baseline file. */
+  @Parameter(defaultValue = "${project.groupId}:${project.artifactId}", readonly = true)
+  private String module;
+
+  /** How far below its baseline a ratio can drop without failing the build. */
+  @Parameter(property = "offsetJacoco", defaultValue = "0.02")
+  private String offsetJacoco;
+
+  /** Records the measured ratios as the new baseline, even when lower, without failing. */
+  @Parameter(property = "computeJacoco", defaultValue = "false")
+  private boolean computeJacoco;
+
+  /** Raises the baseline when coverage rises; disable to only check against it. */
+  @Parameter(property = "jacoco.ratchet.update", defaultValue = "true")
+  private boolean updateBaseline;
+
+  @Parameter(property = "jacoco.skip", defaultValue = "false")
+  private boolean skip;
+
+  @Override
+  public void execute() throws MojoExecutionException, MojoFailureException {
+    if (skip || !report.isFile()) {
+      getLog().info("Skipping coverage ratchet; no Jacoco report found at " + report);
+      return;
+    }
+
+    if (!computeJacoco && !baseline.isFile()) {
+      throw new MojoFailureException(
+          "Coverage baseline "
+              + baseline
+              + " not found; run with -DcomputeJacoco=true to create it or set"
+              + " jacoco.ratchet.baseline to its location");
+    }
+
+    BigDecimal offset = new BigDecimal(offsetJacoco);
+    List<String> violations = new ArrayList<>();
+
+    try {
+      CoverageRatios current = JacocoXmlReportReader.read(report);
+      CoverageRatios previous =
+          CoverageBaseline.update(
+              baseline,
+              module,
+              recorded -> {
+                if (computeJacoco) {
+                  return current;
+                }
+                if (recorded == null) {
+                  getLog()
+                      .warn(
+                          String.format(
+                              "No coverage baseline of %s in %s; recording the measured ratios",
+                              module, baseline));
+                  return current;
+                }
+                CoverageRatios raised = ratchet(module, recorded, current, offset, violations);
+
+                if (raised == null || !updateBaseline) {
+                  return null;
+                }
+                getLog().info(String.format("Raised coverage baseline of %s to %s", module, raised));
+                return raised;
+              });
+
+      if (previous == null || computeJacoco) {
+        getLog().info(String.format("Recorded coverage baseline of %s: %s", module, current));
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException(
+          "Could not update coverage baseline " + baseline + ": " + e.getMessage(), e);
+    }
+    for (String violation : violations) {
+      getLog().warn(violation);
+    }
+    if (!violations.isEmpty()) {
+      throw new MojoFailureException(
+          "Coverage checks have not been met. See log for details.");
+    }
+  }
+
+  /**
+   * Compares the measured ratios of a module against its baseline.
+   *
+   * @param module the module key, used in the violations
+   * @param recorded the baseline of the module
+   * @param current the measured ratios
+   * @param offset how far below its baseline a ratio can drop
+   * @param violations where to report the ratios that dropped too far
+   * @return the raised baseline, or null if no ratio rose or any dropped too far
+   */
+  static CoverageRatios ratchet(
+      String module,
+      CoverageRatios recorded,
+      CoverageRatios current,
+      BigDecimal offset,
+      List<String> violations) {
+    Map<String, BigDecimal> raised = new LinkedHashMap<>(recorded.asMap());
+    boolean rose = false;
+    int violated = violations.size();
+
+    for (Map.Entry<String, BigDecimal> ratio : current.asMap().entrySet()) {
+      BigDecimal minimum = recorded.get(ratio.getKey());
+
+      if (minimum == null || ratio.getValue().compareTo(minimum) > 0) {
+        raised.put(ratio.getKey(), ratio.getValue());
+        rose = true;
+      } else if (ratio.getValue().compareTo(minimum.subtract(offset)) < 0) {
+        // same wording as the check goal of the jacoco-maven-plugin
+        violations.add(
+            String.format(
+                "Rule violated for bundle %s: %s covered ratio is %s, but expected minimum is %s",
+                module,
+                ratio.getKey(),
+                ratio.getValue().toPlainString(),
+                minimum.subtract(offset).toPlainString()));
+      }
+    }
+    if (!rose || violations.size() > violated) {
+      return null;
+    }
+    return CoverageRatios.of(raised);
+  }
+}
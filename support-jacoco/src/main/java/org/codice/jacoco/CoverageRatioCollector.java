@@ -0,0 +1,228 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.jacoco;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.maven.shared.invoker.DefaultInvocationRequest;
+import org.apache.maven.shared.invoker.DefaultInvoker;
+import org.apache.maven.shared.invoker.InvocationRequest;
+import org.apache.maven.shared.invoker.InvocationResult;
+import org.apache.maven.shared.invoker.MavenInvocationException;
+import org.jacoco.core.JaCoCo;
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.tools.ExecFileLoader;
+
+/**
+ * Computes the covered ratios of every module of a Maven project tree. The whole reactor is built
+ * once with the Jacoco agent attached, then the coverage data of each module is read directly, in
+ * parallel, instead of building each module on its own and scraping the ratios from the "Rule
+ * violated" warnings of the check goal.
+ *
+ * <p>The execution data of a module (target/jacoco.exec) is analyzed against its compiled classes
+ * (target/classes). Its XML report (target/site/jacoco/jacoco.xml) is read instead when there is
+ * no execution data or when the report is at least as recent, since a report older than the
+ * execution data is left from a previous build. Modules without either are left out.
+ *
+ * <p>Usage: {@code java org.codice.jacoco.CoverageRatioCollector <projectsRoot> [threads]}
+ *
+ * <p>System properties supported:
+ *
+ * <ul>
+ *   <li>skipBuild - reads the coverage data left by a previous build instead of building the
+ *       reactor first.
+ *   <li>debug - prints the output of the build.
+ * </ul>
+ */
+public class CoverageRatioCollector {
+  private static final String POM = "pom.xml";
+  private static final String XML_REPORT = "target/site/jacoco/jacoco.xml";
+  private static final String EXEC_FILE = "target/jacoco.exec";
+  private static final String CLASSES = "target/classes";
+  private static final List<String> EXCLUDED_DIRECTORIES =
+      Arrays.asList("target", "node_modules", "node", "src");
+
+  private final File projectsRoot;
+  private final int threads;
+  private boolean debug;
+
+  /**
+   * @param projectsRoot root directory of the Maven project tree
+   * @param threads number of modules to read concurrently, or 0 for the number of processors
+   */
+  public CoverageRatioCollector(File projectsRoot, int threads) {
+    this.projectsRoot = projectsRoot;
+    this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+  }
+
+  public void setDebug(boolean debug) {
+    this.debug = debug;
+  }
+
+  /**
+   * Builds and installs the whole reactor once with the Jacoco agent attached. The coverage checks
+   * configured in the pom files are not allowed to fail the build and the reactor keeps on building
+   * the modules that do not depend on a failed one.
+   *
+   * @return true if every module was built successfully
+   * @throws MavenInvocationException if Maven cannot be invoked
+   */
+  public boolean build() throws MavenInvocationException {
+    Properties properties = new Properties();
+    properties.setProperty("jacoco.haltOnFailure", "false");
+
+    InvocationRequest request = new DefaultInvocationRequest();
+    request.setPomFile(new File(projectsRoot, POM));
+    request.setGoals(
+        Arrays.asList(
+            "org.jacoco:jacoco-maven-plugin:" + JaCoCo.VERSION + ":prepare-agent", "install"));
+    request.setProperties(properties);
+    request.setFailureBehavior(InvocationRequest.REACTOR_FAIL_AT_END);
+    if (!debug) {
+      request.setOutputHandler(line -> {});
+    }
+
+    InvocationResult result = new DefaultInvoker().execute(request);
+
+    return result.getExitCode() == 0 && result.getExecutionException() == null;
+  }
+
+  /**
+   * Reads the coverage data of every module found under the root directory, in parallel.
+   *
+   * @return the ratios of each module keyed by module directory, sorted by path
+   * @throws IOException if the directory tree cannot be walked
+   * @throws InterruptedException if interrupted while waiting for the modules to be read
+   */
+  public Map<File, CoverageRatios> collect() throws IOException, InterruptedException {
+    List<File> modules = findModules();
+    List<Future<CoverageRatios>> results = new ArrayList<>(modules.size());
+    Map<File, CoverageRatios> ratios = new LinkedHashMap<>();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+    try {
+      for (File module : modules) {
+        results.add(executor.submit(() -> read(module)));
+      }
+      for (int i = 0; i < modules.size(); i++) {
+        try {
+          CoverageRatios moduleRatios = results.get(i).get();
+
+          if (moduleRatios != null) {
+            ratios.put(modules.get(i), moduleRatios);
+          }
+        } catch (ExecutionException e) {
+          System.err.println(modules.get(i) + ": could not read coverage data. Skipping.");
+          e.getCause().printStackTrace();
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return ratios;
+  }
+
+  /**
+   * Reads the coverage data of a single module.
+   *
+   * @param module the module directory
+   * @return the ratios of the module or null if it has no coverage data
+   * @throws IOException if the coverage data cannot be read
+   */
+  static CoverageRatios read(File module) throws IOException {
+    File report = new File(module, XML_REPORT);
+    File execFile = new File(module, EXEC_FILE);
+    File classes = new File(module, CLASSES);
+    boolean hasExecData = execFile.isFile() && classes.isDirectory();
+
+    if (report.isFile() && (!hasExecData || report.lastModified() >= execFile.lastModified())) {
+      return JacocoXmlReportReader.read(report);
+    }
+    if (!hasExecData) {
+      return null;
+    }
+
+    ExecFileLoader loader = new ExecFileLoader();
+    loader.load(execFile);
+
+    CoverageBuilder builder = new CoverageBuilder();
+    new Analyzer(loader.getExecutionDataStore(), builder).analyzeAll(classes);
+    return CoverageRatios.of(builder.getBundle(module.getName()));
+  }
+
+  private List<File> findModules() throws IOException {
+    List<File> modules = new ArrayList<>();
+    Path root = projectsRoot.toPath();
+
+    Files.walkFileTree(
+        root,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            String name = dir.getFileName().toString();
+
+            if (!dir.equals(root)
+                && (name.startsWith(".") || EXCLUDED_DIRECTORIES.contains(name))) {
+              return FileVisitResult.SKIP_SUBTREE;
+            }
+            if (Files.isRegularFile(dir.resolve(POM))) {
+              modules.add(dir.toFile());
+            }
+            return FileVisitResult.CONTINUE;
+          }
+        });
+    Collections.sort(modules);
+    return modules;
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 1) {
+      System.err.println(
+          "Usage: java "
+              + CoverageRatioCollector.class.getName()
+              + " <projectsRoot> [threads] [-DskipBuild] [-Ddebug]");
+      System.exit(1);
+    }
+
+    File projectsRoot = new File(args[0]).getCanonicalFile();
+    CoverageRatioCollector collector =
+        new CoverageRatioCollector(projectsRoot, args.length > 1 ? Integer.parseInt(args[1]) : 0);
+    collector.setDebug(System.getProperties().containsKey("debug"));
+
+    if (!System.getProperties().containsKey("skipBuild") && !collector.build()) {
+      System.err.println("Build failed. Only the modules that were built are reported.");
+    }
+    for (Map.Entry<File, CoverageRatios> module : collector.collect().entrySet()) {
+      String path = projectsRoot.toPath().relativize(module.getKey().toPath()).toString();
+      System.out.println((path.isEmpty() ? "." : path) + ": " + module.getValue());
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.jacoco;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+
+/**
+ * Covered ratios of a module for the counters checked by the JaCoCo configuration generated by
+ * updatePomFiles.groovy, keyed by the names used in that script ("instructions", "branches",
+ * "complexity" and "lines").
+ *
+ * <p>Ratios are rounded down to two decimals, the same way Jacoco compares them against a minimum
+ * of that scale. Counters without any item (e.g. no branches in the module) are left out since
+ * Jacoco never reports them as violated.
+ */
+public final class CoverageRatios {
+  private static final Map<CounterEntity, String> KEYS = new LinkedHashMap<>();
+
+  static {
+    KEYS.put(CounterEntity.INSTRUCTION, "instructions");
+    KEYS.put(CounterEntity.BRANCH, "branches");
+    KEYS.put(CounterEntity.COMPLEXITY, "complexity");
+    KEYS.put(CounterEntity.LINE, "lines");
+  }
+
+  private final Map<String, BigDecimal> ratios;
+
+  private CoverageRatios(Map<String, BigDecimal> ratios) {
+    this.ratios = Collections.unmodifiableMap(ratios);
+  }
+
+  /**
+   * Computes the ratios of an analyzed bundle.
+   *
+   * @param node the analyzed coverage node
+   * @return the ratios of the node
+   */
+  public static CoverageRatios of(ICoverageNode node) {
+    Map<String, BigDecimal> ratios = new LinkedHashMap<>();
+
+    for (Map.Entry<CounterEntity, String> key : KEYS.entrySet()) {
+      ICounter counter = node.getCounter(key.getKey());
+
+      if (counter.getTotalCount() > 0) {
+        ratios.put(key.getValue(), ratio(counter.getMissedCount(), counter.getCoveredCount()));
+      }
+    }
+    return new CoverageRatios(ratios);
+  }
+
+  /**
+   * Creates ratios from the missed and covered counts of each counter type.
+   *
+   * @param counts missed and covered counts keyed by Jacoco counter type (e.g. "INSTRUCTION");
+   *     unknown counter types are ignored
+   * @return the ratios of the counters
+   */
+  public static CoverageRatios ofCounts(Map<String, long[]> counts) {
+    Map<String, BigDecimal> ratios = new LinkedHashMap<>();
+
+    for (Map.Entry<CounterEntity, String> key : KEYS.entrySet()) {
+      long[] count = counts.get(key.getKey().name());
+
+      if (count != null && count[0] + count[1] > 0) {
+        ratios.put(key.getValue(), ratio(count[0], count[1]));
+      }
+    }
+    return new CoverageRatios(ratios);
+  }
+
+  /**
+   * @param ratios covered ratios keyed by counter name
+   * @return the given ratios
+   */
+  public static CoverageRatios of(Map<String, BigDecimal> ratios) {
+    return new CoverageRatios(new LinkedHashMap<>(ratios));
+  }
+
+  /**
+   * Parses ratios formatted by {@link #toString()}, e.g. "instructions=0.83 lines=0.79".
+   *
+   * @param ratios the formatted ratios
+   * @return the parsed ratios
+   * @throws IllegalArgumentException if the ratios are not properly formatted
+   */
+  public static CoverageRatios parse(String ratios) {
+    Map<String, BigDecimal> parsed = new LinkedHashMap<>();
+
+    if (ratios.trim().isEmpty()) {
+      return new CoverageRatios(parsed);
+    }
+    for (String ratio : ratios.trim().split("\\s+")) {
+      int separator = ratio.indexOf('=');
+
+      if (separator <= 0) {
+        throw new IllegalArgumentException("Invalid coverage ratio: " + ratio);
+      }
+      parsed.put(ratio.substring(0, separator), new BigDecimal(ratio.substring(separator + 1)));
+    }
+    return new CoverageRatios(parsed);
+  }
+
+  private static BigDecimal ratio(long missed, long covered) {
+    return BigDecimal.valueOf(covered)
+        .divide(BigDecimal.valueOf(missed + covered), 2, RoundingMode.FLOOR);
+  }
+
+  /** @return the counter names keyed by Jacoco counter, in a stable order */
+  static Map<CounterEntity, String> getCounterKeys() {
+    return Collections.unmodifiableMap(KEYS);
+  }
+
+  /**
+   * @param key counter name, e.g. "branches"
+   * @return the covered ratio of the counter or null if the module has no such item
+   */
+  public BigDecimal get(String key) {
+    return ratios.get(key);
+  }
+
+  /** @return the covered ratios keyed by counter name, in a stable order */
+  public Map<String, BigDecimal> asMap() {
+    return ratios;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+
+    for (Map.Entry<String, BigDecimal> ratio : ratios.entrySet()) {
+      if (sb.length() > 0) {
+        sb.append(' ');
+      }
+      sb.append(ratio.getKey()).append('=').append(ratio.getValue().toPlainString());
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,623 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.jacoco;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+
+/**
+ * Inserts or updates the jacoco-maven-plugin configuration of pom files without loading them into
+ * a DOM. Each file is scanned once as a stream of tags to locate the /project/build/plugins
+ * element and any jacoco-maven-plugin in it, and only that region of the text is rewritten: every
+ * other byte of the file, including comments, whitespace and line separators, is kept as is. An
+ * existing plugin only gets the minimums of the limits of its bundle rule replaced, or a check
+ * execution added when it has none. The inserted blocks follow the indentation used by the file.
+ */
+public class JacocoPomEditor {
+  private static final String JACOCO_ARTIFACT_ID = "jacoco-maven-plugin";
+  private static final String PLUGINS_PATH = "project/build/plugins";
+  private static final String PLUGIN_PATH = PLUGINS_PATH + "/plugin";
+  private static final String ARTIFACT_ID_PATH = PLUGIN_PATH + "/artifactId";
+  private static final String CHECK_EXECUTION_ID = "default-check";
+  private static final Pattern ENCODING =
+      Pattern.compile("^\\s*<\\?xml[^>]*encoding\\s*=\\s*[\"']([^\"']+)[\"']");
+
+  /** Outcome of the edition of a pom file. */
+  public enum Result {
+    INSERTED,
+    UPDATED,
+    ALREADY_CONFIGURED,
+    NO_PLUGINS,
+    FAILED
+  }
+
+  private final boolean updateExisting;
+
+  /**
+   * @param updateExisting whether to update the limits of the existing jacoco-maven-plugin
+   *     configurations or to leave the files having one untouched
+   */
+  public JacocoPomEditor(boolean updateExisting) {
+    this.updateExisting = updateExisting;
+  }
+
+  /**
+   * Edits the given pom files in parallel.
+   *
+   * @param minimumsByPom the minimum covered ratio of each counter (e.g. "branches" to "0.75") to
+   *     configure in each pom file
+   * @param threads number of files to edit concurrently, or 0 for the number of processors
+   * @return the outcome for each pom file, in the given order; files that cannot be read or written
+   *     are reported as failed and skipped
+   * @throws InterruptedException if interrupted while waiting for the files to be edited
+   */
+  public Map<File, Result> updateAll(Map<File, Map<String, String>> minimumsByPom, int threads)
+      throws InterruptedException {
+    Map<File, Future<Result>> futures = new LinkedHashMap<>();
+    Map<File, Result> results = new LinkedHashMap<>();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+
+    try {
+      for (Map.Entry<File, Map<String, String>> pom : minimumsByPom.entrySet()) {
+        futures.put(pom.getKey(), executor.submit(() -> update(pom.getKey(), pom.getValue())));
+      }
+      for (Map.Entry<File, Future<Result>> future : futures.entrySet()) {
+        try {
+          results.put(future.getKey(), future.getValue().get());
+        } catch (ExecutionException e) {
+          System.err.println(future.getKey() + " failed. Skipping.");
+          e.getCause().printStackTrace();
+          results.put(future.getKey(), Result.FAILED);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return results;
+  }
+
+  /**
+   * Edits a single pom file, only writing it back when changed.
+   *
+   * @param pom the pom file
+   * @param minimums the minimum covered ratio of each counter
+   * @return the outcome
+   * @throws IOException if the file cannot be read or written
+   */
+  public Result update(File pom, Map<String, String> minimums) throws IOException {
+    byte[] bytes = Files.readAllBytes(pom.toPath());
+    Charset charset = getCharset(bytes);
+    StringBuilder content = new StringBuilder(new String(bytes, charset));
+    Result result = edit(content, minimums);
+
+    if (result == Result.INSERTED || result == Result.UPDATED) {
+      Path temp =
+          Files.createTempFile(pom.getAbsoluteFile().getParentFile().toPath(), "pom", ".tmp");
+
+      try {
+        Files.write(temp, content.toString().getBytes(charset));
+        // the temporary file is only readable by its owner
+        if (Files.getFileStore(temp).supportsFileAttributeView(PosixFileAttributeView.class)) {
+          Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(pom.toPath()));
+        }
+        Files.move(temp, pom.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Edits pom content in place.
+   *
+   * @param content the content of the pom file
+   * @param minimums the minimum covered ratio of each counter
+   * @return the outcome
+   */
+  Result edit(StringBuilder content, Map<String, String> minimums) {
+    PluginsScanner plugins = new PluginsScanner(content);
+
+    scan(content, 0, content.length(), plugins);
+    if (plugins.start < 0 || plugins.endTag < 0) {
+      return Result.NO_PLUGINS;
+    }
+
+    String newline = content.indexOf("\r\n") >= 0 ? "\r\n" : "\n";
+    String unit = getIndentUnit(content, plugins.start, getIndent(content, plugins.start));
+
+    if (plugins.jacocoStart >= 0) {
+      if (!updateExisting) {
+        return Result.ALREADY_CONFIGURED;
+      }
+
+      String original = content.toString();
+
+      updateJacoco(content, plugins.jacocoStart, plugins.jacocoEnd, minimums, unit, newline);
+      return original.contentEquals(content) ? Result.ALREADY_CONFIGURED : Result.UPDATED;
+    }
+    insert(content, plugins.endTag, pluginLines(minimums), unit, newline);
+    return Result.INSERTED;
+  }
+
+  /**
+   * Updates the limits of the first bundle rule of an existing jacoco-maven-plugin in place,
+   * keeping the rest of its configuration, or adds a check execution to it when it has no such
+   * rule.
+   */
+  private static void updateJacoco(
+      StringBuilder content,
+      int start,
+      int end,
+      Map<String, String> minimums,
+      String unit,
+      String newline) {
+    JacocoScanner jacoco = new JacocoScanner(content);
+
+    scan(content, start, end, jacoco);
+
+    Rule rule =
+        jacoco
+            .rules
+            .stream()
+            .filter(r -> r.limitsEndTag >= 0 && (r.element == null || "BUNDLE".equals(r.element)))
+            .findFirst()
+            .orElse(null);
+
+    if (rule == null) {
+      String id = jacoco.executionIds.contains(CHECK_EXECUTION_ID) ? "coverage-check" : null;
+
+      if (jacoco.executionsEndTag >= 0) {
+        insert(content, jacoco.executionsEndTag, executionLines(minimums, id), unit, newline);
+      } else {
+        List<String> lines = new ArrayList<>();
+
+        lines.add("<executions>");
+        executionLines(minimums, id).forEach(line -> lines.add("\t" + line));
+        lines.add("</executions>");
+        insert(content, jacoco.pluginEndTag, lines, unit, newline);
+      }
+      return;
+    }
+
+    // edited from the end of the plugin so the offsets found before stay valid
+    NavigableMap<Integer, Runnable> edits = new TreeMap<>();
+    List<String> missing = new ArrayList<>();
+
+    for (Map.Entry<CounterEntity, String> counter : CoverageRatios.getCounterKeys().entrySet()) {
+      String minimum = minimums.get(counter.getValue());
+      Limit limit =
+          rule.limits
+              .stream()
+              .filter(
+                  l ->
+                      counter.getKey().name().equals(l.counter)
+                          && (l.value == null || "COVEREDRATIO".equals(l.value)))
+              .findFirst()
+              .orElse(null);
+
+      if (minimum == null) {
+        continue;
+      }
+      if (limit == null) {
+        missing.addAll(limitLines(counter.getKey(), minimum));
+      } else if (limit.minimumStart < 0) {
+        edits.put(
+            limit.endTag,
+            () ->
+                insert(
+                    content,
+                    limit.endTag,
+                    Collections.singletonList("<minimum>" + minimum + "</minimum>"),
+                    unit,
+                    newline));
+      } else {
+        edits.put(
+            limit.minimumStart,
+            () -> content.replace(limit.minimumStart, limit.minimumEnd, minimum));
+      }
+    }
+    if (!missing.isEmpty()) {
+      edits.put(
+          rule.limitsEndTag, () -> insert(content, rule.limitsEndTag, missing, unit, newline));
+    }
+    edits.descendingMap().values().forEach(Runnable::run);
+  }
+
+  /**
+   * Inserts lines right before an end tag, one indentation unit deeper than the tag.
+   *
+   * @param content the content to edit
+   * @param endTag the offset of the end tag
+   * @param lines the lines to insert, indented with tabs relative to each other
+   * @param unit the indentation unit of the file
+   * @param newline the line separator of the file
+   */
+  private static void insert(
+      StringBuilder content, int endTag, List<String> lines, String unit, String newline) {
+    String endIndent = getIndent(content, endTag);
+    String block = format(lines, (endIndent == null ? "" : endIndent) + unit, unit, newline);
+
+    if (endIndent != null) {
+      // the end tag starts its line: insert the block lines right before that line
+      content.insert(endTag - endIndent.length(), block + newline);
+    } else {
+      content.insert(endTag, newline + block + newline);
+    }
+  }
+
+  private static List<String> pluginLines(Map<String, String> minimums) {
+    List<String> lines = new ArrayList<>();
+
+    lines.add("<plugin>");
+    lines.add("\t<groupId>org.jacoco</groupId>");
+    lines.add("\t<artifactId>" + JACOCO_ARTIFACT_ID + "</artifactId>");
+    lines.add("\t<executions>");
+    executionLines(minimums, null).forEach(line -> lines.add("\t\t" + line));
+    lines.add("\t</executions>");
+    lines.add("</plugin>");
+    return lines;
+  }
+
+  /** @param id the id of the execution or null for the default id of the check goal */
+  private static List<String> executionLines(Map<String, String> minimums, String id) {
+    List<String> lines = new ArrayList<>();
+
+    lines.add("<execution>");
+    lines.add("\t<id>" + (id == null ? CHECK_EXECUTION_ID : id) + "</id>");
+    lines.add("\t<goals>");
+    lines.add("\t\t<goal>check</goal>");
+    lines.add("\t</goals>");
+    lines.add("\t<configuration>");
+    lines.add("\t\t<haltOnFailure>true</haltOnFailure>");
+    lines.add("\t\t<rules>");
+    lines.add("\t\t\t<rule>");
+    lines.add("\t\t\t\t<element>BUNDLE</element>");
+    lines.add("\t\t\t\t<limits>");
+    for (Map.Entry<CounterEntity, String> counter : CoverageRatios.getCounterKeys().entrySet()) {
+      String minimum = minimums.get(counter.getValue());
+
+      if (minimum != null) {
+        limitLines(counter.getKey(), minimum).forEach(line -> lines.add("\t\t\t\t\t" + line));
+      }
+    }
+    lines.add("\t\t\t\t</limits>");
+    lines.add("\t\t\t</rule>");
+    lines.add("\t\t</rules>");
+    lines.add("\t</configuration>");
+    lines.add("</execution>");
+    return lines;
+  }
+
+  private static List<String> limitLines(CounterEntity counter, String minimum) {
+    return Arrays.asList(
+        "<limit>",
+        "\t<counter>" + counter.name() + "</counter>",
+        "\t<value>COVEREDRATIO</value>",
+        "\t<minimum>" + minimum + "</minimum>",
+        "</limit>");
+  }
+
+  /**
+   * Joins lines indented with leading tabs, replacing each tab by the indentation unit.
+   *
+   * @return the lines, all prefixed with the given indentation, without a trailing separator
+   */
+  private static String format(List<String> lines, String indent, String unit, String newline) {
+    StringBuilder block = new StringBuilder();
+
+    for (String line : lines) {
+      if (block.length() > 0) {
+        block.append(newline);
+      }
+      block.append(indent);
+      int level = 0;
+
+      while (line.charAt(level) == '\t') {
+        block.append(unit);
+        level++;
+      }
+      block.append(line, level, line.length());
+    }
+    return block.toString();
+  }
+
+  /** @return the whitespace preceding the given offset on its line, or null if not line leading */
+  private static String getIndent(CharSequence content, int offset) {
+    int start = offset;
+
+    while (start > 0 && content.charAt(start - 1) != '\n') {
+      if (!Character.isWhitespace(content.charAt(start - 1))) {
+        return null;
+      }
+      start--;
+    }
+    return content.subSequence(start, offset).toString();
+  }
+
+  /**
+   * Guesses the indentation unit of the file from the difference between the indentation of the
+   * plugins element and the one of its build parent.
+   */
+  private static String getIndentUnit(StringBuilder content, int pluginsStart, String indent) {
+    int buildStart = content.lastIndexOf("<build", pluginsStart);
+    String buildIndent = buildStart < 0 ? null : getIndent(content, buildStart);
+
+    if (indent != null
+        && buildIndent != null
+        && indent.length() > buildIndent.length()
+        && indent.startsWith(buildIndent)) {
+      return indent.substring(buildIndent.length());
+    }
+    return "    ";
+  }
+
+  private static Charset getCharset(byte[] bytes) {
+    Matcher matcher =
+        ENCODING.matcher(
+            new String(bytes, 0, Math.min(bytes.length, 200), StandardCharsets.ISO_8859_1));
+
+    if (matcher.find() && Charset.isSupported(matcher.group(1))) {
+      return Charset.forName(matcher.group(1));
+    }
+    return StandardCharsets.UTF_8;
+  }
+
+  /**
+   * Scans a region of the content as a stream of tags, skipping comments, CDATA sections,
+   * processing instructions and declarations.
+   *
+   * @param content the content to scan
+   * @param from the offset of the first tag of the region
+   * @param to the offset after the region
+   * @param visitor receives the elements of the region, with their path from the region root
+   */
+  private static void scan(StringBuilder content, int from, int to, ElementVisitor visitor) {
+    Deque<String> path = new ArrayDeque<>();
+    int i = from;
+
+    while ((i = content.indexOf("<", i)) >= 0 && i < to) {
+      if (startsWith(content, i, "<!--")) {
+        i = skipPast(content, i, "-->");
+      } else if (startsWith(content, i, "<![CDATA[")) {
+        i = skipPast(content, i, "]]>");
+      } else if (startsWith(content, i, "<?")) {
+        i = skipPast(content, i, "?>");
+      } else if (startsWith(content, i, "<!")) {
+        i = skipPast(content, i, ">");
+      } else if (startsWith(content, i, "</")) {
+        int end = skipPast(content, i, ">");
+
+        if (!path.isEmpty()) {
+          visitor.end(String.join("/", path), i, end);
+          path.removeLast();
+        }
+        i = end;
+      } else {
+        int end = skipTag(content, i);
+        int nameEnd = i + 1;
+
+        while (nameEnd < end
+            && !Character.isWhitespace(content.charAt(nameEnd))
+            && content.charAt(nameEnd) != '/'
+            && content.charAt(nameEnd) != '>') {
+          nameEnd++;
+        }
+        path.addLast(content.substring(i + 1, nameEnd));
+
+        String current = String.join("/", path);
+
+        visitor.start(current, i, end);
+        if (content.charAt(end - 2) == '/') {
+          visitor.end(current, end, end);
+          path.removeLast();
+        }
+        i = end;
+      }
+    }
+  }
+
+  /** Receives the elements found by {@link #scan}. */
+  private interface ElementVisitor {
+    /**
+     * @param path the names of the element and its ancestors, separated by slashes
+     * @param start the offset of the start tag
+     * @param end the offset after the start tag
+     */
+    void start(String path, int start, int end);
+
+    /**
+     * @param path the names of the element and its ancestors, separated by slashes
+     * @param start the offset of the end tag, or the offset after the start tag of an empty element
+     * @param end the offset after the end tag
+     */
+    void end(String path, int start, int end);
+  }
+
+  /** Locates the /project/build/plugins element and the jacoco-maven-plugin in it. */
+  private static class PluginsScanner implements ElementVisitor {
+    private final StringBuilder content;
+    private int start = -1;
+    private int endTag = -1;
+    private int pluginStart = -1;
+    private int artifactIdText = -1;
+    private String artifactId;
+    private int jacocoStart = -1;
+    private int jacocoEnd = -1;
+
+    PluginsScanner(StringBuilder content) {
+      this.content = content;
+    }
+
+    @Override
+    public void start(String path, int tagStart, int tagEnd) {
+      if (path.equals(PLUGINS_PATH)) {
+        start = tagStart;
+      } else if (path.equals(PLUGIN_PATH)) {
+        pluginStart = tagStart;
+        artifactId = null;
+      } else if (path.equals(ARTIFACT_ID_PATH)) {
+        artifactIdText = tagEnd;
+      }
+    }
+
+    @Override
+    public void end(String path, int tagStart, int tagEnd) {
+      if (path.equals(ARTIFACT_ID_PATH)) {
+        artifactId = content.substring(artifactIdText, tagStart).trim();
+      } else if (path.equals(PLUGIN_PATH)
+          && JACOCO_ARTIFACT_ID.equals(artifactId)
+          && jacocoStart < 0) {
+        jacocoStart = pluginStart;
+        jacocoEnd = tagEnd;
+      } else if (path.equals(PLUGINS_PATH)) {
+        endTag = tagStart;
+      }
+    }
+  }
+
+  /** Locates the rules, limits and executions of a jacoco-maven-plugin element. */
+  private static class JacocoScanner implements ElementVisitor {
+    private final StringBuilder content;
+    private final List<Rule> rules = new ArrayList<>();
+    private final List<String> executionIds = new ArrayList<>();
+    private int executionsEndTag = -1;
+    private int pluginEndTag = -1;
+    private int text = -1;
+    private Rule rule;
+    private Limit limit;
+
+    JacocoScanner(StringBuilder content) {
+      this.content = content;
+    }
+
+    @Override
+    public void start(String path, int tagStart, int tagEnd) {
+      text = tagEnd;
+      if (isRule(path)) {
+        rule = new Rule();
+        rules.add(rule);
+      } else if (rule != null && path.endsWith("/rule/limits/limit")) {
+        limit = new Limit();
+        rule.limits.add(limit);
+      }
+    }
+
+    @Override
+    public void end(String path, int tagStart, int tagEnd) {
+      String value = content.substring(Math.min(text, tagStart), tagStart).trim();
+
+      if (path.equals("plugin")) {
+        pluginEndTag = tagStart;
+      } else if (path.equals("plugin/executions")) {
+        executionsEndTag = tagStart;
+      } else if (path.equals("plugin/executions/execution/id")) {
+        executionIds.add(value);
+      } else if (isRule(path)) {
+        rule = null;
+      } else if (rule != null && path.endsWith("/rule/element")) {
+        rule.element = value;
+      } else if (rule != null && path.endsWith("/rule/limits")) {
+        rule.limitsEndTag = tagStart;
+      } else if (limit != null && path.endsWith("/limit/counter")) {
+        limit.counter = value;
+      } else if (limit != null && path.endsWith("/limit/value")) {
+        limit.value = value;
+      } else if (limit != null && path.endsWith("/limit/minimum")) {
+        limit.minimumStart = text;
+        limit.minimumEnd = tagStart;
+      } else if (limit != null && path.endsWith("/rule/limits/limit")) {
+        limit.endTag = tagStart;
+        limit = null;
+      }
+    }
+
+    private static boolean isRule(String path) {
+      return path.equals("plugin/configuration/rules/rule")
+          || path.equals("plugin/executions/execution/configuration/rules/rule");
+    }
+  }
+
+  /** A rule of the jacoco-maven-plugin configuration. */
+  private static class Rule {
+    private final List<Limit> limits = new ArrayList<>();
+    private String element;
+    private int limitsEndTag = -1;
+  }
+
+  /** A limit of a rule, with the offsets of the text of its minimum if it has one. */
+  private static class Limit {
+    private String counter;
+    private String value;
+    private int minimumStart = -1;
+    private int minimumEnd = -1;
+    private int endTag = -1;
+  }
+
+  private static boolean startsWith(StringBuilder content, int offset, String prefix) {
+    return content.length() >= offset + prefix.length()
+        && content.substring(offset, offset + prefix.length()).equals(prefix);
+  }
+
+  private static int skipPast(StringBuilder content, int offset, String terminator) {
+    int end = content.indexOf(terminator, offset);
+
+    return end < 0 ? content.length() : end + terminator.length();
+  }
+
+  /** @return the offset after the '>' ending the start tag, ignoring those in attribute values */
+  private static int skipTag(StringBuilder content, int offset) {
+    char quote = 0;
+
+    for (int i = offset + 1; i < content.length(); i++) {
+      char c = content.charAt(i);
+
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '"' || c == '\'') {
+        quote = c;
+      } else if (c == '>') {
+        return i + 1;
+      }
+    }
+    return content.length();
+  }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.jacoco;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads the bundle level counters of a Jacoco XML report (jacoco.xml) with a streaming parser.
+ * Package, class and method elements are skipped as they are read, so the time and memory needed
+ * do not depend on anything but the size of the file. The report DTD is never loaded.
+ */
+public final class JacocoXmlReportReader {
+  private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+  static {
+    FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+  }
+
+  private JacocoXmlReportReader() {}
+
+  /**
+   * @param report the jacoco.xml file to read
+   * @return the ratios of the report's bundle
+   * @throws IOException if the report cannot be read or is not valid XML
+   */
+  public static CoverageRatios read(File report) throws IOException {
+    try (InputStream is = new BufferedInputStream(new FileInputStream(report))) {
+      return read(is);
+    } catch (XMLStreamException e) {
+      throw new IOException("Could not parse " + report, e);
+    }
+  }
+
+  /**
+   * @param is the content of a Jacoco XML report
+   * @return the ratios of the report's bundle
+   * @throws XMLStreamException if the content is not valid XML
+   */
+  public static CoverageRatios read(InputStream is) throws XMLStreamException {
+    Map<String, long[]> counts = new HashMap<>();
+    XMLStreamReader reader = FACTORY.createXMLStreamReader(is);
+    int depth = 0;
+
+    try {
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            depth++;
+            // only the <counter> children of <report> are the bundle totals
+            if (depth == 2 && "counter".equals(reader.getLocalName())) {
+              counts.put(
+                  reader.getAttributeValue(null, "type"),
+                  new long[] {
+                    Long.parseLong(reader.getAttributeValue(null, "missed")),
+                    Long.parseLong(reader.getAttributeValue(null, "covered"))
+                  });
+            }
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            depth--;
+            break;
+          default:
+            break;
+        }
+      }
+    } catch (NumberFormatException e) {
+      throw new XMLStreamException("Invalid counter value", reader.getLocation(), e);
+    } finally {
+      reader.close();
+    }
+    return CoverageRatios.ofCounts(counts);
+  }
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.jacoco;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.transport.RefSpec;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.LoggerRuntime;
+import org.jacoco.core.runtime.RuntimeData;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChangedLinesCoverageMojoTest {
+  private static final String SOURCE = "src/main/java/org/codice/Foo.java";
+
+  /** Foo.java with a second top level class; the lines holding a return statement get changed. */
+  private static final String CONTENT =
+      "package org.codice;\n"
+          + "\n"
+          + "public class Foo {\n"
+          + "  public static int covered() {\n"
+          + "    return Helper.value() + %d;\n"
+          + "  }\n"
+          + "\n"
+          + "  public static int uncovered() {\n"
+          + "    return %d;\n"
+          + "  }\n"
+          + "}\n"
+          + "\n"
+          + "class Helper {\n"
+          + "  static int value() {\n"
+          + "    return %d;\n"
+          + "  }\n"
+          + "\n"
+          + "  static int unused() {\n"
+          + "    return %d;\n"
+          + "  }\n"
+          + "}\n";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testChangedLinesOfEveryTopLevelClass() throws Exception {
+    File basedir = folder.getRoot();
+    File sourceRoot = new File(basedir, "src/main/java");
+    File classes = new File(basedir, "target/classes");
+    File dataFile = new File(basedir, "target/jacoco.exec");
+    Git git = Git.init().setDirectory(basedir).call();
+
+    write(new File(basedir, SOURCE), String.format(CONTENT, 1, 2, 3, 4));
+    write(new File(basedir, "src/main/java/org/codice/Bar.java"), "package org.codice;\n");
+    git.add().addFilepattern("src").call();
+    git.commit().setMessage("Base").call();
+    git.branchCreate().setName("base").call();
+    write(new File(basedir, SOURCE), String.format(CONTENT, 10, 20, 30, 40));
+    git.add().addFilepattern("src").call();
+    git.commit().setMessage("Change").call();
+
+    Map<String, SortedSet<Integer>> changedLines =
+        ChangedLinesCoverageMojo.getChangedLines(
+            basedir, "base", Collections.singletonList(sourceRoot.getPath()), new SystemStreamLog());
+
+    assertEquals(Collections.singleton("org/codice/Foo.java"), changedLines.keySet());
+    assertEquals(
+        new TreeSet<>(Arrays.asList(5, 9, 15, 19)), changedLines.get("org/codice/Foo.java"));
+
+    compile(new File(basedir, SOURCE), classes);
+    runCovered(classes, dataFile);
+    List<String> uncovered = new ArrayList<>();
+
+    assertEquals(
+        4,
+        ChangedLinesCoverageMojo.countChangedLines(
+            changedLines,
+            ChangedLinesCoverageMojo.analyze(classes, dataFile, changedLines.keySet()),
+            uncovered));
+    assertEquals(Arrays.asList("org/codice/Foo.java:9", "org/codice/Foo.java:19"), uncovered);
+  }
+
+  @Test
+  public void testChangedLinesWithoutMergeBase() throws Exception {
+    File basedir = folder.getRoot();
+    File sourceRoot = new File(basedir, "src/main/java");
+    File otherDir = folder.newFolder("other");
+    Git other = Git.init().setDirectory(otherDir).call();
+    Git git = Git.init().setDirectory(basedir).call();
+    List<String> warnings = new ArrayList<>();
+
+    write(new File(otherDir, "src/main/java/org/codice/Bar.java"), "package org.codice;\n");
+    other.add().addFilepattern("src").call();
+    other.commit().setMessage("Base").call();
+    write(new File(basedir, SOURCE), String.format(CONTENT, 1, 2, 3, 4));
+    git.add().addFilepattern("src").call();
+    git.commit().setMessage("Change").call();
+    // unrelated histories, as when the merge base is not fetched in a shallow clone
+    git.fetch()
+        .setRemote(otherDir.toURI().toString())
+        .setRefSpecs(new RefSpec("refs/heads/master:refs/heads/base"))
+        .call();
+
+    Map<String, SortedSet<Integer>> changedLines =
+        ChangedLinesCoverageMojo.getChangedLines(
+            basedir,
+            "base",
+            Collections.singletonList(sourceRoot.getPath()),
+            new SystemStreamLog() {
+              @Override
+              public void warn(CharSequence content) {
+                warnings.add(content.toString());
+              }
+            });
+
+    assertEquals(Collections.singleton("org/codice/Foo.java"), changedLines.keySet());
+    assertEquals(
+        CONTENT.split("\n", -1).length - 1, changedLines.get("org/codice/Foo.java").size());
+    assertEquals(1, warnings.size());
+  }
+
+  private static void write(File file, String content) throws Exception {
+    file.getParentFile().mkdirs();
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void compile(File source, File classes) {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+
+    assertNotNull("A JDK is needed to compile the fixture", compiler);
+    classes.mkdirs();
+    assertEquals(
+        0,
+        compiler.run(
+            null,
+            null,
+            null,
+            "-g",
+            "-source",
+            "1.8",
+            "-target",
+            "1.8",
+            "-d",
+            classes.getPath(),
+            source.getPath()));
+  }
+
+  /** Runs Foo.covered() on instrumented classes and writes the execution data collected. */
+  private static void runCovered(File classes, File dataFile) throws Exception {
+    LoggerRuntime runtime = new LoggerRuntime();
+    RuntimeData data = new RuntimeData();
+    Instrumenter instrumenter = new Instrumenter(runtime);
+    Map<String, byte[]> instrumented = new HashMap<>();
+
+    for (String name : new String[] {"org.codice.Foo", "org.codice.Helper"}) {
+      File classFile = new File(classes, name.replace('.', '/') + ".class");
+
+      instrumented.put(
+          name, instrumenter.instrument(Files.readAllBytes(classFile.toPath()), name));
+    }
+    runtime.startup(data);
+    try {
+      ClassLoader loader =
+          new ClassLoader(ChangedLinesCoverageMojoTest.class.getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve)
+                throws ClassNotFoundException {
+              byte[] bytes = instrumented.remove(name);
+
+              if (bytes == null) {
+                return super.loadClass(name, resolve);
+              }
+              return defineClass(name, bytes, 0, bytes.length);
+            }
+          };
+
+      loader.loadClass("org.codice.Foo").getMethod("covered").invoke(null);
+
+      ExecutionDataStore store = new ExecutionDataStore();
+
+      data.collect(store, new SessionInfoStore(), false);
+      try (OutputStream os = new FileOutputStream(dataFile)) {
+        store.accept(new ExecutionDataWriter(os));
+      }
+    } finally {
+      runtime.shutdown();
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.jacoco;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CoverageBaselineTest {
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testUpdateCreatesSortedFile() throws Exception {
+    File file = new File(folder.getRoot(), "nested/coverage-baseline.txt");
+
+    assertNull(
+        CoverageBaseline.update(file, "g:b", r -> CoverageRatios.parse("instructions=0.50")));
+    assertNull(
+        CoverageBaseline.update(
+            file, "g:a", r -> CoverageRatios.parse("instructions=0.75 lines=0.60")));
+
+    List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+
+    assertEquals(3, lines.size());
+    assertEquals("g:a instructions=0.75 lines=0.60", lines.get(1));
+    assertEquals("g:b instructions=0.50", lines.get(2));
+  }
+
+  @Test
+  public void testUpdateReturnsPreviousBaseline() throws Exception {
+    File file = folder.newFile("coverage-baseline.txt");
+
+    Files.write(
+        file.toPath(),
+        "# comment\n\ng:a instructions=0.75\ng:b\n".getBytes(StandardCharsets.UTF_8));
+    assertEquals(
+        "instructions=0.75",
+        CoverageBaseline.update(file, "g:a", r -> CoverageRatios.parse("instructions=0.80"))
+            .toString());
+    assertEquals(
+        "instructions=0.80",
+        CoverageBaseline.update(file, "g:a", r -> null).toString());
+    assertEquals("", CoverageBaseline.update(file, "g:b", r -> null).toString());
+  }
+
+  @Test
+  public void testUpdateLeavesFileUntouchedWhenUnchanged() throws Exception {
+    File file = folder.newFile("coverage-baseline.txt");
+    byte[] contents = "g:a instructions=0.75\n".getBytes(StandardCharsets.UTF_8);
+
+    Files.write(file.toPath(), contents);
+    CoverageBaseline.update(file, "g:a", r -> null);
+    assertEquals(
+        new String(contents, StandardCharsets.UTF_8),
+        new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testInvalidBaseline() throws Exception {
+    File file = folder.newFile("coverage-baseline.txt");
+
+    Files.write(
+        file.toPath(),
+        "# comment\ng:a instructions=0.75\ng:b instructions=high\n"
+            .getBytes(StandardCharsets.UTF_8));
+    try {
+      CoverageBaseline.update(file, "g:a", r -> null);
+      fail("Expected an IOException");
+    } catch (IOException e) {
+      assertEquals(
+          "Invalid coverage baseline at line 3: g:b instructions=high", e.getMessage());
+    }
+  }
+}
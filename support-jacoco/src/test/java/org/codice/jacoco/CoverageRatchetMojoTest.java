@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.jacoco;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class CoverageRatchetMojoTest {
+  private static final BigDecimal OFFSET = new BigDecimal("0.02");
+
+  private final List<String> violations = new ArrayList<>();
+
+  private CoverageRatios ratchet(String recorded, String current) {
+    return CoverageRatchetMojo.ratchet(
+        "g:a", CoverageRatios.parse(recorded), CoverageRatios.parse(current), OFFSET, violations);
+  }
+
+  @Test
+  public void testRaisesBaselineWhenCoverageRises() {
+    assertEquals(
+        "instructions=0.80 lines=0.60",
+        ratchet("instructions=0.75 lines=0.60", "instructions=0.80 lines=0.59").toString());
+    assertEquals(
+        "instructions=0.75 branches=0.40",
+        ratchet("instructions=0.75", "instructions=0.75 branches=0.40").toString());
+    assertTrue(violations.isEmpty());
+  }
+
+  @Test
+  public void testKeepsBaselineWithinOffset() {
+    assertNull(ratchet("instructions=0.75 lines=0.60", "instructions=0.75 lines=0.58"));
+    assertNull(ratchet("instructions=0.75", ""));
+    assertTrue(violations.isEmpty());
+  }
+
+  @Test
+  public void testReportsRatiosDroppingBelowOffset() {
+    assertNull(ratchet("instructions=0.75 lines=0.60", "instructions=0.90 lines=0.57"));
+    assertEquals(1, violations.size());
+    assertEquals(
+        "Rule violated for bundle g:a: lines covered ratio is 0.57, but expected minimum is 0.58",
+        violations.get(0));
+  }
+}
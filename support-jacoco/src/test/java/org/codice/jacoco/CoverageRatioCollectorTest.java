@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.jacoco;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CoverageRatioCollectorTest {
+  private static final String CLASS = "org/codice/jacoco/CoverageRatios.class";
+
+  private static final String REPORT =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+          + "<report name=\"module\">"
+          + "<package name=\"org/codice\">"
+          + "<counter type=\"INSTRUCTION\" missed=\"5\" covered=\"5\"/>"
+          + "</package>"
+          + "<counter type=\"INSTRUCTION\" missed=\"0\" covered=\"10\"/>"
+          + "</report>";
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testReadsExecDataNewerThanReport() throws Exception {
+    File module = folder.newFolder("module");
+    File report = writeReport(module);
+    File execFile = writeExecData(module);
+
+    report.setLastModified(execFile.lastModified() - 60000L);
+    assertEquals("0.00", CoverageRatioCollector.read(module).get("instructions").toPlainString());
+  }
+
+  @Test
+  public void testReadsReportAtLeastAsRecentAsExecData() throws Exception {
+    File module = folder.newFolder("module");
+    File execFile = writeExecData(module);
+    File report = writeReport(module);
+
+    report.setLastModified(execFile.lastModified());
+    assertEquals("instructions=1.00", CoverageRatioCollector.read(module).toString());
+  }
+
+  @Test
+  public void testReadsReportWithoutExecData() throws Exception {
+    File module = folder.newFolder("module");
+
+    assertNull(CoverageRatioCollector.read(module));
+    writeReport(module);
+    assertEquals("instructions=1.00", CoverageRatioCollector.read(module).toString());
+  }
+
+  @Test
+  public void testCollectSkipsExcludedDirectories() throws Exception {
+    File root = folder.getRoot();
+
+    for (String dir : new String[] {"", "a", "b", "a/node_modules/c", "a/src/d", ".e"}) {
+      File module = new File(root, dir);
+
+      module.mkdirs();
+      Files.write(new File(module, "pom.xml").toPath(), new byte[0]);
+      if (!dir.equals("b")) {
+        writeReport(module);
+      }
+    }
+    Map<File, CoverageRatios> ratios = new CoverageRatioCollector(root, 2).collect();
+
+    assertEquals(2, ratios.size());
+    assertEquals("instructions=1.00", ratios.get(root).toString());
+    assertEquals("instructions=1.00", ratios.get(new File(root, "a")).toString());
+  }
+
+  private static File writeReport(File module) throws Exception {
+    File report = new File(module, "target/site/jacoco/jacoco.xml");
+
+    report.getParentFile().mkdirs();
+    Files.write(report.toPath(), REPORT.getBytes(StandardCharsets.UTF_8));
+    return report;
+  }
+
+  /** Writes execution data without any probe hit for a copy of a compiled class. */
+  private static File writeExecData(File module) throws Exception {
+    File execFile = new File(module, "target/jacoco.exec");
+    File classFile = new File(module, "target/classes/" + CLASS);
+
+    classFile.getParentFile().mkdirs();
+    try (InputStream is =
+        CoverageRatioCollectorTest.class.getClassLoader().getResourceAsStream(CLASS)) {
+      Files.copy(is, classFile.toPath());
+    }
+    try (OutputStream os = new FileOutputStream(execFile)) {
+      new ExecutionDataWriter(os).flush();
+    }
+    return execFile;
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) Codice Foundation
+ *
+ * <p>This is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of
+ * the License, or any later version.
+ *
+ * <p>This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details. A copy of the GNU Lesser General Public
+ * License is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.jacoco;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.codice.jacoco.JacocoPomEditor.Result;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JacocoPomEditorTest {
+  private static final Map<String, String> MINIMUMS = new LinkedHashMap<>();
+
+  static {
+    MINIMUMS.put("instructions", "0.80");
+    MINIMUMS.put("branches", "0.70");
+    MINIMUMS.put("lines", "0.75");
+  }
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testInsertIntoPomWithoutJacoco() throws Exception {
+    assertEdit("no-jacoco", Result.INSERTED);
+  }
+
+  @Test
+  public void testUpdateLimitsOfExistingJacoco() throws Exception {
+    assertEdit("existing-jacoco", Result.UPDATED);
+  }
+
+  @Test
+  public void testIgnoreCommentsAndCdata() throws Exception {
+    assertEdit("comments-cdata", Result.UPDATED);
+  }
+
+  @Test
+  public void testKeepCrlfLineSeparators() throws Exception {
+    StringBuilder content = new StringBuilder(crlf(read("existing-jacoco.xml")));
+
+    assertEquals(Result.UPDATED, new JacocoPomEditor(true).edit(content, MINIMUMS));
+    assertEquals(crlf(read("existing-jacoco-expected.xml")), content.toString());
+  }
+
+  @Test
+  public void testLeaveExistingJacocoUnlessUpdating() throws Exception {
+    String pom = read("existing-jacoco.xml");
+    StringBuilder content = new StringBuilder(pom);
+
+    assertEquals(Result.ALREADY_CONFIGURED, new JacocoPomEditor(false).edit(content, MINIMUMS));
+    assertEquals(pom, content.toString());
+  }
+
+  @Test
+  public void testUpdateIsIdempotent() throws Exception {
+    StringBuilder content = new StringBuilder(read("existing-jacoco-expected.xml"));
+
+    assertEquals(Result.ALREADY_CONFIGURED, new JacocoPomEditor(true).edit(content, MINIMUMS));
+    assertEquals(read("existing-jacoco-expected.xml"), content.toString());
+  }
+
+  @Test
+  public void testUpdateKeepsFilePermissions() throws Exception {
+    File pom = folder.newFile("pom.xml");
+
+    assumeTrue(
+        Files.getFileStore(pom.toPath()).supportsFileAttributeView(PosixFileAttributeView.class));
+    Files.write(pom.toPath(), read("no-jacoco.xml").getBytes(StandardCharsets.UTF_8));
+    Files.setPosixFilePermissions(pom.toPath(), PosixFilePermissions.fromString("rw-rw-r--"));
+
+    assertEquals(Result.INSERTED, new JacocoPomEditor(false).update(pom, MINIMUMS));
+    assertEquals(
+        "rw-rw-r--", PosixFilePermissions.toString(Files.getPosixFilePermissions(pom.toPath())));
+    assertEquals(
+        read("no-jacoco-expected.xml"),
+        new String(Files.readAllBytes(pom.toPath()), StandardCharsets.UTF_8));
+  }
+
+  private static void assertEdit(String name, Result expected) throws Exception {
+    StringBuilder content = new StringBuilder(read(name + ".xml"));
+
+    assertEquals(expected, new JacocoPomEditor(true).edit(content, MINIMUMS));
+    assertEquals(read(name + "-expected.xml"), content.toString());
+  }
+
+  private static String read(String name) throws Exception {
+    return new String(
+        Files.readAllBytes(
+            Paths.get(JacocoPomEditorTest.class.getResource("/poms/" + name).toURI())),
+        StandardCharsets.UTF_8);
+  }
+
+  private static String crlf(String content) {
+    return content.replace("\n", "\r\n");
+  }
+}
@@ -0,0 +1,117 @@
+package org.codice.ddf.platform.feature.impl;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Collection;
+
+import org.apache.karaf.features.FeaturesService;
+import org.apache.karaf.shell.api.action.Action;
+import org.apache.karaf.shell.api.action.Argument;
+import org.apache.karaf.shell.api.action.Command;
+import org.apache.karaf.shell.api.action.Option;
+import org.apache.karaf.shell.api.action.lifecycle.Reference;
+import org.apache.karaf.shell.api.action.lifecycle.Service;
+
+@Service
+@Command(scope = "feature", name = "diff")
+public class FeatureDiffCommand implements Action {
+    @Argument(index = 0, name = "Old repository", description = "URI of the feature repository to compare from, or snapshot file when --snapshot is specified.", required = true)
+    private String oldRepository = null;
+
+    @Argument(index = 1, name = "New repository", description = "URI of the feature repository to compare to. Compares against the features of the same repositories, in whatever version is registered in the container, when omitted.", required = false)
+    private String newRepository = null;
+
+    @Option(name = "--include-repo", description = "Include only features coming from the repositories matching this regular expression among the ones referenced by the compared repositories.", aliases = {
+            "-i"})
+    private String repoFilter = ".*(ddf|alliance).*";
+
+    @Option(name = "--snapshot", description = "Compare from a feature graph snapshot created with feature:export-graph instead of a feature repository.", aliases = {
+            "-s"})
+    private boolean fromSnapshot = false;
+
+    @Option(name = "--threads", description = "Maximum number of repositories to read concurrently from the container.", aliases = {
+            "-t"})
+    private int threads = Runtime.getRuntime()
+            .availableProcessors();
+
+    @Reference
+    FeaturesService featuresService;
+
+    @Override
+    public Object execute() throws Exception {
+        // the repositories both versions share are only read once
+        final FeatureRepositoryReader reader = new FeatureRepositoryReader();
+        final FeatureGraph oldGraph;
+        final FeatureGraph newGraph;
+
+        if (fromSnapshot) {
+            oldGraph = FeatureGraphSnapshot.read(new File(oldRepository));
+        } else {
+            oldGraph = reader.read(new URI(oldRepository), repoFilter);
+        }
+
+        if (newRepository == null) {
+            // compare the same repositories rather than everything registered in the container
+            newGraph = new FeatureGraphResolver(featuresService, threads).resolveAll(
+                    oldGraph.getRepositoryKeys());
+        } else {
+            newGraph = reader.read(new URI(newRepository), repoFilter);
+        }
+        final FeatureGraphDiff diff = FeatureGraphDiff.compute(oldGraph, newGraph);
+
+        if (diff.isEmpty()) {
+            System.out.println(String.format("No differences found between %d features.",
+                    oldGraph.size()));
+            return null;
+        }
+        printFeatures("Added", '+', diff.getAdded());
+        printFeatures("Removed", '-', diff.getRemoved());
+        if (!diff.getChanged()
+                .isEmpty()) {
+            System.out.println(String.format("Changed features (%d):",
+                    diff.getChanged()
+                            .size()));
+            for (FeatureGraphDiff.Change change : diff.getChanged()) {
+                printChange(change);
+            }
+        }
+        return null;
+    }
+
+    private void printFeatures(String title, char prefix, Collection<FeatureNode> features) {
+        if (features.isEmpty()) {
+            return;
+        }
+        System.out.println(String.format("%s features (%d):", title, features.size()));
+        for (FeatureNode feature : features) {
+            System.out.println(String.format("  %c %s/%s",
+                    prefix,
+                    feature.getName(),
+                    feature.getVersion()));
+        }
+    }
+
+    private void printChange(FeatureGraphDiff.Change change) {
+        final FeatureNode oldNode = change.getOldNode();
+        final FeatureNode newNode = change.getNewNode();
+
+        if (change.isVersionChanged()) {
+            System.out.println(String.format("  ~ %s %s -> %s",
+                    newNode.getName(),
+                    oldNode.getVersion(),
+                    newNode.getVersion()));
+        } else {
+            System.out.println(String.format("  ~ %s/%s", newNode.getName(), newNode.getVersion()));
+        }
+        printEntries('+', "feature", change.getAddedDependencies());
+        printEntries('-', "feature", change.getRemovedDependencies());
+        printEntries('+', "bundle", change.getAddedBundles());
+        printEntries('-', "bundle", change.getRemovedBundles());
+    }
+
+    private void printEntries(char prefix, String type, Collection<String> entries) {
+        for (String entry : entries) {
+            System.out.println(String.format("      %c %s %s", prefix, type, entry));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.codice.ddf.platform.feature.impl;
+
+import java.io.File;
+
+import org.apache.karaf.features.FeaturesService;
+import org.apache.karaf.shell.api.action.Action;
+import org.apache.karaf.shell.api.action.Argument;
+import org.apache.karaf.shell.api.action.Command;
+import org.apache.karaf.shell.api.action.Option;
+import org.apache.karaf.shell.api.action.lifecycle.Reference;
+import org.apache.karaf.shell.api.action.lifecycle.Service;
+
+@Service
+@Command(scope = "feature", name = "export-graph")
+public class FeatureExportCommand implements Action {
+    @Argument(name = "File", description = "File where to write the feature graph snapshot.", required = true)
+    private String file = null;
+
+    @Option(name = "--include-repo", description = "Include only features coming from the repositories matching this regular expression.", aliases = {
+            "-i"})
+    private String repoFilter = ".*(ddf|alliance).*";
+
+    @Option(name = "--threads", description = "Maximum number of repositories to read concurrently.", aliases = {
+            "-t"})
+    private int threads = Runtime.getRuntime()
+            .availableProcessors();
+
+    @Reference
+    FeaturesService featuresService;
+
+    @Override
+    public Object execute() throws Exception {
+        final FeatureGraph graph = new FeatureGraphResolver(featuresService, threads).resolveAll(
+                repoFilter);
+
+        FeatureGraphSnapshot.write(graph, new File(file));
+        System.out.println(String.format("Exported %d features to %s.", graph.size(), file));
+        return null;
+    }
+}
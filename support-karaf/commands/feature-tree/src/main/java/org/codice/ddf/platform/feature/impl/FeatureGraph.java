@@ -0,0 +1,208 @@
+package org.codice.ddf.platform.feature.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Feature closure reachable from a root feature, keyed by feature id (name and version) so
+ * several versions of a feature can be part of the same graph. Features that could not be found
+ * or that were filtered out are simply absent from the graph.
+ * <p>
+ * A graph built from entire feature repositories rather than from a root feature has no root name.
+ */
+public class FeatureGraph {
+    /**
+     * Version of the features and dependencies that do not declare any.
+     */
+    static final String DEFAULT_VERSION = "0.0.0";
+
+    private final String rootName;
+
+    private final Map<String, FeatureNode> nodes;
+
+    private final Map<String, List<FeatureNode>> nodesByName = new HashMap<>();
+
+    /**
+     * @param rootName name of the root feature, optionally followed by '/' and its version
+     * @param nodes    the resolved features keyed by {@link FeatureNode#getId()}
+     */
+    public FeatureGraph(String rootName, Map<String, FeatureNode> nodes) {
+        this.rootName = rootName;
+        this.nodes = Collections.unmodifiableMap(nodes);
+        for (FeatureNode node : nodes.values()) {
+            nodesByName.computeIfAbsent(node.getName(), k -> new ArrayList<>())
+                    .add(node);
+        }
+    }
+
+    /**
+     * Gets the name of the root feature of this graph.
+     *
+     * @return the root feature name or <code>null</code> if the graph covers whole repositories
+     */
+    public String getRootName() {
+        return rootName;
+    }
+
+    /**
+     * Gets the resolved feature matching a feature reference, the way Karaf matches the
+     * dependencies of a feature: a reference without a version matches the highest version of the
+     * feature, a version matches only that version and a version range matches the highest
+     * version within the range.
+     *
+     * @param reference name of the feature, optionally followed by '/' and a version or version
+     *                  range, as found in {@link FeatureNode#getDependencies()}
+     * @return the feature or <code>null</code> if no matching feature was resolved
+     */
+    public FeatureNode get(String reference) {
+        final FeatureNode node = nodes.get(reference);
+
+        if (node != null) {
+            return node;
+        }
+        final int slash = reference.indexOf('/');
+        final String name = slash < 0 ? reference : reference.substring(0, slash);
+        final String version = slash < 0 ? null : reference.substring(slash + 1);
+        FeatureNode best = null;
+
+        for (FeatureNode candidate : nodesByName.getOrDefault(name, Collections.emptyList())) {
+            if ((version == null || matches(candidate.getVersion(), version)) && (best == null
+                    || compareVersions(candidate.getVersion(), best.getVersion()) > 0)) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Gets the feature repositories the features of this graph come from, independently of their
+     * version.
+     *
+     * @return the repository keys, see {@link #getRepositoryKey(String)}
+     */
+    public Set<String> getRepositoryKeys() {
+        final Set<String> keys = new HashSet<>();
+
+        for (FeatureNode node : nodes.values()) {
+            keys.add(getRepositoryKey(node.getRepositoryUrl()));
+        }
+        return keys;
+    }
+
+    public Collection<FeatureNode> getNodes() {
+        return nodes.values();
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Gets the key identifying a feature repository across versions, so the repositories of two
+     * versions of a distribution can be matched: the URL without its version for Maven URLs
+     * (e.g. "mvn:ddf.features/kernel/xml/features" for
+     * "mvn:ddf.features/kernel/2.3.15/xml/features") and the URL itself otherwise.
+     *
+     * @param repositoryUrl URL of a feature repository
+     * @return the repository key
+     */
+    static String getRepositoryKey(String repositoryUrl) {
+        if (!repositoryUrl.startsWith("mvn:")) {
+            return repositoryUrl;
+        }
+        // skip the optional repository prefix, e.g. mvn:http://repo@id!group/artifact/version
+        final int start = Math.max(repositoryUrl.indexOf('!') + 1, "mvn:".length());
+        final List<String> coordinates = new ArrayList<>(Arrays.asList(repositoryUrl.substring(
+                start)
+                .split("/")));
+
+        if (coordinates.size() > 2) {
+            coordinates.remove(2);
+        }
+        return "mvn:" + String.join("/", coordinates);
+    }
+
+    /**
+     * Creates the reference to a feature used by {@link FeatureNode#getDependencies()}.
+     *
+     * @param name    name of the feature
+     * @param version version or version range of the feature, or <code>null</code> for any version
+     * @return the reference
+     */
+    static String toReference(String name, String version) {
+        if (version == null || version.trim()
+                .isEmpty() || DEFAULT_VERSION.equals(version.trim())) {
+            return name;
+        }
+        return name + "/" + version.trim();
+    }
+
+    /**
+     * @param version a feature version
+     * @param range   a version, matched exactly, or an OSGi version range like "[1,2)"
+     * @return whether the version matches
+     */
+    static boolean matches(String version, String range) {
+        final String trimmed = range.trim();
+
+        if (!trimmed.startsWith("[") && !trimmed.startsWith("(")) {
+            return compareVersions(version, trimmed) == 0;
+        }
+        final int comma = trimmed.indexOf(',');
+        final char last = trimmed.charAt(trimmed.length() - 1);
+
+        if (comma < 0) {
+            return false;
+        }
+        final int low = compareVersions(version, trimmed.substring(1, comma));
+        final int high = compareVersions(version,
+                trimmed.substring(comma + 1, trimmed.length() - 1));
+
+        final boolean aboveLow = trimmed.charAt(0) == '[' ? low >= 0 : low > 0;
+        final boolean belowHigh = last == ']' ? high <= 0 : high < 0;
+
+        return aboveLow && belowHigh;
+    }
+
+    /**
+     * Compares two versions by their major, minor and micro numbers and then by their qualifier,
+     * accepting both OSGi ("1.2.3.qualifier") and Maven ("1.2.3-qualifier") style versions.
+     */
+    static int compareVersions(String v1, String v2) {
+        final String[] p1 = v1.trim()
+                .split("[.-]", 4);
+        final String[] p2 = v2.trim()
+                .split("[.-]", 4);
+
+        for (int i = 0; i < 3; i++) {
+            final int c = Long.compare(getNumber(p1, i), getNumber(p2, i));
+
+            if (c != 0) {
+                return c;
+            }
+        }
+        return getQualifier(p1).compareTo(getQualifier(p2));
+    }
+
+    private static long getNumber(String[] parts, int index) {
+        if (index >= parts.length) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(parts[index]);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String getQualifier(String[] parts) {
+        return parts.length > 3 ? parts[3] : "";
+    }
+}
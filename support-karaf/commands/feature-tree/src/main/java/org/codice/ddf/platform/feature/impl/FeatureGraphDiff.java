@@ -0,0 +1,167 @@
+package org.codice.ddf.platform.feature.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Structural difference between two feature graphs. Features are matched by name and version; a
+ * feature present in both graphs is reported as changed when its dependencies or bundles differ.
+ * A feature with a single unmatched version in each graph is reported as changed to the new
+ * version rather than as removed and added.
+ */
+public class FeatureGraphDiff {
+    private final List<FeatureNode> added = new ArrayList<>();
+
+    private final List<FeatureNode> removed = new ArrayList<>();
+
+    private final List<Change> changed = new ArrayList<>();
+
+    /**
+     * Computes the difference between two feature graphs.
+     *
+     * @param oldGraph the graph to compare from
+     * @param newGraph the graph to compare to
+     * @return the difference, with features listed in name and version order
+     */
+    public static FeatureGraphDiff compute(FeatureGraph oldGraph, FeatureGraph newGraph) {
+        final FeatureGraphDiff diff = new FeatureGraphDiff();
+        final Map<String, Map<String, FeatureNode>> oldByName = groupByName(oldGraph);
+        final Map<String, Map<String, FeatureNode>> newByName = groupByName(newGraph);
+        final Set<String> names = new TreeSet<>(oldByName.keySet());
+
+        names.addAll(newByName.keySet());
+        for (String name : names) {
+            final Map<String, FeatureNode> oldNodes = new TreeMap<>(oldByName.getOrDefault(name,
+                    Collections.emptyMap()));
+            final Map<String, FeatureNode> newNodes = new TreeMap<>(newByName.getOrDefault(name,
+                    Collections.emptyMap()));
+
+            for (String version : new ArrayList<>(oldNodes.keySet())) {
+                if (newNodes.containsKey(version)) {
+                    diff.addIfChanged(oldNodes.remove(version), newNodes.remove(version));
+                }
+            }
+            if (oldNodes.size() == 1 && newNodes.size() == 1) {
+                diff.addIfChanged(oldNodes.values()
+                        .iterator()
+                        .next(), newNodes.values()
+                        .iterator()
+                        .next());
+            } else {
+                diff.removed.addAll(oldNodes.values());
+                diff.added.addAll(newNodes.values());
+            }
+        }
+        return diff;
+    }
+
+    private static Map<String, Map<String, FeatureNode>> groupByName(FeatureGraph graph) {
+        final Map<String, Map<String, FeatureNode>> byName = new HashMap<>();
+
+        for (FeatureNode node : graph.getNodes()) {
+            byName.computeIfAbsent(node.getName(), k -> new HashMap<>())
+                    .put(node.getVersion(), node);
+        }
+        return byName;
+    }
+
+    private void addIfChanged(FeatureNode oldNode, FeatureNode newNode) {
+        final Change change = new Change(oldNode, newNode);
+
+        if (change.hasChanges()) {
+            changed.add(change);
+        }
+    }
+
+    public List<FeatureNode> getAdded() {
+        return Collections.unmodifiableList(added);
+    }
+
+    public List<FeatureNode> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    public List<Change> getChanged() {
+        return Collections.unmodifiableList(changed);
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * Differences between two versions of the same feature.
+     */
+    public static class Change {
+        private final FeatureNode oldNode;
+
+        private final FeatureNode newNode;
+
+        private final Set<String> addedDependencies;
+
+        private final Set<String> removedDependencies;
+
+        private final Set<String> addedBundles;
+
+        private final Set<String> removedBundles;
+
+        Change(FeatureNode oldNode, FeatureNode newNode) {
+            this.oldNode = oldNode;
+            this.newNode = newNode;
+            this.addedDependencies = minus(newNode.getDependencies(), oldNode.getDependencies());
+            this.removedDependencies = minus(oldNode.getDependencies(), newNode.getDependencies());
+            this.addedBundles = minus(newNode.getBundles(), oldNode.getBundles());
+            this.removedBundles = minus(oldNode.getBundles(), newNode.getBundles());
+        }
+
+        public FeatureNode getOldNode() {
+            return oldNode;
+        }
+
+        public FeatureNode getNewNode() {
+            return newNode;
+        }
+
+        public boolean isVersionChanged() {
+            return !oldNode.getVersion()
+                    .equals(newNode.getVersion());
+        }
+
+        public Set<String> getAddedDependencies() {
+            return addedDependencies;
+        }
+
+        public Set<String> getRemovedDependencies() {
+            return removedDependencies;
+        }
+
+        public Set<String> getAddedBundles() {
+            return addedBundles;
+        }
+
+        public Set<String> getRemovedBundles() {
+            return removedBundles;
+        }
+
+        boolean hasChanges() {
+            return isVersionChanged() || !addedDependencies.isEmpty()
+                    || !removedDependencies.isEmpty() || !addedBundles.isEmpty()
+                    || !removedBundles.isEmpty();
+        }
+
+        private static Set<String> minus(List<String> from, List<String> values) {
+            final Set<String> result = new LinkedHashSet<>(from);
+
+            result.removeAll(new HashSet<>(values));
+            return result;
+        }
+    }
+}
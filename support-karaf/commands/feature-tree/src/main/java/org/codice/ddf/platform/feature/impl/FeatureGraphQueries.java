@@ -0,0 +1,129 @@
+package org.codice.ddf.platform.feature.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Analysis queries that can be run against a {@link FeatureGraph}, whether it was resolved from
+ * the container or loaded from a snapshot.
+ */
+public class FeatureGraphQueries {
+    private final FeatureGraph graph;
+
+    private Map<String, List<String>> dependents;
+
+    public FeatureGraphQueries(FeatureGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Finds all the features that directly or transitively depend on the given feature.
+     *
+     * @param reference name of the feature, optionally followed by '/' and its version
+     * @return the ids of the dependent features in breadth-first order, each mapped to its
+     * distance from the given feature (1 for direct dependents)
+     */
+    public Map<String, Integer> getReverseDependencies(String reference) {
+        final Map<String, List<String>> index = getDependentsIndex();
+        final Map<String, Integer> result = new LinkedHashMap<>();
+        final Deque<String> pending = new ArrayDeque<>();
+        final FeatureNode node = graph.get(reference);
+        final String id = node == null ? reference : node.getId();
+
+        pending.add(id);
+        while (!pending.isEmpty()) {
+            final String current = pending.poll();
+            final int distance = current.equals(id) ? 1 : result.get(current) + 1;
+
+            for (String dependent : index.getOrDefault(current, Collections.emptyList())) {
+                if (!dependent.equals(id) && !result.containsKey(dependent)) {
+                    result.put(dependent, distance);
+                    pending.add(dependent);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes what installing the given feature costs in terms of the distinct features and
+     * bundles it transitively pulls in, itself included. Dependencies missing from the graph are
+     * not counted.
+     *
+     * @param reference name of the feature, optionally followed by '/' and its version
+     * @return the cost of the feature or <code>null</code> if it is not in the graph
+     */
+    public Cost getCost(String reference) {
+        final FeatureNode root = graph.get(reference);
+
+        if (root == null) {
+            return null;
+        }
+        final Set<String> features = new HashSet<>();
+        final Set<String> bundles = new HashSet<>();
+        final Deque<FeatureNode> pending = new ArrayDeque<>();
+
+        features.add(root.getId());
+        pending.add(root);
+        while (!pending.isEmpty()) {
+            final FeatureNode node = pending.poll();
+
+            bundles.addAll(node.getBundles());
+            for (String dependency : node.getDependencies()) {
+                final FeatureNode resolved = graph.get(dependency);
+
+                if (resolved != null && features.add(resolved.getId())) {
+                    pending.add(resolved);
+                }
+            }
+        }
+        return new Cost(features.size(), bundles.size());
+    }
+
+    private Map<String, List<String>> getDependentsIndex() {
+        if (dependents == null) {
+            dependents = new HashMap<>();
+            for (FeatureNode node : graph.getNodes()) {
+                for (String dependency : node.getDependencies()) {
+                    final FeatureNode resolved = graph.get(dependency);
+
+                    if (resolved != null) {
+                        dependents.computeIfAbsent(resolved.getId(), k -> new ArrayList<>())
+                                .add(node.getId());
+                    }
+                }
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Number of distinct features and bundles pulled in by a feature.
+     */
+    public static class Cost {
+        private final int features;
+
+        private final int bundles;
+
+        Cost(int features, int bundles) {
+            this.features = features;
+            this.bundles = bundles;
+        }
+
+        public int getFeatures() {
+            return features;
+        }
+
+        public int getBundles() {
+            return bundles;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.codice.ddf.platform.feature.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+import org.apache.karaf.features.BundleInfo;
+import org.apache.karaf.features.Dependency;
+import org.apache.karaf.features.Feature;
+import org.apache.karaf.features.FeaturesService;
+import org.apache.karaf.features.Repository;
+
+/**
+ * Resolves the transitive feature closure of a root feature by looking up features concurrently
+ * on a bounded pool of threads.
+ * <p>
+ * The closure is walked one level at a time so each feature is looked up exactly once, at the
+ * shallowest depth at which it is referenced, and all lookups of a given level run in parallel.
+ */
+public class FeatureGraphResolver {
+    private final FeaturesService featuresService;
+
+    private final int threads;
+
+    public FeatureGraphResolver(FeaturesService featuresService, int threads) {
+        this.featuresService = featuresService;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Resolves all features reachable from the given root feature.
+     *
+     * @param rootName   name of the root feature, optionally followed by '/' and its version
+     * @param repoFilter regular expression the feature repository URL must match for a feature to
+     *                   be included and expanded
+     * @param maxDepth   maximum number of levels to resolve below the root
+     * @return the resolved feature graph
+     * @throws InterruptedException if interrupted while waiting for lookups to complete
+     */
+    public FeatureGraph resolve(String rootName, String repoFilter, int maxDepth)
+            throws InterruptedException {
+        final Map<String, FeatureNode> nodes = new HashMap<>();
+        final Set<String> requested = new HashSet<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<String> level = new ArrayList<>();
+
+        requested.add(rootName);
+        level.add(rootName);
+        try {
+            for (int depth = 0; !level.isEmpty() && depth <= maxDepth; depth++) {
+                final List<Callable<FeatureNode>> lookups = new ArrayList<>(level.size());
+
+                for (final String reference : level) {
+                    lookups.add(() -> lookup(reference, repoFilter));
+                }
+                final List<String> next = new ArrayList<>();
+
+                for (final Future<FeatureNode> future : executor.invokeAll(lookups)) {
+                    final FeatureNode node = getQuietly(future);
+
+                    if (node == null) {
+                        continue;
+                    }
+                    nodes.put(node.getId(), node);
+                    for (final String dependency : node.getDependencies()) {
+                        if (requested.add(dependency)) {
+                            next.add(dependency);
+                        }
+                    }
+                }
+                level = next;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new FeatureGraph(rootName, nodes);
+    }
+
+    /**
+     * Resolves every feature of every repository currently known to the features service. The
+     * features of each repository are collected concurrently.
+     *
+     * @param repoFilter regular expression the feature repository URL must match for a feature to
+     *                   be included
+     * @return the resolved feature graph, without a root
+     * @throws Exception if the repositories cannot be listed
+     */
+    public FeatureGraph resolveAll(String repoFilter) throws Exception {
+        return resolveAll(url -> url.matches(repoFilter));
+    }
+
+    /**
+     * Resolves every feature of the given repositories that are currently known to the features
+     * service, whatever their version. The features of each repository are collected
+     * concurrently.
+     *
+     * @param repositoryKeys keys of the feature repositories to include, see
+     *                       {@link FeatureGraph#getRepositoryKey(String)}
+     * @return the resolved feature graph, without a root
+     * @throws Exception if the repositories cannot be listed
+     */
+    public FeatureGraph resolveAll(Set<String> repositoryKeys) throws Exception {
+        return resolveAll(url -> repositoryKeys.contains(FeatureGraph.getRepositoryKey(url)));
+    }
+
+    private FeatureGraph resolveAll(Predicate<String> included) throws Exception {
+        final Map<String, FeatureNode> nodes = new HashMap<>();
+        final List<Callable<List<FeatureNode>>> lookups = new ArrayList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (final Repository repository : featuresService.listRepositories()) {
+            lookups.add(() -> {
+                final List<FeatureNode> repoNodes = new ArrayList<>();
+
+                for (Feature feature : repository.getFeatures()) {
+                    if (included.test(feature.getRepositoryUrl())) {
+                        repoNodes.add(toNode(feature));
+                    }
+                }
+                return repoNodes;
+            });
+        }
+        try {
+            for (final Future<List<FeatureNode>> future : executor.invokeAll(lookups)) {
+                try {
+                    for (FeatureNode node : future.get()) {
+                        nodes.putIfAbsent(node.getId(), node);
+                    }
+                } catch (ExecutionException e) {
+                    // skip repositories that cannot be read, like single feature lookups do
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new FeatureGraph(null, nodes);
+    }
+
+    private FeatureNode lookup(String reference, String repoFilter) {
+        final int slash = reference.indexOf('/');
+        final Feature feature;
+
+        try {
+            if (slash < 0) {
+                feature = featuresService.getFeature(reference);
+            } else {
+                feature = featuresService.getFeature(reference.substring(0, slash),
+                        reference.substring(slash + 1));
+            }
+        } catch (Exception e) {
+            return null;
+        }
+
+        if (feature == null || !feature.getRepositoryUrl()
+                .matches(repoFilter)) {
+            return null;
+        }
+
+        return toNode(feature);
+    }
+
+    private static FeatureNode toNode(Feature feature) {
+        final List<String> dependencies = new ArrayList<>();
+        final List<String> bundles = new ArrayList<>();
+
+        for (Dependency dependency : feature.getDependencies()) {
+            dependencies.add(FeatureGraph.toReference(dependency.getName(),
+                    dependency.getVersion()));
+        }
+        for (BundleInfo bundle : feature.getBundles()) {
+            bundles.add(bundle.getLocation());
+        }
+        return new FeatureNode(feature.getName(),
+                feature.getVersion(),
+                feature.getRepositoryUrl(),
+                dependencies,
+                bundles);
+    }
+
+    private static FeatureNode getQuietly(Future<FeatureNode> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+}
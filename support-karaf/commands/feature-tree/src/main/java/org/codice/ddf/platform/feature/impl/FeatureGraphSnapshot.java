@@ -0,0 +1,144 @@
+package org.codice.ddf.platform.feature.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact binary snapshot of a {@link FeatureGraph} that can be written from inside the container
+ * and loaded again without it.
+ * <p>
+ * The snapshot is a gzipped stream made of a magic number, a format version, a table of all the
+ * distinct strings used in the graph (feature names, versions, repository URLs and bundle
+ * locations) and then each feature with its fields stored as indexes into that table.
+ */
+public class FeatureGraphSnapshot {
+    private static final int MAGIC = 0x46475331; // "FGS1"
+
+    private static final int FORMAT_VERSION = 1;
+
+    private FeatureGraphSnapshot() {
+    }
+
+    /**
+     * Writes the given graph to a snapshot file.
+     *
+     * @param graph the graph to write
+     * @param file  the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(FeatureGraph graph, File file) throws IOException {
+        final Map<String, Integer> strings = new LinkedHashMap<>();
+
+        for (FeatureNode node : graph.getNodes()) {
+            intern(strings, node.getName());
+            intern(strings, node.getVersion());
+            intern(strings, node.getRepositoryUrl());
+            for (String dependency : node.getDependencies()) {
+                intern(strings, dependency);
+            }
+            for (String bundle : node.getBundles()) {
+                intern(strings, bundle);
+            }
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+                new FileOutputStream(file))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(strings.size());
+            for (String s : strings.keySet()) {
+                out.writeUTF(s);
+            }
+            out.writeInt(graph.size());
+            for (FeatureNode node : graph.getNodes()) {
+                out.writeInt(strings.get(node.getName()));
+                out.writeInt(strings.get(node.getVersion()));
+                out.writeInt(strings.get(node.getRepositoryUrl()));
+                writeIndexes(out, strings, node.getDependencies());
+                writeIndexes(out, strings, node.getBundles());
+            }
+        }
+    }
+
+    /**
+     * Reads a graph back from a snapshot file.
+     *
+     * @param file the file to read from
+     * @return the graph stored in the snapshot, without a root
+     * @throws IOException if the file cannot be read or is not a feature graph snapshot
+     */
+    public static FeatureGraph read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(
+                new FileInputStream(file))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(file + " is not a feature graph snapshot");
+            }
+            final int version = in.readInt();
+
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported feature graph snapshot version " + version);
+            }
+            final String[] strings = new String[in.readInt()];
+
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readUTF();
+            }
+            final int count = in.readInt();
+            final Map<String, FeatureNode> nodes = new HashMap<>(count * 4 / 3 + 1);
+
+            for (int i = 0; i < count; i++) {
+                final String name = strings[in.readInt()];
+                final String featureVersion = strings[in.readInt()];
+                final String repositoryUrl = strings[in.readInt()];
+                final List<String> dependencies = readIndexes(in, strings);
+                final List<String> bundles = readIndexes(in, strings);
+
+                final FeatureNode node = new FeatureNode(name,
+                        featureVersion,
+                        repositoryUrl,
+                        dependencies,
+                        bundles);
+
+                nodes.put(node.getId(), node);
+            }
+            return new FeatureGraph(null, nodes);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException(file + " is a corrupted feature graph snapshot", e);
+        }
+    }
+
+    private static void intern(Map<String, Integer> strings, String s) {
+        strings.putIfAbsent(s, strings.size());
+    }
+
+    private static void writeIndexes(DataOutputStream out, Map<String, Integer> strings,
+            List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeInt(strings.get(value));
+        }
+    }
+
+    private static List<String> readIndexes(DataInputStream in, String[] strings)
+            throws IOException {
+        final int size = in.readInt();
+        final List<String> values = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            values.add(strings[in.readInt()]);
+        }
+        return values;
+    }
+}
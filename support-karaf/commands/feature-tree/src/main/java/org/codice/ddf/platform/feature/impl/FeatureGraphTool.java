@@ -0,0 +1,108 @@
+package org.codice.ddf.platform.feature.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Standalone command line entry point to analyze a feature graph snapshot exported with
+ * <code>feature:export-graph</code> without starting the container.
+ * <p>
+ * Usage: <code>java -jar feature-tree.jar &lt;snapshot&gt; &lt;query&gt; &lt;feature&gt;
+ * [options]</code> where feature is a feature name, optionally followed by '/' and a version, and
+ * query is one of:
+ * <ul>
+ * <li>tree - prints the feature tree; supports the same <code>-d &lt;depth&gt;</code>,
+ * <code>-n</code> and <code>-l</code> options as <code>feature:tree</code></li>
+ * <li>rdeps - prints the features that directly or transitively depend on the feature</li>
+ * <li>cost - prints the number of distinct features and bundles the feature pulls in</li>
+ * </ul>
+ */
+public class FeatureGraphTool {
+    private static final int ERROR_CODE = 1;
+
+    private static final String USAGE =
+            "Usage: java -jar feature-tree.jar <snapshot> (tree|rdeps|cost) <feature> [-d <depth>] [-n] [-l]";
+
+    private FeatureGraphTool() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println(USAGE);
+            System.exit(ERROR_CODE);
+        }
+        final FeatureGraph graph;
+
+        try {
+            graph = FeatureGraphSnapshot.read(new File(args[0]));
+        } catch (IOException e) {
+            System.err.println("Failed to read snapshot: " + e.getMessage());
+            System.exit(ERROR_CODE);
+            return;
+        }
+        final String query = args[1];
+        final String feature = args[2];
+
+        if ("tree".equals(query)) {
+            printTree(graph, feature, args);
+        } else if ("rdeps".equals(query)) {
+            printReverseDependencies(graph, feature);
+        } else if ("cost".equals(query)) {
+            printCost(graph, feature);
+        } else {
+            System.err.println("Unknown query: " + query);
+            System.err.println(USAGE);
+            System.exit(ERROR_CODE);
+        }
+    }
+
+    private static void printTree(FeatureGraph graph, String feature, String[] args) {
+        int maxDepth = 100;
+        boolean noDuplicates = false;
+        boolean printLineNumbers = false;
+
+        for (int i = 3; i < args.length; i++) {
+            if ("-d".equals(args[i]) && i + 1 < args.length) {
+                maxDepth = Integer.parseInt(args[++i]);
+            } else if ("-n".equals(args[i])) {
+                noDuplicates = true;
+            } else if ("-l".equals(args[i])) {
+                printLineNumbers = true;
+            } else {
+                System.err.println("Unknown option: " + args[i]);
+                System.err.println(USAGE);
+                System.exit(ERROR_CODE);
+            }
+        }
+        new FeatureTreePrinter(graph,
+                System.out,
+                maxDepth,
+                noDuplicates,
+                printLineNumbers).print(feature);
+    }
+
+    private static void printReverseDependencies(FeatureGraph graph, String feature) {
+        final Map<String, Integer> dependents = new FeatureGraphQueries(graph).getReverseDependencies(
+                feature);
+
+        System.out.println(String.format("%d features depend on %s:", dependents.size(), feature));
+        for (Map.Entry<String, Integer> e : dependents.entrySet()) {
+            System.out.println(String.format("%4d - %s", e.getValue(), e.getKey()));
+        }
+    }
+
+    private static void printCost(FeatureGraph graph, String feature) {
+        final FeatureGraphQueries.Cost cost = new FeatureGraphQueries(graph).getCost(feature);
+
+        if (cost == null) {
+            System.err.println("Feature not found: " + feature);
+            System.exit(ERROR_CODE);
+            return;
+        }
+        System.out.println(String.format("%s pulls in %d features and %d bundles.",
+                feature,
+                cost.getFeatures(),
+                cost.getBundles()));
+    }
+}
@@ -0,0 +1,69 @@
+package org.codice.ddf.platform.feature.impl;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resolved view of a single feature as needed to render the feature tree.
+ */
+public class FeatureNode {
+    private final String name;
+
+    private final String version;
+
+    private final String repositoryUrl;
+
+    private final List<String> dependencies;
+
+    private final List<String> bundles;
+
+    public FeatureNode(String name, String version, String repositoryUrl,
+            List<String> dependencies, List<String> bundles) {
+        this.name = name;
+        this.version = version;
+        this.repositoryUrl = repositoryUrl;
+        this.dependencies = Collections.unmodifiableList(dependencies);
+        this.bundles = Collections.unmodifiableList(bundles);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the id of this feature, which identifies it among all the versions of the feature.
+     *
+     * @return the feature name and version separated by '/'
+     */
+    public String getId() {
+        return name + "/" + version;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public String getRepositoryUrl() {
+        return repositoryUrl;
+    }
+
+    /**
+     * Gets the features this feature depends on, in declaration order. Each dependency is the name
+     * of the feature, followed by '/' and a version or version range when the dependency declares
+     * one; see {@link FeatureGraph#get(String)}.
+     *
+     * @return the dependency references
+     */
+    public List<String> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Gets the locations of the bundles installed by this feature, in declaration order.
+     *
+     * @return the bundle locations
+     */
+    public List<String> getBundles() {
+        return bundles;
+    }
+}
@@ -0,0 +1,155 @@
+package org.codice.ddf.platform.feature.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Builds a {@link FeatureGraph} directly from feature repository XML files without registering
+ * them with the features service. Repositories referenced through <code>&lt;repository&gt;</code>
+ * elements are followed transitively, and their features are included when their URL matches a
+ * filter; the features of the repositories explicitly read are always included.
+ * <p>
+ * The XML is read with a streaming parser and only the elements needed for the graph are looked
+ * at, so large repositories are read in a single pass. Each repository is read only once per
+ * reader, so reading two versions of a distribution with the same reader only reads the
+ * repositories that differ between them (repository URLs usually include the version) once each.
+ */
+public class FeatureRepositoryReader {
+    private final XMLInputFactory factory = XMLInputFactory.newInstance();
+
+    private final Map<URI, ParsedRepository> repositories = new HashMap<>();
+
+    public FeatureRepositoryReader() {
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    }
+
+    /**
+     * Reads the given feature repository and all repositories it references.
+     *
+     * @param repositoryUri URI of the feature repository to read
+     * @param repoFilter    regular expression the URL of a referenced feature repository must
+     *                      match for its features to be included
+     * @return the graph of the features of the repository and of the ones it references, without
+     * a root
+     * @throws IOException if a repository cannot be read or parsed
+     */
+    public FeatureGraph read(URI repositoryUri, String repoFilter) throws IOException {
+        final Map<String, FeatureNode> nodes = new HashMap<>();
+        final Set<URI> visited = new HashSet<>();
+        final Deque<URI> pending = new ArrayDeque<>();
+
+        pending.add(repositoryUri);
+        while (!pending.isEmpty()) {
+            final URI uri = pending.poll();
+
+            if (!visited.add(uri)) {
+                continue;
+            }
+            ParsedRepository repository = repositories.get(uri);
+
+            if (repository == null) {
+                repository = readRepository(uri);
+                repositories.put(uri, repository);
+            }
+            if (uri.equals(repositoryUri) || uri.toString()
+                    .matches(repoFilter)) {
+                for (FeatureNode node : repository.features) {
+                    nodes.putIfAbsent(node.getId(), node);
+                }
+            }
+            pending.addAll(repository.references);
+        }
+        return new FeatureGraph(null, nodes);
+    }
+
+    private ParsedRepository readRepository(URI uri) throws IOException {
+        final ParsedRepository repository = new ParsedRepository();
+
+        try (InputStream is = uri.toURL()
+                .openStream()) {
+            final XMLStreamReader reader = factory.createXMLStreamReader(is);
+
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    final String element = reader.getLocalName();
+
+                    if ("repository".equals(element)) {
+                        repository.references.add(uri.resolve(reader.getElementText()
+                                .trim()));
+                    } else if ("feature".equals(element)) {
+                        repository.features.add(readFeature(reader, uri.toString()));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Failed to parse feature repository " + uri, e);
+        }
+        return repository;
+    }
+
+    private FeatureNode readFeature(XMLStreamReader reader, String repositoryUrl)
+            throws XMLStreamException {
+        final String name = reader.getAttributeValue(null, "name");
+        final String version = reader.getAttributeValue(null, "version");
+        final List<String> dependencies = new ArrayList<>();
+        final List<String> bundles = new ArrayList<>();
+        int depth = 1;
+
+        while (depth > 0) {
+            final int event = reader.next();
+
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                final String element = reader.getLocalName();
+
+                // conditional content is not part of the feature itself
+                if (depth == 1 && "feature".equals(element)) {
+                    final String dependencyVersion = reader.getAttributeValue(null, "version");
+
+                    dependencies.add(FeatureGraph.toReference(reader.getElementText()
+                            .trim(), dependencyVersion));
+                } else if (depth == 1 && "bundle".equals(element)) {
+                    bundles.add(reader.getElementText()
+                            .trim());
+                } else {
+                    depth++;
+                }
+            }
+        }
+        return new FeatureNode(name,
+                version == null ? FeatureGraph.DEFAULT_VERSION : version,
+                repositoryUrl,
+                dependencies,
+                bundles);
+    }
+
+    /**
+     * Features and references of a repository that has already been read.
+     */
+    private static class ParsedRepository {
+        private final List<FeatureNode> features = new ArrayList<>();
+
+        private final List<URI> references = new ArrayList<>();
+    }
+}
@@ -0,0 +1,98 @@
+package org.codice.ddf.platform.feature.impl;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Renders a {@link FeatureGraph} as an indented feature tree. Does not depend on any Karaf classes
+ * so the same output can be produced inside the container and from an offline snapshot.
+ */
+public class FeatureTreePrinter {
+    private final FeatureGraph graph;
+
+    private final PrintStream out;
+
+    private final int maxDepth;
+
+    private final boolean noDuplicates;
+
+    private final boolean printLineNumbers;
+
+    private final Map<String, Integer> subTreesAlreadyVisited = new HashMap<>();
+
+    private int lineNumber = 1;
+
+    public FeatureTreePrinter(FeatureGraph graph, PrintStream out, int maxDepth,
+            boolean noDuplicates, boolean printLineNumbers) {
+        this.graph = graph;
+        this.out = out;
+        this.maxDepth = maxDepth;
+        this.noDuplicates = noDuplicates;
+        this.printLineNumbers = printLineNumbers;
+    }
+
+    /**
+     * Prints the tree rooted at the given feature.
+     *
+     * @param rootName name of the feature to use as root of the tree, optionally followed by '/'
+     *                 and its version
+     */
+    public void print(String rootName) {
+        lineNumber = 1;
+        subTreesAlreadyVisited.clear();
+        printDependencies(rootName, 0);
+    }
+
+    private void printDependencies(String reference, int depth) {
+        if (depth > maxDepth) {
+            return;
+        }
+
+        FeatureNode feature = graph.get(reference);
+
+        if (feature == null) {
+            return;
+        }
+
+        if (noDuplicates && subTreesAlreadyVisited.containsKey(feature.getId())) {
+            printDependency(feature, depth, true);
+            lineNumber++;
+            return;
+        }
+
+        printDependency(feature, depth, false);
+        subTreesAlreadyVisited.put(feature.getId(), lineNumber++);
+
+        for (String dependency : feature.getDependencies()) {
+            printDependencies(dependency, depth + 1);
+        }
+    }
+
+    private void printDependency(FeatureNode feature, int depth, boolean alreadyVisited) {
+        if (printLineNumbers) {
+            out.print(String.format("%4d - ", lineNumber));
+        }
+
+        out.print(indent(depth * 2));
+        out.print(feature.getName());
+
+        if (alreadyVisited) {
+            if (printLineNumbers) {
+                out.print(String.format(" -> %d", subTreesAlreadyVisited.get(feature.getId())));
+            } else {
+                out.print(" *");
+            }
+        }
+
+        out.println();
+    }
+
+    private static String indent(int width) {
+        final char[] spaces = new char[width];
+
+        Arrays.fill(spaces, ' ');
+        return new String(spaces);
+    }
+}
@@ -0,0 +1,144 @@
+package org.codice.ddf.platform.feature.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class FeatureGraphDiffTest {
+    private static final String REPO = "mvn:ddf.features/kernel/2.3.15/xml/features";
+
+    @Test
+    public void testIdenticalGraphs() {
+        final FeatureGraph graph = createGraph(node("kernel", "1.0.0", "mvn:ddf/kernel/1.0.0"));
+
+        assertTrue(FeatureGraphDiff.compute(graph, createGraph(node("kernel",
+                "1.0.0",
+                "mvn:ddf/kernel/1.0.0")))
+                .isEmpty());
+    }
+
+    @Test
+    public void testAddedAndRemovedFeatures() {
+        final FeatureGraphDiff diff = FeatureGraphDiff.compute(createGraph(node("kernel", "1.0.0"),
+                node("legacy", "1.0.0")),
+                createGraph(node("kernel", "1.0.0"), node("catalog", "1.0.0")));
+
+        assertEquals(Collections.singletonList("catalog/1.0.0"), ids(diff.getAdded()));
+        assertEquals(Collections.singletonList("legacy/1.0.0"), ids(diff.getRemoved()));
+        assertTrue(diff.getChanged()
+                .isEmpty());
+    }
+
+    @Test
+    public void testVersionChange() {
+        final FeatureGraphDiff diff = FeatureGraphDiff.compute(createGraph(node("kernel",
+                "1.0.0",
+                "mvn:ddf/kernel/1.0.0")),
+                createGraph(node("kernel", "1.1.0", "mvn:ddf/kernel/1.1.0")));
+
+        assertTrue(diff.getAdded()
+                .isEmpty());
+        assertTrue(diff.getRemoved()
+                .isEmpty());
+        assertEquals(1,
+                diff.getChanged()
+                        .size());
+
+        final FeatureGraphDiff.Change change = diff.getChanged()
+                .get(0);
+
+        assertTrue(change.isVersionChanged());
+        assertEquals("1.0.0",
+                change.getOldNode()
+                        .getVersion());
+        assertEquals("1.1.0",
+                change.getNewNode()
+                        .getVersion());
+        assertEquals(Collections.singleton("mvn:ddf/kernel/1.1.0"), change.getAddedBundles());
+        assertEquals(Collections.singleton("mvn:ddf/kernel/1.0.0"), change.getRemovedBundles());
+    }
+
+    @Test
+    public void testDependencyAndBundleChanges() {
+        final FeatureGraphDiff diff = FeatureGraphDiff.compute(createGraph(new FeatureNode("app",
+                        "1.0.0",
+                        REPO,
+                        Arrays.asList("kernel", "legacy"),
+                        Arrays.asList("mvn:ddf/app/1.0.0", "mvn:ddf/util/1.0.0"))),
+                createGraph(new FeatureNode("app",
+                        "1.0.0",
+                        REPO,
+                        Arrays.asList("kernel", "catalog/[1,2)"),
+                        Arrays.asList("mvn:ddf/app/1.0.0", "mvn:ddf/util/1.1.0"))));
+        final FeatureGraphDiff.Change change = diff.getChanged()
+                .get(0);
+
+        assertEquals(1,
+                diff.getChanged()
+                        .size());
+        assertFalse(change.isVersionChanged());
+        assertEquals(Collections.singleton("catalog/[1,2)"), change.getAddedDependencies());
+        assertEquals(Collections.singleton("legacy"), change.getRemovedDependencies());
+        assertEquals(Collections.singleton("mvn:ddf/util/1.1.0"), change.getAddedBundles());
+        assertEquals(Collections.singleton("mvn:ddf/util/1.0.0"), change.getRemovedBundles());
+    }
+
+    @Test
+    public void testMultipleVersionsOfAFeature() {
+        final FeatureGraphDiff diff = FeatureGraphDiff.compute(createGraph(node("lib",
+                "1.0.0",
+                "mvn:ddf/lib/1.0.0"),
+                node("lib", "2.0.0", "mvn:ddf/lib/2.0.0"),
+                node("lib", "3.0.0")),
+                createGraph(node("lib", "2.0.0", "mvn:ddf/lib/2.0.1"),
+                        node("lib", "4.0.0"),
+                        node("lib", "5.0.0")));
+
+        // the unchanged version is matched, the others can not be paired and are listed as is
+        assertEquals(1,
+                diff.getChanged()
+                        .size());
+        assertEquals("lib/2.0.0",
+                diff.getChanged()
+                        .get(0)
+                        .getNewNode()
+                        .getId());
+        assertEquals(Arrays.asList("lib/1.0.0", "lib/3.0.0"), ids(diff.getRemoved()));
+        assertEquals(Arrays.asList("lib/4.0.0", "lib/5.0.0"), ids(diff.getAdded()));
+    }
+
+    private static FeatureNode node(String name, String version, String... bundles) {
+        return new FeatureNode(name,
+                version,
+                REPO,
+                Collections.emptyList(),
+                Arrays.asList(bundles));
+    }
+
+    private static FeatureGraph createGraph(FeatureNode... nodes) {
+        final Map<String, FeatureNode> map = new HashMap<>();
+
+        for (FeatureNode node : nodes) {
+            map.put(node.getId(), node);
+        }
+        return new FeatureGraph(null, map);
+    }
+
+    private static List<String> ids(List<FeatureNode> nodes) {
+        final List<String> ids = new ArrayList<>();
+
+        for (FeatureNode node : nodes) {
+            ids.add(node.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,139 @@
+package org.codice.ddf.platform.feature.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.karaf.features.BundleInfo;
+import org.apache.karaf.features.Dependency;
+import org.apache.karaf.features.Feature;
+import org.apache.karaf.features.FeaturesService;
+import org.apache.karaf.features.Repository;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FeatureGraphResolverTest {
+    private static final String KERNEL_REPO = "mvn:ddf.features/kernel/2.4.0/xml/features";
+
+    private static final String OTHER_REPO =
+            "mvn:org.apache.karaf.features/standard/4.0.7/xml/features";
+
+    private final FeaturesService featuresService = mock(FeaturesService.class);
+
+    @Before
+    public void setUp() throws Exception {
+        final Repository kernel = mockRepository(mockFeature("kernel", "2.4.0", KERNEL_REPO),
+                mockFeature("security", "2.4.0", KERNEL_REPO));
+        final Repository other = mockRepository(mockFeature("standard", "4.0.7", OTHER_REPO));
+
+        when(featuresService.listRepositories()).thenReturn(new Repository[] {kernel, other});
+    }
+
+    @Test
+    public void testResolveAllMatchesRepositoriesAcrossVersions() throws Exception {
+        final FeatureGraph oldGraph = new FeatureGraph(null,
+                Collections.singletonMap("kernel/2.3.15",
+                        new FeatureNode("kernel",
+                                "2.3.15",
+                                "mvn:ddf.features/kernel/2.3.15/xml/features",
+                                Collections.emptyList(),
+                                Collections.emptyList())));
+
+        final FeatureGraph graph = new FeatureGraphResolver(featuresService, 2).resolveAll(
+                oldGraph.getRepositoryKeys());
+
+        assertEquals(2, graph.size());
+        assertNotNull(graph.get("kernel/2.4.0"));
+        assertNotNull(graph.get("security/2.4.0"));
+    }
+
+    @Test
+    public void testResolveAllWithRepositoryFilter() throws Exception {
+        final FeatureGraph graph = new FeatureGraphResolver(featuresService, 2).resolveAll(
+                ".*karaf.*");
+
+        assertEquals(1, graph.size());
+        assertNotNull(graph.get("standard/4.0.7"));
+    }
+
+    @Test
+    public void testResolveFollowsVersionedDependencies() throws Exception {
+        final Feature app = mockFeature("app", "1.0.0", KERNEL_REPO, "lib/[1,2)", "standard");
+        final Feature lib1 = mockFeature("lib", "1.5.0", KERNEL_REPO, "util");
+        final Feature util = mockFeature("util", "1.0.0", KERNEL_REPO);
+        final Feature standard = mockFeature("standard", "4.0.7", OTHER_REPO);
+
+        when(featuresService.getFeature("app")).thenReturn(app);
+        when(featuresService.getFeature("lib", "[1,2)")).thenReturn(lib1);
+        when(featuresService.getFeature("util")).thenReturn(util);
+        when(featuresService.getFeature("standard")).thenReturn(standard);
+
+        final FeatureGraph graph = new FeatureGraphResolver(featuresService, 2).resolve("app",
+                ".*ddf.*",
+                100);
+
+        assertEquals("app", graph.getRootName());
+        assertEquals(3, graph.size());
+        assertEquals("lib/1.5.0",
+                graph.get("lib/[1,2)")
+                        .getId());
+        assertNotNull(graph.get("util/1.0.0"));
+        assertNull(graph.get("standard"));
+        verify(featuresService, never()).getFeature("lib");
+    }
+
+    @Test
+    public void testResolveStopsAtMaxDepth() throws Exception {
+        final Feature app = mockFeature("app", "1.0.0", KERNEL_REPO, "lib");
+        final Feature lib = mockFeature("lib", "1.0.0", KERNEL_REPO, "util");
+
+        when(featuresService.getFeature("app")).thenReturn(app);
+        when(featuresService.getFeature("lib")).thenReturn(lib);
+        when(featuresService.getFeature("util")).thenThrow(new IllegalStateException("unresolved"));
+
+        final FeatureGraph graph = new FeatureGraphResolver(featuresService, 1).resolve("app",
+                ".*",
+                1);
+
+        assertEquals(2, graph.size());
+        verify(featuresService, never()).getFeature("util");
+    }
+
+    private static Feature mockFeature(String name, String version, String repositoryUrl,
+            String... dependencies) {
+        final Feature feature = mock(Feature.class);
+        final Dependency[] mockDependencies = new Dependency[dependencies.length];
+
+        for (int i = 0; i < dependencies.length; i++) {
+            final String[] parts = dependencies[i].split("/", 2);
+
+            mockDependencies[i] = mock(Dependency.class);
+            when(mockDependencies[i].getName()).thenReturn(parts[0]);
+            when(mockDependencies[i].getVersion()).thenReturn(
+                    parts.length > 1 ? parts[1] : FeatureGraph.DEFAULT_VERSION);
+        }
+        final BundleInfo bundle = mock(BundleInfo.class);
+
+        when(bundle.getLocation()).thenReturn("mvn:" + name + "/" + name + "/" + version);
+        when(feature.getName()).thenReturn(name);
+        when(feature.getVersion()).thenReturn(version);
+        when(feature.getRepositoryUrl()).thenReturn(repositoryUrl);
+        when(feature.getDependencies()).thenReturn(Arrays.asList(mockDependencies));
+        when(feature.getBundles()).thenReturn(Collections.singletonList(bundle));
+        return feature;
+    }
+
+    private static Repository mockRepository(Feature... features) throws Exception {
+        final Repository repository = mock(Repository.class);
+
+        when(repository.getFeatures()).thenReturn(features);
+        return repository;
+    }
+}
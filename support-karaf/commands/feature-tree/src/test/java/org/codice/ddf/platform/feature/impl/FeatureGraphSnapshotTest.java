@@ -0,0 +1,120 @@
+package org.codice.ddf.platform.feature.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FeatureGraphSnapshotTest {
+    private static final String REPO = "mvn:ddf.features/kernel/2.3.15/xml/features";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        final FeatureGraph graph = createGraph(
+                new FeatureNode("kernel",
+                        "2.3.15",
+                        REPO,
+                        Arrays.asList("security-core/[2.3,3)", "common"),
+                        Arrays.asList("mvn:ddf/kernel/2.3.15", "mvn:ddf/common/1.0")),
+                new FeatureNode("security-core",
+                        "2.3.15",
+                        REPO,
+                        Collections.singletonList("common"),
+                        Collections.singletonList("mvn:ddf/security-\u00e9/2.3.15")),
+                new FeatureNode("security-core",
+                        "3.0.0",
+                        REPO,
+                        Collections.emptyList(),
+                        Collections.emptyList()),
+                new FeatureNode("common",
+                        FeatureGraph.DEFAULT_VERSION,
+                        "file:/tmp/common.xml",
+                        Collections.emptyList(),
+                        Collections.singletonList("mvn:ddf/common/1.0")));
+        final File file = temporaryFolder.newFile("graph.snapshot");
+
+        FeatureGraphSnapshot.write(graph, file);
+        final FeatureGraph read = FeatureGraphSnapshot.read(file);
+
+        assertNull(read.getRootName());
+        assertEquals(graph.size(), read.size());
+        for (FeatureNode node : graph.getNodes()) {
+            assertNode(node, read.get(node.getId()));
+        }
+    }
+
+    @Test
+    public void testRoundTripKeepsAllVersionsOfAFeature() throws Exception {
+        final FeatureGraph graph = createGraph(
+                new FeatureNode("app", "1.0.0", REPO, Collections.singletonList("lib/[1,2)"),
+                        Collections.emptyList()),
+                new FeatureNode("lib", "1.5.0", REPO, Collections.emptyList(),
+                        Collections.singletonList("mvn:ddf/lib/1.5.0")),
+                new FeatureNode("lib", "2.0.0", REPO, Collections.emptyList(),
+                        Collections.singletonList("mvn:ddf/lib/2.0.0")));
+        final File file = temporaryFolder.newFile("graph.snapshot");
+
+        FeatureGraphSnapshot.write(graph, file);
+        final FeatureGraph read = FeatureGraphSnapshot.read(file);
+
+        assertEquals(3, read.size());
+        assertEquals("2.0.0", read.get("lib").getVersion());
+        assertEquals("1.5.0", read.get("lib/1.5.0").getVersion());
+        assertEquals("1.5.0", read.get("lib/[1,2)").getVersion());
+        assertNull(read.get("lib/[3,4)"));
+        assertEquals(2,
+                new FeatureGraphQueries(read).getCost("app")
+                        .getFeatures());
+    }
+
+    @Test
+    public void testRoundTripEmptyGraph() throws Exception {
+        final File file = temporaryFolder.newFile("graph.snapshot");
+
+        FeatureGraphSnapshot.write(new FeatureGraph(null, new HashMap<>()), file);
+        assertEquals(0, FeatureGraphSnapshot.read(file)
+                .size());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadNotASnapshot() throws Exception {
+        final File file = temporaryFolder.newFile("graph.snapshot");
+
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+            out.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        }
+        FeatureGraphSnapshot.read(file);
+    }
+
+    private static FeatureGraph createGraph(FeatureNode... nodes) {
+        final Map<String, FeatureNode> map = new HashMap<>();
+
+        for (FeatureNode node : nodes) {
+            map.put(node.getId(), node);
+        }
+        return new FeatureGraph(null, map);
+    }
+
+    private static void assertNode(FeatureNode expected, FeatureNode actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getRepositoryUrl(), actual.getRepositoryUrl());
+        assertEquals(expected.getDependencies(), actual.getDependencies());
+        assertEquals(expected.getBundles(), actual.getBundles());
+    }
+}
@@ -0,0 +1,83 @@
+package org.codice.ddf.platform.feature.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FeatureRepositoryReaderTest {
+    private static final String REPO_FILTER = ".*(ddf|alliance).*";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testFilterOnlyAppliesToReferencedRepositories() throws Exception {
+        final File root = writeRepository("features.xml",
+                "<repository>ddf-features.xml</repository>"
+                        + "<repository>other-features.xml</repository>"
+                        + "<feature name=\"app\" version=\"1.0.0\">"
+                        + "<feature version=\"[1,2)\">kernel</feature><feature>lib</feature>"
+                        + "<bundle>mvn:app/app/1.0.0</bundle></feature>");
+        final File ddf = writeRepository("ddf-features.xml",
+                "<feature name=\"kernel\" version=\"1.5.0\"/>"
+                        + "<feature name=\"kernel\" version=\"2.0.0\"/>");
+
+        writeRepository("other-features.xml", "<feature name=\"lib\" version=\"1.0.0\"/>");
+        final FeatureGraph graph = new FeatureRepositoryReader().read(root.toURI(), REPO_FILTER);
+
+        assertEquals(3, graph.size());
+        assertNotNull(graph.get("app/1.0.0"));
+        assertNotNull(graph.get("kernel/1.5.0"));
+        assertNotNull(graph.get("kernel/2.0.0"));
+        assertNull(graph.get("lib"));
+        assertEquals(Arrays.asList("kernel/[1,2)", "lib"),
+                graph.get("app")
+                        .getDependencies());
+        assertEquals(new HashSet<>(Arrays.asList(root.toURI()
+                        .toString(), ddf.toURI()
+                        .toString())),
+                graph.getRepositoryKeys());
+    }
+
+    @Test
+    public void testSharedRepositoriesAreReadOnce() throws Exception {
+        final File oldRoot = writeRepository("old.xml",
+                "<repository>ddf-shared.xml</repository><feature name=\"app\" version=\"1.0.0\"/>");
+        final File newRoot = writeRepository("new.xml",
+                "<repository>ddf-shared.xml</repository><feature name=\"app\" version=\"1.1.0\"/>");
+        final File shared = writeRepository("ddf-shared.xml",
+                "<feature name=\"kernel\" version=\"1.0.0\"/>");
+        final FeatureRepositoryReader reader = new FeatureRepositoryReader();
+        final FeatureGraph oldGraph = reader.read(oldRoot.toURI(), REPO_FILTER);
+
+        assertTrue(shared.delete());
+        final FeatureGraph newGraph = reader.read(newRoot.toURI(), REPO_FILTER);
+
+        assertEquals(2, oldGraph.size());
+        assertNotNull(oldGraph.get("app/1.0.0"));
+        assertEquals(2, newGraph.size());
+        assertNotNull(newGraph.get("app/1.1.0"));
+        assertNotNull(newGraph.get("kernel/1.0.0"));
+    }
+
+    private File writeRepository(String name, String content) throws IOException {
+        final File file = new File(temporaryFolder.getRoot(), name);
+
+        Files.write(file.toPath(),
+                ("<features name=\"" + name + "\">" + content + "</features>").getBytes(
+                        StandardCharsets.UTF_8));
+        return file;
+    }
+}
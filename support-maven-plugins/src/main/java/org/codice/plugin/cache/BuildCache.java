@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Directory holding the build outputs of modules keyed by the hash of their inputs and the furthest
+ * lifecycle phase the build storing them reached. Each entry is a sub directory named after the
+ * hash and the phase, with a copy of the compiled classes and test results of the module. Entries
+ * are written to a temporary directory first and then renamed, so concurrent builds sharing the
+ * cache never see a partial entry.
+ */
+class BuildCache {
+
+    static final List<String> OUTPUTS = Arrays.asList("classes", "test-classes", "surefire-reports");
+
+    private final File directory;
+
+    /**
+     * @param directory: Cache directory, created when the first entry is stored
+     */
+    BuildCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Replaces the outputs found in the build directory by the cached ones. Restored files get
+     * the current time as modification time so the compiler considers them up to date.
+     *
+     * @param hash:           Hash of the module inputs
+     * @param buildDirectory: Build directory of the module
+     * @param phases:         Phases the stored entry may have been built to; entries built to an
+     *                        earlier phase lack the outputs of the later ones and are not restored
+     * @return true if the cache had an entry for the hash and one of the phases
+     * @throws IOException if the entry cannot be copied
+     */
+    boolean restore(String hash, File buildDirectory, List<String> phases) throws IOException {
+        File entry = phases.stream()
+                .map(phase -> getEntry(hash, phase))
+                .filter(File::isDirectory)
+                .findFirst()
+                .orElse(null);
+
+        if (entry == null) {
+            return false;
+        }
+        for (String output : OUTPUTS) {
+            File cached = new File(entry, output);
+            File target = new File(buildDirectory, output);
+
+            FileUtils.deleteDirectory(target);
+            if (cached.isDirectory()) {
+                copy(cached.toPath(), target.toPath());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores the outputs of a module, unless the cache already has an entry for the hash and phase.
+     *
+     * @param hash:           Hash of the module inputs
+     * @param buildDirectory: Build directory of the module
+     * @param phase:          Furthest lifecycle phase the module was built to
+     * @throws IOException if the entry cannot be written
+     */
+    void store(String hash, File buildDirectory, String phase) throws IOException {
+        File entry = getEntry(hash, phase);
+
+        if (entry.isDirectory()) {
+            return;
+        }
+        Files.createDirectories(directory.toPath());
+
+        Path temp = Files.createTempDirectory(directory.toPath(), hash + ".");
+
+        try {
+            for (String output : OUTPUTS) {
+                File built = new File(buildDirectory, output);
+
+                if (built.isDirectory()) {
+                    copy(built.toPath(), temp.resolve(output));
+                }
+            }
+            Files.move(temp, entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // another build stored the same entry first
+            if (!entry.isDirectory()) {
+                throw e;
+            }
+        } finally {
+            FileUtils.deleteDirectory(temp.toFile());
+        }
+    }
+
+    private File getEntry(String hash, String phase) {
+        return new File(directory, hash + "-" + phase);
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                    throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs)
+                    throws IOException {
+                Files.copy(file, target.resolve(source.relativize(file)));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.MavenExecutionException;
+import org.apache.maven.execution.BuildSuccess;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.logging.LogEnabled;
+import org.codehaus.plexus.logging.Logger;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+
+/**
+ * Build extension skipping the compilation, tests and static analysis of the modules whose inputs
+ * did not change since a previous build, restoring their classes and test results from a local
+ * {@link BuildCache} instead. The outputs of the other modules are stored in the cache once the
+ * build succeeds, along with the furthest lifecycle phase the build reached; they are only
+ * restored by builds that do not go further, so e.g. tests skipped by a compile build are not
+ * skipped by a later verify build.
+ * <p>
+ * Enabled by declaring this artifact as a build extension (e.g. in .mvn/extensions.xml). The cache
+ * directory defaults to ~/.m2/build-cache and can be changed with -DbuildCache.directory, which
+ * can point to a shared file system; -DbuildCache.skip disables it. Plugins that are not
+ * skippable, such as packaging plugins, still run on the restored outputs.
+ * <p>
+ * Only the snapshot dependencies declared by a module are part of its hash, so updating a snapshot
+ * from outside the reactor that a module only depends on transitively does not invalidate its
+ * cached outputs; build with -DbuildCache.skip after updating such a snapshot.
+ */
+public class BuildCacheLifecycleParticipant extends AbstractMavenLifecycleParticipant
+        implements LogEnabled {
+
+    static final String DIRECTORY_PROPERTY = "buildCache.directory";
+
+    static final String SKIP_PROPERTY = "buildCache.skip";
+
+    /**
+     * Properties skipping the work whose outputs are restored from the cache. Clean is skipped as
+     * well since the restored outputs would otherwise be deleted before being used.
+     */
+    private static final List<String> SKIP_PROPERTIES = Arrays.asList("maven.clean.skip",
+            "maven.main.skip",
+            "skipTests",
+            "checkstyle.skip",
+            "pmd.skip",
+            "cpd.skip",
+            "findbugs.skip",
+            "jacoco.skip");
+
+    /**
+     * Properties making a build produce partial outputs, which must not be cached.
+     */
+    private static final List<String> PARTIAL_BUILD_PROPERTIES =
+            Arrays.asList("skipTests", "maven.test.skip", "maven.test.skip.exec");
+
+    private static final List<String> BUILDING_PHASES = Arrays.asList("compile",
+            "test-compile",
+            "test",
+            "package",
+            "integration-test",
+            "verify",
+            "install",
+            "deploy");
+
+    private final Map<MavenProject, String> misses = new IdentityHashMap<>();
+
+    private BuildCache cache;
+
+    private String phase;
+
+    private Logger logger;
+
+    @Override
+    public void enableLogging(Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public void afterProjectsRead(MavenSession session) throws MavenExecutionException {
+        Properties properties = session.getUserProperties();
+        int furthest = session.getGoals()
+                .stream()
+                .mapToInt(BUILDING_PHASES::indexOf)
+                .max()
+                .orElse(-1);
+
+        if (properties.containsKey(SKIP_PROPERTY) || furthest < 0) {
+            return;
+        }
+        phase = BUILDING_PHASES.get(furthest);
+        cache = new BuildCache(new File(properties.getProperty(DIRECTORY_PROPERTY,
+                new File(session.getLocalRepository()
+                        .getBasedir()).getParent() + File.separator + "build-cache")));
+
+        ModuleInputHasher hasher =
+                new ModuleInputHasher(new File(session.getExecutionRootDirectory()),
+                        dependency -> resolveLocally(session, dependency));
+        List<String> restorablePhases = BUILDING_PHASES.subList(furthest, BUILDING_PHASES.size());
+        int restored = 0;
+
+        for (MavenProject project : session.getProjects()) {
+            try {
+                String hash = hasher.hash(project);
+
+                if (cache.restore(hash, new File(project.getBuild()
+                        .getDirectory()), restorablePhases)) {
+                    for (String property : SKIP_PROPERTIES) {
+                        project.getProperties()
+                                .setProperty(property, "true");
+                    }
+                    logger.info(String.format("Restored %s from build cache %s",
+                            project.getArtifactId(),
+                            hash));
+                    restored++;
+                } else {
+                    misses.put(project, hash);
+                }
+            } catch (IOException e) {
+                throw new MavenExecutionException("Could not use build cache for "
+                        + project.getArtifactId(), e);
+            }
+        }
+        logger.info(String.format("Build cache: %d of %d modules restored",
+                restored,
+                session.getProjects()
+                        .size()));
+    }
+
+    @Override
+    public void afterSessionEnd(MavenSession session) throws MavenExecutionException {
+        if (cache == null || PARTIAL_BUILD_PROPERTIES.stream()
+                .anyMatch(session.getUserProperties()::containsKey)) {
+            return;
+        }
+        for (Map.Entry<MavenProject, String> miss : misses.entrySet()) {
+            MavenProject project = miss.getKey();
+
+            if (session.getResult()
+                    .getBuildSummary(project) instanceof BuildSuccess) {
+                try {
+                    cache.store(miss.getValue(),
+                            new File(project.getBuild()
+                                    .getDirectory()),
+                            phase);
+                } catch (IOException e) {
+                    logger.warn("Could not store " + project.getArtifactId()
+                            + " in build cache", e);
+                }
+            }
+        }
+    }
+
+    private static File resolveLocally(MavenSession session, Dependency dependency) {
+        RepositorySystemSession repositorySession = session.getRepositorySession();
+        String extension = "pom".equals(dependency.getType())
+                || "war".equals(dependency.getType()) ? dependency.getType() : "jar";
+        String path = repositorySession.getLocalRepositoryManager()
+                .getPathForLocalArtifact(new DefaultArtifact(dependency.getGroupId(),
+                        dependency.getArtifactId(),
+                        dependency.getClassifier(),
+                        extension,
+                        dependency.getVersion()));
+
+        return new File(repositorySession.getLocalRepository()
+                .getBasedir(), path);
+    }
+}
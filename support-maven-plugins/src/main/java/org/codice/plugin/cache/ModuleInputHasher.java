@@ -0,0 +1,304 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.model.Resource;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Computes a content hash of the inputs of each module of a reactor: its source and resource
+ * files, its effective pom and the hashes of its dependencies. The hash of a dependency built by
+ * the reactor is its own input hash, so modules must be hashed in reactor order; snapshot
+ * dependencies from outside the reactor are hashed by content, and releases by coordinates since
+ * they never change.
+ * <p>
+ * The absolute path of the module is left out so the hashes do not depend on where the project is
+ * checked out. Properties holding an absolute path are hashed relative to the root directory of
+ * the build, or left out when the path is outside of it (e.g. in the user home directory).
+ * <p>
+ * Only the dependencies declared by the module are hashed: dependencies are not resolved yet when
+ * the hashes are computed, and modules of the reactor that are not built yet could not be resolved
+ * anyway. A snapshot dependency from outside the reactor that is only pulled in transitively
+ * therefore does not change the hash when it is updated; modules relying on such a dependency
+ * should declare it directly, or the cache should be skipped after updating it.
+ */
+class ModuleInputHasher {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Path rootDirectory;
+
+    private final Function<Dependency, File> snapshotResolver;
+
+    private final Map<String, String> reactorHashes = new HashMap<>();
+
+    /**
+     * @param rootDirectory:    Root directory of the build, containing all the modules
+     * @param snapshotResolver: Returns the local file of a snapshot dependency from outside the
+     *                          reactor, or null if it is not available
+     */
+    ModuleInputHasher(File rootDirectory, Function<Dependency, File> snapshotResolver) {
+        this.rootDirectory = rootDirectory.getAbsoluteFile()
+                .toPath()
+                .normalize();
+        this.snapshotResolver = snapshotResolver;
+    }
+
+    /**
+     * @param project: Module to hash, after the modules it depends on
+     * @return the hex encoded SHA-256 hash of the module inputs
+     * @throws IOException if a file cannot be read
+     */
+    String hash(MavenProject project) throws IOException {
+        // the project and model lists are raw with the maven-project version compiled against
+        MessageDigest digest = newDigest();
+        String basedir = project.getBasedir()
+                .getAbsolutePath();
+
+        update(digest, basedir, getModelDescription(project));
+        for (Object o : project.getDependencies()) {
+            Dependency dependency = (Dependency) o;
+            String reactorHash = reactorHashes.get(getKey(dependency.getGroupId(),
+                    dependency.getArtifactId()));
+
+            if (reactorHash != null) {
+                update(digest, basedir, "reactor " + reactorHash);
+            } else if (dependency.getVersion() != null && dependency.getVersion()
+                    .endsWith("-SNAPSHOT")) {
+                File file = snapshotResolver.apply(dependency);
+
+                update(digest, basedir, "snapshot " + getKey(dependency));
+                if (file != null && file.isFile()) {
+                    updateWithFile(digest, file.toPath());
+                }
+            }
+        }
+
+        List<String> inputDirectories = new ArrayList<>();
+        for (Object o : project.getCompileSourceRoots()) {
+            inputDirectories.add((String) o);
+        }
+        for (Object o : project.getTestCompileSourceRoots()) {
+            inputDirectories.add((String) o);
+        }
+        for (Object o : project.getResources()) {
+            inputDirectories.add(((Resource) o).getDirectory());
+        }
+        for (Object o : project.getTestResources()) {
+            inputDirectories.add(((Resource) o).getDirectory());
+        }
+        for (String directory : inputDirectories) {
+            Path root = new File(directory).toPath();
+
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(root)) {
+                for (Path file : files.filter(Files::isRegularFile)
+                        .sorted()
+                        .collect(Collectors.toList())) {
+                    update(digest, basedir, "file " + file.toAbsolutePath());
+                    updateWithFile(digest, file);
+                }
+            }
+        }
+
+        String hash = toHex(digest.digest());
+
+        reactorHashes.put(getKey(project.getGroupId(), project.getArtifactId()), hash);
+        return hash;
+    }
+
+    /**
+     * Describes the parts of the effective pom that affect the build outputs: the coordinates,
+     * properties, plugins with their configuration and the dependencies.
+     */
+    private String getModelDescription(MavenProject project) {
+        StringBuilder description = new StringBuilder();
+
+        description.append("project ")
+                .append(project.getId())
+                .append(' ')
+                .append(project.getPackaging())
+                .append('\n');
+        if (project.getParent() != null) {
+            String parentKey = getKey(project.getParent()
+                    .getGroupId(),
+                    project.getParent()
+                            .getArtifactId());
+
+            description.append("parent ")
+                    .append(reactorHashes.getOrDefault(parentKey,
+                            project.getParent()
+                                    .getId()))
+                    .append('\n');
+        }
+        for (Map.Entry<Object, Object> property : new TreeMap<>(project.getProperties()).entrySet()) {
+            String value = normalizePath(String.valueOf(property.getValue()));
+
+            if (value == null) {
+                continue;
+            }
+            description.append("property ")
+                    .append(property.getKey())
+                    .append('=')
+                    .append(value)
+                    .append('\n');
+        }
+
+        List<Plugin> plugins = new ArrayList<>();
+        for (Object o : project.getBuildPlugins()) {
+            plugins.add((Plugin) o);
+        }
+        plugins.sort((p1, p2) -> p1.getKey()
+                .compareTo(p2.getKey()));
+        for (Plugin plugin : plugins) {
+            description.append("plugin ")
+                    .append(plugin.getKey())
+                    .append(':')
+                    .append(plugin.getVersion())
+                    .append(' ')
+                    .append(plugin.getConfiguration())
+                    .append('\n');
+            for (Object e : plugin.getExecutions()) {
+                PluginExecution execution = (PluginExecution) e;
+
+                description.append("execution ")
+                        .append(execution.getId())
+                        .append(' ')
+                        .append(execution.getPhase())
+                        .append(' ')
+                        .append(execution.getGoals())
+                        .append(' ')
+                        .append(execution.getConfiguration())
+                        .append('\n');
+            }
+        }
+        for (Object o : project.getDependencies()) {
+            Dependency dependency = (Dependency) o;
+
+            description.append("dependency ")
+                    .append(getKey(dependency))
+                    .append(' ')
+                    .append(dependency.getScope())
+                    .append(' ')
+                    .append(dependency.isOptional());
+            for (Object e : dependency.getExclusions()) {
+                Exclusion exclusion = (Exclusion) e;
+
+                description.append(' ')
+                        .append(getKey(exclusion.getGroupId(), exclusion.getArtifactId()));
+            }
+            description.append('\n');
+        }
+        return description.toString();
+    }
+
+    /**
+     * @param value: Value of a property
+     * @return the value, relative to the root directory if it is an absolute path inside of it, or
+     * null if it is an absolute path outside of it
+     */
+    private String normalizePath(String value) {
+        Path path;
+
+        try {
+            path = Paths.get(value);
+        } catch (InvalidPathException e) {
+            return value;
+        }
+        if (!path.isAbsolute()) {
+            return value;
+        }
+        path = path.normalize();
+        if (!path.startsWith(rootDirectory)) {
+            return null;
+        }
+        return "${rootdir}/" + rootDirectory.relativize(path);
+    }
+
+    private static String getKey(String groupId, String artifactId) {
+        return groupId + ":" + artifactId;
+    }
+
+    private static String getKey(Dependency dependency) {
+        return String.join(":",
+                dependency.getGroupId(),
+                dependency.getArtifactId(),
+                dependency.getType(),
+                String.valueOf(dependency.getClassifier()),
+                String.valueOf(dependency.getVersion()));
+    }
+
+    private static void update(MessageDigest digest, String basedir, String text) {
+        digest.update(text.replace(basedir, "${basedir}")
+                .replace(File.separatorChar, '/')
+                .getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) '\n');
+    }
+
+    private static void updateWithFile(MessageDigest digest, Path file) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try (InputStream is = Files.newInputStream(file)) {
+            int read;
+
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+}
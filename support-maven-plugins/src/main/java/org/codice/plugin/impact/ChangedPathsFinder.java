@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.impact;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+
+/**
+ * Lists the files changed between two refs of a local git repository, the same way a pull request
+ * does: the head ref is compared against its merge base with the base ref, so the changes made to
+ * the base ref in the meantime are not included.
+ * <p>
+ * The merge base must be in the local history: shallow clones, as made by default by most CI
+ * servers, must be fetched deep enough to hold it (e.g. with "git fetch --deepen" or
+ * "--unshallow"). Otherwise the head ref is compared against the base ref itself, which also lists
+ * the files changed on the base ref in the meantime so more modules than needed are built.
+ */
+class ChangedPathsFinder {
+
+    private final File directory;
+
+    private final Log log;
+
+    /**
+     * @param directory: Directory inside the work tree of the repository
+     * @param log:       Where to warn when the merge base is not in the local history
+     */
+    ChangedPathsFinder(File directory, Log log) {
+        this.directory = directory;
+        this.log = log;
+    }
+
+    /**
+     * @param baseRef: Ref the changes are made against (e.g. the target branch)
+     * @param headRef: Ref holding the changes
+     * @return sorted absolute paths of the files added, modified or deleted; both the old and new
+     * paths of renamed files are included
+     * @throws IOException if the repository cannot be read or a ref cannot be resolved
+     */
+    Set<File> find(String baseRef, String headRef) throws IOException {
+        Set<File> changed = new TreeSet<>();
+        Repository repository = new FileRepositoryBuilder().readEnvironment()
+                .findGitDir(directory)
+                .build();
+        RevWalk walk = new RevWalk(repository);
+        DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE);
+
+        try {
+            RevCommit head = walk.parseCommit(resolve(repository, headRef));
+            RevCommit base = walk.parseCommit(resolve(repository, baseRef));
+            RevTree baseTree = getMergeBaseTree(walk, base, head);
+
+            if (baseTree == null) {
+                log.warn(String.format("Could not find the merge base of %s and %s, the clone may "
+                                + "be too shallow; comparing against %s itself, which also lists the "
+                                + "files it changed since %s was branched off",
+                        baseRef,
+                        headRef,
+                        baseRef,
+                        headRef));
+                baseTree = base.getTree();
+            }
+            formatter.setRepository(repository);
+            formatter.setDetectRenames(true);
+
+            for (DiffEntry entry : formatter.scan(baseTree, head.getTree())) {
+                if (entry.getChangeType() != DiffEntry.ChangeType.ADD) {
+                    changed.add(new File(repository.getWorkTree(), entry.getOldPath()));
+                }
+                if (entry.getChangeType() != DiffEntry.ChangeType.DELETE) {
+                    changed.add(new File(repository.getWorkTree(), entry.getNewPath()));
+                }
+            }
+        } finally {
+            formatter.release();
+            walk.release();
+            repository.close();
+        }
+        return changed;
+    }
+
+    /**
+     * @return the tree of the merge base of the commits, or null if they have no common ancestor
+     * in the local history, e.g. in a shallow clone
+     */
+    private static RevTree getMergeBaseTree(RevWalk walk, RevCommit base, RevCommit head)
+            throws IOException {
+        walk.setRevFilter(RevFilter.MERGE_BASE);
+        walk.markStart(base);
+        walk.markStart(head);
+
+        try {
+            RevCommit mergeBase = walk.next();
+
+            return mergeBase == null ? null : mergeBase.getTree();
+        } catch (MissingObjectException e) {
+            // the parents of the oldest commits of a shallow clone are missing
+            return null;
+        }
+    }
+
+    private static ObjectId resolve(Repository repository, String ref) throws IOException {
+        ObjectId id = repository.resolve(ref);
+
+        if (id == null) {
+            throw new IOException("Could not resolve " + ref);
+        }
+        return id;
+    }
+}
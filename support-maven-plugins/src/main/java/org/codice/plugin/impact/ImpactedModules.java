@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.impact;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.maven.execution.ProjectDependencyGraph;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Computes the reactor modules impacted by a set of changed files: the modules owning the files
+ * plus every module depending on them, directly or not, including through parent poms. A file is
+ * owned by the module with the deepest base directory containing it.
+ */
+class ImpactedModules {
+
+    private final ProjectDependencyGraph graph;
+
+    /**
+     * @param graph: Dependency graph of the reactor
+     */
+    ImpactedModules(ProjectDependencyGraph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * @param changedFiles: Absolute paths of the changed files
+     * @return the impacted modules in reactor order; files outside of every module are ignored
+     * @throws IOException if the base directory of a module cannot be resolved
+     */
+    List<MavenProject> compute(Collection<File> changedFiles) throws IOException {
+        List<MavenProject> sortedProjects = graph.getSortedProjects();
+        Map<File, MavenProject> modulesByBasedir = new HashMap<>();
+        // MavenProject equality is by coordinates, which do not need to be unique
+        Set<MavenProject> impacted = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (MavenProject module : sortedProjects) {
+            modulesByBasedir.put(module.getBasedir()
+                    .getCanonicalFile(), module);
+        }
+        for (File file : changedFiles) {
+            File dir = file.getCanonicalFile()
+                    .getParentFile();
+            MavenProject owner = null;
+
+            while (owner == null && dir != null) {
+                owner = modulesByBasedir.get(dir);
+                dir = dir.getParentFile();
+            }
+            if (owner != null && impacted.add(owner)) {
+                impacted.addAll(graph.getDownstreamProjects(owner, true));
+            }
+        }
+        return sortedProjects.stream()
+                .filter(impacted::contains)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Formats modules as a project list for the -pl option of Maven.
+     *
+     * @param modules:       Modules to list
+     * @param executionRoot: Directory Maven is run from
+     * @return comma separated paths of the module directories relative to the execution root
+     * @throws IOException if the base directory of a module cannot be resolved
+     */
+    static String toProjectList(List<MavenProject> modules, File executionRoot)
+            throws IOException {
+        StringBuilder projectList = new StringBuilder();
+
+        for (MavenProject module : modules) {
+            String path = executionRoot.getCanonicalFile()
+                    .toPath()
+                    .relativize(module.getBasedir()
+                            .getCanonicalFile()
+                            .toPath())
+                    .toString()
+                    .replace(File.separatorChar, '/');
+
+            if (projectList.length() > 0) {
+                projectList.append(',');
+            }
+            projectList.append(path.isEmpty() ? "." : path);
+        }
+        return projectList.toString();
+    }
+}
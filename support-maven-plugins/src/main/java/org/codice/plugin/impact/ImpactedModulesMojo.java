@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.impact;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Lists the reactor modules impacted by the changes made on a git ref, for pull request builds to
+ * only build those with "-pl". The changes are mapped to the modules owning the changed files, and
+ * the modules depending on them are added so the build stays correct.
+ * <p>
+ * Must be run on the whole reactor, e.g.
+ * {@code mvn -q version-validation:impacted-modules -Dimpacted.baseRef=origin/master
+ * -Dimpacted.outputFile=target/modules.txt}
+ */
+@Mojo(name = "impacted-modules", aggregator = true, threadSafe = true)
+public class ImpactedModulesMojo extends AbstractMojo {
+
+    /**
+     * Ref the changes are made against, e.g. the target branch of the pull request.
+     */
+    @Parameter(property = "impacted.baseRef", defaultValue = "origin/master")
+    String baseRef;
+
+    /**
+     * Ref holding the changes.
+     */
+    @Parameter(property = "impacted.headRef", defaultValue = "HEAD")
+    String headRef;
+
+    /**
+     * File where to write the project list; it is only logged when not set.
+     */
+    @Parameter(property = "impacted.outputFile")
+    File outputFile;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    MavenSession session;
+
+    public void execute() throws MojoExecutionException {
+        File executionRoot = new File(session.getExecutionRootDirectory());
+
+        try {
+            Set<File> changedFiles =
+                    new ChangedPathsFinder(executionRoot, getLog()).find(baseRef, headRef);
+            List<MavenProject> modules =
+                    new ImpactedModules(session.getProjectDependencyGraph()).compute(changedFiles);
+            String projectList = ImpactedModules.toProjectList(modules, executionRoot);
+
+            getLog().info(String.format("%d changed files impact %d of %d modules: %s",
+                    changedFiles.size(),
+                    modules.size(),
+                    session.getProjects()
+                            .size(),
+                    projectList));
+            if (outputFile != null) {
+                FileUtils.writeStringToFile(outputFile, projectList, StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not compute the impacted modules", e);
+        }
+    }
+}
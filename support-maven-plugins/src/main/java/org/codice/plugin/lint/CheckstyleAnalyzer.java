@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.lint;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.xml.sax.InputSource;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
+import com.puppycrawl.tools.checkstyle.PropertiesExpander;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+/**
+ * Runs Checkstyle in-process on a list of source files with a single {@link Checker}, so the
+ * configuration is only loaded once per build.
+ */
+class CheckstyleAnalyzer {
+
+    private final Configuration configuration;
+
+    /**
+     * @param configurationUrl: location of the Checkstyle configuration
+     * @param properties: values of the properties referenced by the configuration
+     * @throws CheckstyleException if the configuration cannot be loaded
+     */
+    CheckstyleAnalyzer(URL configurationUrl, Properties properties) throws CheckstyleException {
+        this.configuration = ConfigurationLoader.loadConfiguration(new InputSource(
+                configurationUrl.toString()), new PropertiesExpander(properties), true);
+    }
+
+    /**
+     * Checks the given files.
+     *
+     * @param files: the files to check
+     * @return the violations found, keyed by file; files without violations are included with an
+     * empty list
+     * @throws CheckstyleException if the checker cannot be set up
+     */
+    Map<File, List<Violation>> analyze(List<File> files) throws CheckstyleException {
+        final Map<String, List<Violation>> violationsByPath = new HashMap<>();
+        final Checker checker = new Checker();
+
+        for (File file : files) {
+            violationsByPath.put(file.getAbsolutePath(), new ArrayList<>());
+        }
+        try {
+            checker.setModuleClassLoader(Checker.class.getClassLoader());
+            checker.setCharset(StandardCharsets.UTF_8.name());
+            checker.configure(configuration);
+            checker.addListener(new ViolationCollector(violationsByPath));
+            checker.process(files);
+        } catch (UnsupportedEncodingException e) {
+            throw new CheckstyleException("UTF-8 is not supported", e);
+        } finally {
+            checker.destroy();
+        }
+
+        final Map<File, List<Violation>> violations = new HashMap<>();
+
+        for (File file : files) {
+            violations.put(file, violationsByPath.get(file.getAbsolutePath()));
+        }
+        return violations;
+    }
+
+    private static class ViolationCollector implements AuditListener {
+
+        private final Map<String, List<Violation>> violationsByPath;
+
+        ViolationCollector(Map<String, List<Violation>> violationsByPath) {
+            this.violationsByPath = violationsByPath;
+        }
+
+        @Override
+        public void auditStarted(AuditEvent event) {
+        }
+
+        @Override
+        public void auditFinished(AuditEvent event) {
+        }
+
+        @Override
+        public void fileStarted(AuditEvent event) {
+        }
+
+        @Override
+        public void fileFinished(AuditEvent event) {
+        }
+
+        @Override
+        public void addError(AuditEvent event) {
+            if (event.getSeverityLevel() == SeverityLevel.IGNORE) {
+                return;
+            }
+            add(event.getFileName(),
+                    new Violation(event.getLine(),
+                            event.getColumn(),
+                            event.getLine(),
+                            event.getColumn(),
+                            event.getSeverityLevel()
+                                    .getName(),
+                            event.getSourceName(),
+                            "",
+                            event.getMessage()));
+        }
+
+        @Override
+        public void addException(AuditEvent event, Throwable throwable) {
+            add(event.getFileName(),
+                    new Violation(0,
+                            0,
+                            0,
+                            0,
+                            SeverityLevel.ERROR.getName(),
+                            Checker.class.getName(),
+                            "",
+                            "Could not check file: " + throwable.getMessage()));
+        }
+
+        private synchronized void add(String fileName, Violation violation) {
+            violationsByPath.computeIfAbsent(new File(fileName).getAbsolutePath(),
+                    path -> new ArrayList<>())
+                    .add(violation);
+        }
+    }
+}
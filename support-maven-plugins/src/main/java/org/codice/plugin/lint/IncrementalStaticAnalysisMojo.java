@@ -0,0 +1,311 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.lint;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.SeverityLevel;
+
+import net.sourceforge.pmd.PMD;
+
+/**
+ * Runs the enforced Checkstyle configuration and PMD rule sets on the Java sources of a module,
+ * analyzing only the files whose content changed since the previous build.
+ * <p>
+ * The violations found in each file are cached along with the file's content hash in the build
+ * directory; files with an unchanged hash reuse their cached violations. Every check and rule
+ * configured looks at a single file at a time, so the merged checkstyle-result.xml and pmd.xml
+ * reports are the same as the ones of a full run.
+ */
+@Mojo(name = "check-changed-sources", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
+public class IncrementalStaticAnalysisMojo extends AbstractMojo {
+
+    @Parameter(defaultValue = "${project}", readonly = true)
+    MavenProject project;
+
+    @Parameter(defaultValue = "${project.build.directory}", readonly = true)
+    File buildDirectory;
+
+    /**
+     * Checkstyle configuration, as a file path or a classpath resource of the plugin.
+     */
+    @Parameter(property = "lint.checkstyle.config", defaultValue = "checkstyle-enforced.xml")
+    String checkstyleConfig;
+
+    /**
+     * Header file referenced by the Checkstyle configuration as ${checkstyle.header.file}, as a
+     * file path or a classpath resource of the plugin.
+     */
+    @Parameter(property = "lint.checkstyle.header", defaultValue = "lpgl-header-check.txt")
+    String checkstyleHeader;
+
+    /**
+     * Comma separated PMD rule sets, as file paths or classpath resources of the plugin.
+     */
+    @Parameter(property = "lint.pmd.ruleSets",
+            defaultValue = "basic.xml,empty.xml,sunsecure.xml,unnecessary.xml")
+    String pmdRuleSets;
+
+    @Parameter(property = "lint.pmd.targetJdk", defaultValue = "1.8")
+    String targetJdk;
+
+    @Parameter(property = "lint.failOnViolation", defaultValue = "true")
+    boolean failOnViolation;
+
+    @Parameter(property = "lint.skip", defaultValue = "false")
+    boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip) {
+            getLog().info("Skipping incremental Checkstyle and PMD analysis");
+            return;
+        }
+
+        final List<File> sources = getSourceFiles();
+
+        if (sources.isEmpty()) {
+            getLog().info("No Java sources to analyze");
+            return;
+        }
+
+        final URL checkstyleConfigUrl = resolve(checkstyleConfig);
+        final URL checkstyleHeaderUrl = resolve(checkstyleHeader);
+        final File cacheFile = new File(buildDirectory, "static-analysis-cache.json");
+        final SourceAnalysisCache cache = SourceAnalysisCache.load(cacheFile,
+                getSettingsKey(checkstyleConfigUrl, checkstyleHeaderUrl));
+        final Map<File, List<Violation>> checkstyleViolations = new LinkedHashMap<>();
+        final Map<File, List<Violation>> pmdViolations = new LinkedHashMap<>();
+        final Map<File, String> hashes = new LinkedHashMap<>();
+        final List<File> toAnalyze = new ArrayList<>();
+        final List<String> paths = new ArrayList<>();
+
+        for (File source : sources) {
+            final String path = getPath(source);
+            final String hash;
+
+            try {
+                hash = SourceAnalysisCache.hash(Files.readAllBytes(source.toPath()));
+            } catch (IOException e) {
+                throw new MojoExecutionException("Could not read " + source, e);
+            }
+            paths.add(path);
+            hashes.put(source, hash);
+            checkstyleViolations.put(source, cache.lookupCheckstyle(path, hash));
+            pmdViolations.put(source, cache.lookupPmd(path, hash));
+
+            if (checkstyleViolations.get(source) == null) {
+                toAnalyze.add(source);
+            }
+        }
+
+        getLog().info(String.format("Analyzing %d of %d Java sources with Checkstyle and PMD",
+                toAnalyze.size(),
+                sources.size()));
+
+        if (!toAnalyze.isEmpty()) {
+            final Map<File, List<Violation>> checkstyleResults =
+                    runCheckstyle(checkstyleConfigUrl, checkstyleHeaderUrl, toAnalyze);
+            final Map<File, List<Violation>> pmdResults = new PmdAnalyzer(pmdRuleSets,
+                    targetJdk).analyze(toAnalyze);
+
+            for (File source : toAnalyze) {
+                checkstyleViolations.put(source, checkstyleResults.get(source));
+                pmdViolations.put(source, pmdResults.get(source));
+                cache.put(getPath(source),
+                        hashes.get(source),
+                        checkstyleResults.get(source),
+                        pmdResults.get(source));
+            }
+        }
+
+        try {
+            cache.save(cacheFile, paths);
+            ReportWriter.writeCheckstyle(new File(buildDirectory, "checkstyle-result.xml"),
+                    getCheckstyleVersion(),
+                    checkstyleViolations);
+            ReportWriter.writePmd(new File(buildDirectory, "pmd.xml"), PMD.VERSION, pmdViolations);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not write the analysis results", e);
+        }
+
+        report(checkstyleViolations, pmdViolations);
+    }
+
+    private void report(Map<File, List<Violation>> checkstyleViolations,
+            Map<File, List<Violation>> pmdViolations) throws MojoFailureException {
+        int checkstyleErrors = 0;
+        int pmdCount = 0;
+
+        for (Map.Entry<File, List<Violation>> entry : checkstyleViolations.entrySet()) {
+            for (Violation violation : entry.getValue()) {
+                final String message = String.format("%s:[%d,%d] (%s) %s",
+                        entry.getKey(),
+                        violation.line,
+                        violation.column,
+                        violation.source,
+                        violation.message);
+
+                if (SeverityLevel.ERROR.getName()
+                        .equals(violation.severity)) {
+                    checkstyleErrors++;
+                    getLog().error(message);
+                } else {
+                    getLog().warn(message);
+                }
+            }
+        }
+        for (Map.Entry<File, List<Violation>> entry : pmdViolations.entrySet()) {
+            for (Violation violation : entry.getValue()) {
+                pmdCount++;
+                getLog().error(String.format("%s:%d Rule:%s Priority:%s %s.",
+                        entry.getKey(),
+                        violation.line,
+                        violation.source,
+                        violation.severity,
+                        violation.message));
+            }
+        }
+
+        if (failOnViolation && (checkstyleErrors > 0 || pmdCount > 0)) {
+            throw new MojoFailureException(String.format(
+                    "There are %d Checkstyle errors and %d PMD violations.",
+                    checkstyleErrors,
+                    pmdCount));
+        }
+    }
+
+    private Map<File, List<Violation>> runCheckstyle(URL configUrl, URL headerUrl,
+            List<File> files) throws MojoExecutionException {
+        final Properties properties = new Properties();
+        properties.setProperty("checkstyle.header.file", headerUrl.toString());
+
+        try {
+            return new CheckstyleAnalyzer(configUrl, properties).analyze(files);
+        } catch (CheckstyleException e) {
+            throw new MojoExecutionException("Could not run Checkstyle", e);
+        }
+    }
+
+    /**
+     * @return the Java files under the compile and test source roots, in a stable order
+     */
+    private List<File> getSourceFiles() throws MojoExecutionException {
+        final Set<File> sources = new TreeSet<>();
+        final List<Object> roots = new ArrayList<>();
+        roots.addAll(project.getCompileSourceRoots());
+        roots.addAll(project.getTestCompileSourceRoots());
+
+        for (Object root : roots) {
+            final Path directory = new File((String) root).toPath();
+
+            if (!Files.isDirectory(directory)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(directory)) {
+                sources.addAll(files.filter(file -> file.toString()
+                        .endsWith(".java") && Files.isRegularFile(file))
+                        .map(Path::toFile)
+                        .collect(Collectors.toList()));
+            } catch (IOException e) {
+                throw new MojoExecutionException("Could not list the sources in " + directory, e);
+            }
+        }
+        return new ArrayList<>(sources);
+    }
+
+    /**
+     * Computes a key identifying the tool versions and the contents of the configuration files,
+     * so cached results are discarded whenever any of them changes.
+     */
+    private String getSettingsKey(URL checkstyleConfigUrl, URL checkstyleHeaderUrl)
+            throws MojoExecutionException {
+        final List<byte[]> contents = new ArrayList<>();
+        contents.add(String.join("\n", getCheckstyleVersion(), PMD.VERSION, pmdRuleSets, targetJdk)
+                .getBytes(StandardCharsets.UTF_8));
+
+        try {
+            contents.add(IOUtils.toByteArray(checkstyleConfigUrl));
+            contents.add(IOUtils.toByteArray(checkstyleHeaderUrl));
+            for (String ruleSet : pmdRuleSets.split(",")) {
+                contents.add(IOUtils.toByteArray(resolve(ruleSet.trim())));
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not read the analysis configuration", e);
+        }
+        return SourceAnalysisCache.hash(contents.toArray(new byte[contents.size()][]));
+    }
+
+    private URL resolve(String location) throws MojoExecutionException {
+        final File file = new File(location);
+
+        if (file.isFile()) {
+            try {
+                return file.toURI()
+                        .toURL();
+            } catch (MalformedURLException e) {
+                throw new MojoExecutionException("Invalid location " + location, e);
+            }
+        }
+
+        final URL resource = getClass().getClassLoader()
+                .getResource(location);
+
+        if (resource == null) {
+            throw new MojoExecutionException("Could not find " + location);
+        }
+        return resource;
+    }
+
+    private String getPath(File source) {
+        return project.getBasedir()
+                .toPath()
+                .relativize(source.toPath())
+                .toString()
+                .replace(File.separatorChar, '/');
+    }
+
+    private static String getCheckstyleVersion() {
+        final String version = Checker.class.getPackage()
+                .getImplementationVersion();
+        return version == null ? "unknown" : version;
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.lint;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.output.NullWriter;
+
+import net.sourceforge.pmd.PMD;
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.Rule;
+import net.sourceforge.pmd.RuleContext;
+import net.sourceforge.pmd.RulePriority;
+import net.sourceforge.pmd.RuleViolation;
+import net.sourceforge.pmd.RulesetsFactoryUtils;
+import net.sourceforge.pmd.lang.LanguageRegistry;
+import net.sourceforge.pmd.renderers.AbstractIncrementingRenderer;
+import net.sourceforge.pmd.renderers.Renderer;
+import net.sourceforge.pmd.util.datasource.DataSource;
+import net.sourceforge.pmd.util.datasource.FileDataSource;
+
+/**
+ * Runs PMD in-process on a list of source files, collecting the violations instead of rendering a
+ * report.
+ */
+class PmdAnalyzer {
+
+    private final String ruleSets;
+
+    private final String targetJdk;
+
+    /**
+     * @param ruleSets: comma separated rule set names or locations
+     * @param targetJdk: Java version the sources are parsed as, e.g. "1.8"
+     */
+    PmdAnalyzer(String ruleSets, String targetJdk) {
+        this.ruleSets = ruleSets;
+        this.targetJdk = targetJdk;
+    }
+
+    /**
+     * Analyzes the given files.
+     *
+     * @param files: the files to analyze
+     * @return the violations found, keyed by file; files without violations are included with an
+     * empty list
+     */
+    Map<File, List<Violation>> analyze(List<File> files) {
+        final Map<String, List<Violation>> violationsByPath = new HashMap<>();
+        final List<DataSource> dataSources = new ArrayList<>();
+
+        for (File file : files) {
+            violationsByPath.put(file.getAbsolutePath(), new ArrayList<>());
+            dataSources.add(new FileDataSource(file));
+        }
+
+        final PMDConfiguration configuration = new PMDConfiguration();
+        configuration.setRuleSets(ruleSets);
+        configuration.setMinimumPriority(RulePriority.LOW);
+        configuration.setSourceEncoding(StandardCharsets.UTF_8.name());
+        configuration.setDefaultLanguageVersion(LanguageRegistry.getLanguage("Java")
+                .getVersion(targetJdk));
+
+        final Renderer collector = new ViolationCollector(violationsByPath);
+        collector.setWriter(new NullWriter());
+
+        PMD.processFiles(configuration,
+                RulesetsFactoryUtils.getRulesetFactory(configuration),
+                dataSources,
+                new RuleContext(),
+                Collections.singletonList(collector));
+
+        final Map<File, List<Violation>> violations = new HashMap<>();
+
+        for (File file : files) {
+            violations.put(file, violationsByPath.get(file.getAbsolutePath()));
+        }
+        return violations;
+    }
+
+    private static class ViolationCollector extends AbstractIncrementingRenderer {
+
+        private final Map<String, List<Violation>> violationsByPath;
+
+        ViolationCollector(Map<String, List<Violation>> violationsByPath) {
+            super("collector", "Collects the violations of each file");
+            this.violationsByPath = violationsByPath;
+        }
+
+        @Override
+        public String defaultFileExtension() {
+            return "xml";
+        }
+
+        @Override
+        public synchronized void renderFileViolations(Iterator<RuleViolation> violations) {
+            while (violations.hasNext()) {
+                final RuleViolation violation = violations.next();
+                final Rule rule = violation.getRule();
+
+                violationsByPath.computeIfAbsent(new File(violation.getFilename()).getAbsolutePath(),
+                        path -> new ArrayList<>())
+                        .add(new Violation(violation.getBeginLine(),
+                                violation.getBeginColumn(),
+                                violation.getEndLine(),
+                                violation.getEndColumn(),
+                                String.valueOf(rule.getPriority()
+                                        .getPriority()),
+                                rule.getName(),
+                                rule.getRuleSetName(),
+                                violation.getDescription()));
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.lint;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Writes the merged results of cached and fresh analyses in the report formats of the
+ * maven-checkstyle-plugin and maven-pmd-plugin, so existing report consumers keep working.
+ */
+class ReportWriter {
+
+    private ReportWriter() {
+    }
+
+    /**
+     * Writes a checkstyle-result.xml report.
+     *
+     * @param file: the report file
+     * @param version: the Checkstyle version
+     * @param violations: the violations of each checked file, in report order
+     * @throws IOException if the report cannot be written
+     */
+    static void writeCheckstyle(File file, String version, Map<File, List<Violation>> violations)
+            throws IOException {
+        write(file, writer -> {
+            writer.writeStartElement("checkstyle");
+            writer.writeAttribute("version", version);
+            for (Map.Entry<File, List<Violation>> entry : violations.entrySet()) {
+                writer.writeStartElement("file");
+                writer.writeAttribute("name",
+                        entry.getKey()
+                                .getAbsolutePath());
+                for (Violation violation : entry.getValue()) {
+                    writer.writeEmptyElement("error");
+                    writer.writeAttribute("line", String.valueOf(violation.line));
+                    if (violation.column > 0) {
+                        writer.writeAttribute("column", String.valueOf(violation.column));
+                    }
+                    writer.writeAttribute("severity", violation.severity);
+                    writer.writeAttribute("message", violation.message);
+                    writer.writeAttribute("source", violation.source);
+                }
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+        });
+    }
+
+    /**
+     * Writes a pmd.xml report. Only files with violations are listed, as PMD does.
+     *
+     * @param file: the report file
+     * @param version: the PMD version
+     * @param violations: the violations of each analyzed file, in report order
+     * @throws IOException if the report cannot be written
+     */
+    static void writePmd(File file, String version, Map<File, List<Violation>> violations)
+            throws IOException {
+        write(file, writer -> {
+            writer.writeStartElement("pmd");
+            writer.writeAttribute("version", version);
+            for (Map.Entry<File, List<Violation>> entry : violations.entrySet()) {
+                if (entry.getValue()
+                        .isEmpty()) {
+                    continue;
+                }
+                writer.writeStartElement("file");
+                writer.writeAttribute("name",
+                        entry.getKey()
+                                .getAbsolutePath());
+                for (Violation violation : entry.getValue()) {
+                    writer.writeStartElement("violation");
+                    writer.writeAttribute("beginline", String.valueOf(violation.line));
+                    writer.writeAttribute("endline", String.valueOf(violation.endLine));
+                    writer.writeAttribute("begincolumn", String.valueOf(violation.column));
+                    writer.writeAttribute("endcolumn", String.valueOf(violation.endColumn));
+                    writer.writeAttribute("rule", violation.source);
+                    writer.writeAttribute("ruleset", violation.ruleSet);
+                    writer.writeAttribute("priority", violation.severity);
+                    writer.writeCharacters(violation.message);
+                    writer.writeEndElement();
+                }
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+        });
+    }
+
+    private static void write(File file, XmlContent content) throws IOException {
+        FileUtils.forceMkdir(file.getParentFile());
+        try (OutputStream os = FileUtils.openOutputStream(file)) {
+            final XMLStreamWriter writer = XMLOutputFactory.newInstance()
+                    .createXMLStreamWriter(os, "UTF-8");
+
+            writer.writeStartDocument("UTF-8", "1.0");
+            content.write(writer);
+            writer.writeEndDocument();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not write report " + file, e);
+        }
+    }
+
+    private interface XmlContent {
+        void write(XMLStreamWriter writer) throws XMLStreamException;
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.lint;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import javax.json.JsonWriter;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Cache of Checkstyle and PMD results kept between builds so unchanged source files do not need
+ * to be analyzed again.
+ * <p>
+ * Each entry records the SHA-256 content hash of a file along with the violations found in it by
+ * each tool. All the configured checks and rules look at a single file at a time, so the results
+ * of an unchanged file remain valid. The whole cache is discarded when the settings it was
+ * computed with change.
+ */
+class SourceAnalysisCache {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final String settingsKey;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    SourceAnalysisCache(String settingsKey) {
+        this.settingsKey = settingsKey;
+    }
+
+    /**
+     * Loads the cache from the given file. A missing, unreadable or outdated cache file yields an
+     * empty cache.
+     *
+     * @param file        the cache file
+     * @param settingsKey key identifying the tool versions and configurations the cached results
+     *                    depend on
+     * @return the loaded cache
+     */
+    static SourceAnalysisCache load(File file, String settingsKey) {
+        final SourceAnalysisCache cache = new SourceAnalysisCache(settingsKey);
+
+        if (!file.isFile()) {
+            return cache;
+        }
+        try (InputStream is = FileUtils.openInputStream(file);
+                JsonReader reader = Json.createReader(is)) {
+            final JsonObject root = reader.readObject();
+
+            if (!settingsKey.equals(root.getString("settings", null))) {
+                return cache;
+            }
+            for (Map.Entry<String, JsonValue> e : root.getJsonObject("files")
+                    .entrySet()) {
+                final JsonObject value = (JsonObject) e.getValue();
+
+                cache.entries.put(e.getKey(),
+                        new Entry(value.getString("hash"),
+                                readViolations(value.getJsonArray("checkstyle")),
+                                readViolations(value.getJsonArray("pmd"))));
+            }
+        } catch (IOException | JsonException | ClassCastException | NullPointerException e) {
+            cache.entries.clear();
+        }
+        return cache;
+    }
+
+    /**
+     * Saves the entries for the given files to the cache file. Entries for files that no longer
+     * exist are dropped.
+     *
+     * @param file  the cache file
+     * @param paths the paths of the source files checked in this build
+     * @throws IOException if the cache file cannot be written
+     */
+    void save(File file, Collection<String> paths) throws IOException {
+        final JsonObjectBuilder files = Json.createObjectBuilder();
+
+        for (String path : paths) {
+            final Entry entry = entries.get(path);
+
+            if (entry == null) {
+                continue;
+            }
+            files.add(path,
+                    Json.createObjectBuilder()
+                            .add("hash", entry.hash)
+                            .add("checkstyle", writeViolations(entry.checkstyle))
+                            .add("pmd", writeViolations(entry.pmd)));
+        }
+        FileUtils.forceMkdir(file.getParentFile());
+        try (OutputStream os = FileUtils.openOutputStream(file);
+                JsonWriter writer = Json.createWriter(os)) {
+            writer.writeObject(Json.createObjectBuilder()
+                    .add("settings", settingsKey)
+                    .add("files", files)
+                    .build());
+        }
+    }
+
+    /**
+     * Gets the cached Checkstyle violations for a file whose content has not changed.
+     *
+     * @return the cached violations or <code>null</code> if the file must be analyzed
+     */
+    List<Violation> lookupCheckstyle(String path, String hash) {
+        final Entry entry = lookup(path, hash);
+        return entry == null ? null : entry.checkstyle;
+    }
+
+    /**
+     * Gets the cached PMD violations for a file whose content has not changed.
+     *
+     * @return the cached violations or <code>null</code> if the file must be analyzed
+     */
+    List<Violation> lookupPmd(String path, String hash) {
+        final Entry entry = lookup(path, hash);
+        return entry == null ? null : entry.pmd;
+    }
+
+    void put(String path, String hash, List<Violation> checkstyle, List<Violation> pmd) {
+        entries.put(path, new Entry(hash, checkstyle, pmd));
+    }
+
+    private Entry lookup(String path, String hash) {
+        final Entry entry = entries.get(path);
+
+        if (entry != null && entry.hash.equals(hash)) {
+            return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Computes the SHA-256 hash of the given bytes, typically the contents of a source file or of
+     * the configurations it is checked against.
+     *
+     * @param contents the bytes to hash, in order
+     * @return the hash as a hexadecimal string
+     */
+    static String hash(byte[]... contents) {
+        final MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        for (byte[] content : contents) {
+            digest.update(content);
+        }
+        final byte[] bytes = digest.digest();
+        final char[] hex = new char[bytes.length * 2];
+
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    private static List<Violation> readViolations(JsonArray array) {
+        final List<Violation> violations = new ArrayList<>();
+
+        for (JsonObject violation : array.getValuesAs(JsonObject.class)) {
+            violations.add(Violation.fromJson(violation));
+        }
+        return violations;
+    }
+
+    private static JsonArrayBuilder writeViolations(List<Violation> violations) {
+        final JsonArrayBuilder array = Json.createArrayBuilder();
+
+        for (Violation violation : violations) {
+            array.add(violation.toJson());
+        }
+        return array;
+    }
+
+    private static class Entry {
+        private final String hash;
+
+        private final List<Violation> checkstyle;
+
+        private final List<Violation> pmd;
+
+        Entry(String hash, List<Violation> checkstyle, List<Violation> pmd) {
+            this.hash = hash;
+            this.checkstyle = Collections.unmodifiableList(checkstyle);
+            this.pmd = Collections.unmodifiableList(pmd);
+        }
+    }
+}
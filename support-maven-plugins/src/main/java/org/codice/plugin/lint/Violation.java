@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.lint;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+
+/**
+ * Problem reported by Checkstyle or PMD in a source file.
+ */
+final class Violation {
+
+    final int line;
+
+    final int column;
+
+    final int endLine;
+
+    final int endColumn;
+
+    /**
+     * Checkstyle severity or PMD priority.
+     */
+    final String severity;
+
+    /**
+     * Checkstyle check class or PMD rule name.
+     */
+    final String source;
+
+    /**
+     * PMD rule set name; empty for Checkstyle.
+     */
+    final String ruleSet;
+
+    final String message;
+
+    Violation(int line, int column, int endLine, int endColumn, String severity, String source,
+            String ruleSet, String message) {
+        this.line = line;
+        this.column = column;
+        this.endLine = endLine;
+        this.endColumn = endColumn;
+        this.severity = severity;
+        this.source = source;
+        this.ruleSet = ruleSet;
+        this.message = message;
+    }
+
+    JsonObject toJson() {
+        return Json.createObjectBuilder()
+                .add("line", line)
+                .add("column", column)
+                .add("endLine", endLine)
+                .add("endColumn", endColumn)
+                .add("severity", severity)
+                .add("source", source)
+                .add("ruleSet", ruleSet)
+                .add("message", message)
+                .build();
+    }
+
+    static Violation fromJson(JsonObject json) {
+        return new Violation(json.getInt("line"),
+                json.getInt("column"),
+                json.getInt("endLine"),
+                json.getInt("endColumn"),
+                json.getString("severity"),
+                json.getString("source"),
+                json.getString("ruleSet"),
+                json.getString("message"));
+    }
+}
@@ -0,0 +1,530 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.version;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.stream.JsonLocation;
+import javax.json.stream.JsonParser;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Validates the package-lock.json, npm-shrinkwrap.json and yarn.lock files of a module: every
+ * package resolved from a registry must be pinned with an integrity hash, and the locked version
+ * of each direct dependency declared with an exact version in the sibling package.json must match
+ * it. Lockfiles are streamed so their size does not affect memory usage.
+ */
+@Mojo(name = "check-lockfile")
+public class LockfileValidationPlugin extends AbstractMojo {
+
+    @Parameter(defaultValue = "${project}")
+    MavenProject project;
+
+    /**
+     * Number of lockfiles to validate concurrently; defaults to the number of processors.
+     */
+    @Parameter(property = "lockfile.threads", defaultValue = "0")
+    int threads;
+
+    /**
+     * Names of the directories that are never descended into when looking for lockfiles, at any
+     * depth. Defaults to node_modules, node and target.
+     */
+    @Parameter(property = "lockfile.excludedDirectories")
+    String[] excludedDirectories;
+
+    private final static String PACKAGE_JSON = "package.json";
+
+    private final static String YARN_LOCK = "yarn.lock";
+
+    private final static Set<String> LOCKFILE_NAMES =
+            new HashSet<>(Arrays.asList("package-lock.json", "npm-shrinkwrap.json", YARN_LOCK));
+
+    private final static List<String> DEPENDENCY_OBJECTS =
+            Arrays.asList("dependencies", "devDependencies");
+
+    private final static Pattern EXACT_VERSION = Pattern.compile("\\d+\\.\\d+\\.\\d+([-+][\\w.-]+)?");
+
+    private final static String NODE_MODULES = "node_modules/";
+
+    private final static String MOJO_EXCEPTION_MESSAGE =
+            "Failed to validate lockfile due to unpinned or mismatched versions.";
+
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        String baseDir = null;
+        try {
+            baseDir = project.getBasedir()
+                    .getCanonicalPath();
+        } catch (IOException e) {
+            getLog().error("Could not find base directory", e);
+        }
+
+        if (baseDir != null) {
+            String[] fileList = new PackageFileFinder(excludedDirectories, getLog()).find(baseDir,
+                    LOCKFILE_NAMES::contains);
+            boolean hasErrors = false;
+
+            for (List<String> errors : validateFiles(baseDir, fileList)) {
+                for (String errorMessage : errors) {
+                    getLog().error(errorMessage);
+                    hasErrors = true;
+                }
+            }
+            if (hasErrors) {
+                throw new MojoFailureException(MOJO_EXCEPTION_MESSAGE);
+            }
+        }
+    }
+
+    /**
+     * Validates the given lockfiles concurrently.
+     *
+     * @param baseDir:  Base directory the file paths are relative to
+     * @param fileList: Paths of the lockfiles to validate
+     * @return error messages of each file, in the given order
+     * @throws MojoExecutionException if a file can not be read or parsed
+     */
+    private List<List<String>> validateFiles(String baseDir, String[] fileList)
+            throws MojoExecutionException {
+        List<List<String>> errorLists = new ArrayList<>(fileList.length);
+        List<Future<List<String>>> results = new ArrayList<>(fileList.length);
+        ExecutorService executor = Executors.newFixedThreadPool(
+                threads > 0 ? threads : Runtime.getRuntime()
+                        .availableProcessors());
+
+        try {
+            for (String filepath : fileList) {
+                File lockfile = Paths.get(baseDir, File.separator, filepath)
+                        .toFile();
+
+                results.add(executor.submit(() -> validateFile(lockfile)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    errorLists.add(results.get(i)
+                            .get());
+                } catch (ExecutionException e) {
+                    // a lockfile that can not be validated must not let the build pass
+                    throw new MojoExecutionException(String.format("Could not %s file [%s]",
+                            e.getCause() instanceof JsonException ? "parse" : "validate",
+                            fileList[i]), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+            throw new MojoExecutionException("Interrupted while validating lockfiles", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        getLog().info(String.format("Validated %d lockfiles", errorLists.size()));
+        return errorLists;
+    }
+
+    /**
+     * Validates a single lockfile against the package.json next to it, if any. Safe to call
+     * concurrently.
+     *
+     * @param lockfile: Lockfile to validate
+     * @return list of error messages for the problems found in the file
+     * @throws IOException if the file cannot be read
+     */
+    private List<String> validateFile(File lockfile) throws IOException {
+        File packageJson = new File(lockfile.getParentFile(), PACKAGE_JSON);
+        Map<String, String> declared = Collections.emptyMap();
+        List<String> errors = new ArrayList<>();
+
+        if (packageJson.isFile()) {
+            try (InputStream is = FileUtils.openInputStream(packageJson)) {
+                declared = getDeclaredDependencies(is);
+            }
+        }
+        try (InputStream is = FileUtils.openInputStream(lockfile)) {
+            if (YARN_LOCK.equals(lockfile.getName())) {
+                addYarnLockErrors(is, lockfile.toString(), declared, errors);
+            } else {
+                addPackageLockErrors(is, lockfile.toString(), declared, errors);
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Streams through package.json content and collects the direct dependencies.
+     * key: dependency name
+     * value: declared version
+     *
+     * @param is: Incoming Json content to parse
+     * @return map of the dependencies and devDependencies, in document order
+     * @throws JsonException if the content is not valid JSON
+     */
+    Map<String, String> getDeclaredDependencies(InputStream is) {
+        Map<String, String> declared = new LinkedHashMap<>();
+        String topLevelKey = null;
+        String key = null;
+        int depth = 0;
+
+        try (JsonParser parser = Json.createParser(is)) {
+            while (parser.hasNext()) {
+                switch (parser.next()) {
+                case START_OBJECT:
+                case START_ARRAY:
+                    depth++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    depth--;
+                    break;
+                case KEY_NAME:
+                    if (depth == 1) {
+                        topLevelKey = parser.getString();
+                    } else if (depth == 2) {
+                        key = parser.getString();
+                    }
+                    break;
+                case VALUE_STRING:
+                    if (depth == 2 && DEPENDENCY_OBJECTS.contains(topLevelKey)) {
+                        declared.put(key, parser.getString());
+                    }
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+        return declared;
+    }
+
+    /**
+     * Streams through package-lock.json or npm-shrinkwrap.json content, only keeping the
+     * properties of the package entry being read in memory. Both the nested "dependencies" layout
+     * of lockfile version 1 and the flat "packages" layout of versions 2 and 3 are understood.
+     *
+     * @param is:       Incoming Json content to parse
+     * @param filename: File being parsed (used for name in error message)
+     * @param declared: Direct dependencies declared in the sibling package.json
+     * @param errors:   List where to add an error message for each problem found
+     * @throws JsonException if the content is not valid JSON
+     */
+    void addPackageLockErrors(InputStream is, String filename, Map<String, String> declared,
+            List<String> errors) {
+        List<Entry> stack = new ArrayList<>();
+        Set<String> locked = new HashSet<>();
+        boolean hasPackages = false;
+        String key = null;
+
+        try (JsonParser parser = Json.createParser(is)) {
+            while (parser.hasNext()) {
+                JsonParser.Event event = parser.next();
+                Entry top = stack.isEmpty() ? null : stack.get(stack.size() - 1);
+
+                switch (event) {
+                case START_OBJECT:
+                case START_ARRAY:
+                    Entry entry = new Entry(key, parser.getLocation());
+
+                    if (event == JsonParser.Event.START_OBJECT && key != null) {
+                        boolean topLevel = stack.size() == 2;
+
+                        int nameStart = getPackageNameStart(key);
+
+                        if (topLevel && "packages".equals(top.key) && nameStart >= 0) {
+                            // lockfile v2/v3: "node_modules/a/node_modules/b"; the other keys
+                            // are the project itself and its workspace folders ("packages/a")
+                            entry.name = key.substring(nameStart);
+                            entry.direct = key.equals(NODE_MODULES + entry.name);
+                        } else if (!hasPackages && "dependencies".equals(top.key) && (topLevel
+                                || stack.get(stack.size() - 2).name != null)) {
+                            // lockfile v1: nested "dependencies" objects
+                            entry.name = key;
+                            entry.direct = topLevel;
+                        }
+                    }
+                    stack.add(entry);
+                    key = null;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    stack.remove(stack.size() - 1);
+                    if (top != null && top.name != null) {
+                        top.check(filename, declared, locked, errors);
+                    }
+                    break;
+                case KEY_NAME:
+                    key = parser.getString();
+                    if (stack.size() == 1 && "packages".equals(key)) {
+                        // v2 files repeat the v1 layout for older clients; only read one
+                        hasPackages = true;
+                    }
+                    break;
+                case VALUE_STRING:
+                    if (top != null && top.name != null) {
+                        top.set(key, parser.getString());
+                    }
+                    break;
+                case VALUE_TRUE:
+                    if (top != null && top.name != null && "link".equals(key)) {
+                        top.link = true;
+                    }
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+        addMissingErrors(filename, declared, locked, errors);
+    }
+
+    /**
+     * Reads yarn.lock content line by line, only keeping the fields of the entry being read in
+     * memory. Both the classic format and the YAML based one of newer Yarn releases are
+     * understood.
+     *
+     * @param is:       Incoming yarn.lock content
+     * @param filename: File being parsed (used for name in error message)
+     * @param declared: Direct dependencies declared in the sibling package.json
+     * @param errors:   List where to add an error message for each problem found
+     * @throws IOException if the content cannot be read
+     */
+    void addYarnLockErrors(InputStream is, String filename, Map<String, String> declared,
+            List<String> errors) throws IOException {
+        Set<String> locked = new HashSet<>();
+        Entry entry = null;
+        String line;
+        int lineNumber = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(is,
+                StandardCharsets.UTF_8))) {
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (!Character.isWhitespace(line.charAt(0))) {
+                    if (entry != null) {
+                        entry.check(filename, declared, locked, errors);
+                    }
+                    entry = parseYarnHeader(line, lineNumber, declared);
+                } else if (entry != null && line.startsWith("  ")
+                        && !Character.isWhitespace(line.charAt(2))) {
+                    String field = line.trim();
+                    int separator = field.indexOf(' ');
+
+                    if (separator > 0) {
+                        String name = field.substring(0, separator);
+                        String value = field.substring(separator + 1)
+                                .trim();
+
+                        entry.set(name.endsWith(":") ? name.substring(0, name.length() - 1) : name,
+                                unquote(value));
+                    }
+                }
+            }
+        }
+        if (entry != null) {
+            entry.check(filename, declared, locked, errors);
+        }
+        addMissingErrors(filename, declared, locked, errors);
+    }
+
+    /**
+     * @param key: Key of an entry of the "packages" object of a v2/v3 package-lock.json
+     * @return the index of the package name in the key, or -1 if the key is not the path of an
+     * installed package
+     */
+    private static int getPackageNameStart(String key) {
+        int nested = key.lastIndexOf("/" + NODE_MODULES);
+
+        if (nested >= 0) {
+            return nested + 1 + NODE_MODULES.length();
+        }
+        return key.startsWith(NODE_MODULES) ? NODE_MODULES.length() : -1;
+    }
+
+    /**
+     * Parses the header of a yarn.lock entry, a comma separated list of the "name@range"
+     * specifications resolved by the entry.
+     *
+     * @return the entry, or null if the header is not a package one
+     */
+    private Entry parseYarnHeader(String line, int lineNumber, Map<String, String> declared) {
+        int colon = line.lastIndexOf(':');
+        Entry entry = null;
+
+        if (colon < 0) {
+            return null;
+        }
+        for (String spec : line.substring(0, colon)
+                .split(",")) {
+            spec = unquote(spec.trim());
+            // the range may contain '@' itself (git+ssh://git@host/..., npm:name@version)
+            int at = spec.indexOf('@', spec.startsWith("@") ? 1 : 0);
+
+            if (at <= 0) {
+                continue;
+            }
+            if (entry == null) {
+                entry = new Entry(null, null);
+                entry.line = lineNumber;
+                entry.column = 1;
+            }
+            entry.name = spec.substring(0, at);
+
+            String range = spec.substring(at + 1);
+            String declaredVersion = declared.get(entry.name);
+
+            if (range.equals(declaredVersion) || (range.startsWith("npm:") && range.substring(
+                    "npm:".length())
+                    .equals(declaredVersion))) {
+                entry.direct = true;
+            }
+        }
+        return entry;
+    }
+
+    private static void addMissingErrors(String filename, Map<String, String> declared,
+            Set<String> locked, List<String> errors) {
+        for (Map.Entry<String, String> dependency : declared.entrySet()) {
+            if (!locked.contains(dependency.getKey())) {
+                errors.add(String.format(
+                        "In [%s] | Declared dependency is missing from the lockfile: [%s] : \"%s\"",
+                        filename,
+                        dependency.getKey(),
+                        dependency.getValue()));
+            }
+        }
+    }
+
+    private static String unquote(String value) {
+        if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    /**
+     * Properties of a locked package, or of any other object when name is null.
+     */
+    private static class Entry {
+        private final String key;
+
+        private String name;
+
+        private boolean direct;
+
+        private boolean link;
+
+        private String version;
+
+        private String resolved;
+
+        private String integrity;
+
+        private long line;
+
+        private long column;
+
+        Entry(String key, JsonLocation location) {
+            this.key = key;
+            if (location != null) {
+                this.line = location.getLineNumber();
+                this.column = location.getColumnNumber();
+            }
+        }
+
+        void set(String field, String value) {
+            switch (field) {
+            case "version":
+                version = value;
+                break;
+            case "resolved":
+                resolved = value;
+                break;
+            case "resolution":
+                // newer yarn releases: "name@npm:1.2.3" for registry packages
+                resolved = value.contains("@npm:") ? value : null;
+                break;
+            case "integrity":
+            case "checksum":
+                integrity = value;
+                break;
+            default:
+                break;
+            }
+        }
+
+        void check(String filename, Map<String, String> declared, Set<String> locked,
+                List<String> errors) {
+            boolean fromRegistry = resolved != null && (resolved.startsWith("http")
+                    || resolved.contains("@npm:"));
+
+            if (!link && fromRegistry && integrity == null) {
+                errors.add(String.format(
+                        "In [%s] at line %d, column %d | Resolved package is not pinned with an integrity hash: [%s] : \"%s\"",
+                        filename,
+                        line,
+                        column,
+                        name,
+                        resolved));
+            }
+            if (!direct || !declared.containsKey(name)) {
+                return;
+            }
+            locked.add(name);
+
+            String declaredVersion = declared.get(name);
+
+            if (EXACT_VERSION.matcher(declaredVersion)
+                    .matches() && !declaredVersion.equals(version)) {
+                errors.add(String.format(
+                        "In [%s] at line %d, column %d | Locked version does not match the declared one: [%s] : \"%s\" (declared \"%s\")",
+                        filename,
+                        line,
+                        column,
+                        name,
+                        version,
+                        declaredVersion));
+            }
+        }
+    }
+}
@@ -16,27 +16,41 @@ package org.codice.plugin.version;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.StringReader;
-import java.nio.charset.Charset;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import javax.json.Json;
-import javax.json.JsonObject;
-import javax.json.JsonReader;
-import javax.json.JsonValue;
+import javax.json.JsonException;
+import javax.json.stream.JsonLocation;
+import javax.json.stream.JsonParser;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
 import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
-import org.codehaus.plexus.util.DirectoryScanner;
 
 @Mojo(name = "check-package-json")
 public class MavenVersionValidationPlugin extends AbstractMojo {
@@ -47,121 +61,512 @@ public class MavenVersionValidationPlugin extends AbstractMojo {
     @Parameter(defaultValue = "${project}")
     MavenProject project;
 
-    Set<Character> rangeSymbols = new HashSet(Arrays.asList('>', '=', '|', '-', '<', '^', '~'));
+    /**
+     * Skips files that have not changed since the previous build by caching each file's content
+     * hash and validation result in the build directory.
+     */
+    @Parameter(property = "packageJson.incremental", defaultValue = "false")
+    boolean incremental;
+
+    /**
+     * Number of package.json files to validate concurrently; defaults to the number of processors.
+     */
+    @Parameter(property = "packageJson.threads", defaultValue = "0")
+    int threads;
+
+    /**
+     * Also checks the peerDependencies and optionalDependencies objects in addition to the
+     * dependencies and devDependencies ones.
+     */
+    @Parameter(property = "packageJson.includePeerAndOptional", defaultValue = "false")
+    boolean includePeerAndOptionalDependencies;
+
+    /**
+     * Validates the package.json files of the whole reactor once, from the first project of the
+     * reactor that has an execution of this goal, instead of rescanning nested modules from every ancestor module. Only the
+     * directories of the projects in the reactor are scanned so projects left out with -pl are
+     * not validated. Errors are reported grouped by the module owning each file.
+     */
+    @Parameter(property = "packageJson.aggregate", defaultValue = "false")
+    boolean aggregate;
+
+    /**
+     * Names of the directories that are never descended into when looking for package.json files,
+     * at any depth. Defaults to node_modules, node and target.
+     */
+    @Parameter(property = "packageJson.excludedDirectories")
+    String[] excludedDirectories;
+
+    @Parameter(defaultValue = "${project.build.directory}")
+    File buildDirectory;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    MavenSession session;
 
-    private final static String[] EXCLUDED_DIRECTORIES =
-            new String[] {"**/node_modules/**", "**/node/**", "*/target/**", "**\\node_modules\\**",
-                    "**\\node\\**", "**\\target\\**"};
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    MojoExecution mojoExecution;
+
+    Set<Character> rangeSymbols = new HashSet(Arrays.asList('>', '=', '|', '-', '<', '^', '~'));
 
     private final static String FILE_NAME = "package.json";
 
+    private final static List<String> DEPENDENCY_OBJECTS =
+            Arrays.asList("dependencies", "devDependencies");
+
+    private final static List<String> PEER_AND_OPTIONAL_DEPENDENCY_OBJECTS =
+            Arrays.asList("peerDependencies", "optionalDependencies");
+
     private final static String MOJO_EXCEPTION_MESSAGE =
             "Failed to validate version due to improper range symbol.";
 
+    private final static String CACHE_FILE_NAME = "package-json-validation.json";
+
     public void execute() throws MojoExecutionException, MojoFailureException {
-        String jsonContents;
-        File jsonFile;
-        boolean hasRangeChars = false;
+        boolean hasRangeChars;
+
+        boolean aggregating = aggregate && session != null && !session.getProjects()
+                .isEmpty();
 
-        JsonObject jsonObject;
+        if (aggregating) {
+            MavenProject validatingProject = getValidatingProject();
+
+            if (validatingProject == null) {
+                throw new MojoExecutionException("No project of the reactor has an execution of the "
+                        + mojoExecution.getGoal()
+                        + " goal to validate the package.json files of the reactor");
+            }
+            if (project != validatingProject) {
+                getLog().info("Skipping package.json validation; validated once for the reactor by "
+                        + validatingProject.getArtifactId());
+                return;
+            }
+        }
 
         String baseDir = null;
+        List<File> scannedDirs = null;
         try {
-            baseDir = project.getBasedir()
-                    .getCanonicalPath();
+            if (aggregating) {
+                scannedDirs = getOutermostBasedirs(session.getProjects());
+                baseDir = getCommonAncestor(scannedDirs).getPath();
+            } else {
+                baseDir = project.getBasedir()
+                        .getCanonicalPath();
+            }
         } catch (IOException e) {
             getLog().error("Could not find base directory", e);
         }
 
         if (baseDir != null) {
-            String[] fileList = getListOfPackageJsonFiles(baseDir, FILE_NAME);
+            String[] fileList;
+            if (scannedDirs == null) {
+                fileList = getListOfPackageJsonFiles(baseDir, FILE_NAME);
+            } else {
+                fileList = getListOfPackageJsonFiles(baseDir, scannedDirs, FILE_NAME);
+            }
+            Map<String, List<String>> errorsByFile = validateFiles(baseDir, fileList);
 
+            if (aggregating) {
+                hasRangeChars = reportByModule(baseDir, errorsByFile);
+            } else {
+                hasRangeChars = report(errorsByFile.values());
+            }
+            if (hasRangeChars) {
+                throw new MojoFailureException(MOJO_EXCEPTION_MESSAGE);
+            }
+        }
+    }
+
+    /**
+     * Validates the given files concurrently.
+     *
+     * @param baseDir:  Base directory the file paths are relative to
+     * @param fileList: Paths of the files to validate
+     * @return map of each file path to the error messages found in it, in the given order; files
+     * that could not be read are left out
+     */
+    private Map<String, List<String>> validateFiles(String baseDir, String[] fileList)
+            throws MojoExecutionException {
+        Map<String, List<String>> errorsByFile = new LinkedHashMap<>();
+        File cacheFile = new File(buildDirectory, CACHE_FILE_NAME);
+        PackageJsonCache cache =
+                incremental ? PackageJsonCache.load(cacheFile, getSettingsKey()) : null;
+        List<Future<List<String>>> results = new ArrayList<>(fileList.length);
+        ExecutorService executor = Executors.newFixedThreadPool(
+                threads > 0 ? threads : Runtime.getRuntime()
+                        .availableProcessors());
+
+        try {
             for (String filepath : fileList) {
-                jsonFile = Paths.get(baseDir, File.separator, filepath)
+                File jsonFile = Paths.get(baseDir, File.separator, filepath)
                         .toFile();
 
+                results.add(executor.submit(() -> validateFile(jsonFile, filepath, cache)));
+            }
+            // collect in discovery order, from this thread only
+            for (int i = 0; i < fileList.length; i++) {
                 try {
-                    jsonContents = FileUtils.readFileToString(jsonFile, (Charset) null);
-                    JsonReader jsonReader = Json.createReader(new StringReader(jsonContents));
-                    jsonObject = jsonReader.readObject();
-
-                    hasRangeChars |= hasRangeChars(jsonObject.getJsonObject("devDependencies"),
-                            jsonFile.toString());
-                    hasRangeChars |= hasRangeChars(jsonObject.getJsonObject("dependencies"),
-                            jsonFile.toString());
-                } catch (IOException e) {
-                    getLog().error("Could not find file", e);
+                    errorsByFile.put(fileList[i],
+                            results.get(i)
+                                    .get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof JsonException) {
+                        throw new MojoExecutionException("Could not parse file", e.getCause());
+                    }
+                    getLog().error("Could not find file", e.getCause());
                 }
             }
-            if (hasRangeChars) {
-                throw new MojoFailureException(MOJO_EXCEPTION_MESSAGE);
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+            throw new MojoExecutionException("Interrupted while validating package.json files", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (cache != null) {
+            try {
+                cache.save(cacheFile, Arrays.asList(fileList));
+            } catch (IOException e) {
+                getLog().warn("Could not save package.json validation cache", e);
+            }
+        }
+        return errorsByFile;
+    }
+
+    private boolean report(Iterable<List<String>> errorLists) {
+        boolean hasRangeChars = false;
+
+        for (List<String> errors : errorLists) {
+            for (String errorMessage : errors) {
+                getLog().error(errorMessage);
+                hasRangeChars = true;
+            }
+        }
+        return hasRangeChars;
+    }
+
+    /**
+     * Reports the errors grouped by the reactor module owning each file, in reactor order. A file
+     * is owned by the module with the deepest base directory containing it.
+     *
+     * @param baseDir:      Base directory the file paths are relative to
+     * @param errorsByFile: Error messages found in each file
+     * @return true if there are version range characters in any file
+     */
+    private boolean reportByModule(String baseDir, Map<String, List<String>> errorsByFile) {
+        Map<File, MavenProject> modulesByBasedir = new HashMap<>();
+        Map<MavenProject, List<List<String>>> errorsByModule = new LinkedHashMap<>();
+
+        for (MavenProject module : session.getProjects()) {
+            try {
+                modulesByBasedir.put(module.getBasedir()
+                        .getCanonicalFile(), module);
+            } catch (IOException e) {
+                getLog().warn("Could not find base directory of " + module.getArtifactId(), e);
+            }
+            errorsByModule.put(module, new ArrayList<>());
+        }
+        for (Map.Entry<String, List<String>> e : errorsByFile.entrySet()) {
+            File dir = new File(baseDir, e.getKey()).getParentFile();
+            MavenProject owner = null;
+
+            while (owner == null && dir != null) {
+                owner = modulesByBasedir.get(dir);
+                dir = dir.getParentFile();
+            }
+            errorsByModule.computeIfAbsent(owner == null ? project : owner, k -> new ArrayList<>())
+                    .add(e.getValue());
+        }
+        boolean hasRangeChars = false;
+
+        for (Map.Entry<MavenProject, List<List<String>>> e : errorsByModule.entrySet()) {
+            if (e.getValue()
+                    .stream()
+                    .allMatch(List::isEmpty)) {
+                continue;
             }
+            getLog().error(String.format("In module [%s]:",
+                    e.getKey()
+                            .getArtifactId()));
+            hasRangeChars |= report(e.getValue());
         }
+        getLog().info(String.format("Validated %d package.json files across %d modules",
+                errorsByFile.size(),
+                session.getProjects()
+                        .size()));
+        return hasRangeChars;
     }
 
     /**
-     * Uses DirectoryScanner to search for given filename in baseDir given, excluding string
-     * array of excluded regular expression paths. Returns list of full file paths (minus baseDir)
+     * Validates a single package.json file, reusing the cached result when the file has not
+     * changed. Safe to call concurrently.
+     *
+     * @param jsonFile: File to validate
+     * @param filepath: Path of the file relative to the base directory (used as cache key)
+     * @param cache:    Cache of previous results or null if not running incrementally
+     * @return list of error messages for the invalid versions found in the file
+     * @throws IOException if the file cannot be read
+     */
+    private List<String> validateFile(File jsonFile, String filepath, PackageJsonCache cache)
+            throws IOException {
+        long size = jsonFile.length();
+        long modified = jsonFile.lastModified();
+        List<String> errors;
+
+        if (cache != null) {
+            errors = cache.lookup(filepath, size, modified);
+            if (errors != null) {
+                return errors;
+            }
+        }
+
+        String hash = null;
+
+        if (cache != null) {
+            hash = PackageJsonCache.hash(jsonFile);
+            errors = cache.lookup(filepath, hash);
+            if (errors != null) {
+                cache.put(filepath, size, modified, hash, errors);
+                return errors;
+            }
+        }
+
+        errors = new ArrayList<>();
+        try (InputStream is = FileUtils.openInputStream(jsonFile)) {
+            addRangeCharErrors(is, jsonFile.toString(), errors);
+        }
+        if (cache != null) {
+            cache.put(filepath, size, modified, hash, errors);
+        }
+        return errors;
+    }
+
+    private String getSettingsKey() {
+        return Arrays.toString(getWhitelistedValues()) + includePeerAndOptionalDependencies;
+    }
+
+    /**
+     * Walks baseDir given searching for files whose name ends with the given filename, without
+     * descending into the excluded directories so their content is never listed. Returns sorted
+     * list of full file paths (minus baseDir)
      *
      * @param baseDir:  Base directory of scanning (depends on project)
-     * @param filename: Name of file to search for (regex)
+     * @param filename: Name of file to search for
      * @return list of files
      */
-    private String[] getListOfPackageJsonFiles(String baseDir, String filename) {
+    String[] getListOfPackageJsonFiles(String baseDir, String filename) {
+        return new PackageFileFinder(excludedDirectories, getLog()).find(baseDir,
+                name -> name.endsWith(filename));
+    }
 
-        DirectoryScanner scanner = new DirectoryScanner();
+    /**
+     * Lists the files whose name ends with the given filename under each of the given directories,
+     * as paths relative to baseDir.
+     *
+     * @param baseDir:     Base directory containing all the scanned directories
+     * @param scannedDirs: Directories to scan
+     * @param filename:    Name of file to search for
+     * @return list of files
+     */
+    String[] getListOfPackageJsonFiles(String baseDir, List<File> scannedDirs, String filename) {
+        List<String> files = new ArrayList<>();
 
-        scanner.setIncludes(new String[] {"**/*" + filename});
-        scanner.setExcludes(EXCLUDED_DIRECTORIES);
-        scanner.setBasedir(baseDir);
-        scanner.scan();
+        for (File dir : scannedDirs) {
+            Path prefix = Paths.get(baseDir)
+                    .relativize(dir.toPath());
 
-        return scanner.getIncludedFiles();
+            for (String file : getListOfPackageJsonFiles(dir.getPath(), filename)) {
+                files.add(prefix.resolve(file)
+                        .toString());
+            }
+        }
+        return files.toArray(new String[files.size()]);
     }
 
     /**
-     * Extracts key and value from JsonObject and evaluates if contains bad range symbol
-     * key: dependency name
-     * value: version number
+     * Returns the project of the reactor that validates the package.json files of the whole
+     * reactor in aggregate mode: the first project when the goal is run from the command line, or
+     * else the first project whose build has an execution of this goal.
      *
-     * @param jsonObject: Incoming Json structure to parse (key-value pairs)
-     * @param filename:   File being parsed (used for name in error message)
-     * @return true if there are version range characters in the file
+     * @return the validating project, or null if no project of the reactor runs this goal
      */
-    private boolean hasRangeChars(JsonObject jsonObject, String filename)
-            throws MojoFailureException {
-        // (ex. key = "babel-core", value = "^6.17.0")
-        String key;
-        String value;
-        String rangeChar;
-        String errorMessage;
-
-        boolean hasRangeChar = false;
+    private MavenProject getValidatingProject() {
+        if (mojoExecution == null || mojoExecution.getExecutionId()
+                .startsWith("default-cli")) {
+            return session.getProjects()
+                    .get(0);
+        }
+        return getValidatingProject(session.getProjects(),
+                mojoExecution.getGroupId() + ":" + mojoExecution.getArtifactId(),
+                mojoExecution.getGoal());
+    }
 
-        if (jsonObject == null) {
-            return false;
+    /**
+     * Returns the first of the given projects whose build has an execution of the given goal of
+     * the given plugin, including executions inherited from a parent project.
+     *
+     * @param projects:  Projects of the reactor, in build order
+     * @param pluginKey: groupId:artifactId of the plugin
+     * @param goal:      Goal the execution must run
+     * @return the first project running the goal, or null if none does
+     */
+    static MavenProject getValidatingProject(List<MavenProject> projects, String pluginKey,
+            String goal) {
+        for (MavenProject reactorProject : projects) {
+            // the model lists are raw with the maven-project version compiled against
+            for (Object buildPlugin : reactorProject.getBuildPlugins()) {
+                Plugin plugin = (Plugin) buildPlugin;
+
+                if (!pluginKey.equals(plugin.getKey())) {
+                    continue;
+                }
+                for (Object pluginExecution : plugin.getExecutions()) {
+                    if (((PluginExecution) pluginExecution).getGoals()
+                            .contains(goal)) {
+                        return reactorProject;
+                    }
+                }
+            }
         }
+        return null;
+    }
 
-        for (Map.Entry<String, JsonValue> entry : jsonObject.entrySet()) {
+    /**
+     * Returns the canonical base directories of the given projects that are not nested in the
+     * base directory of another of them.
+     *
+     * @param projects: Projects of the reactor
+     * @return sorted list of the outermost base directories
+     * @throws IOException if a base directory cannot be resolved
+     */
+    static List<File> getOutermostBasedirs(List<MavenProject> projects) throws IOException {
+        Set<Path> basedirs = new TreeSet<>();
 
-            key = entry.getKey();
-            value = entry.getValue()
-                    .toString();
+        for (MavenProject module : projects) {
+            basedirs.add(module.getBasedir()
+                    .getCanonicalFile()
+                    .toPath());
+        }
+        List<Path> outermost = new ArrayList<>();
 
-            rangeChar = scanTokenForRangeSymbol(value);
+        // sorted paths list a directory before the directories nested in it
+        for (Path dir : basedirs) {
+            if (outermost.stream()
+                    .noneMatch(dir::startsWith)) {
+                outermost.add(dir);
+            }
+        }
+        return outermost.stream()
+                .map(Path::toFile)
+                .collect(Collectors.toList());
+    }
 
-            if (rangeChar != null) {
-                errorMessage = String.format(
-                        "In [%s] | Invalid version range symbol: [%s] in [%s] : %s",
-                        filename,
-                        rangeChar,
-                        key,
-                        value);
-                getLog().error(errorMessage);
-                hasRangeChar = true;
+    /**
+     * Returns the deepest directory containing all the given directories.
+     *
+     * @param dirs: Canonical directories, at least one
+     * @return the common ancestor of the directories
+     */
+    static File getCommonAncestor(List<File> dirs) {
+        Path ancestor = dirs.get(0)
+                .toPath();
+
+        for (File dir : dirs) {
+            while (!dir.toPath()
+                    .startsWith(ancestor)) {
+                ancestor = ancestor.getParent();
             }
         }
-        return hasRangeChar;
+        return ancestor.toFile();
+    }
+
+    /**
+     * Streams through the JSON content and evaluates if the dependency versions contain bad range
+     * symbols. Only the string and number values directly under the top-level dependency objects
+     * are looked at; the rest of the document is skipped without being kept in memory.
+     * key: dependency name
+     * value: version number
+     *
+     * @param is:       Incoming Json content to parse
+     * @param filename: File being parsed (used for name in error message)
+     * @param errors:   List where to add an error message for each bad range symbol found
+     * @throws JsonException if the content is not valid JSON
+     */
+    void addRangeCharErrors(InputStream is, String filename, List<String> errors) {
+        // (ex. key = "babel-core", value = "^6.17.0")
+        List<String> dependencyObjects = getDependencyObjects();
+        String topLevelKey = null;
+        String key = null;
+        boolean inDependencies = false;
+        int depth = 0;
+
+        try (JsonParser parser = Json.createParser(is)) {
+            while (parser.hasNext()) {
+                JsonParser.Event event = parser.next();
+
+                switch (event) {
+                case START_OBJECT:
+                    depth++;
+                    if (depth == 2) {
+                        inDependencies = dependencyObjects.contains(topLevelKey);
+                    }
+                    break;
+                case START_ARRAY:
+                    depth++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    depth--;
+                    if (depth < 2) {
+                        inDependencies = false;
+                    }
+                    break;
+                case KEY_NAME:
+                    if (depth == 1) {
+                        topLevelKey = parser.getString();
+                    } else if (depth == 2) {
+                        key = parser.getString();
+                    }
+                    break;
+                case VALUE_STRING:
+                case VALUE_NUMBER:
+                    if (inDependencies && depth == 2) {
+                        addRangeCharError(parser, filename, key, errors);
+                    }
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+    }
+
+    private void addRangeCharError(JsonParser parser, String filename, String key,
+            List<String> errors) {
+        String value = parser.getString();
+        String rangeChar = scanTokenForRangeSymbol(value);
+
+        if (rangeChar != null) {
+            JsonLocation location = parser.getLocation();
+
+            errors.add(String.format(
+                    "In [%s] at line %d, column %d | Invalid version range symbol: [%s] in [%s] : \"%s\"",
+                    filename,
+                    location.getLineNumber(),
+                    location.getColumnNumber(),
+                    rangeChar,
+                    key,
+                    value));
+        }
+    }
+
+    private List<String> getDependencyObjects() {
+        if (!includePeerAndOptionalDependencies) {
+            return DEPENDENCY_OBJECTS;
+        }
+        List<String> dependencyObjects = new ArrayList<>(DEPENDENCY_OBJECTS);
+
+        dependencyObjects.addAll(PEER_AND_OPTIONAL_DEPENDENCY_OBJECTS);
+        return Collections.unmodifiableList(dependencyObjects);
     }
 
     /**
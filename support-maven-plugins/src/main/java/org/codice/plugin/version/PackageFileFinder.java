@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.version;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Finds the node package files of a module without descending into excluded directories, so the
+ * content of directories such as node_modules is never listed.
+ */
+class PackageFileFinder {
+    static final String[] DEFAULT_EXCLUDED_DIRECTORIES =
+            new String[] {"node_modules", "node", "target"};
+
+    private final Set<String> excludedNames;
+
+    private final Log log;
+
+    /**
+     * @param excludedDirectories: Names of the directories to skip at any depth, or null to use
+     *                             the default ones
+     * @param log:                 Log where to report directories that cannot be visited
+     */
+    PackageFileFinder(String[] excludedDirectories, Log log) {
+        this.excludedNames = new HashSet<>(Arrays.asList(
+                excludedDirectories != null ? excludedDirectories : DEFAULT_EXCLUDED_DIRECTORIES));
+        this.log = log;
+    }
+
+    /**
+     * Walks baseDir given searching for files whose name is accepted by the given filter.
+     * Returns sorted list of full file paths (minus baseDir)
+     *
+     * @param baseDir:    Base directory of scanning (depends on project)
+     * @param nameFilter: Filter applied to the file names
+     * @return list of files
+     */
+    String[] find(String baseDir, Predicate<String> nameFilter) {
+        Path root = Paths.get(baseDir);
+        List<String> files = new ArrayList<>();
+
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(root) && excludedNames.contains(dir.getFileName()
+                            .toString())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && nameFilter.test(file.getFileName()
+                            .toString())) {
+                        files.add(root.relativize(file)
+                                .toString());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    log.debug("Could not visit " + file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.error("Could not scan base directory", e);
+        }
+        Collections.sort(files);
+        return files.toArray(new String[files.size()]);
+    }
+}
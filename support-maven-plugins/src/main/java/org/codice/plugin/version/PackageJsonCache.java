@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.version;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+import javax.json.JsonWriter;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Cache of package.json validation results kept between builds so unchanged files do not need
+ * to be parsed again.
+ * <p>
+ * Each entry records the size, last modified time and SHA-256 content hash of a file along with
+ * the validation errors found in it. A file whose size and modified time are unchanged is not
+ * read at all; otherwise its content hash is compared. The whole cache is discarded when the
+ * validation settings it was computed with change.
+ */
+class PackageJsonCache {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final String settingsKey;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    PackageJsonCache(String settingsKey) {
+        this.settingsKey = settingsKey;
+    }
+
+    /**
+     * Loads the cache from the given file. A missing, unreadable or outdated cache file yields an
+     * empty cache.
+     *
+     * @param file        the cache file
+     * @param settingsKey key identifying the validation settings the cached results depend on
+     * @return the loaded cache
+     */
+    static PackageJsonCache load(File file, String settingsKey) {
+        final PackageJsonCache cache = new PackageJsonCache(settingsKey);
+
+        if (!file.isFile()) {
+            return cache;
+        }
+        try (InputStream is = FileUtils.openInputStream(file);
+                JsonReader reader = Json.createReader(is)) {
+            final JsonObject root = reader.readObject();
+
+            if (!settingsKey.equals(root.getString("settings", null))) {
+                return cache;
+            }
+            for (Map.Entry<String, JsonValue> e : root.getJsonObject("files")
+                    .entrySet()) {
+                final JsonObject value = (JsonObject) e.getValue();
+                final List<String> errors = new ArrayList<>();
+
+                for (JsonString error : value.getJsonArray("errors")
+                        .getValuesAs(JsonString.class)) {
+                    errors.add(error.getString());
+                }
+                cache.entries.put(e.getKey(),
+                        new Entry(value.getJsonNumber("size")
+                                .longValue(),
+                                value.getJsonNumber("modified")
+                                        .longValue(),
+                                value.getString("hash"),
+                                errors));
+            }
+        } catch (IOException | JsonException | ClassCastException | NullPointerException e) {
+            cache.entries.clear();
+        }
+        return cache;
+    }
+
+    /**
+     * Saves the entries for the given files to the cache file. Entries for files that no longer
+     * exist are dropped.
+     *
+     * @param file  the cache file
+     * @param paths the paths of the files validated in this build
+     * @throws IOException if the cache file cannot be written
+     */
+    void save(File file, Collection<String> paths) throws IOException {
+        final JsonObjectBuilder files = Json.createObjectBuilder();
+
+        for (String path : paths) {
+            final Entry entry = entries.get(path);
+
+            if (entry == null) {
+                continue;
+            }
+            final JsonArrayBuilder errors = Json.createArrayBuilder();
+
+            for (String error : entry.errors) {
+                errors.add(error);
+            }
+            files.add(path,
+                    Json.createObjectBuilder()
+                            .add("size", entry.size)
+                            .add("modified", entry.modified)
+                            .add("hash", entry.hash)
+                            .add("errors", errors));
+        }
+        FileUtils.forceMkdir(file.getParentFile());
+        try (OutputStream os = FileUtils.openOutputStream(file);
+                JsonWriter writer = Json.createWriter(os)) {
+            writer.writeObject(Json.createObjectBuilder()
+                    .add("settings", settingsKey)
+                    .add("files", files)
+                    .build());
+        }
+    }
+
+    /**
+     * Gets the cached errors for a file whose size and modified time have not changed.
+     *
+     * @return the cached errors or <code>null</code> if the file must be checked further
+     */
+    List<String> lookup(String path, long size, long modified) {
+        final Entry entry = entries.get(path);
+
+        if (entry != null && entry.size == size && entry.modified == modified) {
+            return entry.errors;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the cached errors for a file whose content has not changed.
+     *
+     * @return the cached errors or <code>null</code> if the file must be validated
+     */
+    List<String> lookup(String path, String hash) {
+        final Entry entry = entries.get(path);
+
+        if (entry != null && entry.hash.equals(hash)) {
+            return entry.errors;
+        }
+        return null;
+    }
+
+    void put(String path, long size, long modified, String hash, List<String> errors) {
+        entries.put(path, new Entry(size, modified, hash, errors));
+    }
+
+    /**
+     * Computes the SHA-256 hash of a file, reading it through a fixed size buffer.
+     *
+     * @param file the file to hash
+     * @return the hash as a hexadecimal string
+     * @throws IOException if the file cannot be read
+     */
+    static String hash(File file) throws IOException {
+        final MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        final byte[] buffer = new byte[8192];
+
+        try (InputStream is = FileUtils.openInputStream(file)) {
+            int read;
+
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        final byte[] bytes = digest.digest();
+        final char[] hex = new char[bytes.length * 2];
+
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    private static class Entry {
+        private final long size;
+
+        private final long modified;
+
+        private final String hash;
+
+        private final List<String> errors;
+
+        Entry(long size, long modified, String hash, List<String> errors) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+            this.errors = Collections.unmodifiableList(errors);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.cache;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BuildCacheTest {
+
+    private static final List<String> TEST = Collections.singletonList("test");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testHashChangesWithSourcesAndReactorDependencies() throws Exception {
+        File apiDir = temporaryFolder.newFolder("api");
+        File implDir = temporaryFolder.newFolder("impl");
+        writeFile(new File(apiDir, "src/main/java/Api.java"), "interface Api {}");
+        writeFile(new File(implDir, "src/main/java/Impl.java"), "class Impl implements Api {}");
+
+        String[] hashes = hashReactor(apiDir, implDir);
+
+        assertThat("Assert that unchanged inputs give the same hashes",
+                hashReactor(apiDir, implDir),
+                is(hashes));
+
+        writeFile(new File(apiDir, "src/main/java/Api.java"), "interface Api { void a(); }");
+        String[] changedHashes = hashReactor(apiDir, implDir);
+
+        assertThat("Assert that the changed module hash changes",
+                changedHashes[0],
+                not(hashes[0]));
+        assertThat("Assert that the hash of the dependent module changes",
+                changedHashes[1],
+                not(hashes[1]));
+    }
+
+    @Test
+    public void testHashDoesNotDependOnCheckoutLocation() throws Exception {
+        File first = temporaryFolder.newFolder("first", "api");
+        File second = temporaryFolder.newFolder("second", "api");
+        writeFile(new File(first, "src/main/java/Api.java"), "interface Api {}");
+        writeFile(new File(second, "src/main/java/Api.java"), "interface Api {}");
+
+        assertThat("Assert that the same module checked out elsewhere has the same hash",
+                new ModuleInputHasher(first.getParentFile(), d -> null).hash(createProject(first)),
+                is(new ModuleInputHasher(second.getParentFile(), d -> null).hash(createProject(second))));
+    }
+
+    @Test
+    public void testHashNormalizesPathProperties() throws Exception {
+        File first = temporaryFolder.newFolder("first", "api");
+        File second = temporaryFolder.newFolder("second", "api");
+        MavenProject firstProject = createProject(first);
+        MavenProject secondProject = createProject(second);
+        firstProject.getProperties()
+                .setProperty("main.basedir", first.getParent());
+        firstProject.getProperties()
+                .setProperty("user.settings", temporaryFolder.newFile("first.xml")
+                        .getPath());
+        secondProject.getProperties()
+                .setProperty("main.basedir", second.getParent());
+        secondProject.getProperties()
+                .setProperty("user.settings", temporaryFolder.newFile("second.xml")
+                        .getPath());
+
+        assertThat("Assert that paths inside and outside of the root directory are normalized",
+                new ModuleInputHasher(first.getParentFile(), d -> null).hash(firstProject),
+                is(new ModuleInputHasher(second.getParentFile(), d -> null).hash(secondProject)));
+
+        secondProject.getProperties()
+                .setProperty("main.basedir", second.getPath());
+
+        assertThat("Assert that a path property pointing elsewhere in the build changes the hash",
+                new ModuleInputHasher(first.getParentFile(), d -> null).hash(firstProject),
+                not(new ModuleInputHasher(second.getParentFile(), d -> null).hash(secondProject)));
+    }
+
+    @Test
+    public void testRestoreOnlyEntriesBuiltToTheRequestedPhase() throws Exception {
+        File buildDir = temporaryFolder.newFolder("target");
+        BuildCache cache = new BuildCache(new File(temporaryFolder.getRoot(), "cache"));
+        List<String> verify = Arrays.asList("verify", "install", "deploy");
+        writeFile(new File(buildDir, "classes/Api.class"), "compiled");
+
+        cache.store("1234", buildDir, "compile");
+
+        assertThat("Assert that a compile entry is not restored by a verify build",
+                cache.restore("1234", buildDir, verify),
+                is(false));
+        assertThat("Assert that a compile entry is restored by a compile build",
+                cache.restore("1234", buildDir, Arrays.asList("compile", "test", "verify")),
+                is(true));
+
+        writeFile(new File(buildDir, "surefire-reports/TEST-ApiTest.xml"), "<testsuite/>");
+        cache.store("1234", buildDir, "install");
+        FileUtils.deleteDirectory(buildDir);
+
+        assertThat("Assert that an install entry is restored by a verify build",
+                cache.restore("1234", buildDir, verify),
+                is(true));
+        assertThat(new File(buildDir, "surefire-reports/TEST-ApiTest.xml").isFile(), is(true));
+    }
+
+    @Test
+    public void testStoreAndRestore() throws Exception {
+        File buildDir = temporaryFolder.newFolder("target");
+        BuildCache cache = new BuildCache(new File(temporaryFolder.getRoot(), "cache"));
+        writeFile(new File(buildDir, "classes/Api.class"), "compiled");
+        writeFile(new File(buildDir, "surefire-reports/TEST-ApiTest.xml"), "<testsuite/>");
+
+        assertThat("Assert that nothing is restored before being stored",
+                cache.restore("1234", buildDir, TEST),
+                is(false));
+
+        cache.store("1234", buildDir, "test");
+        FileUtils.deleteDirectory(buildDir);
+
+        assertThat("Assert that the stored entry is restored",
+                cache.restore("1234", buildDir, TEST),
+                is(true));
+        assertThat(FileUtils.readFileToString(new File(buildDir, "classes/Api.class"),
+                StandardCharsets.UTF_8), is("compiled"));
+        assertThat(new File(buildDir, "surefire-reports/TEST-ApiTest.xml").isFile(), is(true));
+    }
+
+    private static String[] hashReactor(File apiDir, File implDir) throws IOException {
+        MavenProject api = createProject(apiDir);
+        MavenProject impl = createProject(implDir);
+        Dependency dependency = new Dependency();
+        dependency.setGroupId(api.getGroupId());
+        dependency.setArtifactId(api.getArtifactId());
+        dependency.setVersion(api.getVersion());
+        impl.getDependencies()
+                .add(dependency);
+
+        ModuleInputHasher hasher = new ModuleInputHasher(apiDir.getParentFile(), d -> null);
+        return new String[] {hasher.hash(api), hasher.hash(impl)};
+    }
+
+    private static MavenProject createProject(File basedir) {
+        MavenProject project = new MavenProject();
+        project.setFile(new File(basedir, "pom.xml"));
+        project.setGroupId("ddf.test");
+        project.setArtifactId(basedir.getName());
+        project.setVersion("1.0-SNAPSHOT");
+        project.addCompileSourceRoot(new File(basedir, "src/main/java").getPath());
+        return project;
+    }
+
+    private static void writeFile(File file, String contents) throws IOException {
+        FileUtils.writeStringToFile(file, contents, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.impact;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.execution.ProjectDependencyGraph;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.transport.RefSpec;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ImpactedModulesTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File baseDir;
+
+    private MavenProject root;
+
+    private MavenProject api;
+
+    private MavenProject impl;
+
+    private MavenProject ui;
+
+    private ImpactedModules impactedModules;
+
+    @Before
+    public void setUp() throws Exception {
+        baseDir = temporaryFolder.newFolder("reactor");
+        root = createProject(baseDir);
+        api = createProject(new File(baseDir, "api"));
+        impl = createProject(new File(baseDir, "impl"));
+        ui = createProject(new File(baseDir, "ui"));
+
+        // impl depends on api and every module inherits from root
+        impactedModules = new ImpactedModules(new ProjectDependencyGraph() {
+            @Override
+            public List<MavenProject> getSortedProjects() {
+                return Arrays.asList(root, api, impl, ui);
+            }
+
+            @Override
+            public List<MavenProject> getDownstreamProjects(MavenProject project,
+                    boolean transitive) {
+                if (project == root) {
+                    return Arrays.asList(api, impl, ui);
+                }
+                return project == api ? Collections.singletonList(impl) : new ArrayList<>();
+            }
+
+            @Override
+            public List<MavenProject> getUpstreamProjects(MavenProject project,
+                    boolean transitive) {
+                throw new UnsupportedOperationException();
+            }
+        });
+    }
+
+    @Test
+    public void testChangedModuleImpactsItsDependents() throws Exception {
+        List<MavenProject> modules = impactedModules.compute(Arrays.asList(file(
+                "api/src/main/java/Api.java"), file("ui/src/main/webapp/index.html")));
+
+        assertThat("Assert that dependents are added in reactor order",
+                modules,
+                is(Arrays.asList(api, impl, ui)));
+        assertThat(ImpactedModules.toProjectList(modules, baseDir), is("api,impl,ui"));
+    }
+
+    @Test
+    public void testChangedParentImpactsEveryModule() throws Exception {
+        List<MavenProject> modules = impactedModules.compute(Collections.singletonList(file(
+                "pom.xml")));
+
+        assertThat("Assert that every module inheriting the parent is impacted",
+                ImpactedModules.toProjectList(modules, baseDir),
+                is(".,api,impl,ui"));
+    }
+
+    @Test
+    public void testFilesOutsideModulesAreIgnored() throws Exception {
+        List<MavenProject> modules = impactedModules.compute(Collections.singletonList(
+                temporaryFolder.newFolder("elsewhere")));
+
+        assertThat("Assert that no module is impacted", modules.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testChangedPathsAreComputedAgainstMergeBase() throws Exception {
+        Git git = Git.init()
+                .setDirectory(baseDir)
+                .call();
+        writeFile("api/Api.java", "class Api {}");
+        writeFile("impl/Impl.java", "class Impl {}");
+        git.add()
+                .addFilepattern(".")
+                .call();
+        git.commit()
+                .setMessage("base")
+                .call();
+        git.branchCreate()
+                .setName("base")
+                .call();
+
+        writeFile("impl/Impl.java", "class Impl { int i; }");
+        git.commit()
+                .setAll(true)
+                .setMessage("change")
+                .call();
+
+        git.checkout()
+                .setName("base")
+                .call();
+        writeFile("ui/index.html", "<html/>");
+        git.add()
+                .addFilepattern(".")
+                .call();
+        git.commit()
+                .setMessage("change on base")
+                .call();
+
+        assertThat("Assert that only the changes of the head ref are listed",
+                new ArrayList<>(new ChangedPathsFinder(baseDir, new SystemStreamLog()).find("base",
+                        "master")),
+                is(Collections.singletonList(new File(git.getRepository()
+                        .getWorkTree(), "impl/Impl.java"))));
+    }
+
+    @Test
+    public void testChangedPathsWithoutMergeBase() throws Exception {
+        File otherDir = temporaryFolder.newFolder("other");
+        Git other = Git.init()
+                .setDirectory(otherDir)
+                .call();
+        FileUtils.writeStringToFile(new File(otherDir, "api/Api.java"),
+                "class Api {}",
+                StandardCharsets.UTF_8);
+        other.add()
+                .addFilepattern(".")
+                .call();
+        other.commit()
+                .setMessage("base")
+                .call();
+
+        Git git = Git.init()
+                .setDirectory(baseDir)
+                .call();
+        writeFile("api/Api.java", "class Api {}");
+        writeFile("impl/Impl.java", "class Impl {}");
+        git.add()
+                .addFilepattern("api")
+                .addFilepattern("impl")
+                .call();
+        git.commit()
+                .setMessage("change")
+                .call();
+        // unrelated histories, as when the merge base is not fetched in a shallow clone
+        git.fetch()
+                .setRemote(otherDir.toURI()
+                        .toString())
+                .setRefSpecs(new RefSpec("refs/heads/master:refs/heads/base"))
+                .call();
+        List<String> warnings = new ArrayList<>();
+
+        assertThat("Assert that the head ref is compared against the base ref itself",
+                new ArrayList<>(new ChangedPathsFinder(baseDir, new SystemStreamLog() {
+                    @Override
+                    public void warn(CharSequence content) {
+                        warnings.add(content.toString());
+                    }
+                }).find("base", "master")),
+                is(Collections.singletonList(new File(git.getRepository()
+                        .getWorkTree(), "impl/Impl.java"))));
+        assertThat("Assert that the missing merge base is reported", warnings.size(), is(1));
+    }
+
+    private File file(String path) {
+        return new File(baseDir, path);
+    }
+
+    private void writeFile(String path, String contents) throws IOException {
+        FileUtils.writeStringToFile(file(path), contents, StandardCharsets.UTF_8);
+    }
+
+    private static MavenProject createProject(File basedir) {
+        MavenProject project = new MavenProject();
+        project.setFile(new File(basedir, "pom.xml"));
+        project.setArtifactId(basedir.getName());
+        return project;
+    }
+}
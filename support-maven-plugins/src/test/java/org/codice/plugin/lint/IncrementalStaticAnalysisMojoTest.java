@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.lint;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IncrementalStaticAnalysisMojoTest {
+
+    private static final String HEADER = "/**\n"
+            + " * Copyright (c) Codice Foundation\n"
+            + " * <p>\n"
+            + " * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser\n"
+            + " * General Public License as published by the Free Software Foundation, either version 3 of the\n"
+            + " * License, or any later version.\n"
+            + " * <p>\n"
+            + " * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without\n"
+            + " * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU\n"
+            + " * Lesser General Public License for more details. A copy of the GNU Lesser General Public License\n"
+            + " * is distributed along with this program and can be found at\n"
+            + " * <http://www.gnu.org/licenses/lgpl.html>.\n"
+            + " */\n";
+
+    private static final String CLEAN_SOURCE = HEADER + "package org.codice.test;\n"
+            + "\n"
+            + "public class Clean {\n"
+            + "    public int add(int a, int b) {\n"
+            + "        return a + b;\n"
+            + "    }\n"
+            + "}\n";
+
+    private static final String VIOLATING_SOURCE = HEADER + "package org.codice.test;\n"
+            + "\n"
+            + "public class Violating {\n"
+            + "    public void run() {\n"
+            + "        try {\n"
+            + "            run();\n"
+            + "        } catch (RuntimeException e) {\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testCleanSourcesPass() throws Exception {
+        File baseDir = temporaryFolder.getRoot();
+        writeFile(new File(baseDir, "src/main/java/org/codice/test/Clean.java"), CLEAN_SOURCE);
+
+        createMojo(baseDir).execute();
+
+        assertThat("Assert that the Checkstyle report lists the checked file",
+                readFile(new File(baseDir, "target/checkstyle-result.xml")),
+                containsString("Clean.java"));
+        assertThat("Assert that the PMD report has no violation",
+                readFile(new File(baseDir, "target/pmd.xml")),
+                not(containsString("<violation")));
+    }
+
+    @Test
+    public void testViolationsAreReportedFromCache() throws Exception {
+        File baseDir = temporaryFolder.getRoot();
+        File source = new File(baseDir, "src/main/java/org/codice/test/Violating.java");
+        writeFile(new File(baseDir, "src/main/java/org/codice/test/Clean.java"), CLEAN_SOURCE);
+        writeFile(source, VIOLATING_SOURCE);
+
+        assertThat("Assert that the violation fails the first build",
+                executeFails(createMojo(baseDir)),
+                is(true));
+        File pmdReport = new File(baseDir, "target/pmd.xml");
+        String fullReport = readFile(pmdReport);
+        assertThat("Assert that the empty catch block is reported",
+                fullReport,
+                containsString("EmptyCatchBlock"));
+        assertThat("Assert that the cache file was written",
+                new File(baseDir, "target/static-analysis-cache.json").isFile(),
+                is(true));
+
+        assertThat("Assert that the cached violation fails the next build",
+                executeFails(createMojo(baseDir)),
+                is(true));
+        assertThat("Assert that the report built from the cache matches the full one",
+                readFile(pmdReport),
+                is(fullReport));
+
+        writeFile(source, VIOLATING_SOURCE.replace("        } catch (RuntimeException e) {\n",
+                "        } catch (RuntimeException e) {\n            throw e;\n"));
+
+        assertThat("Assert that the fixed file is analyzed again",
+                executeFails(createMojo(baseDir)),
+                is(false));
+    }
+
+    @Test
+    public void testCheckstyleErrorsFailTheBuild() throws Exception {
+        File baseDir = temporaryFolder.getRoot();
+        writeFile(new File(baseDir, "src/main/java/org/codice/test/Clean.java"),
+                CLEAN_SOURCE.replace(HEADER, ""));
+
+        assertThat("Assert that the missing header fails the build",
+                executeFails(createMojo(baseDir)),
+                is(true));
+        assertThat("Assert that the header check is reported",
+                readFile(new File(baseDir, "target/checkstyle-result.xml")),
+                containsString("RegexpHeaderCheck"));
+    }
+
+    private static IncrementalStaticAnalysisMojo createMojo(File baseDir) {
+        MavenProject project = new MavenProject();
+        project.setFile(new File(baseDir, "pom.xml"));
+        project.addCompileSourceRoot(new File(baseDir, "src/main/java").getPath());
+
+        IncrementalStaticAnalysisMojo mojo = new IncrementalStaticAnalysisMojo();
+        mojo.project = project;
+        mojo.buildDirectory = new File(baseDir, "target");
+        mojo.checkstyleConfig = "checkstyle-enforced.xml";
+        mojo.checkstyleHeader = "lpgl-header-check.txt";
+        mojo.pmdRuleSets = "basic.xml,empty.xml,sunsecure.xml,unnecessary.xml";
+        mojo.targetJdk = "1.8";
+        mojo.failOnViolation = true;
+        return mojo;
+    }
+
+    private static boolean executeFails(IncrementalStaticAnalysisMojo mojo) throws Exception {
+        try {
+            mojo.execute();
+            return false;
+        } catch (MojoFailureException e) {
+            return true;
+        }
+    }
+
+    private static void writeFile(File file, String contents) throws IOException {
+        FileUtils.writeStringToFile(file, contents, StandardCharsets.UTF_8);
+    }
+
+    private static String readFile(File file) throws IOException {
+        return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+    }
+}
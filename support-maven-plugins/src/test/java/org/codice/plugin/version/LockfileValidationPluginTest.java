@@ -0,0 +1,283 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General private License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General private License for more details. A copy of the GNU Lesser General private License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ **/
+
+package org.codice.plugin.version;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LockfileValidationPluginTest {
+
+    private static final String PACKAGE_JSON =
+            "{\"dependencies\": {\"react\": \"15.4.2\"}, \"devDependencies\": {\"mocha\": \"^3.2.0\"}}";
+
+    private static final String PACKAGE_LOCK_V1 = "{\n"
+            + "  \"lockfileVersion\": 1,\n"
+            + "  \"dependencies\": {\n"
+            + "    \"react\": {\n"
+            + "      \"version\": \"15.4.2\",\n"
+            + "      \"resolved\": \"https://registry.npmjs.org/react/-/react-15.4.2.tgz\",\n"
+            + "      \"integrity\": \"sha512-abc\",\n"
+            + "      \"requires\": {\"fbjs\": \"^0.8.4\"},\n"
+            + "      \"dependencies\": {\n"
+            + "        \"fbjs\": {\n"
+            + "          \"version\": \"0.8.16\",\n"
+            + "          \"resolved\": \"https://registry.npmjs.org/fbjs/-/fbjs-0.8.16.tgz\"\n"
+            + "        }\n"
+            + "      }\n"
+            + "    },\n"
+            + "    \"mocha\": {\n"
+            + "      \"version\": \"3.5.3\",\n"
+            + "      \"resolved\": \"https://registry.npmjs.org/mocha/-/mocha-3.5.3.tgz\",\n"
+            + "      \"integrity\": \"sha512-def\",\n"
+            + "      \"dev\": true\n"
+            + "    }\n"
+            + "  }\n"
+            + "}";
+
+    private static final String PACKAGE_LOCK_V2 = "{\n"
+            + "  \"lockfileVersion\": 2,\n"
+            + "  \"packages\": {\n"
+            + "    \"\": {\"dependencies\": {\"react\": \"15.4.2\"}},\n"
+            + "    \"node_modules/react\": {\n"
+            + "      \"version\": \"15.4.1\",\n"
+            + "      \"resolved\": \"https://registry.npmjs.org/react/-/react-15.4.1.tgz\",\n"
+            + "      \"integrity\": \"sha512-abc\"\n"
+            + "    },\n"
+            + "    \"node_modules/mocha/node_modules/react\": {\n"
+            + "      \"version\": \"15.4.2\",\n"
+            + "      \"resolved\": \"https://registry.npmjs.org/react/-/react-15.4.2.tgz\",\n"
+            + "      \"integrity\": \"sha512-abc\"\n"
+            + "    },\n"
+            + "    \"node_modules/mocha\": {\n"
+            + "      \"version\": \"3.5.3\",\n"
+            + "      \"resolved\": \"https://registry.npmjs.org/mocha/-/mocha-3.5.3.tgz\",\n"
+            + "      \"integrity\": \"sha512-def\"\n"
+            + "    },\n"
+            + "    \"node_modules/local\": {\"resolved\": \"../local\", \"link\": true}\n"
+            + "  },\n"
+            + "  \"dependencies\": {\n"
+            + "    \"react\": {\"version\": \"15.4.1\", \"resolved\": \"https://registry.npmjs.org/react/-/react-15.4.1.tgz\"}\n"
+            + "  }\n"
+            + "}";
+
+    private static final String YARN_LOCK = "# THIS IS AN AUTOGENERATED FILE.\n"
+            + "# yarn lockfile v1\n"
+            + "\n"
+            + "\n"
+            + "fbjs@^0.8.4:\n"
+            + "  version \"0.8.16\"\n"
+            + "  resolved \"https://registry.yarnpkg.com/fbjs/-/fbjs-0.8.16.tgz#5e67432f\"\n"
+            + "\n"
+            + "mocha@^3.2.0:\n"
+            + "  version \"3.5.3\"\n"
+            + "  resolved \"https://registry.yarnpkg.com/mocha/-/mocha-3.5.3.tgz#1e0480fe\"\n"
+            + "  integrity sha512-def\n"
+            + "\n"
+            + "react@15.4.2, \"react@^15.0.0\":\n"
+            + "  version \"15.4.2\"\n"
+            + "  resolved \"https://registry.yarnpkg.com/react/-/react-15.4.2.tgz#41f7991b\"\n"
+            + "  integrity sha512-abc\n"
+            + "  dependencies:\n"
+            + "    fbjs \"^0.8.4\"\n";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testPackageLockV1ReportsEntriesWithoutIntegrity() {
+        List<String> errors = new ArrayList<>();
+
+        new LockfileValidationPlugin().addPackageLockErrors(toStream(PACKAGE_LOCK_V1),
+                "package-lock.json",
+                getDeclared(),
+                errors);
+
+        assertThat("Assert that only the nested entry without integrity is reported",
+                errors.size(),
+                is(1));
+        assertThat(errors.get(0), containsString("at line 10"));
+        assertThat(errors.get(0), containsString("[fbjs]"));
+    }
+
+    @Test
+    public void testPackageLockV2ChecksDirectVersions() {
+        List<String> errors = new ArrayList<>();
+
+        new LockfileValidationPlugin().addPackageLockErrors(toStream(PACKAGE_LOCK_V2),
+                "package-lock.json",
+                getDeclared(),
+                errors);
+
+        assertThat("Assert that only the mismatched direct version is reported",
+                errors.size(),
+                is(1));
+        assertThat(errors.get(0),
+                containsString("[react] : \"15.4.1\" (declared \"15.4.2\")"));
+    }
+
+    @Test
+    public void testPackageLockV3WithWorkspaces() {
+        List<String> errors = new ArrayList<>();
+        String packageLock = "{\n"
+                + "  \"lockfileVersion\": 3,\n"
+                + "  \"packages\": {\n"
+                + "    \"\": {\"workspaces\": [\"packages/*\"]},\n"
+                + "    \"a\": {\"version\": \"1.0.0\"},\n"
+                + "    \"packages/ui\": {\"name\": \"ui\", \"version\": \"1.0.0\"},\n"
+                + "    \"node_modules/ui\": {\"resolved\": \"packages/ui\", \"link\": true},\n"
+                + "    \"node_modules/react\": {\n"
+                + "      \"version\": \"15.4.2\",\n"
+                + "      \"resolved\": \"https://registry.npmjs.org/react/-/react-15.4.2.tgz\",\n"
+                + "      \"integrity\": \"sha512-abc\"\n"
+                + "    },\n"
+                + "    \"packages/ui/node_modules/mocha\": {\n"
+                + "      \"version\": \"3.5.3\",\n"
+                + "      \"resolved\": \"https://registry.npmjs.org/mocha/-/mocha-3.5.3.tgz\"\n"
+                + "    }\n"
+                + "  }\n"
+                + "}";
+
+        LockfileValidationPlugin plugin = new LockfileValidationPlugin();
+
+        plugin.addPackageLockErrors(toStream(packageLock),
+                "package-lock.json",
+                plugin.getDeclaredDependencies(toStream(
+                        "{\"dependencies\": {\"react\": \"15.4.2\"}}")),
+                errors);
+
+        assertThat("Assert that only the workspace package without integrity is reported",
+                errors.size(),
+                is(1));
+        assertThat(errors.get(0), containsString("[mocha]"));
+    }
+
+    @Test
+    public void testYarnLockWithUnexpectedLines() throws Exception {
+        List<String> errors = new ArrayList<>();
+
+        new LockfileValidationPlugin().addYarnLockErrors(toStream("not a header\n" + YARN_LOCK),
+                "yarn.lock",
+                getDeclared(),
+                errors);
+
+        assertThat("Assert that the line without a colon is skipped",
+                errors.size(),
+                is(1));
+        assertThat(errors.get(0), containsString("[fbjs]"));
+    }
+
+    @Test
+    public void testYarnLock() throws Exception {
+        List<String> errors = new ArrayList<>();
+
+        new LockfileValidationPlugin().addYarnLockErrors(toStream(YARN_LOCK),
+                "yarn.lock",
+                getDeclared(),
+                errors);
+
+        assertThat("Assert that only the entry without integrity is reported",
+                errors.size(),
+                is(1));
+        assertThat(errors.get(0), containsString("at line 5"));
+        assertThat(errors.get(0), containsString("[fbjs]"));
+
+        errors.clear();
+        new LockfileValidationPlugin().addYarnLockErrors(toStream(YARN_LOCK.replace("react@15.4.2, ",
+                "")), "yarn.lock", getDeclared(), errors);
+
+        assertThat("Assert that an unlocked direct dependency is reported",
+                errors.get(errors.size() - 1),
+                containsString("missing from the lockfile: [react]"));
+    }
+
+    @Test
+    public void testYarnLockSpecsWithAtInRange() throws Exception {
+        String packageJson = "{\"dependencies\": {"
+                + "\"private-lib\": \"git+ssh://git@github.com/codice/private-lib.git\", "
+                + "\"@types/node\": \"10.0.0\", "
+                + "\"react\": \"npm:preact@10.0.0\"}}";
+        String yarnLock = "# yarn lockfile v1\n"
+                + "\n"
+                + "\"@types/node@10.0.0\":\n"
+                + "  version \"10.0.0\"\n"
+                + "  resolved \"https://registry.yarnpkg.com/@types/node/-/node-10.0.0.tgz#1e0480fe\"\n"
+                + "  integrity sha512-abc\n"
+                + "\n"
+                + "\"private-lib@git+ssh://git@github.com/codice/private-lib.git\":\n"
+                + "  version \"1.0.0\"\n"
+                + "  resolved \"git+ssh://git@github.com/codice/private-lib.git#5e67432f\"\n"
+                + "\n"
+                + "\"react@npm:preact@10.0.0\":\n"
+                + "  version \"10.0.0\"\n"
+                + "  resolved \"https://registry.yarnpkg.com/preact/-/preact-10.0.0.tgz#41f7991b\"\n"
+                + "  integrity sha512-def\n";
+        List<String> errors = new ArrayList<>();
+        LockfileValidationPlugin plugin = new LockfileValidationPlugin();
+
+        plugin.addYarnLockErrors(toStream(yarnLock),
+                "yarn.lock",
+                plugin.getDeclaredDependencies(toStream(packageJson)),
+                errors);
+
+        assertThat("Assert that the dependencies are found in the lockfile", errors,
+                is(Collections.<String>emptyList()));
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testExecuteWithInvalidLockfile() throws Exception {
+        File baseDir = temporaryFolder.getRoot();
+        FileUtils.writeStringToFile(new File(baseDir, "ui/package.json"),
+                PACKAGE_JSON,
+                StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(baseDir, "ui/yarn.lock"),
+                YARN_LOCK,
+                StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(baseDir, "ui/node_modules/a/yarn.lock"),
+                "",
+                StandardCharsets.UTF_8);
+
+        MavenProject project = new MavenProject();
+        project.setFile(new File(baseDir, "pom.xml"));
+
+        LockfileValidationPlugin plugin = new LockfileValidationPlugin();
+        plugin.project = project;
+        plugin.execute();
+    }
+
+    private static Map<String, String> getDeclared() {
+        return new LockfileValidationPlugin().getDeclaredDependencies(toStream(PACKAGE_JSON));
+    }
+
+    private static InputStream toStream(String contents) {
+        return new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8));
+    }
+}
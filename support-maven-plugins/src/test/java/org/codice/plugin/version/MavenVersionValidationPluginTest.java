@@ -14,17 +14,48 @@
 
 package org.codice.plugin.version;
 
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class MavenVersionValidationPluginTest {
 
+    private static final String VALID_PACKAGE_JSON =
+            "{\"dependencies\": {\"react\": \"15.4.2\"}, \"devDependencies\": {\"mocha\": \"3.2.0\"}}";
+
+    private static final String INVALID_PACKAGE_JSON =
+            "{\"dependencies\": {\"react\": \"^15.4.2\"}, \"devDependencies\": {\"mocha\": \"3.2.0\"}}";
+
+    private static final String PLUGIN_KEY = "org.codice:version-validation-plugin";
+
+    private static final String GOAL = "check-package-json";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testInvalidInputs() {
         List<String> invalidInputs = Arrays.asList("^2.3.1",
@@ -65,4 +96,268 @@ public class MavenVersionValidationPluginTest {
                     nullValue());
         }
     }
+
+    @Test
+    public void testStreamingCheckOnlyLooksAtDependencyObjects() {
+        String json = "{\n"
+                + "  \"version\": \"^1.0.0\",\n"
+                + "  \"scripts\": {\"dependencies\": {\"a\": \"^1.0.0\"}},\n"
+                + "  \"dependencies\": {\n"
+                + "    \"react\": \"15.4.2\",\n"
+                + "    \"nested\": {\"version\": \"^1.0.0\"},\n"
+                + "    \"lodash\": \"~4.17.4\"\n"
+                + "  },\n"
+                + "  \"peerDependencies\": {\"jquery\": \">=3.1.1\"}\n"
+                + "}";
+
+        MavenVersionValidationPlugin mvnPlugin = new MavenVersionValidationPlugin();
+        mvnPlugin.setWhitelistedValues(new String[] {"-beta", "#"});
+        List<String> errors = new ArrayList<>();
+
+        mvnPlugin.addRangeCharErrors(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                "package.json",
+                errors);
+
+        assertThat("Assert that only the dependencies version is reported", errors.size(), is(1));
+        assertThat("Assert that the location of the version is reported",
+                errors.get(0),
+                containsString("at line 7"));
+        assertThat(errors.get(0), containsString("in [lodash] : \"~4.17.4\""));
+
+        mvnPlugin.includePeerAndOptionalDependencies = true;
+        errors.clear();
+        mvnPlugin.addRangeCharErrors(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                "package.json",
+                errors);
+
+        assertThat("Assert that peer dependencies are reported when enabled", errors.size(), is(2));
+    }
+
+    @Test
+    public void testPackageJsonDiscoverySkipsExcludedDirectories() throws Exception {
+        File baseDir = temporaryFolder.getRoot();
+        writeFile(new File(baseDir, "package.json"), VALID_PACKAGE_JSON);
+        writeFile(new File(baseDir, "ui/src/main/webapp/package.json"), VALID_PACKAGE_JSON);
+        writeFile(new File(baseDir, "ui/node_modules/react/package.json"), INVALID_PACKAGE_JSON);
+        writeFile(new File(baseDir, "ui/node/npm/package.json"), INVALID_PACKAGE_JSON);
+        writeFile(new File(baseDir, "a/b/target/classes/package.json"), INVALID_PACKAGE_JSON);
+
+        MavenVersionValidationPlugin mvnPlugin = createPlugin(baseDir, false);
+        String[] files = mvnPlugin.getListOfPackageJsonFiles(baseDir.getPath(), "package.json");
+
+        assertThat("Assert that excluded directories are skipped at any depth",
+                Arrays.asList(files),
+                is(Arrays.asList("package.json",
+                        "ui" + File.separator + "src" + File.separator + "main" + File.separator
+                                + "webapp" + File.separator + "package.json")));
+
+        mvnPlugin.excludedDirectories = new String[] {"src"};
+        files = mvnPlugin.getListOfPackageJsonFiles(baseDir.getPath(), "package.json");
+
+        assertThat("Assert that the excluded directory names are configurable",
+                files.length,
+                is(4));
+    }
+
+    @Test
+    public void testExecuteWithValidFiles() throws Exception {
+        File baseDir = temporaryFolder.getRoot();
+        writeFile(new File(baseDir, "package.json"), VALID_PACKAGE_JSON);
+        writeFile(new File(baseDir, "ui/package.json"), VALID_PACKAGE_JSON);
+
+        createPlugin(baseDir, false).execute();
+    }
+
+    @Test(expected = MojoFailureException.class)
+    public void testExecuteWithInvalidFile() throws Exception {
+        File baseDir = temporaryFolder.getRoot();
+        writeFile(new File(baseDir, "package.json"), VALID_PACKAGE_JSON);
+        writeFile(new File(baseDir, "ui/package.json"), INVALID_PACKAGE_JSON);
+
+        createPlugin(baseDir, false).execute();
+    }
+
+    @Test
+    public void testExecuteIncrementalRevalidatesChangedFiles() throws Exception {
+        File baseDir = temporaryFolder.getRoot();
+        File packageJson = new File(baseDir, "ui/package.json");
+        writeFile(packageJson, INVALID_PACKAGE_JSON);
+
+        assertThat("Assert that the invalid file fails the first build",
+                executeFails(createPlugin(baseDir, true)),
+                is(true));
+        assertThat("Assert that the cache file was written",
+                new File(baseDir, "target/package-json-validation.json").isFile(),
+                is(true));
+        assertThat("Assert that the cached failure is reported again",
+                executeFails(createPlugin(baseDir, true)),
+                is(true));
+
+        writeFile(packageJson, VALID_PACKAGE_JSON);
+        packageJson.setLastModified(packageJson.lastModified() + 2000);
+
+        assertThat("Assert that the fixed file is validated again",
+                executeFails(createPlugin(baseDir, true)),
+                is(false));
+    }
+
+    @Test
+    public void testExecuteAggregateOnlyValidatesFromTopLevelProject() throws Exception {
+        File baseDir = temporaryFolder.getRoot();
+        File moduleDir = new File(baseDir, "ui");
+        writeFile(new File(baseDir, "package.json"), VALID_PACKAGE_JSON);
+        writeFile(new File(moduleDir, "src/main/webapp/package.json"), INVALID_PACKAGE_JSON);
+
+        MavenVersionValidationPlugin rootPlugin = createPlugin(baseDir, false);
+        MavenVersionValidationPlugin modulePlugin = createPlugin(moduleDir, false);
+        rootPlugin.project.setExecutionRoot(true);
+        MavenSession session = new MavenSession(null,
+                new DefaultMavenExecutionRequest(),
+                new DefaultMavenExecutionResult(),
+                Arrays.asList(rootPlugin.project, modulePlugin.project));
+        rootPlugin.session = session;
+        rootPlugin.aggregate = true;
+        modulePlugin.session = session;
+        modulePlugin.aggregate = true;
+
+        assertThat("Assert that the module does not rescan its files",
+                executeFails(modulePlugin),
+                is(false));
+        assertThat("Assert that the top-level project reports the module's file",
+                executeFails(rootPlugin),
+                is(true));
+    }
+
+    @Test
+    public void testExecuteAggregateAttributesFilesToSelectedProjects() throws Exception {
+        File baseDir = temporaryFolder.getRoot();
+        writeFile(new File(baseDir, "package.json"), INVALID_PACKAGE_JSON);
+        writeFile(new File(baseDir, "a/package.json"), INVALID_PACKAGE_JSON);
+        writeFile(new File(baseDir, "a/ui/package.json"), INVALID_PACKAGE_JSON);
+        writeFile(new File(baseDir, "b/package.json"), INVALID_PACKAGE_JSON);
+        writeFile(new File(baseDir, "b-c/package.json"), INVALID_PACKAGE_JSON);
+
+        // as with -pl a,a/ui,b: the parent project and b-c are not in the reactor
+        MavenVersionValidationPlugin aPlugin = createPlugin(new File(baseDir, "a"), false);
+        MavenVersionValidationPlugin uiPlugin = createPlugin(new File(baseDir, "a/ui"), false);
+        MavenVersionValidationPlugin bPlugin = createPlugin(new File(baseDir, "b"), false);
+        List<MavenProject> projects = Arrays.asList(aPlugin.project, uiPlugin.project, bPlugin.project);
+        MavenSession session = new MavenSession(null,
+                new DefaultMavenExecutionRequest(),
+                new DefaultMavenExecutionResult(),
+                projects);
+        List<String> errors = new ArrayList<>();
+
+        for (MavenVersionValidationPlugin mvnPlugin : Arrays.asList(aPlugin, uiPlugin, bPlugin)) {
+            mvnPlugin.project.setArtifactId(mvnPlugin.project.getBasedir()
+                    .getName());
+            mvnPlugin.session = session;
+            mvnPlugin.aggregate = true;
+            mvnPlugin.setLog(new SystemStreamLog() {
+                @Override
+                public void error(CharSequence content) {
+                    errors.add(content.toString());
+                }
+            });
+        }
+
+        assertThat("Assert that the nested project does not rescan its files",
+                executeFails(uiPlugin),
+                is(false));
+        assertThat("Assert that the other projects do not rescan their files",
+                executeFails(bPlugin),
+                is(false));
+        assertThat("Assert that the first project of the reactor reports all the files",
+                executeFails(aPlugin),
+                is(true));
+        assertThat(errors.size(), is(6));
+        assertThat(errors.get(0), is("In module [a]:"));
+        assertThat(errors.get(1), containsString(new File("a", "package.json").getPath()));
+        assertThat(errors.get(2), is("In module [ui]:"));
+        assertThat(errors.get(3), containsString(new File("a", "ui/package.json").getPath()));
+        assertThat(errors.get(4), is("In module [b]:"));
+        assertThat(errors.get(5), containsString(new File("b", "package.json").getPath()));
+    }
+
+    @Test
+    public void testValidatingProjectIsFirstProjectRunningTheGoal() throws Exception {
+        File baseDir = temporaryFolder.getRoot();
+
+        // the parent project does not bind the goal, only its modules do
+        MavenProject root = createPlugin(baseDir, false).project;
+        MavenProject ui = createPlugin(new File(baseDir, "ui"), false).project;
+        MavenProject docs = createPlugin(new File(baseDir, "docs"), false).project;
+        root.getBuild()
+                .addPlugin(createBuildPlugin(PLUGIN_KEY, "other-goal"));
+        ui.getBuild()
+                .addPlugin(createBuildPlugin("org.codice:other-plugin", GOAL));
+        ui.getBuild()
+                .addPlugin(createBuildPlugin(PLUGIN_KEY, GOAL));
+        docs.getBuild()
+                .addPlugin(createBuildPlugin(PLUGIN_KEY, GOAL));
+        List<MavenProject> projects = Arrays.asList(root, ui, docs);
+
+        assertThat("Assert that the first project running the goal validates the reactor",
+                MavenVersionValidationPlugin.getValidatingProject(projects, PLUGIN_KEY, GOAL),
+                is(ui));
+        assertThat("Assert that no project is selected when none runs the goal",
+                MavenVersionValidationPlugin.getValidatingProject(Arrays.asList(root),
+                        PLUGIN_KEY,
+                        GOAL),
+                nullValue());
+    }
+
+    @Test
+    public void testOutermostBasedirs() throws Exception {
+        File baseDir = temporaryFolder.getRoot()
+                .getCanonicalFile();
+        List<MavenProject> projects = new ArrayList<>();
+
+        for (String dir : Arrays.asList("b/c", "a", "b-c", "b", "a/d")) {
+            projects.add(createPlugin(new File(baseDir, dir), false).project);
+        }
+        List<File> outermost = MavenVersionValidationPlugin.getOutermostBasedirs(projects);
+
+        assertThat(outermost,
+                is(Arrays.asList(new File(baseDir, "a"),
+                        new File(baseDir, "b"),
+                        new File(baseDir, "b-c"))));
+        assertThat(MavenVersionValidationPlugin.getCommonAncestor(outermost), is(baseDir));
+    }
+
+    private static MavenVersionValidationPlugin createPlugin(File baseDir, boolean incremental) {
+        MavenProject project = new MavenProject();
+        project.setFile(new File(baseDir, "pom.xml"));
+
+        MavenVersionValidationPlugin mvnPlugin = new MavenVersionValidationPlugin();
+        mvnPlugin.setWhitelistedValues(new String[] {"-beta", "#"});
+        mvnPlugin.project = project;
+        mvnPlugin.buildDirectory = new File(baseDir, "target");
+        mvnPlugin.incremental = incremental;
+        return mvnPlugin;
+    }
+
+    private static Plugin createBuildPlugin(String pluginKey, String goal) {
+        PluginExecution pluginExecution = new PluginExecution();
+        pluginExecution.setId("validate");
+        pluginExecution.addGoal(goal);
+        Plugin plugin = new Plugin();
+        plugin.setGroupId(pluginKey.split(":")[0]);
+        plugin.setArtifactId(pluginKey.split(":")[1]);
+        plugin.addExecution(pluginExecution);
+        return plugin;
+    }
+
+    private static boolean executeFails(MavenVersionValidationPlugin mvnPlugin) throws Exception {
+        try {
+            mvnPlugin.execute();
+            return false;
+        } catch (MojoFailureException e) {
+            return true;
+        }
+    }
+
+    private static void writeFile(File file, String contents) throws IOException {
+        FileUtils.writeStringToFile(file, contents, StandardCharsets.UTF_8);
+    }
 }